@@ -25,6 +25,7 @@ import com.webauthn4j.springframework.security.webauthn.sample.domain.exception.
 import com.webauthn4j.springframework.security.webauthn.sample.domain.exception.WebAuthnSampleEntityNotFoundException;
 import com.webauthn4j.springframework.security.webauthn.sample.domain.repository.AuthenticatorEntityRepository;
 import com.webauthn4j.springframework.security.webauthn.sample.domain.repository.UserEntityRepository;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnAuthenticationContext;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
 import com.webauthn4j.util.Base64UrlUtil;
@@ -38,6 +39,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.terasoluna.gfw.common.message.ResultMessages;
 
 import java.util.Arrays;
+import java.util.Optional;
 
 /**
  * {@inheritDoc}
@@ -83,6 +85,22 @@ public class UserManagerImpl implements UserManager, WebAuthnUserDetailsService
         return authenticatorEntity.getUser();
     }
 
+    @Override
+    public Optional<WebAuthnUserDetails> findUserByUsername(String username) {
+        return userEntityRepository.findOneByEmailAddress(username).map(WebAuthnUserDetails.class::cast);
+    }
+
+    @Override
+    public Optional<WebAuthnUserDetails> findUserByCredentialId(byte[] credentialId) {
+        return authenticatorEntityRepository.findOneByCredentialId(credentialId).<WebAuthnUserDetails>map(AuthenticatorEntity::getUser);
+    }
+
+    @Override
+    public Optional<WebAuthnAuthenticationContext> findAuthenticationContextByCredentialId(byte[] credentialId) {
+        return authenticatorEntityRepository.findOneByCredentialId(credentialId)
+                .map(authenticatorEntity -> new WebAuthnAuthenticationContext(authenticatorEntity.getUser(), authenticatorEntity));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -169,6 +187,20 @@ public class UserManagerImpl implements UserManager, WebAuthnUserDetailsService
         userEntity.getAuthenticators().add(authenticatorEntity);
     }
 
+    /**
+     * Looks the user up once for the existence check and the insert
+     */
+    @Override
+    public boolean tryAddAuthenticator(String username, Authenticator authenticator) {
+        Optional<UserEntity> userEntity = userEntityRepository.findOneByEmailAddress(username);
+        userEntity.ifPresent(entity -> {
+            AuthenticatorEntity authenticatorEntity = modelMapper.map(authenticator, AuthenticatorEntity.class);
+            authenticatorEntity.setUser(entity);
+            entity.getAuthenticators().add(authenticatorEntity);
+        });
+        return userEntity.isPresent();
+    }
+
     @Override
     public void removeAuthenticator(String username, Authenticator authenticator) {
         UserEntity userEntity = userEntityRepository.findOneByEmailAddress(username)
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.authenticator;
+
+import com.webauthn4j.data.attestation.authenticator.COSEKey;
+import com.webauthn4j.data.attestation.authenticator.EC2COSEKey;
+import com.webauthn4j.data.attestation.authenticator.RSACOSEKey;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.data.attestation.statement.SignatureAlgorithm;
+import com.webauthn4j.util.MessageDigestUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the assertion signature verification throughput of a COSE algorithm for a JCA provider, to choose the
+ * provider preference order and the {@link PublicKeyDecoder} providers of a deployment.
+ * <p>
+ * The fixture is an assertion as an authenticator produces it: the signature over the authenticatorData and the
+ * SHA-256 hash of the clientDataJSON. {@code decodeAndVerify} decodes the credential public key from its COSEKey on
+ * each operation, as WebAuthnManager does without a {@link PublicKeyCache}; {@code verify} starts from the decoded
+ * key. Both create a {@code Signature} per operation, as WebAuthnManager does. Providers are given by name, for
+ * example {@code -p provider=default,SunEC,BC}; {@code default} stands for the most preferred provider.
+ * Combinations of an algorithm with a provider not supporting it fail and are skipped.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SignatureVerificationBenchmark {
+
+    @Param({"ES256", "RS256"})
+    private String algorithm;
+
+    @Param({"default"})
+    private String provider;
+
+    private Provider jcaProvider;
+    private String jcaName;
+    private COSEKey coseKey;
+    private PublicKeyDecoder publicKeyDecoder;
+    private PublicKey publicKey;
+    private byte[] signedData;
+    private byte[] signature;
+
+    @Setup
+    public void setup() throws GeneralSecurityException {
+        COSEAlgorithmIdentifier coseAlgorithm;
+        KeyPair keyPair;
+        switch (algorithm) {
+            case "ES256":
+                coseAlgorithm = COSEAlgorithmIdentifier.ES256;
+                KeyPairGenerator ecKeyPairGenerator = KeyPairGenerator.getInstance("EC");
+                ecKeyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+                keyPair = ecKeyPairGenerator.generateKeyPair();
+                coseKey = EC2COSEKey.create((ECPublicKey) keyPair.getPublic(), coseAlgorithm);
+                break;
+            case "RS256":
+                coseAlgorithm = COSEAlgorithmIdentifier.RS256;
+                KeyPairGenerator rsaKeyPairGenerator = KeyPairGenerator.getInstance("RSA");
+                rsaKeyPairGenerator.initialize(2048);
+                keyPair = rsaKeyPairGenerator.generateKeyPair();
+                coseKey = RSACOSEKey.create((RSAPublicKey) keyPair.getPublic(), coseAlgorithm);
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported algorithm: " + algorithm);
+        }
+        jcaName = SignatureAlgorithm.create(coseAlgorithm).getJcaName();
+
+        publicKeyDecoder = new PublicKeyDecoder();
+        if (!"default".equals(provider)) {
+            jcaProvider = Security.getProvider(provider);
+            if (jcaProvider == null) {
+                throw new IllegalArgumentException("provider is not installed: " + provider);
+            }
+            publicKeyDecoder.setProvider(coseAlgorithm, jcaProvider);
+        }
+        publicKey = publicKeyDecoder.decode(coseKey);
+
+        byte[] authenticatorData = ByteBuffer.allocate(37)
+                .put(MessageDigestUtil.createSHA256().digest("example.com".getBytes(StandardCharsets.UTF_8)))
+                .put((byte) 0x05) // UP and UV
+                .putInt(42)
+                .array();
+        byte[] clientDataJSON = ("{\"type\":\"webauthn.get\",\"challenge\":\"AAECAwQFBgcICQoLDA0ODw\","
+                + "\"origin\":\"https://example.com\",\"crossOrigin\":false}").getBytes(StandardCharsets.UTF_8);
+        signedData = ByteBuffer.allocate(authenticatorData.length + 32)
+                .put(authenticatorData)
+                .put(MessageDigestUtil.createSHA256().digest(clientDataJSON))
+                .array();
+        Signature signer = Signature.getInstance(jcaName);
+        signer.initSign(keyPair.getPrivate());
+        signer.update(signedData);
+        signature = signer.sign();
+        if (!verify(publicKey)) {
+            throw new IllegalStateException("fixture does not verify");
+        }
+    }
+
+    @Benchmark
+    public boolean decodeAndVerify() throws GeneralSecurityException {
+        return verify(publicKeyDecoder.decode(coseKey));
+    }
+
+    @Benchmark
+    public boolean verify() throws GeneralSecurityException {
+        return verify(publicKey);
+    }
+
+    private boolean verify(PublicKey key) throws GeneralSecurityException {
+        Signature verifier = jcaProvider == null ? Signature.getInstance(jcaName) : Signature.getInstance(jcaName, jcaProvider);
+        verifier.initVerify(key);
+        verifier.update(signedData);
+        return verifier.verify(signature);
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares challenge generation through {@link DefaultChallenge}, which draws from the JVM wide {@code SecureRandom}
+ * behind {@code UUID.randomUUID()}, with the {@link ChallengeGenerator} implementations under concurrent load.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class ChallengeGeneratorBenchmark {
+
+    private DefaultChallengeGenerator defaultChallengeGenerator;
+    private PrefetchingChallengeGenerator prefetchingChallengeGenerator;
+
+    @Setup
+    public void setup() {
+        defaultChallengeGenerator = new DefaultChallengeGenerator();
+        prefetchingChallengeGenerator = new PrefetchingChallengeGenerator(new DefaultChallengeGenerator());
+        prefetchingChallengeGenerator.afterPropertiesSet();
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefetchingChallengeGenerator.destroy();
+    }
+
+    @Benchmark
+    public Challenge sharedSecureRandom() {
+        return new DefaultChallenge();
+    }
+
+    @Benchmark
+    public Challenge perThreadDrbg() {
+        return defaultChallengeGenerator.generate();
+    }
+
+    @Benchmark
+    public Challenge prefetched() {
+        return prefetchingChallengeGenerator.generate();
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a full challenge round trip (issue on the options request, consume on the
+ * authentication request) for the repositories which do not rely on the HTTP session.
+ * The JDBC repository runs against an embedded H2 database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class ChallengeRepositoryBenchmark {
+
+    @Param({"jdbc", "inMemory", "keyValue"})
+    private String repository;
+
+    private EmbeddedDatabase dataSource;
+    private AbstractClientHeldChallengeRepository target;
+
+    @Setup
+    public void setup() {
+        switch (repository) {
+            case "jdbc":
+                dataSource = new EmbeddedDatabaseBuilder()
+                        .generateUniqueName(true)
+                        .setType(EmbeddedDatabaseType.H2)
+                        .addScript(JdbcChallengeRepository.DEFAULT_SCHEMA_LOCATION)
+                        .build();
+                JdbcChallengeRepository jdbcChallengeRepository = new JdbcChallengeRepository(dataSource);
+                jdbcChallengeRepository.afterPropertiesSet();
+                target = jdbcChallengeRepository;
+                break;
+            case "inMemory":
+                target = new InMemoryChallengeRepository();
+                break;
+            case "keyValue":
+                target = new KeyValueChallengeRepository(new InMemoryChallengeStore());
+                break;
+            default:
+                throw new IllegalArgumentException(repository);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        if (target instanceof JdbcChallengeRepository) {
+            ((JdbcChallengeRepository) target).destroy();
+        }
+        if (dataSource != null) {
+            dataSource.shutdown();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Challenge issueAndConsume() {
+        Challenge issued = target.loadOrGenerateChallenge(new MockHttpServletRequest());
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(AbstractClientHeldChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, Base64UrlUtil.encodeToString(issued.getValue()));
+        return target.loadChallenge(request);
+    }
+
+}
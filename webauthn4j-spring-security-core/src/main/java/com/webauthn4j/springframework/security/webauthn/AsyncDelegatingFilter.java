@@ -0,0 +1,203 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.GenericFilterBean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A {@link Filter} decorator which runs the delegate on an {@link Executor}, releasing the container thread while
+ * the request is processed.
+ * <p>
+ * Requests matched by the given {@link RequestMatcher} are put in asynchronous mode with
+ * {@link ServletRequest#startAsync(ServletRequest, ServletResponse)}, and processed by the delegate on the executor.
+ * The matcher must match exactly the requests the delegate handles by itself, as the rest of the filter chain cannot
+ * be invoked from the executor. Other requests, and requests which do not support asynchronous processing, are
+ * processed by the delegate on the calling thread.
+ * <p>
+ * The delegate runs with a copy of the {@link SecurityContext} of the calling thread, and the response is flushed
+ * before the request completes, so that an authentication set by the delegate is saved by the
+ * {@code SecurityContextRepository}. Requests rejected by the executor, and requests timing out, are answered with
+ * 503 Service Unavailable.
+ * <p>
+ * Any {@link Executor} can be used, for example a bounded {@code ThreadPoolTaskExecutor}, or
+ * {@code Executors.newVirtualThreadPerTaskExecutor()} on JDK 21 or later.
+ */
+public class AsyncDelegatingFilter extends GenericFilterBean {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final long DEFAULT_ASYNC_TIMEOUT = 30_000;
+
+    //~ Instance fields
+    // ================================================================================================
+    private final Filter delegate;
+    private final RequestMatcher requestMatcher;
+    private final Executor executor;
+
+    private long asyncTimeout = DEFAULT_ASYNC_TIMEOUT;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    /**
+     * Constructor
+     *
+     * @param delegate       the filter to run on the executor
+     * @param requestMatcher matches the requests handled by the delegate
+     * @param executor       the executor
+     */
+    public AsyncDelegatingFilter(Filter delegate, RequestMatcher requestMatcher, Executor executor) {
+        Assert.notNull(delegate, "delegate must not be null");
+        Assert.notNull(requestMatcher, "requestMatcher must not be null");
+        Assert.notNull(executor, "executor must not be null");
+        this.delegate = delegate;
+        this.requestMatcher = requestMatcher;
+        this.executor = executor;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!requiresAsync(request)) {
+            delegate.doFilter(request, response, chain);
+            return;
+        }
+
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        AsyncContext asyncContext = request.startAsync(request, response);
+        asyncContext.setTimeout(asyncTimeout);
+        asyncContext.addListener(new TimeoutListener());
+        try {
+            executor.execute(() -> process(asyncContext, securityContext));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Request is rejected by the executor", e);
+            respondServiceUnavailable(asyncContext);
+        }
+    }
+
+    private boolean requiresAsync(ServletRequest request) {
+        return request.isAsyncSupported()
+                && request.getDispatcherType() == DispatcherType.REQUEST
+                && request instanceof HttpServletRequest
+                && requestMatcher.matches((HttpServletRequest) request);
+    }
+
+    private void process(AsyncContext asyncContext, SecurityContext securityContext) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(securityContext.getAuthentication());
+        SecurityContextHolder.setContext(context);
+        try {
+            ServletResponse response = asyncContext.getResponse();
+            try {
+                delegate.doFilter(asyncContext.getRequest(), response, (request, res) -> {
+                    throw new IllegalStateException("The filter chain cannot be continued from the executor. The requestMatcher must only match the requests handled by the delegate.");
+                });
+                // commits the response on this thread, for the SecurityContext to be saved
+                response.flushBuffer();
+            } catch (IOException | ServletException | RuntimeException e) {
+                logger.error("Failed to process the request asynchronously", e);
+                if (!response.isCommitted() && response instanceof HttpServletResponse) {
+                    ((HttpServletResponse) response).setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                }
+            }
+        } catch (IllegalStateException e) {
+            // the request has timed out, and the response is recycled
+            logger.debug("Request has already been completed", e);
+        } finally {
+            SecurityContextHolder.clearContext();
+            complete(asyncContext);
+        }
+    }
+
+    private void respondServiceUnavailable(AsyncContext asyncContext) {
+        ServletResponse response = asyncContext.getResponse();
+        if (!response.isCommitted() && response instanceof HttpServletResponse) {
+            ((HttpServletResponse) response).setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        }
+        complete(asyncContext);
+    }
+
+    private void complete(AsyncContext asyncContext) {
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            logger.debug("Request has already been completed", e);
+        }
+    }
+
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    /**
+     * Sets the timeout of the asynchronous processing
+     *
+     * @param asyncTimeout the timeout in milliseconds, or 0 for no timeout
+     */
+    public void setAsyncTimeout(long asyncTimeout) {
+        Assert.isTrue(asyncTimeout >= 0, "asyncTimeout must not be negative");
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    private class TimeoutListener implements AsyncListener {
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            logger.debug("Request has timed out");
+            respondServiceUnavailable(event.getAsyncContext());
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // nop
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // nop
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // nop
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.security.authentication.AccountExpiredException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.LockedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+
+import java.util.Objects;
+
+/**
+ * The checks applied around the assertion validation, shared by {@link WebAuthnAuthenticationProvider} and its
+ * reactive counterpart
+ */
+public class WebAuthnAuthenticationChecks {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    private static final Log logger = LogFactory.getLog(WebAuthnAuthenticationChecks.class);
+    private static final MessageSourceAccessor messages = SpringSecurityWebAuthnMessageSource.getAccessor();
+
+    private static final UserDetailsChecker PRE_AUTHENTICATION_CHECKS = new DefaultPreAuthenticationChecks();
+    private static final UserDetailsChecker POST_AUTHENTICATION_CHECKS = new DefaultPostAuthenticationChecks();
+
+    private WebAuthnAuthenticationChecks() {
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Returns the default checks of the user status <em>before</em> the assertion is validated: the account must
+     * not be locked, disabled or expired
+     *
+     * @return pre-authentication checks
+     */
+    public static UserDetailsChecker preAuthenticationChecks() {
+        return PRE_AUTHENTICATION_CHECKS;
+    }
+
+    /**
+     * Returns the default checks of the user status <em>after</em> the assertion is validated: the credentials must
+     * not be expired
+     *
+     * @return post-authentication checks
+     */
+    public static UserDetailsChecker postAuthenticationChecks() {
+        return POST_AUTHENTICATION_CHECKS;
+    }
+
+    /**
+     * Raises the counter of the authenticator to the latest known one, so that counter regression is detected against
+     * a counter which is not persisted yet
+     *
+     * @param authenticator the authenticator as loaded
+     * @param latestCounter the latest known counter of the authenticator
+     */
+    public static void applyLatestCounter(Authenticator authenticator, long latestCounter) {
+        if (latestCounter > authenticator.getCounter()) {
+            authenticator.setCounter(latestCounter);
+        }
+    }
+
+    /**
+     * Returns whether user verification is required. It is not when the current authentication is already the one of
+     * the user.
+     *
+     * @param user                  the user
+     * @param credentials           the authentication request
+     * @param currentAuthentication the current authentication, may be {@code null}
+     * @return {@code true} if user verification is required
+     */
+    public static boolean isUserVerificationRequired(WebAuthnUserDetails user, WebAuthnAuthenticationRequest credentials, Authentication currentAuthentication) {
+        // If current authentication is authenticated and username matches, return false
+        if (currentAuthentication != null && currentAuthentication.isAuthenticated() && Objects.equals(currentAuthentication.getName(), user.getUsername())) {
+            return false;
+        } else {
+            return credentials.isUserVerificationRequired();
+        }
+    }
+
+    private static class DefaultPreAuthenticationChecks implements UserDetailsChecker {
+        @Override
+        public void check(UserDetails user) {
+            if (!user.isAccountNonLocked()) {
+                logger.debug("User account is locked");
+
+                throw new LockedException(messages.getMessage(
+                        "WebAuthnAuthenticationProvider.locked",
+                        "User account is locked"));
+            }
+
+            if (!user.isEnabled()) {
+                logger.debug("User account is disabled");
+
+                throw new DisabledException(messages.getMessage(
+                        "WebAuthnAuthenticationProvider.disabled",
+                        "User is disabled"));
+            }
+
+            if (!user.isAccountNonExpired()) {
+                logger.debug("User account is expired");
+
+                throw new AccountExpiredException(messages.getMessage(
+                        "WebAuthnAuthenticationProvider.expired",
+                        "User account has expired"));
+            }
+        }
+    }
+
+    private static class DefaultPostAuthenticationChecks implements UserDetailsChecker {
+        @Override
+        public void check(UserDetails user) {
+            if (!user.isCredentialsNonExpired()) {
+                logger.debug("User account credentials have expired");
+
+                throw new CredentialsExpiredException(messages.getMessage(
+                        "WebAuthnAuthenticationProvider.credentialsExpired",
+                        "User credentials have expired"));
+            }
+        }
+    }
+}
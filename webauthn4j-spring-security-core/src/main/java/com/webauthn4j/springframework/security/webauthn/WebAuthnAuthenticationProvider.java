@@ -18,11 +18,23 @@ package com.webauthn4j.springframework.security.webauthn;
 
 import com.webauthn4j.WebAuthnManager;
 import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.converter.AuthenticationExtensionsClientOutputsConverter;
+import com.webauthn4j.converter.AuthenticatorDataConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.AuthenticationData;
 import com.webauthn4j.data.AuthenticationParameters;
 import com.webauthn4j.data.AuthenticationRequest;
+import com.webauthn4j.data.attestation.authenticator.AuthenticatorData;
+import com.webauthn4j.data.extension.authenticator.AuthenticationExtensionAuthenticatorOutput;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionClientOutput;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientOutputs;
+import com.webauthn4j.springframework.security.webauthn.authenticator.PublicKeyCache;
 import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticatorService;
 import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
 import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnAuthenticationContext;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
 import com.webauthn4j.springframework.security.webauthn.util.ExceptionUtil;
@@ -32,16 +44,15 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.context.support.MessageSourceAccessor;
 import org.springframework.security.authentication.*;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.authority.mapping.GrantedAuthoritiesMapper;
 import org.springframework.security.core.authority.mapping.NullAuthoritiesMapper;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.util.Assert;
 
 import java.io.Serializable;
-import java.util.Arrays;
-import java.util.Objects;
+import java.util.Optional;
 
 /**
  * An {@link AuthenticationProvider} implementation for processing {@link WebAuthnAssertionAuthenticationToken}
@@ -59,9 +70,13 @@ public class WebAuthnAuthenticationProvider implements AuthenticationProvider {
     private final WebAuthnManager webAuthnManager;
     private boolean forcePrincipalAsString = false;
     private boolean hideCredentialIdNotFoundExceptions = true;
-    private UserDetailsChecker preAuthenticationChecks = new DefaultPreAuthenticationChecks();
-    private UserDetailsChecker postAuthenticationChecks = new DefaultPostAuthenticationChecks();
+    private UserDetailsChecker preAuthenticationChecks = WebAuthnAuthenticationChecks.preAuthenticationChecks();
+    private UserDetailsChecker postAuthenticationChecks = WebAuthnAuthenticationChecks.postAuthenticationChecks();
     private final GrantedAuthoritiesMapper authoritiesMapper = new NullAuthoritiesMapper();
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
+    private PublicKeyCache publicKeyCache = null;
+    private AuthenticatorDataConverter authenticatorDataConverter;
+    private AuthenticationExtensionsClientOutputsConverter authenticationExtensionsClientOutputsConverter;
 
     // ~ Constructor
     // ========================================================================================================
@@ -78,6 +93,7 @@ public class WebAuthnAuthenticationProvider implements AuthenticationProvider {
         this.userDetailsService = userDetailsService;
         this.authenticatorService = authenticatorService;
         this.webAuthnManager = webAuthnManager;
+        setObjectConverter(new ObjectConverter());
     }
 
     // ~ Methods
@@ -106,17 +122,23 @@ public class WebAuthnAuthenticationProvider implements AuthenticationProvider {
 
         byte[] credentialId = credentials.getCredentialId();
 
-        WebAuthnUserDetails user = retrieveWebAuthnUserDetails(credentialId);
-        Authenticator authenticator = user.getAuthenticators().stream()
-                .filter(item -> Arrays.equals(item.getAttestedCredentialData().getCredentialId(), credentialId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalStateException("credentialId doesn't match."));
+        WebAuthnAuthenticationContext authenticationContext = instrumentation.observe(WebAuthnStage.AUTHENTICATION_USER_LOOKUP, sample -> {
+            sample.setCredentialId(credentialId);
+            return retrieveAuthenticationContext(credentialId);
+        });
+        WebAuthnUserDetails user = authenticationContext.getUser();
+        Authenticator authenticator = authenticationContext.getAuthenticator();
+        WebAuthnAuthenticationChecks.applyLatestCounter(authenticator, authenticatorService.getLatestCounter(credentialId, authenticator.getCounter()));
 
         preAuthenticationChecks.check(user);
         doAuthenticate(authenticationToken, authenticator, user);
         postAuthenticationChecks.check(user);
 
-        authenticatorService.updateCounter(credentialId, authenticator.getCounter());
+        instrumentation.observe(WebAuthnStage.AUTHENTICATION_COUNTER_UPDATE, sample -> {
+            sample.setCredentialId(credentialId);
+            authenticatorService.updateCounter(credentialId, authenticator.getCounter());
+            return null;
+        });
 
         Serializable principalToReturn = user;
 
@@ -146,27 +168,62 @@ public class WebAuthnAuthenticationProvider implements AuthenticationProvider {
 
         boolean userVerificationRequired = isUserVerificationRequired(user, credentials);
 
-        AuthenticationRequest authenticationRequest = new AuthenticationRequest(
-                credentials.getCredentialId(),
-                credentials.getAuthenticatorData(),
-                credentials.getClientDataJSON(),
-                credentials.getClientExtensionsJSON(),
-                credentials.getSignature()
-        );
         AuthenticationParameters authenticationParameters = new AuthenticationParameters(
                 credentials.getServerProperty(),
-                authenticator,
+                publicKeyCache == null ? authenticator : publicKeyCache.wrap(authenticator),
                 userVerificationRequired,
                 credentials.isUserPresenceRequired(),
                 credentials.getExpectedAuthenticationExtensionIds()
         );
 
-        try {
-            webAuthnManager.validate(authenticationRequest, authenticationParameters);
-        } catch (WebAuthnException e) {
-            throw ExceptionUtil.wrapWithAuthenticationException(e);
-        }
+        instrumentation.observe(WebAuthnStage.AUTHENTICATION_VALIDATION, sample -> {
+            sample.setCredentialId(credentials.getCredentialId());
+            if (authenticator.getAttestedCredentialData() != null) {
+                sample.setAaguid(authenticator.getAttestedCredentialData().getAaguid());
+            }
+            if (authenticator.getAttestationStatement() != null) {
+                sample.setAttestationFormat(authenticator.getAttestationStatement().getFormat());
+            }
+            try {
+                if (credentials.getCollectedClientData() == null) {
+                    AuthenticationRequest authenticationRequest = new AuthenticationRequest(
+                            credentials.getCredentialId(),
+                            credentials.getAuthenticatorData(),
+                            credentials.getClientDataJSON(),
+                            credentials.getClientExtensionsJSON(),
+                            credentials.getSignature()
+                    );
+                    webAuthnManager.validate(authenticationRequest, authenticationParameters);
+                } else {
+                    webAuthnManager.validate(toAuthenticationData(credentials), authenticationParameters);
+                }
+            } catch (WebAuthnException e) {
+                throw ExceptionUtil.wrapWithAuthenticationException(e);
+            }
+            return null;
+        });
+    }
 
+    /**
+     * Builds the {@link AuthenticationData} as {@link WebAuthnManager#parse(AuthenticationRequest)} does, except that
+     * the clientDataJSON already parsed by the caller is reused.
+     */
+    private AuthenticationData toAuthenticationData(WebAuthnAuthenticationRequest credentials) {
+        byte[] authenticatorDataBytes = credentials.getAuthenticatorData();
+        AuthenticatorData<AuthenticationExtensionAuthenticatorOutput<?>> authenticatorData =
+                authenticatorDataBytes == null ? null : authenticatorDataConverter.convert(authenticatorDataBytes);
+        AuthenticationExtensionsClientOutputs<AuthenticationExtensionClientOutput<?>> clientExtensions =
+                authenticationExtensionsClientOutputsConverter.convert(credentials.getClientExtensionsJSON());
+        return new AuthenticationData(
+                credentials.getCredentialId(),
+                null,
+                authenticatorData,
+                authenticatorDataBytes,
+                credentials.getCollectedClientData(),
+                credentials.getClientDataJSON(),
+                clientExtensions,
+                credentials.getSignature()
+        );
     }
 
     public boolean isForcePrincipalAsString() {
@@ -205,6 +262,45 @@ public class WebAuthnAuthenticationProvider implements AuthenticationProvider {
         this.userDetailsService = userDetailsService;
     }
 
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the user lookup, validation and counter update stages
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Sets the {@link ObjectConverter} used to parse the authenticatorData and the clientExtensionsJSON of requests
+     * carrying an already parsed clientDataJSON. It should be the one the {@link WebAuthnManager} is built with.
+     *
+     * @param objectConverter objectConverter
+     */
+    public void setObjectConverter(ObjectConverter objectConverter) {
+        Assert.notNull(objectConverter, "objectConverter must not be null");
+        this.authenticatorDataConverter = new AuthenticatorDataConverter(objectConverter);
+        this.authenticationExtensionsClientOutputsConverter = new AuthenticationExtensionsClientOutputsConverter(objectConverter);
+    }
+
+    public PublicKeyCache getPublicKeyCache() {
+        return publicKeyCache;
+    }
+
+    /**
+     * Sets the cache of the PublicKeys the assertion signatures are verified with. No cache is used by default.
+     *
+     * @param publicKeyCache publicKeyCache, or {@code null} to decode the PublicKey on every assertion
+     */
+    public void setPublicKeyCache(PublicKeyCache publicKeyCache) {
+        this.publicKeyCache = publicKeyCache;
+    }
+
     protected UserDetailsChecker getPreAuthenticationChecks() {
         return preAuthenticationChecks;
     }
@@ -227,80 +323,38 @@ public class WebAuthnAuthenticationProvider implements AuthenticationProvider {
         this.postAuthenticationChecks = postAuthenticationChecks;
     }
 
-    WebAuthnUserDetails retrieveWebAuthnUserDetails(byte[] credentialId) {
-        WebAuthnUserDetails user;
+    WebAuthnAuthenticationContext retrieveAuthenticationContext(byte[] credentialId) {
+        Optional<WebAuthnAuthenticationContext> authenticationContext;
         try {
-            user = userDetailsService.loadUserByCredentialId(credentialId);
+            authenticationContext = userDetailsService.findAuthenticationContextByCredentialId(credentialId);
         } catch (CredentialIdNotFoundException notFound) {
-            if (hideCredentialIdNotFoundExceptions) {
-                throw new BadCredentialsException(messages.getMessage(
-                        "WebAuthnAuthenticationProvider.badCredentials",
-                        "Bad credentials"));
-            } else {
-                throw notFound;
-            }
+            throw hideCredentialIdNotFoundException(notFound);
         } catch (Exception repositoryProblem) {
             throw new InternalAuthenticationServiceException(repositoryProblem.getMessage(), repositoryProblem);
         }
 
-        if (user == null) {
+        if (authenticationContext == null) {
             throw new InternalAuthenticationServiceException(
                     "UserDetailsService returned null, which is an interface contract violation");
         }
-        return user;
+        // Unknown credentialIds are expected during enumeration attempts, so the stack trace is not captured
+        return authenticationContext.orElseThrow(() -> hideCredentialIdNotFoundException(
+                new CredentialIdNotFoundException("credentialId is not found", null, false)));
     }
 
-    boolean isUserVerificationRequired(WebAuthnUserDetails user, WebAuthnAuthenticationRequest credentials) {
-
-        Authentication currentAuthentication = SecurityContextHolder.getContext().getAuthentication();
-
-        // If current authentication is authenticated and username matches, return false
-        if (currentAuthentication != null && currentAuthentication.isAuthenticated() && Objects.equals(currentAuthentication.getName(), user.getUsername())) {
-            return false;
+    private AuthenticationException hideCredentialIdNotFoundException(CredentialIdNotFoundException notFound) {
+        if (hideCredentialIdNotFoundExceptions) {
+            return new BadCredentialsException(messages.getMessage(
+                    "WebAuthnAuthenticationProvider.badCredentials",
+                    "Bad credentials"));
         } else {
-            return credentials.isUserVerificationRequired();
-        }
-    }
-
-    private class DefaultPreAuthenticationChecks implements UserDetailsChecker {
-        @Override
-        public void check(UserDetails user) {
-            if (!user.isAccountNonLocked()) {
-                logger.debug("User account is locked");
-
-                throw new LockedException(messages.getMessage(
-                        "WebAuthnAuthenticationProvider.locked",
-                        "User account is locked"));
-            }
-
-            if (!user.isEnabled()) {
-                logger.debug("User account is disabled");
-
-                throw new DisabledException(messages.getMessage(
-                        "WebAuthnAuthenticationProvider.disabled",
-                        "User is disabled"));
-            }
-
-            if (!user.isAccountNonExpired()) {
-                logger.debug("User account is expired");
-
-                throw new AccountExpiredException(messages.getMessage(
-                        "WebAuthnAuthenticationProvider.expired",
-                        "User account has expired"));
-            }
+            return notFound;
         }
     }
 
-    private class DefaultPostAuthenticationChecks implements UserDetailsChecker {
-        @Override
-        public void check(UserDetails user) {
-            if (!user.isCredentialsNonExpired()) {
-                logger.debug("User account credentials have expired");
+    boolean isUserVerificationRequired(WebAuthnUserDetails user, WebAuthnAuthenticationRequest credentials) {
 
-                throw new CredentialsExpiredException(messages.getMessage(
-                        "WebAuthnAuthenticationProvider.credentialsExpired",
-                        "User credentials have expired"));
-            }
-        }
+        Authentication currentAuthentication = SecurityContextHolder.getContext().getAuthentication();
+        return WebAuthnAuthenticationChecks.isUserVerificationRequired(user, credentials, currentAuthentication);
     }
 }
@@ -17,6 +17,8 @@
 package com.webauthn4j.springframework.security.webauthn;
 
 import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
 import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
 import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProvider;
 import org.springframework.http.HttpMethod;
@@ -77,6 +79,7 @@ public class WebAuthnProcessingFilter extends UsernamePasswordAuthenticationFilt
     private String clientExtensionsJSONParameter = SPRING_SECURITY_FORM_CLIENT_EXTENSIONS_JSON_KEY;
 
     private ServerPropertyProvider serverPropertyProvider;
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
 
     private List<String> expectedAuthenticationExtensionIds = Collections.emptyList();
 
@@ -130,18 +133,20 @@ public class WebAuthnProcessingFilter extends UsernamePasswordAuthenticationFilt
         if (StringUtils.isEmpty(credentialId)) {
             authRequest = new UsernamePasswordAuthenticationToken(username, password, authorities);
         } else {
-            byte[] rawId = Base64Utils.decodeFromUrlSafeString(credentialId);
-            byte[] rawClientData = Base64Utils.decodeFromUrlSafeString(clientDataJSON);
-            byte[] rawAuthenticatorData = Base64Utils.decodeFromUrlSafeString(authenticatorData);
-            byte[] signatureBytes = Base64Utils.decodeFromUrlSafeString(signature);
-
-            ServerProperty serverProperty = serverPropertyProvider.provide(request);
+            byte[][] decoded = instrumentation.time(WebAuthnStage.AUTHENTICATION_REQUEST_DECODE, () -> new byte[][]{
+                    Base64Utils.decodeFromUrlSafeString(credentialId),
+                    Base64Utils.decodeFromUrlSafeString(clientDataJSON),
+                    Base64Utils.decodeFromUrlSafeString(authenticatorData),
+                    Base64Utils.decodeFromUrlSafeString(signature)
+            });
+            ServerProperty serverProperty =
+                    instrumentation.time(WebAuthnStage.AUTHENTICATION_SERVER_PROPERTY, () -> serverPropertyProvider.provide(request));
 
             WebAuthnAuthenticationRequest webAuthnAuthenticationRequest = new WebAuthnAuthenticationRequest(
-                    rawId,
-                    rawClientData,
-                    rawAuthenticatorData,
-                    signatureBytes,
+                    decoded[0],
+                    decoded[1],
+                    decoded[2],
+                    decoded[3],
                     clientExtensionsJSON,
                     serverProperty,
                     true,
@@ -233,6 +238,20 @@ public class WebAuthnProcessingFilter extends UsernamePasswordAuthenticationFilt
         this.serverPropertyProvider = serverPropertyProvider;
     }
 
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the request decode and ServerProperty resolution stages
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
+
 
     private String obtainClientDataJSON(HttpServletRequest request) {
         return request.getParameter(clientDataJSONParameter);
@@ -20,7 +20,12 @@ import com.webauthn4j.WebAuthnManager;
 import com.webauthn4j.data.RegistrationData;
 import com.webauthn4j.data.RegistrationParameters;
 import com.webauthn4j.data.RegistrationRequest;
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.AuthenticatorData;
 import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
 import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProvider;
 import com.webauthn4j.springframework.security.webauthn.util.ExceptionUtil;
 import com.webauthn4j.util.Base64UrlUtil;
@@ -40,6 +45,7 @@ public class WebAuthnRegistrationRequestValidator {
     private final ServerPropertyProvider serverPropertyProvider;
 
     private List<String> expectedRegistrationExtensionIds;
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
 
     // ~ Constructors
     // ===================================================================================================
@@ -75,19 +81,67 @@ public class WebAuthnRegistrationRequestValidator {
             transports.forEach(transport -> Assert.hasText(transport, "each transport must have text"));
         }
 
-        RegistrationRequest webAuthnRegistrationRequest =
-                createRegistrationRequest(clientDataBase64url, attestationObjectBase64url, transports, clientExtensionsJSON);
-        RegistrationParameters webAuthnRegistrationParameters =
-                createRegistrationParameters(httpServletRequest);
+        RegistrationRequest webAuthnRegistrationRequest = instrumentation.time(WebAuthnStage.REGISTRATION_REQUEST_DECODE,
+                () -> createRegistrationRequest(clientDataBase64url, attestationObjectBase64url, transports, clientExtensionsJSON));
+        return validate(httpServletRequest, webAuthnRegistrationRequest);
+    }
+
+    /**
+     * Validates a registration request whose clientDataJSON and attestationObject are already decoded from Base64Url.
+     * They are parsed once, by the validation, and the parsed values are returned in the response.
+     *
+     * @param httpServletRequest     request
+     * @param clientDataBytes        clientDataJSON
+     * @param attestationObjectBytes attestationObject
+     * @param transports             transports, may be {@code null}
+     * @param clientExtensionsJSON   client extension outputs JSON, may be {@code null}
+     * @return the parsed and validated registration
+     */
+    public WebAuthnRegistrationRequestValidationResponse validate(HttpServletRequest httpServletRequest,
+                                                                  byte[] clientDataBytes,
+                                                                  byte[] attestationObjectBytes,
+                                                                  Set<String> transports,
+                                                                  String clientExtensionsJSON
+    ) {
+        Assert.notNull(httpServletRequest, "httpServletRequest must not be null");
+        Assert.isTrue(clientDataBytes != null && clientDataBytes.length > 0, "clientDataBytes must not be empty");
+        Assert.isTrue(attestationObjectBytes != null && attestationObjectBytes.length > 0, "attestationObjectBytes must not be empty");
+        if (transports != null) {
+            transports.forEach(transport -> Assert.hasText(transport, "each transport must have text"));
+        }
 
-        try {
-            RegistrationData response = webAuthnManager.validate(webAuthnRegistrationRequest, webAuthnRegistrationParameters);
+        return validate(httpServletRequest, new RegistrationRequest(attestationObjectBytes, clientDataBytes, clientExtensionsJSON, transports));
+    }
+
+    private WebAuthnRegistrationRequestValidationResponse validate(HttpServletRequest httpServletRequest, RegistrationRequest webAuthnRegistrationRequest) {
+        RegistrationParameters webAuthnRegistrationParameters =
+                instrumentation.time(WebAuthnStage.REGISTRATION_SERVER_PROPERTY, () -> createRegistrationParameters(httpServletRequest));
+
+        return instrumentation.observe(WebAuthnStage.REGISTRATION_VALIDATION, sample -> {
+            RegistrationData response;
+            try {
+                response = webAuthnManager.validate(webAuthnRegistrationRequest, webAuthnRegistrationParameters);
+            } catch (WebAuthnException e) {
+                throw ExceptionUtil.wrapWithAuthenticationException(e);
+            }
+            setAttributes(sample, response.getAttestationObject());
             return new WebAuthnRegistrationRequestValidationResponse(
                     response.getCollectedClientData(),
                     response.getAttestationObject(),
                     response.getClientExtensions());
-        } catch (WebAuthnException e) {
-            throw ExceptionUtil.wrapWithAuthenticationException(e);
+        });
+    }
+
+    private void setAttributes(WebAuthnInstrumentation.Sample sample, AttestationObject attestationObject) {
+        if (attestationObject == null) {
+            return;
+        }
+        sample.setAttestationFormat(attestationObject.getFormat());
+        AuthenticatorData<?> authenticatorData = attestationObject.getAuthenticatorData();
+        AttestedCredentialData attestedCredentialData = authenticatorData == null ? null : authenticatorData.getAttestedCredentialData();
+        if (attestedCredentialData != null) {
+            sample.setCredentialId(attestedCredentialData.getCredentialId());
+            sample.setAaguid(attestedCredentialData.getAaguid());
         }
     }
 
@@ -125,4 +179,18 @@ public class WebAuthnRegistrationRequestValidator {
         Assert.notNull(expectedRegistrationExtensionIds, "expectedRegistrationExtensionIds must not be null");
         this.expectedRegistrationExtensionIds = expectedRegistrationExtensionIds;
     }
+
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the request decode, ServerProperty resolution and validation stages
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.authenticator;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.COSEKey;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.security.PublicKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache of the JCA {@link PublicKey}s decoded from the {@link COSEKey}s of authenticators, keyed by credentialId.
+ * <p>
+ * Decoding a COSEKey into a PublicKey looks up a KeyFactory and validates the key, which is done on every assertion
+ * otherwise. An entry is only served for a COSEKey equal to the one it was decoded from, so that an authenticator
+ * re-registered under the same credentialId is never verified with a stale key. The cache holds at most
+ * {@code maximumSize} keys, evicting the least recently used one first. Removed authenticators should be invalidated
+ * by {@link #invalidate(byte[])}; {@code CachingWebAuthnUserDetailsService} does it when given this cache.
+ * Keys are decoded by a {@link PublicKeyDecoder}, which selects the JCA provider per COSE algorithm.
+ */
+public class PublicKeyCache {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    //~ Instance fields
+    // ================================================================================================
+    private final int maximumSize;
+    private final LinkedHashMap<ByteBuffer, Entry> entries;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private PublicKeyDecoder publicKeyDecoder = new PublicKeyDecoder();
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public PublicKeyCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public PublicKeyCache(int maximumSize) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<ByteBuffer, PublicKeyCache.Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, PublicKeyCache.Entry> eldest) {
+                return size() > PublicKeyCache.this.maximumSize;
+            }
+        };
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Returns the PublicKey of the COSEKey, decoding it on a cache miss
+     *
+     * @param credentialId credentialId of the authenticator
+     * @param coseKey      COSEKey of the authenticator
+     * @return the PublicKey
+     */
+    public PublicKey getPublicKey(byte[] credentialId, COSEKey coseKey) {
+        ByteBuffer key = ByteBuffer.wrap(credentialId);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.coseKey.equals(coseKey)) {
+            hitCount.increment();
+            return entry.publicKey;
+        }
+        missCount.increment();
+        PublicKey publicKey = publicKeyDecoder.decode(coseKey);
+        if (publicKey != null) {
+            synchronized (entries) {
+                entries.put(ByteBuffer.wrap(credentialId.clone()), new Entry(coseKey, publicKey));
+            }
+        }
+        return publicKey;
+    }
+
+    /**
+     * Returns a view of the authenticator whose COSEKey resolves its PublicKey through this cache. The view delegates
+     * everything else, including the counter, to the authenticator.
+     *
+     * @param authenticator authenticator
+     * @return the view, or the authenticator itself if it has no COSEKey
+     */
+    public Authenticator wrap(Authenticator authenticator) {
+        AttestedCredentialData attestedCredentialData = authenticator.getAttestedCredentialData();
+        if (attestedCredentialData == null || attestedCredentialData.getCOSEKey() == null) {
+            return authenticator;
+        }
+        AttestedCredentialData cachingAttestedCredentialData = new AttestedCredentialData(
+                attestedCredentialData.getAaguid(),
+                attestedCredentialData.getCredentialId(),
+                new PublicKeyCachingCOSEKey(attestedCredentialData.getCredentialId(), attestedCredentialData.getCOSEKey(), this)
+        );
+        return new PublicKeyCachingAuthenticator(authenticator, cachingAttestedCredentialData);
+    }
+
+    /**
+     * Removes the cached PublicKey of an authenticator
+     *
+     * @param credentialId credentialId of the authenticator
+     */
+    public void invalidate(byte[] credentialId) {
+        synchronized (entries) {
+            entries.remove(ByteBuffer.wrap(credentialId));
+        }
+    }
+
+    /**
+     * Removes all cached PublicKeys
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public PublicKeyDecoder getPublicKeyDecoder() {
+        return publicKeyDecoder;
+    }
+
+    /**
+     * Sets the decoder of the COSEKeys. Keys already cached are not decoded again.
+     *
+     * @param publicKeyDecoder publicKeyDecoder
+     */
+    public void setPublicKeyDecoder(PublicKeyDecoder publicKeyDecoder) {
+        Assert.notNull(publicKeyDecoder, "publicKeyDecoder must not be null");
+        this.publicKeyDecoder = publicKeyDecoder;
+    }
+
+    private static class Entry {
+
+        private final COSEKey coseKey;
+        private final PublicKey publicKey;
+
+        Entry(COSEKey coseKey, PublicKey publicKey) {
+            this.coseKey = coseKey;
+            this.publicKey = publicKey;
+        }
+    }
+}
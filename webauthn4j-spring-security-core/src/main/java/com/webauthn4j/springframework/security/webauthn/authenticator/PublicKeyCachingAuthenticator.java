@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.authenticator;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.data.AuthenticatorTransport;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.statement.AttestationStatement;
+import com.webauthn4j.data.extension.authenticator.RegistrationExtensionAuthenticatorOutput;
+import com.webauthn4j.data.extension.client.RegistrationExtensionClientOutput;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An {@link Authenticator} view replacing the {@link AttestedCredentialData} of an authenticator, created by
+ * {@link PublicKeyCache#wrap(Authenticator)}. The counter is read from and written to the authenticator.
+ */
+class PublicKeyCachingAuthenticator implements Authenticator {
+
+    private final Authenticator delegate;
+    private final AttestedCredentialData attestedCredentialData;
+
+    PublicKeyCachingAuthenticator(Authenticator delegate, AttestedCredentialData attestedCredentialData) {
+        this.delegate = delegate;
+        this.attestedCredentialData = attestedCredentialData;
+    }
+
+    @Override
+    public AttestedCredentialData getAttestedCredentialData() {
+        return attestedCredentialData;
+    }
+
+    @Override
+    public AttestationStatement getAttestationStatement() {
+        return delegate.getAttestationStatement();
+    }
+
+    @Override
+    public Set<AuthenticatorTransport> getTransports() {
+        return delegate.getTransports();
+    }
+
+    @Override
+    public long getCounter() {
+        return delegate.getCounter();
+    }
+
+    @Override
+    public void setCounter(long value) {
+        delegate.setCounter(value);
+    }
+
+    @Override
+    public Map<String, RegistrationExtensionClientOutput<?>> getClientExtensions() {
+        return delegate.getClientExtensions();
+    }
+
+    @Override
+    public Map<String, RegistrationExtensionAuthenticatorOutput<?>> getAuthenticatorExtensions() {
+        return delegate.getAuthenticatorExtensions();
+    }
+}
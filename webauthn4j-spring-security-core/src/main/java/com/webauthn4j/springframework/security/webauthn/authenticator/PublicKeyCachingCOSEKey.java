@@ -0,0 +1,105 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.authenticator;
+
+import com.webauthn4j.data.attestation.authenticator.COSEKey;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.data.attestation.statement.COSEKeyOperation;
+import com.webauthn4j.data.attestation.statement.COSEKeyType;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.util.List;
+
+/**
+ * A {@link COSEKey} view resolving its PublicKey through a {@link PublicKeyCache}
+ */
+class PublicKeyCachingCOSEKey implements COSEKey {
+
+    private final byte[] credentialId;
+    private final COSEKey delegate;
+    private final PublicKeyCache publicKeyCache;
+
+    PublicKeyCachingCOSEKey(byte[] credentialId, COSEKey delegate, PublicKeyCache publicKeyCache) {
+        this.credentialId = credentialId;
+        this.delegate = delegate;
+        this.publicKeyCache = publicKeyCache;
+    }
+
+    @Override
+    public PublicKey getPublicKey() {
+        return publicKeyCache.getPublicKey(credentialId, delegate);
+    }
+
+    @Override
+    public boolean hasPublicKey() {
+        return delegate.hasPublicKey();
+    }
+
+    @Override
+    public boolean hasPrivateKey() {
+        return delegate.hasPrivateKey();
+    }
+
+    @Override
+    public PrivateKey getPrivateKey() {
+        return delegate.getPrivateKey();
+    }
+
+    @Override
+    public COSEKeyType getKeyType() {
+        return delegate.getKeyType();
+    }
+
+    @Override
+    public byte[] getKeyId() {
+        return delegate.getKeyId();
+    }
+
+    @Override
+    public COSEAlgorithmIdentifier getAlgorithm() {
+        return delegate.getAlgorithm();
+    }
+
+    @Override
+    public List<COSEKeyOperation> getKeyOps() {
+        return delegate.getKeyOps();
+    }
+
+    @Override
+    public byte[] getBaseIV() {
+        return delegate.getBaseIV();
+    }
+
+    @Override
+    public void validate() {
+        delegate.validate();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return delegate.equals(((PublicKeyCachingCOSEKey) o).delegate);
+    }
+
+    @Override
+    public int hashCode() {
+        return delegate.hashCode();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.authenticator;
+
+import com.webauthn4j.data.attestation.authenticator.COSEKey;
+import com.webauthn4j.data.attestation.authenticator.EC2COSEKey;
+import com.webauthn4j.data.attestation.authenticator.RSACOSEKey;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.util.exception.UnexpectedCheckedException;
+import org.springframework.util.Assert;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.KeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decodes the {@link COSEKey}s of authenticators into JCA {@link PublicKey}s, with the JCA provider selected per COSE
+ * algorithm.
+ * <p>
+ * EC2 and RSA keys of an algorithm with a selected provider are decoded by the KeyFactory of that provider, so that
+ * the resulting PublicKey is native to it. Keys of other algorithms are decoded by the COSEKey itself, through the
+ * most preferred provider. Note that WebAuthn4J creates the {@code Signature} verifying an assertion by algorithm
+ * name, so the provider performing the verification is the most preferred installed provider supporting the
+ * algorithm; it is selected by the provider preference order of the JVM ({@code security.provider.<n>}).
+ * {@code SignatureVerificationBenchmark} measures both for the installed providers.
+ */
+public class PublicKeyDecoder {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final Map<COSEAlgorithmIdentifier, Provider> providers = new ConcurrentHashMap<>();
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Decodes the PublicKey of a COSEKey
+     *
+     * @param coseKey COSEKey
+     * @return the PublicKey
+     */
+    public PublicKey decode(COSEKey coseKey) {
+        Provider provider = coseKey.getAlgorithm() == null ? null : providers.get(coseKey.getAlgorithm());
+        if (provider == null) {
+            return coseKey.getPublicKey();
+        }
+        KeySpec keySpec;
+        String keyAlgorithm;
+        if (coseKey instanceof EC2COSEKey) {
+            EC2COSEKey ec2COSEKey = (EC2COSEKey) coseKey;
+            ECPoint point = new ECPoint(new BigInteger(1, ec2COSEKey.getX()), new BigInteger(1, ec2COSEKey.getY()));
+            keySpec = new ECPublicKeySpec(point, ec2COSEKey.getCurve().getECParameterSpec());
+            keyAlgorithm = "EC";
+        } else if (coseKey instanceof RSACOSEKey) {
+            RSACOSEKey rsaCOSEKey = (RSACOSEKey) coseKey;
+            keySpec = new RSAPublicKeySpec(new BigInteger(1, rsaCOSEKey.getN()), new BigInteger(1, rsaCOSEKey.getE()));
+            keyAlgorithm = "RSA";
+        } else {
+            return coseKey.getPublicKey();
+        }
+        try {
+            return KeyFactory.getInstance(keyAlgorithm, provider).generatePublic(keySpec);
+        } catch (GeneralSecurityException e) {
+            throw new UnexpectedCheckedException(e);
+        }
+    }
+
+    /**
+     * Selects the JCA provider decoding the keys of a COSE algorithm
+     *
+     * @param algorithm COSE algorithm
+     * @param provider  JCA provider
+     */
+    public void setProvider(COSEAlgorithmIdentifier algorithm, Provider provider) {
+        Assert.notNull(algorithm, "algorithm must not be null");
+        Assert.notNull(provider, "provider must not be null");
+        providers.put(algorithm, provider);
+    }
+
+    /**
+     * Returns the JCA provider selected for a COSE algorithm
+     *
+     * @param algorithm COSE algorithm
+     * @return the provider, or {@code null} if the most preferred provider is used
+     */
+    public Provider getProvider(COSEAlgorithmIdentifier algorithm) {
+        return providers.get(algorithm);
+    }
+
+    /**
+     * Returns whether a provider is selected for any COSE algorithm
+     *
+     * @return {@code true} if no provider is selected
+     */
+    public boolean isEmpty() {
+        return providers.isEmpty();
+    }
+}
@@ -18,6 +18,8 @@ package com.webauthn4j.springframework.security.webauthn.authenticator;
 
 import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
 
+import java.util.Map;
+
 /**
  * Core interface for manipulating persisted authenticator
  */
@@ -33,4 +35,35 @@ public interface WebAuthnAuthenticatorService {
     @SuppressWarnings("squid:RedundantThrowsDeclarationCheck")
     void updateCounter(byte[] credentialId, long counter) throws CredentialIdNotFoundException;
 
+    /**
+     * Updates the counters of several authenticators. Authenticators which could not be found are skipped, as they may
+     * have been removed since their counter was read.
+     * <p>
+     * The default implementation calls {@link #updateCounter(byte[], long)} for each authenticator. Implementations
+     * backed by a database should override this to write all the counters in a single batch.
+     *
+     * @param counters counters keyed by credentialId
+     */
+    default void updateCounters(Map<byte[], Long> counters) {
+        for (Map.Entry<byte[], Long> entry : counters.entrySet()) {
+            try {
+                updateCounter(entry.getKey(), entry.getValue());
+            } catch (CredentialIdNotFoundException e) {
+                // skip the removed authenticator
+            }
+        }
+    }
+
+    /**
+     * Returns the latest known counter of an authenticator. Implementations which defer counter updates return the
+     * counter that is not persisted yet, so that counter regression is detected against it.
+     *
+     * @param credentialId  credentialId
+     * @param storedCounter the counter loaded from the persisted authenticator
+     * @return the latest known counter
+     */
+    default long getLatestCounter(byte[] credentialId, long storedCounter) {
+        return storedCounter;
+    }
+
 }
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.authenticator;
+
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link WebAuthnAuthenticatorService} decorator which defers counter updates and writes them in batches.
+ * <p>
+ * A counter of 0 means the authenticator does not implement a signature counter, so it is never written. Other updates
+ * are kept as pending, with repeated updates of the same credential merged into the highest counter, and are flushed
+ * to the delegate by a background task, at most {@code batchSize} at a time through
+ * {@link WebAuthnAuthenticatorService#updateCounters(Map)}. The task is started by {@link #afterPropertiesSet()}, which
+ * must be called before any update, as Spring does for a bean. Pending updates are flushed on {@link #destroy()}, and
+ * later updates are written through synchronously. When {@code maximumPending} credentials are already pending, the
+ * update is written through synchronously as well.
+ * <p>
+ * Until a pending counter is flushed, {@link #getLatestCounter(byte[], long)} returns it, so that counter regression
+ * is still detected against the latest counter even though the persisted one lags behind. A flushed counter is kept
+ * for at least {@code flushInterval} after it is written, and it is recorded as flushed before it stops being pending,
+ * so that an authentication which loaded the authenticator before the write still sees the counter.
+ * <p>
+ * Pending counters are only visible on the local node. Another node reading the same authenticator sees the
+ * persisted counter, which lags behind by up to {@code flushInterval}.
+ */
+public class WriteBehindWebAuthnAuthenticatorService implements WebAuthnAuthenticatorService, InitializingBean, DisposableBean {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final int DEFAULT_MAXIMUM_PENDING = 10_000;
+
+    //~ Instance fields
+    // ================================================================================================
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final WebAuthnAuthenticatorService delegate;
+    private final Map<ByteBuffer, Long> pending = new ConcurrentHashMap<>();
+    private final Map<ByteBuffer, FlushedCounter> flushed = new ConcurrentHashMap<>();
+
+    private int maximumPending = DEFAULT_MAXIMUM_PENDING;
+    private int batchSize = 500;
+    private long flushInterval = 1000L;
+    private volatile ScheduledExecutorService flushExecutor;
+    private volatile boolean destroyed = false;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public WriteBehindWebAuthnAuthenticatorService(WebAuthnAuthenticatorService delegate) {
+        Assert.notNull(delegate, "delegate must not be null");
+        this.delegate = delegate;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public synchronized void afterPropertiesSet() {
+        if (flushExecutor != null) {
+            return;
+        }
+        ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webauthn-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushSafely, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        this.flushExecutor = flushExecutor;
+        this.destroyed = false;
+    }
+
+    @Override
+    public synchronized void destroy() throws InterruptedException {
+        destroyed = true;
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flushExecutor.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+            flushExecutor = null;
+        }
+        flushSafely();
+    }
+
+    @Override
+    public void updateCounter(byte[] credentialId, long counter) throws CredentialIdNotFoundException {
+        if (counter == 0) {
+            return;
+        }
+        if (destroyed) {
+            delegate.updateCounter(credentialId, counter);
+            return;
+        }
+        Assert.state(flushExecutor != null, "afterPropertiesSet must be called before updating counters, as it starts the flush");
+        ByteBuffer key = ByteBuffer.wrap(credentialId.clone());
+        if (pending.size() >= maximumPending && !pending.containsKey(key)) {
+            delegate.updateCounter(credentialId, counter);
+            return;
+        }
+        pending.merge(key, counter, Math::max);
+    }
+
+    @Override
+    public long getLatestCounter(byte[] credentialId, long storedCounter) {
+        ByteBuffer key = ByteBuffer.wrap(credentialId);
+        // pending is read first, as flush records a counter as flushed before it removes it from pending
+        Long pendingCounter = pending.get(key);
+        FlushedCounter flushedCounter = flushed.get(key);
+        long latestCounter = delegate.getLatestCounter(credentialId, storedCounter);
+        if (pendingCounter != null) {
+            latestCounter = Math.max(pendingCounter, latestCounter);
+        }
+        if (flushedCounter != null) {
+            latestCounter = Math.max(flushedCounter.counter, latestCounter);
+        }
+        return latestCounter;
+    }
+
+    /**
+     * Writes pending counter updates to the delegate, in batches of at most {@code batchSize}
+     *
+     * @return the number of written counters
+     */
+    public synchronized int flush() {
+        long now = System.currentTimeMillis();
+        flushed.values().removeIf(flushedCounter -> flushedCounter.flushedAt <= now - flushInterval);
+        int written = 0;
+        Map<ByteBuffer, Long> batch = new LinkedHashMap<>();
+        Map<byte[], Long> counters = new LinkedHashMap<>();
+        do {
+            batch.clear();
+            counters.clear();
+            for (Map.Entry<ByteBuffer, Long> entry : pending.entrySet()) {
+                batch.put(entry.getKey(), entry.getValue());
+                counters.put(entry.getKey().array(), entry.getValue());
+                if (batch.size() >= batchSize) {
+                    break;
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            delegate.updateCounters(counters);
+            long flushedAt = System.currentTimeMillis();
+            for (Map.Entry<ByteBuffer, Long> entry : batch.entrySet()) {
+                flushed.merge(entry.getKey(), new FlushedCounter(entry.getValue(), flushedAt),
+                        (previous, current) -> previous.counter > current.counter ? new FlushedCounter(previous.counter, flushedAt) : current);
+                // keep the entry if it was updated while being written
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+            written += batch.size();
+        } while (batch.size() >= batchSize);
+        return written;
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to write authenticator counters", e);
+        }
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public int getMaximumPending() {
+        return maximumPending;
+    }
+
+    public void setMaximumPending(int maximumPending) {
+        Assert.isTrue(maximumPending > 0, "maximumPending must be positive");
+        this.maximumPending = maximumPending;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        Assert.isTrue(batchSize > 0, "batchSize must be positive");
+        this.batchSize = batchSize;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * Sets the interval between flushes of pending counter updates
+     *
+     * @param flushInterval the interval in milliseconds
+     */
+    public void setFlushInterval(long flushInterval) {
+        Assert.isTrue(flushInterval > 0, "flushInterval must be positive");
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * A counter written to the delegate, with the time it was written at
+     */
+    private static class FlushedCounter {
+
+        private final long counter;
+        private final long flushedAt;
+
+        FlushedCounter(long counter, long flushedAt) {
+            this.counter = counter;
+            this.flushedAt = flushedAt;
+        }
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.function.Supplier;
+
+/**
+ * Base class for {@link ChallengeRepository} implementations that do not rely on the HTTP session, but on the client
+ * sending the {@link Challenge} it received back with the request to be verified, in the
+ * {@value #DEFAULT_CHALLENGE_HEADER_NAME} header or the {@value #DEFAULT_CHALLENGE_PARAMETER_NAME} parameter.
+ * <p>
+ * Within a single request, the {@link Challenge} is kept as a request attribute, so that it stays stable across
+ * multiple lookups. Subclasses decide how a presented challenge is stored and resolved.
+ */
+public abstract class AbstractClientHeldChallengeRepository implements ChallengeRepository {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final String DEFAULT_CHALLENGE_HEADER_NAME = "X-WEBAUTHN-CHALLENGE";
+    public static final String DEFAULT_CHALLENGE_PARAMETER_NAME = "challenge";
+
+    private static final String DEFAULT_CHALLENGE_ATTR_NAME = AbstractClientHeldChallengeRepository.class
+            .getName().concat(".CHALLENGE");
+
+    protected static final long DEFAULT_TIME_TO_LIVE = 5 * 60 * 1000L;
+
+    //~ Instance fields
+    // ================================================================================================
+    private ChallengeGenerator challengeGenerator = new DefaultChallengeGenerator();
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+    private String headerName = DEFAULT_CHALLENGE_HEADER_NAME;
+    private String parameterName = DEFAULT_CHALLENGE_PARAMETER_NAME;
+    private String requestAttributeName = DEFAULT_CHALLENGE_ATTR_NAME;
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Challenge generateChallenge() {
+        return challengeGenerator.generate();
+    }
+
+    @Override
+    public void saveChallenge(Challenge challenge, HttpServletRequest request) {
+        Challenge previous = (Challenge) request.getAttribute(this.requestAttributeName);
+        if (challenge == null) {
+            if (previous != null) {
+                removeChallenge(previous);
+            }
+            request.removeAttribute(this.requestAttributeName);
+        } else if (previous != null && !previous.equals(challenge)) {
+            request.setAttribute(this.requestAttributeName, replaceChallenge(previous, challenge));
+        } else {
+            request.setAttribute(this.requestAttributeName, storeChallenge(challenge));
+        }
+    }
+
+    @Override
+    public Challenge loadChallenge(HttpServletRequest request) {
+        Challenge challenge = (Challenge) request.getAttribute(this.requestAttributeName);
+        if (challenge != null) {
+            return challenge;
+        }
+        byte[] value = obtainChallengeValue(request);
+        if (value == null) {
+            return null;
+        }
+        challenge = resolveChallenge(value);
+        if (challenge != null) {
+            request.setAttribute(this.requestAttributeName, challenge);
+        }
+        return challenge;
+    }
+
+    @Override
+    public Challenge loadOrGenerateChallenge(HttpServletRequest request) {
+        Challenge challenge = (Challenge) request.getAttribute(this.requestAttributeName);
+        if (challenge != null) {
+            return challenge;
+        }
+        byte[] value = obtainChallengeValue(request);
+        if (value == null) {
+            challenge = storeChallenge(generateChallenge());
+        } else {
+            challenge = resolveOrStoreChallenge(value, this::generateChallenge);
+        }
+        request.setAttribute(this.requestAttributeName, challenge);
+        return challenge;
+    }
+
+    /**
+     * Stores a {@link Challenge} handed out to the client, so that it can be resolved later. The returned
+     * {@link Challenge} is the one handed out, and kept as the request attribute: implementations which transform the
+     * value, for example by signing it, return the transformed one.
+     *
+     * @param challenge the challenge to store
+     * @return the stored challenge
+     */
+    protected Challenge storeChallenge(Challenge challenge) {
+        return challenge;
+    }
+
+    /**
+     * Removes a {@link Challenge} which was stored but is replaced before being presented by the client, and stores the
+     * new one. Implementations backed by a remote store can override this to do both in a single round trip.
+     *
+     * @param previous  the challenge to remove
+     * @param challenge the challenge to store
+     * @return the stored challenge, as returned by {@link #storeChallenge(Challenge)}
+     */
+    protected Challenge replaceChallenge(Challenge previous, Challenge challenge) {
+        removeChallenge(previous);
+        return storeChallenge(challenge);
+    }
+
+    /**
+     * Removes a {@link Challenge} which was stored but is replaced before being presented by the client
+     *
+     * @param challenge the challenge to remove
+     */
+    protected void removeChallenge(Challenge challenge) {
+        // nop
+    }
+
+    /**
+     * Resolves the value presented by the client to a valid {@link Challenge}
+     *
+     * @param value the challenge value presented by the client
+     * @return the {@link Challenge}, or {@code null} if the value is unknown, expired or invalid
+     */
+    protected abstract Challenge resolveChallenge(byte[] value);
+
+    /**
+     * Resolves the value presented by the client to a valid {@link Challenge}, or stores and returns a newly generated
+     * one if it cannot be resolved. Implementations backed by a remote store can override this to do both in a single
+     * round trip, and should invoke the generator only when the value cannot be resolved.
+     *
+     * @param value     the challenge value presented by the client
+     * @param generator the generator of a new {@link Challenge}
+     * @return the resolved or newly stored {@link Challenge}
+     */
+    protected Challenge resolveOrStoreChallenge(byte[] value, Supplier<Challenge> generator) {
+        Challenge challenge = resolveChallenge(value);
+        if (challenge == null) {
+            challenge = storeChallenge(generator.get());
+        }
+        return challenge;
+    }
+
+    private byte[] obtainChallengeValue(HttpServletRequest request) {
+        String encoded = request.getHeader(this.headerName);
+        if (!StringUtils.hasText(encoded)) {
+            encoded = request.getParameter(this.parameterName);
+        }
+        if (!StringUtils.hasText(encoded)) {
+            return null;
+        }
+        try {
+            return Base64UrlUtil.decode(encoded);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public ChallengeGenerator getChallengeGenerator() {
+        return challengeGenerator;
+    }
+
+    /**
+     * Sets the {@link ChallengeGenerator} used for generating new challenges
+     *
+     * @param challengeGenerator the {@link ChallengeGenerator} to use
+     */
+    public void setChallengeGenerator(ChallengeGenerator challengeGenerator) {
+        Assert.notNull(challengeGenerator, "challengeGenerator must not be null");
+        this.challengeGenerator = challengeGenerator;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets how long a challenge is accepted after it is issued
+     *
+     * @param timeToLive time to live in milliseconds
+     */
+    public void setTimeToLive(long timeToLive) {
+        Assert.isTrue(timeToLive > 0, "timeToLive must be positive");
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Sets the HTTP header name that the client sends the {@link Challenge} in
+     *
+     * @param headerName the header name to use
+     */
+    public void setHeaderName(String headerName) {
+        Assert.hasLength(headerName, "headerName cannot be null or empty");
+        this.headerName = headerName;
+    }
+
+    /**
+     * Sets the HTTP parameter name that the client sends the {@link Challenge} in
+     *
+     * @param parameterName the parameter name to use
+     */
+    public void setParameterName(String parameterName) {
+        Assert.hasLength(parameterName, "parameterName cannot be null or empty");
+        this.parameterName = parameterName;
+    }
+
+    /**
+     * Sets the request attribute name that the {@link Challenge} is kept in during a request
+     *
+     * @param requestAttributeName the attribute name to use
+     */
+    public void setRequestAttributeName(String requestAttributeName) {
+        Assert.hasLength(requestAttributeName, "requestAttributeName cannot be null or empty");
+        this.requestAttributeName = requestAttributeName;
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import java.util.function.Supplier;
+
+/**
+ * A key-value store which {@link KeyValueChallengeRepository} keeps challenges in.
+ * <p>
+ * Implementations are expected to be backed by a store shared between nodes, such as Redis or Memcached, and must
+ * expire entries after their time to live and remove them atomically in {@link #getAndDelete(byte[])}.
+ */
+public interface ChallengeStore {
+
+    /**
+     * Puts an entry
+     *
+     * @param key        the key
+     * @param value      the value
+     * @param timeToLive time to live in milliseconds
+     */
+    void put(byte[] key, byte[] value, long timeToLive);
+
+    /**
+     * Atomically gets and deletes an entry
+     *
+     * @param key the key
+     * @return the value, or {@code null} if absent or expired
+     */
+    byte[] getAndDelete(byte[] key);
+
+    /**
+     * Deletes an entry
+     *
+     * @param key the key
+     */
+    void delete(byte[] key);
+
+    /**
+     * Deletes an entry and puts a new one.
+     * <p>
+     * The default implementation issues two operations. Implementations backed by a remote store should override this
+     * to send both in a single round trip, e.g. by pipelining them.
+     *
+     * @param key        the key to delete
+     * @param newKey     the key to put
+     * @param newValue   the value to put
+     * @param timeToLive time to live of the new entry in milliseconds
+     */
+    default void deleteAndPut(byte[] key, byte[] newKey, byte[] newValue, long timeToLive) {
+        delete(key);
+        put(newKey, newValue, timeToLive);
+    }
+
+    /**
+     * Atomically gets and deletes an entry, and puts a new entry keyed by its own value if it was absent.
+     * <p>
+     * The default implementation issues two operations and obtains the new value only if {@code key} is absent.
+     * Implementations backed by a remote store should override this to send both in a single round trip, e.g. by
+     * running them as a script, in which case they obtain the new value up front.
+     *
+     * @param key        the key to get and delete
+     * @param newValue   the supplier of the value to put, under itself as the key, if {@code key} is absent
+     * @param timeToLive time to live of the new entry in milliseconds
+     * @return the value of {@code key}, or {@code null} if it was absent and the new entry was put
+     */
+    default byte[] getAndDeleteOrPut(byte[] key, Supplier<byte[]> newValue, long timeToLive) {
+        byte[] value = getAndDelete(key);
+        if (value == null) {
+            byte[] generated = newValue.get();
+            put(generated, generated, timeToLive);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import org.springframework.util.Assert;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * The default {@link ChallengeGenerator} implementation.
+ * <p>
+ * Each thread draws from its own {@link SecureRandom} instance, so that concurrent requests do not contend on a shared
+ * generator. The DRBG algorithm is used where available, then SHA1PRNG. A thread's instance is replaced by a freshly
+ * seeded one after it has produced {@code reseedInterval} bytes.
+ */
+public class DefaultChallengeGenerator implements ChallengeGenerator {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final int DEFAULT_LENGTH = 16;
+    public static final long DEFAULT_RESEED_INTERVAL = 1024 * 1024L;
+
+    private static final String[] ALGORITHMS = {"DRBG", "SHA1PRNG"};
+
+    //~ Instance fields
+    // ================================================================================================
+    private final int length;
+    private final long reseedInterval;
+    private final ThreadLocal<ReseedingRandom> randomHolder = ThreadLocal.withInitial(ReseedingRandom::new);
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public DefaultChallengeGenerator() {
+        this(DEFAULT_LENGTH);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param length length of generated challenges in bytes
+     */
+    public DefaultChallengeGenerator(int length) {
+        this(length, DEFAULT_RESEED_INTERVAL);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param length         length of generated challenges in bytes
+     * @param reseedInterval number of bytes a thread's generator produces before it is reseeded
+     */
+    public DefaultChallengeGenerator(int length, long reseedInterval) {
+        Assert.isTrue(length >= DEFAULT_LENGTH, "length must be at least " + DEFAULT_LENGTH + " bytes");
+        Assert.isTrue(reseedInterval > 0, "reseedInterval must be positive");
+        this.length = length;
+        this.reseedInterval = reseedInterval;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Challenge generate() {
+        byte[] value = new byte[length];
+        randomHolder.get().nextBytes(value);
+        return new DefaultChallenge(value);
+    }
+
+    static SecureRandom createSecureRandom() {
+        for (String algorithm : ALGORITHMS) {
+            try {
+                return SecureRandom.getInstance(algorithm);
+            } catch (NoSuchAlgorithmException e) {
+                // try next algorithm
+            }
+        }
+        return new SecureRandom();
+    }
+
+    private class ReseedingRandom {
+
+        private SecureRandom secureRandom = createSecureRandom();
+        private long generated;
+
+        void nextBytes(byte[] bytes) {
+            if (generated >= reseedInterval) {
+                secureRandom = createSecureRandom();
+                generated = 0;
+            }
+            secureRandom.nextBytes(bytes);
+            generated += bytes.length;
+        }
+    }
+
+}
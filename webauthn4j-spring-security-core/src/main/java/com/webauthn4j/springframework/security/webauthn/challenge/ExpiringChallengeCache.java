@@ -0,0 +1,285 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A bounded, striped cache of one-time entries with per-entry expiry.
+ * <p>
+ * Keys are spread over a fixed number of stripes, each guarded by its own lock and holding at most
+ * {@code maximumSize / stripes} entries, so that memory use stays flat no matter how many entries are put.
+ * Expiry is driven by a hierarchical timer wheel per stripe: scheduling, cancelling and expiring an entry are O(1),
+ * and the wheel is advanced incrementally on each access instead of sweeping the whole cache.
+ *
+ * @param <V> the value type
+ */
+class ExpiringChallengeCache<V> {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    private static final int STRIPES = 16;
+    private static final int BUCKETS = 64;
+    /**
+     * Bucket widths of each wheel level, in powers of two milliseconds: ~1s, ~65s, ~70m and ~3d.
+     * Each level spans {@link #BUCKETS} buckets, which is the bucket width of the next level.
+     */
+    private static final int[] SHIFT = {10, 16, 22, 28};
+
+    //~ Instance fields
+    // ================================================================================================
+    private final Stripe<V>[] stripes;
+    private final Clock clock;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    @SuppressWarnings("unchecked")
+    ExpiringChallengeCache(int maximumSize, Clock clock) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+        Assert.notNull(clock, "clock must not be null");
+        this.clock = clock;
+        int stripeCount = Math.min(STRIPES, Integer.highestOneBit(maximumSize));
+        int stripeSize = (maximumSize + stripeCount - 1) / stripeCount;
+        long now = clock.millis();
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe<>(stripeSize, now);
+        }
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Puts an entry. If the stripe the key belongs to is full, the entry closest to expiry is evicted.
+     *
+     * @param key        the key
+     * @param value      the value
+     * @param timeToLive time to live in milliseconds
+     */
+    void put(ByteBuffer key, V value, long timeToLive) {
+        Stripe<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            long now = clock.millis();
+            stripe.advance(now);
+            stripe.put(key, value, now + timeToLive);
+        }
+    }
+
+    /**
+     * Removes an entry and returns its value if it has not expired yet
+     *
+     * @param key the key
+     * @return the value, or {@code null} if absent or expired
+     */
+    V remove(ByteBuffer key) {
+        Stripe<V> stripe = stripeFor(key);
+        synchronized (stripe) {
+            long now = clock.millis();
+            stripe.advance(now);
+            Node<V> node = stripe.remove(key);
+            if (node == null || node.expiresAt <= now) {
+                return null;
+            }
+            return node.value;
+        }
+    }
+
+    /**
+     * Returns the number of entries, after expiring the due ones
+     *
+     * @return the number of entries
+     */
+    int size() {
+        int size = 0;
+        long now = clock.millis();
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                stripe.advance(now);
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+
+    private Stripe<V> stripeFor(ByteBuffer key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    private static class Stripe<V> {
+
+        private final Map<ByteBuffer, Node<V>> entries = new HashMap<>();
+        private final Node<V>[][] wheel;
+        private final int maximumSize;
+        private long currentTime;
+
+        @SuppressWarnings("unchecked")
+        Stripe(int maximumSize, long currentTime) {
+            this.maximumSize = maximumSize;
+            this.currentTime = currentTime;
+            this.wheel = new Node[SHIFT.length][BUCKETS];
+            for (Node<V>[] level : wheel) {
+                for (int i = 0; i < level.length; i++) {
+                    level[i] = Node.sentinel();
+                }
+            }
+        }
+
+        void put(ByteBuffer key, V value, long expiresAt) {
+            Node<V> node = entries.get(key);
+            if (node != null) {
+                node.unlink();
+            } else {
+                if (entries.size() >= maximumSize) {
+                    evictEarliest();
+                }
+                node = new Node<>(key);
+                entries.put(key, node);
+            }
+            node.value = value;
+            node.expiresAt = expiresAt;
+            schedule(node);
+        }
+
+        Node<V> remove(ByteBuffer key) {
+            Node<V> node = entries.remove(key);
+            if (node != null) {
+                node.unlink();
+            }
+            return node;
+        }
+
+        /**
+         * Advances the wheel to the given time, expiring the due entries and cascading the others to lower levels
+         */
+        void advance(long now) {
+            long previousTime = currentTime;
+            if (now <= previousTime) {
+                return;
+            }
+            currentTime = now;
+            for (int i = 0; i < SHIFT.length; i++) {
+                long previousTicks = previousTime >>> SHIFT[i];
+                long currentTicks = now >>> SHIFT[i];
+                long delta = currentTicks - previousTicks;
+                if (delta <= 0) {
+                    break;
+                }
+                expire(i, previousTicks, delta);
+            }
+        }
+
+        private void expire(int level, long previousTicks, long delta) {
+            Node<V>[] buckets = wheel[level];
+            int steps = (int) Math.min(delta + 1, BUCKETS);
+            int start = (int) (previousTicks & (BUCKETS - 1));
+            for (int i = start; i < start + steps; i++) {
+                Node<V> sentinel = buckets[i & (BUCKETS - 1)];
+                Node<V> node = sentinel.next;
+                sentinel.prev = sentinel;
+                sentinel.next = sentinel;
+                while (node != sentinel) {
+                    Node<V> next = node.next;
+                    node.prev = null;
+                    node.next = null;
+                    if (node.expiresAt <= currentTime) {
+                        entries.remove(node.key);
+                    } else {
+                        schedule(node);
+                    }
+                    node = next;
+                }
+            }
+        }
+
+        private void schedule(Node<V> node) {
+            long duration = node.expiresAt - currentTime;
+            int level = SHIFT.length - 1;
+            for (int i = 0; i < SHIFT.length - 1; i++) {
+                if (duration < (1L << SHIFT[i + 1])) {
+                    level = i;
+                    break;
+                }
+            }
+            int index = (int) ((node.expiresAt >>> SHIFT[level]) & (BUCKETS - 1));
+            node.linkBefore(wheel[level][index]);
+        }
+
+        /**
+         * Evicts an entry from the non-empty bucket closest to the current time
+         */
+        private void evictEarliest() {
+            for (int level = 0; level < SHIFT.length; level++) {
+                int start = (int) ((currentTime >>> SHIFT[level]) & (BUCKETS - 1));
+                for (int i = start; i < start + BUCKETS; i++) {
+                    Node<V> sentinel = wheel[level][i & (BUCKETS - 1)];
+                    if (sentinel.next != sentinel) {
+                        Node<V> node = sentinel.next;
+                        node.unlink();
+                        entries.remove(node.key);
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static class Node<V> {
+
+        private final ByteBuffer key;
+        private V value;
+        private long expiresAt;
+        private Node<V> prev;
+        private Node<V> next;
+
+        Node(ByteBuffer key) {
+            this.key = key;
+        }
+
+        static <V> Node<V> sentinel() {
+            Node<V> sentinel = new Node<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        void linkBefore(Node<V> sentinel) {
+            prev = sentinel.prev;
+            next = sentinel;
+            sentinel.prev.next = this;
+            sentinel.prev = this;
+        }
+
+        void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import org.springframework.util.Assert;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.http.HttpServletRequest;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A stateless {@link ChallengeRepository} implementation. Each saved {@link Challenge} is signed: its issue time and
+ * a keyed MAC are appended to its value, so that any node sharing the same keys can verify it without looking up a
+ * session or a shared store. Challenges generated by this repository draw their random part from the configured
+ * {@link ChallengeGenerator}; challenges generated elsewhere, such as the envelopes of the FIDO server endpoints, are
+ * signed when they are saved, and the signed {@link Challenge} is the one to hand out, as returned by
+ * {@link #loadChallenge(HttpServletRequest)} afterwards.
+ * <p>
+ * As nothing is stored on the server side, the client must send the challenge it received back with the request to be
+ * verified, as described in {@link AbstractClientHeldChallengeRepository}.
+ * <p>
+ * Keys are identified by a one byte key id embedded in the challenge. To rotate keys, add the new key with
+ * {@link #addKey(byte, byte[])}, switch to it with {@link #setCurrentKeyId(byte)}, and remove the old key with
+ * {@link #removeKey(byte)} once challenges signed by it have expired.
+ * <p>
+ * Note that a stateless challenge cannot be consumed: it can be presented more than once until it expires. Keep
+ * the time to live as short as the ceremony timeouts allow.
+ */
+public class HmacChallengeRepository extends AbstractClientHeldChallengeRepository {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int TRAILER_LENGTH = 1 + 1 + Long.BYTES;
+    private static final int MIN_VALUE_LENGTH = 16;
+    private static final int MAC_LENGTH = 16;
+    private static final int MIN_KEY_LENGTH = 16;
+
+    private static final ThreadLocal<Mac> MAC_HOLDER = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(MAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    //~ Instance fields
+    // ================================================================================================
+    private final Map<Byte, SecretKeySpec> keys = new ConcurrentHashMap<>();
+    private volatile byte currentKeyId;
+
+    private long allowedClockSkew = 30 * 1000L;
+    private Clock clock = Clock.systemUTC();
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    /**
+     * Constructor
+     *
+     * @param keyId  id of the key used for signing challenges
+     * @param secret secret of the key used for signing challenges
+     */
+    public HmacChallengeRepository(byte keyId, byte[] secret) {
+        addKey(keyId, secret);
+        this.currentKeyId = keyId;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Challenge generateChallenge() {
+        return sign(getChallengeGenerator().generate().getValue());
+    }
+
+    /**
+     * Signs the challenge, unless it is already signed by this repository
+     */
+    @Override
+    protected Challenge storeChallenge(Challenge challenge) {
+        byte[] value = challenge.getValue();
+        return verify(value) ? challenge : sign(value);
+    }
+
+    @Override
+    protected Challenge resolveChallenge(byte[] value) {
+        return verify(value) ? new DefaultChallenge(value) : null;
+    }
+
+    /**
+     * Appends the version, the key id, the issue time and the MAC to the value
+     */
+    private Challenge sign(byte[] value) {
+        Assert.isTrue(value.length >= MIN_VALUE_LENGTH, "challenge must be at least " + MIN_VALUE_LENGTH + " bytes long");
+        byte keyId;
+        SecretKeySpec key;
+        do {
+            // the current key may be switched and its predecessor removed in between
+            keyId = this.currentKeyId;
+            key = keys.get(keyId);
+        } while (key == null);
+        byte[] signed = ByteBuffer.allocate(value.length + TRAILER_LENGTH + MAC_LENGTH)
+                .put(value)
+                .put(VERSION)
+                .put(keyId)
+                .putLong(clock.millis())
+                .array();
+        byte[] mac = calculateMac(key, signed);
+        System.arraycopy(mac, 0, signed, signed.length - MAC_LENGTH, MAC_LENGTH);
+        return new DefaultChallenge(signed);
+    }
+
+    boolean verify(byte[] value) {
+        int trailerOffset = value.length - MAC_LENGTH - TRAILER_LENGTH;
+        if (trailerOffset < MIN_VALUE_LENGTH || value[trailerOffset] != VERSION) {
+            return false;
+        }
+        SecretKeySpec key = keys.get(value[trailerOffset + 1]);
+        if (key == null) {
+            return false;
+        }
+        byte[] expected = calculateMac(key, value);
+        byte[] actual = new byte[MAC_LENGTH];
+        System.arraycopy(value, value.length - MAC_LENGTH, actual, 0, MAC_LENGTH);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return false;
+        }
+        long issuedAt = ByteBuffer.wrap(value, trailerOffset + 2, Long.BYTES).getLong();
+        long now = clock.millis();
+        return issuedAt - allowedClockSkew <= now && now - issuedAt <= getTimeToLive();
+    }
+
+    private byte[] calculateMac(SecretKeySpec key, byte[] value) {
+        Mac mac = MAC_HOLDER.get();
+        try {
+            mac.init(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+        mac.update(value, 0, value.length - MAC_LENGTH);
+        return Arrays.copyOf(mac.doFinal(), MAC_LENGTH);
+    }
+
+    /**
+     * Adds a key that can be used for verifying challenges, and for signing them once it is made current
+     *
+     * @param keyId  the key id
+     * @param secret the secret, at least 16 bytes long
+     */
+    public void addKey(byte keyId, byte[] secret) {
+        Assert.notNull(secret, "secret must not be null");
+        Assert.isTrue(secret.length >= MIN_KEY_LENGTH, "secret must be at least " + MIN_KEY_LENGTH + " bytes long");
+        keys.put(keyId, new SecretKeySpec(secret, MAC_ALGORITHM));
+    }
+
+    /**
+     * Removes a key. Challenges signed by the key are no longer accepted.
+     *
+     * @param keyId the key id
+     */
+    public synchronized void removeKey(byte keyId) {
+        Assert.isTrue(keyId != currentKeyId, "current key cannot be removed");
+        keys.remove(keyId);
+    }
+
+    public byte getCurrentKeyId() {
+        return currentKeyId;
+    }
+
+    /**
+     * Sets the id of the key used for signing new challenges
+     *
+     * @param currentKeyId the key id, which must have been added
+     */
+    public synchronized void setCurrentKeyId(byte currentKeyId) {
+        Assert.isTrue(keys.containsKey(currentKeyId), "key must be added before it is made current");
+        this.currentKeyId = currentKeyId;
+    }
+
+    public long getAllowedClockSkew() {
+        return allowedClockSkew;
+    }
+
+    /**
+     * Sets how far in the future the issue time of a challenge may be, to tolerate clock differences between nodes
+     *
+     * @param allowedClockSkew allowed clock skew in milliseconds
+     */
+    public void setAllowedClockSkew(long allowedClockSkew) {
+        Assert.isTrue(allowedClockSkew >= 0, "allowedClockSkew must not be negative");
+        this.allowedClockSkew = allowedClockSkew;
+    }
+
+    public void setClock(Clock clock) {
+        Assert.notNull(clock, "clock must not be null");
+        this.clock = clock;
+    }
+
+}
@@ -17,7 +17,6 @@
 package com.webauthn4j.springframework.security.webauthn.challenge;
 
 import com.webauthn4j.data.client.challenge.Challenge;
-import com.webauthn4j.data.client.challenge.DefaultChallenge;
 import org.springframework.security.web.csrf.HttpSessionCsrfTokenRepository;
 import org.springframework.util.Assert;
 
@@ -40,13 +39,14 @@ public class HttpSessionChallengeRepository implements ChallengeRepository {
     //~ Instance fields
     // ================================================================================================
     private String sessionAttributeName = DEFAULT_CHALLENGE_ATTR_NAME;
+    private ChallengeGenerator challengeGenerator = new DefaultChallengeGenerator();
 
     // ~ Methods
     // ========================================================================================================
 
     @Override
     public Challenge generateChallenge() {
-        return new DefaultChallenge();
+        return challengeGenerator.generate();
     }
 
     @Override
@@ -82,4 +82,18 @@ public class HttpSessionChallengeRepository implements ChallengeRepository {
         this.sessionAttributeName = sessionAttributeName;
     }
 
+    public ChallengeGenerator getChallengeGenerator() {
+        return challengeGenerator;
+    }
+
+    /**
+     * Sets the {@link ChallengeGenerator} used for generating new challenges
+     *
+     * @param challengeGenerator the {@link ChallengeGenerator} to use
+     */
+    public void setChallengeGenerator(ChallengeGenerator challengeGenerator) {
+        Assert.notNull(challengeGenerator, "challengeGenerator must not be null");
+        this.challengeGenerator = challengeGenerator;
+    }
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+
+/**
+ * A {@link ChallengeRepository} implementation that keeps issued challenges in memory, and consumes them when they are
+ * loaded, so that a {@link Challenge} can be used only once.
+ * <p>
+ * The client must send the challenge it received back with the request to be verified, as described in
+ * {@link AbstractClientHeldChallengeRepository}. Challenges expire after the configured time to live, and at most
+ * {@code maximumSize} challenges are kept: when the repository is full, the challenges closest to expiry are evicted
+ * first.
+ * <p>
+ * Challenges are kept per node. In a cluster, requests must be routed to the node which issued the challenge.
+ */
+public class InMemoryChallengeRepository extends AbstractClientHeldChallengeRepository {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 100_000;
+
+    //~ Instance fields
+    // ================================================================================================
+    private final ExpiringChallengeCache<Challenge> cache;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public InMemoryChallengeRepository() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maximumSize maximum number of challenges kept
+     */
+    public InMemoryChallengeRepository(int maximumSize) {
+        this(maximumSize, Clock.systemUTC());
+    }
+
+    InMemoryChallengeRepository(int maximumSize, Clock clock) {
+        this.cache = new ExpiringChallengeCache<>(maximumSize, clock);
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    protected Challenge storeChallenge(Challenge challenge) {
+        cache.put(ByteBuffer.wrap(challenge.getValue()), challenge, getTimeToLive());
+        return challenge;
+    }
+
+    @Override
+    protected void removeChallenge(Challenge challenge) {
+        cache.remove(ByteBuffer.wrap(challenge.getValue()));
+    }
+
+    @Override
+    protected Challenge resolveChallenge(byte[] value) {
+        return cache.remove(ByteBuffer.wrap(value));
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+}
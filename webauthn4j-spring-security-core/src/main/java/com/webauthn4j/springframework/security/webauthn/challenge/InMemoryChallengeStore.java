@@ -0,0 +1,77 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+
+/**
+ * An embedded, in-process {@link ChallengeStore} implementation.
+ * <p>
+ * Entries are kept per process, so it is meant for tests and single node deployments only.
+ */
+public class InMemoryChallengeStore implements ChallengeStore {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final ExpiringChallengeCache<byte[]> cache;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public InMemoryChallengeStore() {
+        this(InMemoryChallengeRepository.DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maximumSize maximum number of entries kept
+     */
+    public InMemoryChallengeStore(int maximumSize) {
+        this(maximumSize, Clock.systemUTC());
+    }
+
+    InMemoryChallengeStore(int maximumSize, Clock clock) {
+        this.cache = new ExpiringChallengeCache<>(maximumSize, clock);
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public void put(byte[] key, byte[] value, long timeToLive) {
+        Assert.notNull(key, "key must not be null");
+        Assert.notNull(value, "value must not be null");
+        cache.put(ByteBuffer.wrap(key.clone()), value.clone(), timeToLive);
+    }
+
+    @Override
+    public byte[] getAndDelete(byte[] key) {
+        Assert.notNull(key, "key must not be null");
+        return cache.remove(ByteBuffer.wrap(key));
+    }
+
+    @Override
+    public void delete(byte[] key) {
+        Assert.notNull(key, "key must not be null");
+        cache.remove(ByteBuffer.wrap(key));
+    }
+
+}
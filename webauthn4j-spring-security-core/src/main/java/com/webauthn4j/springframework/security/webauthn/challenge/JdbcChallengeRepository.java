@@ -0,0 +1,213 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.util.Base64UrlUtil;
+import com.webauthn4j.util.MessageDigestUtil;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.Assert;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link ChallengeRepository} implementation that keeps issued challenges in a relational database, and consumes them
+ * when they are loaded, so that a {@link Challenge} can be used only once.
+ * <p>
+ * The client must send the challenge it received back with the request to be verified, as described in
+ * {@link AbstractClientHeldChallengeRepository}. A challenge is consumed by a single {@code DELETE} statement, which
+ * only succeeds while the challenge has not expired. Rows are keyed by the SHA-256 hash of the challenge, so that the
+ * key has a fixed width whatever the length of the challenge. The table can be created with the
+ * {@value #DEFAULT_SCHEMA_LOCATION} script on the classpath.
+ * <p>
+ * Expired challenges are purged by a background task, started by {@link #afterPropertiesSet()}, in batches of at most
+ * {@code purgeBatchSize} rows, each deleted in its own statement batch so that no long lock is held on the table.
+ */
+public class JdbcChallengeRepository extends AbstractClientHeldChallengeRepository implements InitializingBean, DisposableBean {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final String DEFAULT_SCHEMA_LOCATION = "com/webauthn4j/springframework/security/webauthn/challenge/challenges.ddl";
+
+    private static final String INSERT_SQL = "INSERT INTO webauthn_challenges (challenge_hash, expires_at) VALUES (?, ?)";
+    private static final String UPDATE_SQL = "UPDATE webauthn_challenges SET expires_at = ? WHERE challenge_hash = ?";
+    private static final String CONSUME_SQL = "DELETE FROM webauthn_challenges WHERE challenge_hash = ? AND expires_at > ?";
+    private static final String DELETE_SQL = "DELETE FROM webauthn_challenges WHERE challenge_hash = ?";
+    private static final String SELECT_EXPIRED_SQL = "SELECT challenge_hash FROM webauthn_challenges WHERE expires_at <= ?";
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM webauthn_challenges WHERE challenge_hash = ? AND expires_at <= ?";
+
+    //~ Instance fields
+    // ================================================================================================
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final JdbcOperations jdbcOperations;
+    private Clock clock = Clock.systemUTC();
+    private int purgeBatchSize = 500;
+    private long purgeInterval = 60 * 1000L;
+    private ScheduledExecutorService purgeExecutor;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public JdbcChallengeRepository(DataSource dataSource) {
+        this(new JdbcTemplate(dataSource));
+    }
+
+    public JdbcChallengeRepository(JdbcOperations jdbcOperations) {
+        Assert.notNull(jdbcOperations, "jdbcOperations must not be null");
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public void afterPropertiesSet() {
+        if (purgeInterval > 0) {
+            purgeExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "webauthn-challenge-purge");
+                thread.setDaemon(true);
+                return thread;
+            });
+            purgeExecutor.scheduleWithFixedDelay(this::purgeSafely, purgeInterval, purgeInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (purgeExecutor != null) {
+            purgeExecutor.shutdownNow();
+            purgeExecutor = null;
+        }
+    }
+
+    @Override
+    protected Challenge storeChallenge(Challenge challenge) {
+        String hash = hash(challenge.getValue());
+        long expiresAt = clock.millis() + getTimeToLive();
+        try {
+            jdbcOperations.update(INSERT_SQL, hash, expiresAt);
+        } catch (DuplicateKeyException e) {
+            // the challenge is saved again, e.g. after being signed: extend it instead
+            jdbcOperations.update(UPDATE_SQL, expiresAt, hash);
+        }
+        return challenge;
+    }
+
+    @Override
+    protected void removeChallenge(Challenge challenge) {
+        jdbcOperations.update(DELETE_SQL, hash(challenge.getValue()));
+    }
+
+    @Override
+    protected Challenge resolveChallenge(byte[] value) {
+        int deleted = jdbcOperations.update(CONSUME_SQL, hash(value), clock.millis());
+        return deleted == 1 ? new DefaultChallenge(value) : null;
+    }
+
+    /**
+     * Purges expired challenges, one batch of at most {@code purgeBatchSize} rows at a time
+     *
+     * @return the number of purged challenges
+     */
+    public int purgeExpiredChallenges() {
+        int purged = 0;
+        while (true) {
+            long now = clock.millis();
+            List<String> expired = jdbcOperations.query(connection -> {
+                        PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EXPIRED_SQL);
+                        preparedStatement.setMaxRows(purgeBatchSize);
+                        preparedStatement.setLong(1, now);
+                        return preparedStatement;
+                    },
+                    (resultSet, rowNum) -> resultSet.getString(1));
+            if (expired.isEmpty()) {
+                return purged;
+            }
+            List<Object[]> batchArgs = expired.stream().map(challenge -> new Object[]{challenge, now}).collect(Collectors.toList());
+            jdbcOperations.batchUpdate(DELETE_EXPIRED_SQL, batchArgs);
+            purged += expired.size();
+            if (expired.size() < purgeBatchSize) {
+                return purged;
+            }
+        }
+    }
+
+    private void purgeSafely() {
+        try {
+            int purged = purgeExpiredChallenges();
+            if (logger.isDebugEnabled()) {
+                logger.debug("Purged " + purged + " expired challenges");
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to purge expired challenges", e);
+        }
+    }
+
+    private String hash(byte[] value) {
+        return Base64UrlUtil.encodeToString(MessageDigestUtil.createSHA256().digest(value));
+    }
+
+    public void setClock(Clock clock) {
+        Assert.notNull(clock, "clock must not be null");
+        this.clock = clock;
+    }
+
+    public int getPurgeBatchSize() {
+        return purgeBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of expired challenges deleted in one batch
+     *
+     * @param purgeBatchSize the batch size
+     */
+    public void setPurgeBatchSize(int purgeBatchSize) {
+        Assert.isTrue(purgeBatchSize > 0, "purgeBatchSize must be positive");
+        this.purgeBatchSize = purgeBatchSize;
+    }
+
+    public long getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    /**
+     * Sets the interval between purges of expired challenges. 0 disables the background purge.
+     *
+     * @param purgeInterval the interval in milliseconds
+     */
+    public void setPurgeInterval(long purgeInterval) {
+        Assert.isTrue(purgeInterval >= 0, "purgeInterval must not be negative");
+        this.purgeInterval = purgeInterval;
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import org.springframework.util.Assert;
+
+import java.util.function.Supplier;
+
+/**
+ * A {@link ChallengeRepository} implementation that keeps issued challenges in a {@link ChallengeStore} shared between
+ * nodes, and consumes them when they are loaded, so that a {@link Challenge} can be used only once.
+ * <p>
+ * The client must send the challenge it received back with the request to be verified, as described in
+ * {@link AbstractClientHeldChallengeRepository}. The challenge value itself is used as the store key, so that no
+ * HTTP session is needed to find it, and each of {@link #loadOrGenerateChallenge} and {@link #saveChallenge} costs a
+ * single store operation.
+ */
+public class KeyValueChallengeRepository extends AbstractClientHeldChallengeRepository {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final ChallengeStore challengeStore;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public KeyValueChallengeRepository(ChallengeStore challengeStore) {
+        Assert.notNull(challengeStore, "challengeStore must not be null");
+        this.challengeStore = challengeStore;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    protected Challenge storeChallenge(Challenge challenge) {
+        byte[] value = challenge.getValue();
+        challengeStore.put(value, value, getTimeToLive());
+        return challenge;
+    }
+
+    @Override
+    protected Challenge replaceChallenge(Challenge previous, Challenge challenge) {
+        byte[] value = challenge.getValue();
+        challengeStore.deleteAndPut(previous.getValue(), value, value, getTimeToLive());
+        return challenge;
+    }
+
+    @Override
+    protected void removeChallenge(Challenge challenge) {
+        challengeStore.delete(challenge.getValue());
+    }
+
+    @Override
+    protected Challenge resolveChallenge(byte[] value) {
+        byte[] stored = challengeStore.getAndDelete(value);
+        return stored == null ? null : new DefaultChallenge(stored);
+    }
+
+    @Override
+    protected Challenge resolveOrStoreChallenge(byte[] value, Supplier<Challenge> generator) {
+        Challenge[] generated = new Challenge[1];
+        byte[] stored = challengeStore.getAndDeleteOrPut(value, () -> {
+            generated[0] = generator.get();
+            return generated[0].getValue();
+        }, getTimeToLive());
+        return stored == null ? generated[0] : new DefaultChallenge(stored);
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A {@link ChallengeGenerator} decorator which keeps a bounded pool of challenges generated ahead of time by a
+ * background thread, so that bursts of requests do not wait for the random number generator.
+ * <p>
+ * The background thread is started by {@link #afterPropertiesSet()} and stopped by {@link #destroy()}. When the pool
+ * is empty, challenges are generated on the calling thread.
+ */
+public class PrefetchingChallengeGenerator implements ChallengeGenerator, InitializingBean, DisposableBean {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    //~ Instance fields
+    // ================================================================================================
+    private final ChallengeGenerator delegate;
+    private final BlockingQueue<Challenge> pool;
+    private Thread filler;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public PrefetchingChallengeGenerator(ChallengeGenerator delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param delegate the {@link ChallengeGenerator} which generates the pooled challenges
+     * @param capacity maximum number of pooled challenges
+     */
+    public PrefetchingChallengeGenerator(ChallengeGenerator delegate, int capacity) {
+        Assert.notNull(delegate, "delegate must not be null");
+        Assert.isTrue(capacity > 0, "capacity must be positive");
+        this.delegate = delegate;
+        this.pool = new ArrayBlockingQueue<>(capacity);
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public synchronized void afterPropertiesSet() {
+        if (filler != null) {
+            return;
+        }
+        filler = new Thread(this::fill, "webauthn-challenge-prefetch");
+        filler.setDaemon(true);
+        filler.start();
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (filler != null) {
+            filler.interrupt();
+            filler = null;
+        }
+        pool.clear();
+    }
+
+    @Override
+    public Challenge generate() {
+        Challenge challenge = pool.poll();
+        return challenge != null ? challenge : delegate.generate();
+    }
+
+    int size() {
+        return pool.size();
+    }
+
+    private void fill() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                pool.put(delegate.generate());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
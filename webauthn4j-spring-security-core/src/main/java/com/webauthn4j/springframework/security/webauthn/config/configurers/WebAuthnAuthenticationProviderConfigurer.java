@@ -17,14 +17,22 @@
 package com.webauthn4j.springframework.security.webauthn.config.configurers;
 
 import com.webauthn4j.WebAuthnManager;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
 import com.webauthn4j.springframework.security.webauthn.WebAuthnAuthenticationProvider;
+import com.webauthn4j.springframework.security.webauthn.authenticator.PublicKeyCache;
+import com.webauthn4j.springframework.security.webauthn.authenticator.PublicKeyDecoder;
 import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticatorService;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
+import org.springframework.context.ApplicationContext;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.SecurityConfigurerAdapter;
 import org.springframework.security.config.annotation.authentication.ProviderManagerBuilder;
 import org.springframework.util.Assert;
 
+import java.security.Provider;
+
 /**
  * Allows configuring a {@link WebAuthnAuthenticationProvider}
  *
@@ -43,6 +51,10 @@ public class WebAuthnAuthenticationProviderConfigurer<
     private final U userDetailsService;
     private final A authenticatorService;
     private final V webAuthnManager;
+    private WebAuthnInstrumentation instrumentation = null;
+    private ObjectConverter objectConverter = null;
+    private PublicKeyCache publicKeyCache = null;
+    private final PublicKeyDecoder publicKeyDecoder = new PublicKeyDecoder();
 
     /**
      * Constructor
@@ -69,8 +81,78 @@ public class WebAuthnAuthenticationProviderConfigurer<
     public void configure(B builder) {
         WebAuthnAuthenticationProvider authenticationProvider =
                 new WebAuthnAuthenticationProvider(userDetailsService, authenticatorService, webAuthnManager);
+        ApplicationContext applicationContext = postProcess(new ApplicationContextHolder()).getApplicationContext();
+        if (instrumentation == null) {
+            instrumentation = applicationContext == null ? WebAuthnInstrumentation.NOOP : WebAuthnConfigurerUtil.getInstrumentation(applicationContext);
+        }
+        authenticationProvider.setInstrumentation(instrumentation);
+        if (objectConverter == null && applicationContext != null) {
+            objectConverter = WebAuthnConfigurerUtil.getObjectConverter(applicationContext);
+        }
+        if (objectConverter != null) {
+            authenticationProvider.setObjectConverter(objectConverter);
+        }
+        if (!publicKeyDecoder.isEmpty()) {
+            if (publicKeyCache == null) {
+                publicKeyCache = new PublicKeyCache();
+            }
+            publicKeyCache.setPublicKeyDecoder(publicKeyDecoder);
+        }
+        authenticationProvider.setPublicKeyCache(publicKeyCache);
         authenticationProvider = postProcess(authenticationProvider);
         builder.authenticationProvider(authenticationProvider);
     }
 
+    /**
+     * Specifies the {@link WebAuthnInstrumentation} to be used. Defaults to the {@link WebAuthnInstrumentation} beans,
+     * as for the other WebAuthn configurers.
+     *
+     * @param instrumentation the {@link WebAuthnInstrumentation}
+     * @return the {@link WebAuthnAuthenticationProviderConfigurer} for additional customization
+     */
+    public WebAuthnAuthenticationProviderConfigurer<B, U, A, V> instrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ObjectConverter} to be used. Defaults to the {@link ObjectConverter} bean, as for the other
+     * WebAuthn configurers.
+     *
+     * @param objectConverter the {@link ObjectConverter}
+     * @return the {@link WebAuthnAuthenticationProviderConfigurer} for additional customization
+     */
+    public WebAuthnAuthenticationProviderConfigurer<B, U, A, V> objectConverter(ObjectConverter objectConverter) {
+        Assert.notNull(objectConverter, "objectConverter must not be null");
+        this.objectConverter = objectConverter;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link PublicKeyCache} to be used.
+     *
+     * @param publicKeyCache the {@link PublicKeyCache}
+     * @return the {@link WebAuthnAuthenticationProviderConfigurer} for additional customization
+     */
+    public WebAuthnAuthenticationProviderConfigurer<B, U, A, V> publicKeyCache(PublicKeyCache publicKeyCache) {
+        Assert.notNull(publicKeyCache, "publicKeyCache must not be null");
+        this.publicKeyCache = publicKeyCache;
+        return this;
+    }
+
+    /**
+     * Selects the JCA provider decoding the credential public keys of a COSE algorithm. Decoded keys are cached by
+     * the {@link PublicKeyCache}, which is created if not specified.
+     *
+     * @param algorithm the COSE algorithm
+     * @param provider  the JCA provider
+     * @return the {@link WebAuthnAuthenticationProviderConfigurer} for additional customization
+     * @see PublicKeyDecoder
+     */
+    public WebAuthnAuthenticationProviderConfigurer<B, U, A, V> jcaProvider(COSEAlgorithmIdentifier algorithm, Provider provider) {
+        publicKeyDecoder.setProvider(algorithm, provider);
+        return this;
+    }
+
 }
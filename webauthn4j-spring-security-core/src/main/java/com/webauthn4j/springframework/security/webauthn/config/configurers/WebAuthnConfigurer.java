@@ -23,6 +23,8 @@ import com.webauthn4j.data.extension.client.AuthenticationExtensionClientInput;
 import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
 import com.webauthn4j.data.extension.client.ExtensionClientInput;
 import com.webauthn4j.data.extension.client.RegistrationExtensionClientInput;
+import com.webauthn4j.springframework.security.webauthn.challenge.AbstractClientHeldChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeRepository;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
 import org.springframework.security.config.annotation.web.HttpSecurityBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -61,6 +63,7 @@ public class WebAuthnConfigurer<H extends HttpSecurityBuilder<H>> extends Abstra
     private String rpIcon = null;
     private Long registrationTimeout;
     private Long authenticationTimeout;
+    private Long challengeTimeToLive;
 
     /**
      * Returns a new instance
@@ -113,6 +116,27 @@ public class WebAuthnConfigurer<H extends HttpSecurityBuilder<H>> extends Abstra
         }
         optionsProvider.setRegistrationExtensions(new AuthenticationExtensionsClientInputs<>(registrationExtensions.extensionsClientInputs));
         optionsProvider.setAuthenticationExtensions(new AuthenticationExtensionsClientInputs<>(authenticationExtensions.extensionsClientInputs));
+
+        configureChallengeTimeToLive(WebAuthnConfigurerUtil.getChallengeRepository(http));
+    }
+
+    /**
+     * Sets the time to live of challenges kept out of the HTTP session when it is configured on this configurer,
+     * either explicitly or through the ceremony timeouts, so that the one set on a repository bean is kept otherwise
+     */
+    private void configureChallengeTimeToLive(ChallengeRepository challengeRepository) {
+        if (!(challengeRepository instanceof AbstractClientHeldChallengeRepository)) {
+            return;
+        }
+        Long timeToLive = challengeTimeToLive;
+        if (timeToLive == null && (registrationTimeout != null || authenticationTimeout != null)) {
+            timeToLive = Math.max(
+                    registrationTimeout == null ? 0 : registrationTimeout,
+                    authenticationTimeout == null ? 0 : authenticationTimeout);
+        }
+        if (timeToLive != null && timeToLive > 0) {
+            ((AbstractClientHeldChallengeRepository) challengeRepository).setTimeToLive(timeToLive);
+        }
     }
 
     /**
@@ -182,6 +206,19 @@ public class WebAuthnConfigurer<H extends HttpSecurityBuilder<H>> extends Abstra
         return this;
     }
 
+    /**
+     * The time to live of challenges kept out of the HTTP session. Defaults to the larger of the registration and
+     * authentication timeouts when either is configured.
+     *
+     * @param challengeTimeToLive the time to live in milliseconds
+     * @return the {@link WebAuthnConfigurer} for additional customization
+     */
+    public WebAuthnConfigurer<H> challengeTimeToLive(Long challengeTimeToLive) {
+        Assert.isTrue(challengeTimeToLive == null || challengeTimeToLive > 0, "challengeTimeToLive must be positive");
+        this.challengeTimeToLive = challengeTimeToLive;
+        return this;
+    }
+
     /**
      * Returns the {@link ExtensionsClientInputsConfig} for configuring registration extensions
      *
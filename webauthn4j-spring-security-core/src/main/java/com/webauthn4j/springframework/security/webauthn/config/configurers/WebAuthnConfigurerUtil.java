@@ -20,9 +20,15 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.metadata.converter.jackson.WebAuthnMetadataJSONModule;
+import com.webauthn4j.springframework.security.webauthn.AsyncDelegatingFilter;
 import com.webauthn4j.springframework.security.webauthn.WebAuthnRegistrationRequestValidator;
+import com.webauthn4j.springframework.security.webauthn.challenge.AbstractClientHeldChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeGenerator;
 import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.challenge.DefaultChallengeGenerator;
 import com.webauthn4j.springframework.security.webauthn.challenge.HttpSessionChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.metrics.CompositeWebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProviderImpl;
 import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProvider;
@@ -30,6 +36,12 @@ import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyPro
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
 import org.springframework.context.ApplicationContext;
 import org.springframework.security.config.annotation.web.HttpSecurityBuilder;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import javax.servlet.Filter;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * Internal utility for WebAuthn Configurers
@@ -44,13 +56,50 @@ public class WebAuthnConfigurerUtil {
         ChallengeRepository challengeRepository;
         String[] beanNames = applicationContext.getBeanNamesForType(ChallengeRepository.class);
         if (beanNames.length == 0) {
-            challengeRepository = new HttpSessionChallengeRepository();
+            HttpSessionChallengeRepository httpSessionChallengeRepository = new HttpSessionChallengeRepository();
+            httpSessionChallengeRepository.setChallengeGenerator(getChallengeGenerator(http));
+            challengeRepository = httpSessionChallengeRepository;
         } else {
             challengeRepository = applicationContext.getBean(ChallengeRepository.class);
+            configureChallengeGenerator(http, challengeRepository);
         }
         return challengeRepository;
     }
 
+    /**
+     * Sets the {@link ChallengeGenerator} bean, if any, to a {@link ChallengeRepository} bean which accepts one, unless
+     * it was given a generator other than the default one
+     */
+    private static <H extends HttpSecurityBuilder<H>> void configureChallengeGenerator(H http, ChallengeRepository challengeRepository) {
+        ApplicationContext applicationContext = http.getSharedObject(ApplicationContext.class);
+        if (applicationContext.getBeanNamesForType(ChallengeGenerator.class).length == 0) {
+            return;
+        }
+        if (challengeRepository instanceof AbstractClientHeldChallengeRepository) {
+            AbstractClientHeldChallengeRepository clientHeldChallengeRepository = (AbstractClientHeldChallengeRepository) challengeRepository;
+            if (clientHeldChallengeRepository.getChallengeGenerator() instanceof DefaultChallengeGenerator) {
+                clientHeldChallengeRepository.setChallengeGenerator(getChallengeGenerator(http));
+            }
+        } else if (challengeRepository instanceof HttpSessionChallengeRepository) {
+            HttpSessionChallengeRepository httpSessionChallengeRepository = (HttpSessionChallengeRepository) challengeRepository;
+            if (httpSessionChallengeRepository.getChallengeGenerator() instanceof DefaultChallengeGenerator) {
+                httpSessionChallengeRepository.setChallengeGenerator(getChallengeGenerator(http));
+            }
+        }
+    }
+
+    public static <H extends HttpSecurityBuilder<H>> ChallengeGenerator getChallengeGenerator(H http) {
+        ApplicationContext applicationContext = http.getSharedObject(ApplicationContext.class);
+        ChallengeGenerator challengeGenerator;
+        String[] beanNames = applicationContext.getBeanNamesForType(ChallengeGenerator.class);
+        if (beanNames.length == 0) {
+            challengeGenerator = new DefaultChallengeGenerator();
+        } else {
+            challengeGenerator = applicationContext.getBean(ChallengeGenerator.class);
+        }
+        return challengeGenerator;
+    }
+
     public static <H extends HttpSecurityBuilder<H>> OptionsProvider getOptionsProvider(H http) {
         ApplicationContext applicationContext = http.getSharedObject(ApplicationContext.class);
         OptionsProvider optionsProvider;
@@ -65,7 +114,10 @@ public class WebAuthnConfigurerUtil {
     }
 
     public static <H extends HttpSecurityBuilder<H>> ObjectConverter getObjectConverter(H http) {
-        ApplicationContext applicationContext = http.getSharedObject(ApplicationContext.class);
+        return getObjectConverter(http.getSharedObject(ApplicationContext.class));
+    }
+
+    static ObjectConverter getObjectConverter(ApplicationContext applicationContext) {
         ObjectConverter objectConverter;
         String[] beanNames = applicationContext.getBeanNamesForType(ObjectConverter.class);
         if (beanNames.length == 0) {
@@ -91,6 +143,24 @@ public class WebAuthnConfigurerUtil {
         return serverPropertyProvider;
     }
 
+    public static <H extends HttpSecurityBuilder<H>> WebAuthnInstrumentation getInstrumentation(H http) {
+        return getInstrumentation(http.getSharedObject(ApplicationContext.class));
+    }
+
+    static WebAuthnInstrumentation getInstrumentation(ApplicationContext applicationContext) {
+        WebAuthnInstrumentation instrumentation;
+        String[] beanNames = applicationContext.getBeanNamesForType(WebAuthnInstrumentation.class);
+        if (beanNames.length == 0) {
+            instrumentation = WebAuthnInstrumentation.NOOP;
+        } else if (beanNames.length == 1) {
+            instrumentation = applicationContext.getBean(WebAuthnInstrumentation.class);
+        } else {
+            instrumentation = new CompositeWebAuthnInstrumentation(
+                    new ArrayList<>(applicationContext.getBeansOfType(WebAuthnInstrumentation.class).values()));
+        }
+        return instrumentation;
+    }
+
     public static <H extends HttpSecurityBuilder<H>> WebAuthnUserDetailsService getWebAuthnUserDetailsService(H http) {
         ApplicationContext applicationContext = http.getSharedObject(ApplicationContext.class);
         return applicationContext.getBean(WebAuthnUserDetailsService.class);
@@ -100,4 +170,16 @@ public class WebAuthnConfigurerUtil {
         ApplicationContext applicationContext = http.getSharedObject(ApplicationContext.class);
         return applicationContext.getBean(WebAuthnRegistrationRequestValidator.class);
     }
+
+    /**
+     * Adds an {@link AsyncDelegatingFilter} running the given filter on the executor, in place of the filter.
+     * <p>
+     * The filter chain is ordered by filter class, so all {@link AsyncDelegatingFilter}s share a single position,
+     * before {@link UsernamePasswordAuthenticationFilter}, in the order they are added.
+     */
+    public static <H extends HttpSecurityBuilder<H>> AsyncDelegatingFilter addAsyncDelegatingFilter(H http, Filter filter, RequestMatcher requestMatcher, Executor executor) {
+        AsyncDelegatingFilter asyncDelegatingFilter = new AsyncDelegatingFilter(filter, requestMatcher, executor);
+        http.addFilterBefore(asyncDelegatingFilter, UsernamePasswordAuthenticationFilter.class);
+        return asyncDelegatingFilter;
+    }
 }
@@ -17,17 +17,23 @@
 package com.webauthn4j.springframework.security.webauthn.config.configurers;
 
 import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.webauthn.AsyncDelegatingFilter;
 import com.webauthn4j.springframework.security.webauthn.WebAuthnProcessingFilter;
 import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeRepository;
 import com.webauthn4j.springframework.security.webauthn.endpoint.OptionsEndpointFilter;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
 import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProvider;
 import org.springframework.context.ApplicationContext;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.config.annotation.SecurityConfigurer;
 import org.springframework.security.config.annotation.web.HttpSecurityBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.annotation.web.configurers.AbstractAuthenticationFilterConfigurer;
 import org.springframework.security.config.annotation.web.configurers.FormLoginConfigurer;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.web.DefaultSecurityFilterChain;
 import org.springframework.security.web.authentication.ForwardAuthenticationFailureHandler;
 import org.springframework.security.web.authentication.ForwardAuthenticationSuccessHandler;
 import org.springframework.security.web.session.SessionManagementFilter;
@@ -35,8 +41,10 @@ import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.util.Assert;
 
+import javax.servlet.Filter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Adds WebAuthn authentication. All attributes have reasonable defaults making all
@@ -83,6 +91,9 @@ public final class WebAuthnLoginConfigurer<H extends HttpSecurityBuilder<H>> ext
     private OptionsProvider optionsProvider = null;
     private ObjectConverter objectConverter = null;
     private ServerPropertyProvider serverPropertyProvider = null;
+    private WebAuthnInstrumentation instrumentation = null;
+    private Executor asyncExecutor = null;
+    private RequestMatcher loginProcessingUrlMatcher;
     private String usernameParameter = null;
     private String passwordParameter = null;
     private String credentialIdParameter = null;
@@ -108,7 +119,11 @@ public final class WebAuthnLoginConfigurer<H extends HttpSecurityBuilder<H>> ext
      */
     @Override
     public void configure(H http) throws Exception {
-        super.configure(http);
+        if (asyncExecutor == null) {
+            super.configure(http);
+        } else {
+            super.configure(asyncAuthenticationFilterBuilder(http));
+        }
         if (optionsProvider == null) {
             optionsProvider = WebAuthnConfigurerUtil.getOptionsProvider(http);
         }
@@ -123,6 +138,10 @@ public final class WebAuthnLoginConfigurer<H extends HttpSecurityBuilder<H>> ext
         http.setSharedObject(ServerPropertyProvider.class, serverPropertyProvider);
 
         this.getAuthenticationFilter().setServerPropertyProvider(serverPropertyProvider);
+        if (instrumentation == null) {
+            instrumentation = WebAuthnConfigurerUtil.getInstrumentation(http);
+        }
+        this.getAuthenticationFilter().setInstrumentation(instrumentation);
 
         this.optionsEndpointConfig.configure(http);
         if (expectedAuthenticationExtensionIdsConfig.expectedAuthenticationExtensionIds.isEmpty()) {
@@ -202,6 +221,33 @@ public final class WebAuthnLoginConfigurer<H extends HttpSecurityBuilder<H>> ext
         return this;
     }
 
+    /**
+     * Specifies the {@link WebAuthnInstrumentation} to be used.
+     *
+     * @param instrumentation the {@link WebAuthnInstrumentation}
+     * @return the {@link WebAuthnLoginConfigurer} for additional customization
+     */
+    public WebAuthnLoginConfigurer<H> instrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+        return this;
+    }
+
+    /**
+     * Runs the {@link WebAuthnProcessingFilter} and the {@link OptionsEndpointFilter} on the given {@link Executor},
+     * through asynchronous servlet processing, so that the container threads are not blocked by the authentication.
+     * The executor can be a bounded thread pool, or {@code Executors.newVirtualThreadPerTaskExecutor()} on JDK 21 or
+     * later. The filters are then placed before {@link org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter}.
+     *
+     * @param asyncExecutor the {@link Executor}
+     * @return the {@link WebAuthnLoginConfigurer} for additional customization
+     * @see com.webauthn4j.springframework.security.webauthn.AsyncDelegatingFilter
+     */
+    public WebAuthnLoginConfigurer<H> asyncExecutor(Executor asyncExecutor) {
+        Assert.notNull(asyncExecutor, "asyncExecutor must not be null");
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
 
     /**
      * Returns the {@link OptionsEndpointConfig} for configuring the {@link OptionsEndpointFilter}
@@ -352,6 +398,17 @@ public final class WebAuthnLoginConfigurer<H extends HttpSecurityBuilder<H>> ext
      * @param loginPage login page
      * @return the {@link WebAuthnLoginConfigurer} for additional customization
      */
+    /**
+     * Returns a view of the {@link HttpSecurityBuilder} adding the authentication filter wrapped in an
+     * {@link AsyncDelegatingFilter}, so that {@link AbstractAuthenticationFilterConfigurer#configure} registers only
+     * the wrapper
+     */
+    @SuppressWarnings("unchecked")
+    private H asyncAuthenticationFilterBuilder(H http) {
+        RequestMatcher requestMatcher = loginProcessingUrlMatcher == null ? createLoginProcessingUrlMatcher("/login") : loginProcessingUrlMatcher;
+        return (H) new AsyncAuthenticationFilterBuilder<>(http, requestMatcher, asyncExecutor);
+    }
+
     @Override
     public WebAuthnLoginConfigurer<H> loginPage(String loginPage) {
         return super.loginPage(loginPage);
@@ -366,7 +423,8 @@ public final class WebAuthnLoginConfigurer<H extends HttpSecurityBuilder<H>> ext
      */
     @Override
     protected RequestMatcher createLoginProcessingUrlMatcher(String loginProcessingUrl) {
-        return new AntPathRequestMatcher(loginProcessingUrl, "POST");
+        loginProcessingUrlMatcher = new AntPathRequestMatcher(loginProcessingUrl, "POST");
+        return loginProcessingUrlMatcher;
     }
 
     /**
@@ -389,8 +447,15 @@ public final class WebAuthnLoginConfigurer<H extends HttpSecurityBuilder<H>> ext
             } else {
                 optionsEndpointFilter = applicationContext.getBean(OptionsEndpointFilter.class);
             }
+            if (optionsEndpointFilter.getInstrumentation() == WebAuthnInstrumentation.NOOP) {
+                optionsEndpointFilter.setInstrumentation(instrumentation);
+            }
 
-            http.addFilterAfter(optionsEndpointFilter, SessionManagementFilter.class);
+            if (asyncExecutor == null) {
+                http.addFilterAfter(optionsEndpointFilter, SessionManagementFilter.class);
+            } else {
+                WebAuthnConfigurerUtil.addAsyncDelegatingFilter(http, optionsEndpointFilter, optionsEndpointFilter::matches, asyncExecutor);
+            }
         }
 
         /**
@@ -447,4 +512,72 @@ public final class WebAuthnLoginConfigurer<H extends HttpSecurityBuilder<H>> ext
             return WebAuthnLoginConfigurer.this;
         }
     }
+
+    /**
+     * An {@link HttpSecurityBuilder} delegating to another one, except that added filters are wrapped in an
+     * {@link AsyncDelegatingFilter}
+     */
+    private static class AsyncAuthenticationFilterBuilder<H extends HttpSecurityBuilder<H>> implements HttpSecurityBuilder<H> {
+
+        private final H delegate;
+        private final RequestMatcher requestMatcher;
+        private final Executor executor;
+
+        AsyncAuthenticationFilterBuilder(H delegate, RequestMatcher requestMatcher, Executor executor) {
+            this.delegate = delegate;
+            this.requestMatcher = requestMatcher;
+            this.executor = executor;
+        }
+
+        @Override
+        public H addFilter(Filter filter) {
+            WebAuthnConfigurerUtil.addAsyncDelegatingFilter(delegate, filter, requestMatcher, executor);
+            return delegate;
+        }
+
+        @Override
+        public <C extends SecurityConfigurer<DefaultSecurityFilterChain, H>> C getConfigurer(Class<C> clazz) {
+            return delegate.getConfigurer(clazz);
+        }
+
+        @Override
+        public <C extends SecurityConfigurer<DefaultSecurityFilterChain, H>> C removeConfigurer(Class<C> clazz) {
+            return delegate.removeConfigurer(clazz);
+        }
+
+        @Override
+        public <C> void setSharedObject(Class<C> sharedType, C object) {
+            delegate.setSharedObject(sharedType, object);
+        }
+
+        @Override
+        public <C> C getSharedObject(Class<C> sharedType) {
+            return delegate.getSharedObject(sharedType);
+        }
+
+        @Override
+        public H authenticationProvider(AuthenticationProvider authenticationProvider) {
+            return delegate.authenticationProvider(authenticationProvider);
+        }
+
+        @Override
+        public H userDetailsService(UserDetailsService userDetailsService) throws Exception {
+            return delegate.userDetailsService(userDetailsService);
+        }
+
+        @Override
+        public H addFilterAfter(Filter filter, Class<? extends Filter> afterFilter) {
+            return delegate.addFilterAfter(filter, afterFilter);
+        }
+
+        @Override
+        public H addFilterBefore(Filter filter, Class<? extends Filter> beforeFilter) {
+            return delegate.addFilterBefore(filter, beforeFilter);
+        }
+
+        @Override
+        public DefaultSecurityFilterChain build() throws Exception {
+            return delegate.build();
+        }
+    }
 }
@@ -20,9 +20,15 @@ import com.webauthn4j.converter.util.JsonConverter;
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.data.PublicKeyCredentialRpEntity;
 import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
 import com.webauthn4j.springframework.security.webauthn.options.AssertionOptions;
 import com.webauthn4j.springframework.security.webauthn.options.AttestationOptions;
+import com.webauthn4j.springframework.security.webauthn.options.Options;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.util.JsonObjectTemplate;
+import com.webauthn4j.springframework.security.webauthn.util.OptionsTemplateHolder;
+import com.webauthn4j.springframework.security.webauthn.util.ServletUtil;
 import org.springframework.context.support.MessageSourceAccessor;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
@@ -41,7 +47,10 @@ import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -72,6 +81,10 @@ public class OptionsEndpointFilter extends GenericFilterBean {
 
     private final OptionsProvider optionsProvider;
 
+    private volatile boolean templateRendering = false;
+    private final OptionsTemplateHolder<OptionsResponse> templateHolder;
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
+
     // ~ Constructors
     // ===================================================================================================
 
@@ -80,6 +93,35 @@ public class OptionsEndpointFilter extends GenericFilterBean {
         this.jsonConverter = objectConverter.getJsonConverter();
         this.trustResolver = new AuthenticationTrustResolverImpl();
         checkConfig();
+        this.templateHolder = new OptionsTemplateHolder<>(optionsProvider, jsonConverter,
+                provider -> new Object[]{
+                        provider.getRpId(),
+                        provider.getRpName(),
+                        provider.getRpIcon(),
+                        provider.getPubKeyCredParams(),
+                        provider.getRegistrationTimeout(),
+                        provider.getAuthenticationTimeout(),
+                        provider.getRegistrationExtensions(),
+                        provider.getAuthenticationExtensions(),
+                        provider.getUsernameParameter(),
+                        provider.getPasswordParameter(),
+                        provider.getCredentialIdParameter(),
+                        provider.getClientDataJSONParameter(),
+                        provider.getAuthenticatorDataParameter(),
+                        provider.getSignatureParameter(),
+                        provider.getClientExtensionsJSONParameter()
+                },
+                () -> {
+                    Map<String, Function<OptionsResponse, ?>> dynamicProperties = new LinkedHashMap<>();
+                    if (optionsProvider.getRpId() == null) {
+                        // The rpId is derived from the request origin
+                        dynamicProperties.put("relyingParty", OptionsResponse::getRelyingParty);
+                    }
+                    dynamicProperties.put("user", OptionsResponse::getUser);
+                    dynamicProperties.put("challenge", OptionsResponse::getChallenge);
+                    dynamicProperties.put("credentials", OptionsResponse::getCredentials);
+                    return dynamicProperties;
+                });
     }
 
     // ~ Methods
@@ -108,7 +150,7 @@ public class OptionsEndpointFilter extends GenericFilterBean {
 
         try {
             OptionsResponse optionsResponse = processRequest(fi.getRequest());
-            writeResponse(fi.getResponse(), optionsResponse);
+            writeOptionsResponse(fi.getResponse(), optionsResponse);
         } catch (RuntimeException e) {
             logger.debug(e);
             writeErrorResponse(fi.getResponse(), e);
@@ -116,10 +158,21 @@ public class OptionsEndpointFilter extends GenericFilterBean {
 
     }
 
+    private void writeOptionsResponse(HttpServletResponse httpServletResponse, OptionsResponse optionsResponse) throws IOException {
+        instrumentation.runIO(WebAuthnStage.RESPONSE_WRITE, () -> {
+            if (templateRendering && templateHolder.isSupported()) {
+                ServletUtil.writeJson(httpServletResponse, templateHolder.render(optionsResponse));
+            } else {
+                writeResponse(httpServletResponse, optionsResponse);
+            }
+        });
+    }
+
     OptionsResponse processRequest(HttpServletRequest request) {
         String loginUsername = getLoginUsername();
-        AttestationOptions attestationOptions = optionsProvider.getAttestationOptions(request, loginUsername, null);
-        AssertionOptions assertionOptions = optionsProvider.getAssertionOptions(request, loginUsername, null);
+        Options options = optionsProvider.getOptions(request, loginUsername, null);
+        AttestationOptions attestationOptions = options.getAttestationOptions();
+        AssertionOptions assertionOptions = options.getAssertionOptions();
         List<WebAuthnPublicKeyCredentialDescriptor> credentials =
                 attestationOptions.getCredentials().stream().map(WebAuthnPublicKeyCredentialDescriptor::new).collect(Collectors.toList());
         return new OptionsResponse(
@@ -136,6 +189,40 @@ public class OptionsEndpointFilter extends GenericFilterBean {
         );
     }
 
+    JsonObjectTemplate<OptionsResponse> getTemplate(OptionsResponse prototype) {
+        return templateHolder.getTemplate(prototype);
+    }
+
+    public boolean isTemplateRendering() {
+        return templateRendering;
+    }
+
+    /**
+     * Sets whether the response is rendered from a template, in which the properties derived from the settings of the
+     * {@link OptionsProvider} are serialized once. The template is compiled again when the settings are replaced
+     * through the setters of the {@link OptionsProvider}; settings modified in place are not detected. Ignored unless
+     * the {@link OptionsProvider} is an {@link com.webauthn4j.springframework.security.webauthn.options.OptionsProviderImpl}.
+     *
+     * @param templateRendering {@code true} to render the response from a template
+     */
+    public void setTemplateRendering(boolean templateRendering) {
+        this.templateRendering = templateRendering;
+    }
+
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the response write stage
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
+
     public AuthenticationTrustResolver getTrustResolver() {
         return trustResolver;
     }
@@ -155,10 +242,19 @@ public class OptionsEndpointFilter extends GenericFilterBean {
         return (request.getRequestURI().contains(filterProcessesUrl));
     }
 
+    /**
+     * Returns whether the request is handled by this filter, for use as the {@code RequestMatcher} of an
+     * {@code AsyncDelegatingFilter} wrapping it
+     *
+     * @param request request
+     * @return {@code true} if the request is handled by this filter
+     */
+    public boolean matches(HttpServletRequest request) {
+        return processFilter(request);
+    }
+
     void writeResponse(HttpServletResponse httpServletResponse, Response response) throws IOException {
-        String responseText = jsonConverter.writeValueAsString(response);
-        httpServletResponse.setContentType("application/json");
-        httpServletResponse.getWriter().print(responseText);
+        ServletUtil.writeJson(httpServletResponse, jsonConverter, response);
     }
 
     void writeErrorResponse(HttpServletResponse httpServletResponse, RuntimeException e) throws IOException {
@@ -171,10 +267,8 @@ public class OptionsEndpointFilter extends GenericFilterBean {
             errorResponse = new ErrorResponse("The server encountered an internal error");
             statusCode = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
         }
-        String errorResponseText = jsonConverter.writeValueAsString(errorResponse);
-        httpServletResponse.setContentType("application/json");
-        httpServletResponse.getWriter().print(errorResponseText);
         httpServletResponse.setStatus(statusCode);
+        ServletUtil.writeJson(httpServletResponse, jsonConverter, errorResponse);
     }
 
     String getLoginUsername() {
@@ -186,6 +280,10 @@ public class OptionsEndpointFilter extends GenericFilterBean {
         }
     }
 
+    public String getFilterProcessesUrl() {
+        return filterProcessesUrl;
+    }
+
     public void setFilterProcessesUrl(String filterProcessesUrl) {
         this.filterProcessesUrl = filterProcessesUrl;
     }
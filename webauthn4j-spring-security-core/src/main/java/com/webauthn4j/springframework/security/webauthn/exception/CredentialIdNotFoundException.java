@@ -27,4 +27,8 @@ public class CredentialIdNotFoundException extends ValidationException {
     public CredentialIdNotFoundException(String message, Throwable cause) {
         super(message, cause);
     }
+
+    public CredentialIdNotFoundException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace);
+    }
 }
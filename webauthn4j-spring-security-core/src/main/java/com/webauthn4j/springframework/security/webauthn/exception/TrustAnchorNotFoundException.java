@@ -28,4 +28,8 @@ public class TrustAnchorNotFoundException extends ValidationException {
     public TrustAnchorNotFoundException(String message) {
         super(message);
     }
+
+    public TrustAnchorNotFoundException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace);
+    }
 }
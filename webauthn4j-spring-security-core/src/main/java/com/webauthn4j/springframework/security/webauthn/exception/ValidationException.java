@@ -24,4 +24,8 @@ public class ValidationException extends WebAuthnAuthenticationException {
     public ValidationException(String message) {
         super(message);
     }
+
+    protected ValidationException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause, writableStackTrace);
+    }
 }
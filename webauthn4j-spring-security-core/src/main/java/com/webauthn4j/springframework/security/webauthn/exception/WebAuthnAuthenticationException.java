@@ -20,12 +20,40 @@ import org.springframework.security.core.AuthenticationException;
 
 public class WebAuthnAuthenticationException extends AuthenticationException {
 
+    private final boolean writableStackTrace;
+
     public WebAuthnAuthenticationException(String message, Throwable cause) {
-        super(message, cause);
+        this(message, cause, true);
     }
 
     public WebAuthnAuthenticationException(String message) {
         super(message);
+        this.writableStackTrace = true;
+        fillInStackTrace();
+    }
+
+    /**
+     * Constructor
+     *
+     * @param message            the detail message
+     * @param cause              the cause
+     * @param writableStackTrace whether the stack trace is captured. Exceptions thrown for expected conditions, such
+     *                           as unknown credentials, may skip it to save its cost.
+     */
+    protected WebAuthnAuthenticationException(String message, Throwable cause, boolean writableStackTrace) {
+        super(message, cause);
+        this.writableStackTrace = writableStackTrace;
+        fillInStackTrace();
+    }
+
+    /**
+     * Captures the stack trace, unless the exception is constructed without a writable stack trace.
+     * AuthenticationException doesn't provide the writableStackTrace constructor of RuntimeException, so the
+     * capture made by the superclass constructor, before the flag is set, is skipped and done here instead.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return writableStackTrace ? super.fillInStackTrace() : this;
     }
 
 }
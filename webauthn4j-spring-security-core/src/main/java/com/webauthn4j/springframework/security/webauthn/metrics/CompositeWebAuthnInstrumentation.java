@@ -0,0 +1,98 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.metrics;
+
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+/**
+ * A {@link WebAuthnInstrumentation} implementation which reports the stages to several instrumentations,
+ * e.g. to Micrometer and JDK Flight Recorder
+ */
+public class CompositeWebAuthnInstrumentation implements WebAuthnInstrumentation {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final WebAuthnInstrumentation[] instrumentations;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public CompositeWebAuthnInstrumentation(List<WebAuthnInstrumentation> instrumentations) {
+        Assert.notNull(instrumentations, "instrumentations must not be null");
+        this.instrumentations = instrumentations.toArray(new WebAuthnInstrumentation[0]);
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Sample start(WebAuthnStage stage) {
+        Sample[] samples = new Sample[instrumentations.length];
+        for (int i = 0; i < instrumentations.length; i++) {
+            samples[i] = instrumentations[i].start(stage);
+        }
+        return new CompositeSample(samples);
+    }
+
+    private static class CompositeSample implements Sample {
+
+        private final Sample[] samples;
+
+        CompositeSample(Sample[] samples) {
+            this.samples = samples;
+        }
+
+        @Override
+        public void setCredentialId(byte[] credentialId) {
+            for (Sample sample : samples) {
+                sample.setCredentialId(credentialId);
+            }
+        }
+
+        @Override
+        public void setAttestationFormat(String attestationFormat) {
+            for (Sample sample : samples) {
+                sample.setAttestationFormat(attestationFormat);
+            }
+        }
+
+        @Override
+        public void setAaguid(AAGUID aaguid) {
+            for (Sample sample : samples) {
+                sample.setAaguid(aaguid);
+            }
+        }
+
+        @Override
+        public void success() {
+            for (Sample sample : samples) {
+                sample.success();
+            }
+        }
+
+        @Override
+        public void failure(Throwable exception) {
+            for (Sample sample : samples) {
+                sample.failure(exception);
+            }
+        }
+    }
+}
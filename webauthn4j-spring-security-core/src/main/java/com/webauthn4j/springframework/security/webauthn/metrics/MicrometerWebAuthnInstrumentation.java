@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link WebAuthnInstrumentation} implementation which records the stages as Micrometer timers.
+ * <p>
+ * Each stage is recorded by the timer {@value #METRIC_NAME}, tagged by {@code operation} and {@code stage}
+ * (see {@link WebAuthnStage}), {@code outcome} ({@code success} or {@code failure}), and {@code exception}, the simple
+ * class name of the exception thrown to the caller ({@code none} on success). The count of a timer is the number of
+ * occurrences, so no separate counters are registered. Percentile histograms are published by default, so that the
+ * monitoring system can compute per-stage percentiles.
+ * <p>
+ * Micrometer is an optional dependency, only required when this class is used.
+ */
+public class MicrometerWebAuthnInstrumentation implements WebAuthnInstrumentation {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final String METRIC_NAME = "webauthn.stage";
+
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_FAILURE = "failure";
+    private static final String EXCEPTION_NONE = "none";
+
+    //~ Instance fields
+    // ================================================================================================
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<WebAuthnStage, Timer> successTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<WebAuthnStage, ConcurrentMap<Class<?>, Timer>> failureTimers = new ConcurrentHashMap<>();
+
+    private boolean publishPercentileHistogram = true;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public MicrometerWebAuthnInstrumentation(MeterRegistry meterRegistry) {
+        Assert.notNull(meterRegistry, "meterRegistry must not be null");
+        this.meterRegistry = meterRegistry;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Sample start(WebAuthnStage stage) {
+        Assert.notNull(stage, "stage must not be null");
+        return new MicrometerSample(stage, Timer.start(meterRegistry));
+    }
+
+    public boolean isPublishPercentileHistogram() {
+        return publishPercentileHistogram;
+    }
+
+    /**
+     * Sets whether the timers publish percentile histograms. Takes effect on the timers registered afterwards.
+     *
+     * @param publishPercentileHistogram {@code false} to publish the count, total and max only
+     */
+    public void setPublishPercentileHistogram(boolean publishPercentileHistogram) {
+        this.publishPercentileHistogram = publishPercentileHistogram;
+    }
+
+    Timer getSuccessTimer(WebAuthnStage stage) {
+        return successTimers.computeIfAbsent(stage, key -> registerTimer(key, OUTCOME_SUCCESS, EXCEPTION_NONE));
+    }
+
+    Timer getFailureTimer(WebAuthnStage stage, Throwable exception) {
+        return failureTimers.computeIfAbsent(stage, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(exception.getClass(), key -> registerTimer(stage, OUTCOME_FAILURE, getExceptionTag(key)));
+    }
+
+    private String getExceptionTag(Class<?> exceptionClass) {
+        String simpleName = exceptionClass.getSimpleName();
+        // anonymous classes have no simple name
+        return simpleName.isEmpty() ? exceptionClass.getName() : simpleName;
+    }
+
+    private Timer registerTimer(WebAuthnStage stage, String outcome, String exception) {
+        return Timer.builder(METRIC_NAME)
+                .description("Time spent in a stage of the WebAuthn pipelines")
+                .tag("operation", stage.getOperation())
+                .tag("stage", stage.getStageName())
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .publishPercentileHistogram(publishPercentileHistogram)
+                .register(meterRegistry);
+    }
+
+    private class MicrometerSample implements Sample {
+
+        private final WebAuthnStage stage;
+        private final Timer.Sample sample;
+
+        MicrometerSample(WebAuthnStage stage, Timer.Sample sample) {
+            this.stage = stage;
+            this.sample = sample;
+        }
+
+        @Override
+        public void success() {
+            sample.stop(getSuccessTimer(stage));
+        }
+
+        @Override
+        public void failure(Throwable exception) {
+            Assert.notNull(exception, "exception must not be null");
+            sample.stop(getFailureTimer(stage, exception));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.metrics;
+
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+
+import java.io.IOException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Observes the stages of the WebAuthn authentication and registration pipelines.
+ * <p>
+ * A stage is observed by calling {@link #start(WebAuthnStage)} before it, and {@link Sample#success()} or
+ * {@link Sample#failure(Throwable)} after it, which {@link #time(WebAuthnStage, Supplier)},
+ * {@link #run(WebAuthnStage, Runnable)}, {@link #runIO(WebAuthnStage, IORunnable)} and
+ * {@link #observe(WebAuthnStage, Function)} do around a callback. Failures are reported with the exception thrown to the caller, that is,
+ * after WebAuthn4J exceptions are mapped by {@code ExceptionUtil}.
+ * {@link #NOOP}, the default of all instrumented components, returns a shared {@link Sample} doing nothing.
+ */
+public interface WebAuthnInstrumentation {
+
+    /**
+     * An instrumentation which observes nothing
+     */
+    WebAuthnInstrumentation NOOP = stage -> Sample.NOOP;
+
+    /**
+     * Starts observing a stage
+     *
+     * @param stage the stage
+     * @return the sample to be completed when the stage ends
+     */
+    Sample start(WebAuthnStage stage);
+
+    /**
+     * Observes a stage computing a value
+     *
+     * @param stage    the stage
+     * @param supplier the stage
+     * @param <T>      the type of the value
+     * @return the value
+     */
+    default <T> T time(WebAuthnStage stage, Supplier<T> supplier) {
+        return observe(stage, sample -> supplier.get());
+    }
+
+    /**
+     * Observes a stage computing nothing
+     *
+     * @param stage    the stage
+     * @param runnable the stage
+     */
+    default void run(WebAuthnStage stage, Runnable runnable) {
+        observe(stage, sample -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * Observes a stage computing nothing which may throw an {@link IOException}, such as writing a response. The
+     * {@link IOException} is reported to the sample and rethrown as is.
+     *
+     * @param stage    the stage
+     * @param runnable the stage
+     * @throws IOException if the stage throws it
+     */
+    default void runIO(WebAuthnStage stage, IORunnable runnable) throws IOException {
+        Sample sample = start(stage);
+        try {
+            runnable.run();
+        } catch (IOException | RuntimeException e) {
+            sample.failure(e);
+            throw e;
+        }
+        sample.success();
+    }
+
+    /**
+     * Observes a stage which sets the attributes of its sample
+     *
+     * @param stage    the stage
+     * @param function the stage, given the sample in progress
+     * @param <T>      the type of the value
+     * @return the value
+     */
+    default <T> T observe(WebAuthnStage stage, Function<Sample, T> function) {
+        Sample sample = start(stage);
+        T value;
+        try {
+            value = function.apply(sample);
+        } catch (RuntimeException e) {
+            sample.failure(e);
+            throw e;
+        }
+        sample.success();
+        return value;
+    }
+
+    /**
+     * A stage computing nothing which may throw an {@link IOException}
+     */
+    @FunctionalInterface
+    interface IORunnable {
+
+        void run() throws IOException;
+    }
+
+    /**
+     * An observation of a stage in progress. Exactly one of {@link #success()} and {@link #failure(Throwable)} must be
+     * called, once. The attributes of the stage are set before, as they become known; implementations which do not
+     * record them inherit the no-op defaults.
+     */
+    interface Sample {
+
+        /**
+         * A sample which records nothing
+         */
+        Sample NOOP = new Sample() {
+            @Override
+            public void success() {
+                // nop
+            }
+
+            @Override
+            public void failure(Throwable exception) {
+                // nop
+            }
+        };
+
+        /**
+         * Sets the credentialId the stage works on
+         *
+         * @param credentialId credentialId
+         */
+        default void setCredentialId(byte[] credentialId) {
+            // nop
+        }
+
+        /**
+         * Sets the attestation statement format of the authenticator
+         *
+         * @param attestationFormat attestation statement format
+         */
+        default void setAttestationFormat(String attestationFormat) {
+            // nop
+        }
+
+        /**
+         * Sets the AAGUID of the authenticator
+         *
+         * @param aaguid AAGUID
+         */
+        default void setAaguid(AAGUID aaguid) {
+            // nop
+        }
+
+        /**
+         * Records that the stage completed normally
+         */
+        void success();
+
+        /**
+         * Records that the stage failed
+         *
+         * @param exception the exception thrown to the caller
+         */
+        void failure(Throwable exception);
+    }
+}
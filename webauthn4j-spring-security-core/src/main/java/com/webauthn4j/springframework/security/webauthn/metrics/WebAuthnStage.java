@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.metrics;
+
+/**
+ * Stages of the WebAuthn authentication and registration pipelines observed by {@link WebAuthnInstrumentation}
+ */
+public enum WebAuthnStage {
+
+    /**
+     * Decoding of the credential parameters of an authentication request
+     */
+    AUTHENTICATION_REQUEST_DECODE("authentication", "request-decode"),
+    /**
+     * Resolution of the ServerProperty, including the challenge, of an authentication request
+     */
+    AUTHENTICATION_SERVER_PROPERTY("authentication", "server-property"),
+    /**
+     * Lookup of the user and the authenticator by the credentialId
+     */
+    AUTHENTICATION_USER_LOOKUP("authentication", "user-lookup"),
+    /**
+     * Validation of the assertion by WebAuthnManager
+     */
+    AUTHENTICATION_VALIDATION("authentication", "validation"),
+    /**
+     * Update of the signature counter of the authenticator
+     */
+    AUTHENTICATION_COUNTER_UPDATE("authentication", "counter-update"),
+    /**
+     * Decoding of the clientData and the attestationObject of a registration request
+     */
+    REGISTRATION_REQUEST_DECODE("registration", "request-decode"),
+    /**
+     * Resolution of the ServerProperty, including the challenge, of a registration request
+     */
+    REGISTRATION_SERVER_PROPERTY("registration", "server-property"),
+    /**
+     * Validation of the attestation by WebAuthnManager
+     */
+    REGISTRATION_VALIDATION("registration", "validation"),
+    /**
+     * Serialization of the response of an options or FIDO server endpoint
+     */
+    RESPONSE_WRITE("endpoint", "response-write");
+
+    private final String operation;
+    private final String stageName;
+
+    WebAuthnStage(String operation, String stageName) {
+        this.operation = operation;
+        this.stageName = stageName;
+    }
+
+    /**
+     * Returns the pipeline the stage belongs to
+     *
+     * @return "authentication", "registration" or "endpoint"
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Returns the name of the stage, unique within its operation
+     *
+     * @return the name of the stage
+     */
+    public String getStageName() {
+        return stageName;
+    }
+}
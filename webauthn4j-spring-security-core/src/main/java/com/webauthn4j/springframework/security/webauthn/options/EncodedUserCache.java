@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.options;
+
+import org.springframework.util.Assert;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A cache of the Base64Url encoded user handle and credentialIds of users, keyed by username.
+ * <p>
+ * {@link OptionsProviderImpl} checks the cache before looking the user up, so that options for a cached user are
+ * generated without store access and encoding. Unknown users are not cached. The cache holds at most
+ * {@code maximumSize} users, evicting the least recently used one first. Entries must be invalidated by
+ * {@link #invalidate(String)} when the user's authenticators change; {@code CachingWebAuthnUserDetailsService} does
+ * it from {@code addAuthenticator} and {@code removeAuthenticator} when given this cache.
+ */
+public class EncodedUserCache {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    //~ Instance fields
+    // ================================================================================================
+    private final int maximumSize;
+    private final LinkedHashMap<String, EncodedUser> entries;
+    private long invalidationCount = 0;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public EncodedUserCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public EncodedUserCache(int maximumSize) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<String, EncodedUser>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, EncodedUser> eldest) {
+                return size() > EncodedUserCache.this.maximumSize;
+            }
+        };
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Returns the encoded user, loading and encoding it on a cache miss
+     *
+     * @param username the username
+     * @param loader   loads and encodes the user, returning {@code null} if it is not found
+     * @return the encoded user, or {@code null} if the user is not found
+     */
+    EncodedUser get(String username, Function<String, EncodedUser> loader) {
+        long invalidationCountBeforeLoad;
+        synchronized (entries) {
+            EncodedUser encodedUser = entries.get(username);
+            if (encodedUser != null) {
+                return encodedUser;
+            }
+            invalidationCountBeforeLoad = invalidationCount;
+        }
+        EncodedUser encodedUser = loader.apply(username);
+        synchronized (entries) {
+            // Skip caching if an invalidation happened while loading, as the loaded user may be stale
+            if (encodedUser != null && invalidationCount == invalidationCountBeforeLoad) {
+                entries.put(username, encodedUser);
+            }
+        }
+        return encodedUser;
+    }
+
+    /**
+     * Removes the cached entry of a user
+     *
+     * @param username the username identifying the user
+     */
+    public void invalidate(String username) {
+        synchronized (entries) {
+            invalidationCount++;
+            entries.remove(username);
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * The encoded user handle and credentialIds of a user
+     */
+    static class EncodedUser {
+
+        private final String userHandle;
+        private final List<String> credentials;
+
+        EncodedUser(String userHandle, List<String> credentials) {
+            this.userHandle = userHandle;
+            this.credentials = Collections.unmodifiableList(credentials);
+        }
+
+        String getUserHandle() {
+            return userHandle;
+        }
+
+        List<String> getCredentials() {
+            return credentials;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.options;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * {@link AttestationOptions} and {@link AssertionOptions} sharing the same user, credentials, rpId and challenge
+ */
+public class Options implements Serializable {
+
+    // ~ Instance fields
+    // ================================================================================================
+
+    private final AttestationOptions attestationOptions;
+    private final AssertionOptions assertionOptions;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public Options(AttestationOptions attestationOptions, AssertionOptions assertionOptions) {
+        this.attestationOptions = attestationOptions;
+        this.assertionOptions = assertionOptions;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    public AttestationOptions getAttestationOptions() {
+        return attestationOptions;
+    }
+
+    public AssertionOptions getAssertionOptions() {
+        return assertionOptions;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Options that = (Options) o;
+        return Objects.equals(attestationOptions, that.attestationOptions) &&
+                Objects.equals(assertionOptions, that.assertionOptions);
+    }
+
+    @Override
+    public int hashCode() {
+
+        return Objects.hash(attestationOptions, assertionOptions);
+    }
+}
@@ -22,6 +22,7 @@ import com.webauthn4j.data.extension.client.AuthenticationExtensionClientInput;
 import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
 import com.webauthn4j.data.extension.client.RegistrationExtensionClientInput;
 import com.webauthn4j.springframework.security.webauthn.endpoint.OptionsResponse;
+import com.webauthn4j.springframework.security.webauthn.endpoint.Parameters;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.List;
@@ -52,6 +53,30 @@ public interface OptionsProvider {
      */
     AssertionOptions getAssertionOptions(HttpServletRequest request, String username, Challenge challenge);
 
+    /**
+     * provides {@link AttestationOptions} and {@link AssertionOptions} at once. If <code>username</code> is <code>null</code>,
+     * <code>user</code>, <code>credentials</code> are not populated.
+     * <p>
+     * Implementations should look up the user, encode the credentials, resolve the rpId and save the challenge once
+     * for both options. The default implementation calls
+     * {@link #getAttestationOptions(HttpServletRequest, String, Challenge)} only, so that the challenge is saved once,
+     * and builds the {@link AssertionOptions} from its challenge and credentials, and from the configured
+     * authentication timeout, authentication extensions and parameters.
+     *
+     * @param request   request
+     * @param username  username
+     * @param challenge if null, new challenge is generated. Otherwise, specified challenge is used.
+     * @return {@link Options} instance
+     */
+    default Options getOptions(HttpServletRequest request, String username, Challenge challenge) {
+        AttestationOptions attestationOptions = getAttestationOptions(request, username, challenge);
+        Parameters parameters = new Parameters(getUsernameParameter(), getPasswordParameter(), getCredentialIdParameter(),
+                getClientDataJSONParameter(), getAuthenticatorDataParameter(), getSignatureParameter(), getClientExtensionsJSONParameter());
+        AssertionOptions assertionOptions = new AssertionOptions(attestationOptions.getChallenge(), getAuthenticationTimeout(),
+                getEffectiveRpId(request), attestationOptions.getCredentials(), getAuthenticationExtensions(), parameters);
+        return new Options(attestationOptions, assertionOptions);
+    }
+
     /**
      * returns effective rpId based on request origin and configured <code>rpId</code>.
      *
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.options;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.data.PublicKeyCredentialParameters;
+import com.webauthn4j.data.PublicKeyCredentialRpEntity;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionClientInput;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
+import com.webauthn4j.data.extension.client.RegistrationExtensionClientInput;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnProcessingFilter;
+import com.webauthn4j.springframework.security.webauthn.endpoint.Parameters;
+import com.webauthn4j.springframework.security.webauthn.endpoint.WebAuthnPublicKeyCredentialUserEntity;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Base class of the options providers, holding the relying party settings and building the options from them.
+ * Subclasses look the user up and resolve the challenge, either from a servlet request or from a reactive exchange.
+ */
+public abstract class OptionsProviderBase {
+
+    //~ Instance fields
+    // ================================================================================================
+    private String rpId = null;
+    private String rpName = null;
+    private String rpIcon = null;
+    private List<PublicKeyCredentialParameters> pubKeyCredParams = new ArrayList<>();
+    private Long registrationTimeout = null;
+    private Long authenticationTimeout = null;
+    private AuthenticationExtensionsClientInputs<RegistrationExtensionClientInput<?>> registrationExtensions = new AuthenticationExtensionsClientInputs<>();
+    private AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> authenticationExtensions = new AuthenticationExtensionsClientInputs<>();
+
+    private String usernameParameter = UsernamePasswordAuthenticationFilter.SPRING_SECURITY_FORM_USERNAME_KEY;
+    private String passwordParameter = UsernamePasswordAuthenticationFilter.SPRING_SECURITY_FORM_PASSWORD_KEY;
+    private String credentialIdParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_CREDENTIAL_ID_KEY;
+    private String clientDataJSONParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_CLIENT_DATA_JSON_KEY;
+    private String authenticatorDataParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_AUTHENTICATOR_DATA_KEY;
+    private String signatureParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_SIGNATURE_KEY;
+    private String clientExtensionsJSONParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_CLIENT_EXTENSIONS_JSON_KEY;
+
+    // ~ Methods
+    // ========================================================================================================
+
+    protected AttestationOptions createAttestationOptions(String effectiveRpId, WebAuthnPublicKeyCredentialUserEntity user, List<String> credentials, Challenge challenge) {
+        PublicKeyCredentialRpEntity relyingParty = new PublicKeyCredentialRpEntity(effectiveRpId, rpName, rpIcon);
+        return new AttestationOptions(relyingParty, user, challenge, pubKeyCredParams, registrationTimeout,
+                credentials, registrationExtensions);
+    }
+
+    protected AssertionOptions createAssertionOptions(String effectiveRpId, List<String> credentials, Challenge challenge) {
+        Parameters parameters
+                = new Parameters(usernameParameter, passwordParameter,
+                credentialIdParameter, clientDataJSONParameter, authenticatorDataParameter, signatureParameter, clientExtensionsJSONParameter);
+        return new AssertionOptions(challenge, authenticationTimeout, effectiveRpId, credentials, authenticationExtensions, parameters);
+    }
+
+    /**
+     * Encodes the credentialIds of the authenticators into Base64Url
+     *
+     * @param authenticators authenticators
+     * @return encoded credentialIds
+     */
+    protected List<String> encodeCredentials(Collection<? extends Authenticator> authenticators) {
+        List<String> credentials = new ArrayList<>(authenticators.size());
+        for (Authenticator authenticator : authenticators) {
+            credentials.add(Base64UrlUtil.encodeToString(authenticator.getAttestedCredentialData().getCredentialId()));
+        }
+        return credentials;
+    }
+
+    public String getRpId() {
+        return rpId;
+    }
+
+    public void setRpId(String rpId) {
+        this.rpId = rpId;
+    }
+
+    public String getRpName() {
+        return rpName;
+    }
+
+    public void setRpName(String rpName) {
+        Assert.hasText(rpName, "rpName parameter must not be empty or null");
+        this.rpName = rpName;
+    }
+
+    public String getRpIcon() {
+        return rpIcon;
+    }
+
+    public void setRpIcon(String rpIcon) {
+        Assert.hasText(rpIcon, "rpIcon parameter must not be empty or null");
+        this.rpIcon = rpIcon;
+    }
+
+    public List<PublicKeyCredentialParameters> getPubKeyCredParams() {
+        return pubKeyCredParams;
+    }
+
+    public void setPubKeyCredParams(List<PublicKeyCredentialParameters> pubKeyCredParams) {
+        this.pubKeyCredParams = pubKeyCredParams;
+    }
+
+    public Long getRegistrationTimeout() {
+        return registrationTimeout;
+    }
+
+    public void setRegistrationTimeout(Long registrationTimeout) {
+        Assert.notNull(registrationTimeout, "registrationTimeout must not be null.");
+        Assert.isTrue(registrationTimeout >= 0, "registrationTimeout must be within unsigned long.");
+        this.registrationTimeout = registrationTimeout;
+    }
+
+    public Long getAuthenticationTimeout() {
+        return authenticationTimeout;
+    }
+
+    public void setAuthenticationTimeout(Long authenticationTimeout) {
+        Assert.notNull(authenticationTimeout, "authenticationTimeout must not be null.");
+        Assert.isTrue(authenticationTimeout >= 0, "authenticationTimeout must be within unsigned long.");
+        this.authenticationTimeout = authenticationTimeout;
+    }
+
+    public AuthenticationExtensionsClientInputs<RegistrationExtensionClientInput<?>> getRegistrationExtensions() {
+        return registrationExtensions;
+    }
+
+    public void setRegistrationExtensions(AuthenticationExtensionsClientInputs<RegistrationExtensionClientInput<?>> registrationExtensions) {
+        this.registrationExtensions = registrationExtensions;
+    }
+
+    public AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> getAuthenticationExtensions() {
+        return authenticationExtensions;
+    }
+
+    public void setAuthenticationExtensions(AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> authenticationExtensions) {
+        this.authenticationExtensions = authenticationExtensions;
+    }
+
+    public String getUsernameParameter() {
+        return usernameParameter;
+    }
+
+    public void setUsernameParameter(String usernameParameter) {
+        Assert.hasText(usernameParameter, "usernameParameter must not be empty or null");
+        this.usernameParameter = usernameParameter;
+    }
+
+    public String getPasswordParameter() {
+        return passwordParameter;
+    }
+
+    public void setPasswordParameter(String passwordParameter) {
+        Assert.hasText(passwordParameter, "passwordParameter must not be empty or null");
+        this.passwordParameter = passwordParameter;
+    }
+
+    public String getCredentialIdParameter() {
+        return credentialIdParameter;
+    }
+
+    public void setCredentialIdParameter(String credentialIdParameter) {
+        Assert.hasText(credentialIdParameter, "credentialIdParameter must not be empty or null");
+        this.credentialIdParameter = credentialIdParameter;
+    }
+
+    public String getClientDataJSONParameter() {
+        return clientDataJSONParameter;
+    }
+
+    public void setClientDataJSONParameter(String clientDataJSONParameter) {
+        Assert.hasText(clientDataJSONParameter, "clientDataJSONParameter must not be empty or null");
+        this.clientDataJSONParameter = clientDataJSONParameter;
+    }
+
+    public String getAuthenticatorDataParameter() {
+        return authenticatorDataParameter;
+    }
+
+    public void setAuthenticatorDataParameter(String authenticatorDataParameter) {
+        Assert.hasText(authenticatorDataParameter, "authenticatorDataParameter must not be empty or null");
+        this.authenticatorDataParameter = authenticatorDataParameter;
+    }
+
+    public String getSignatureParameter() {
+        return signatureParameter;
+    }
+
+    public void setSignatureParameter(String signatureParameter) {
+        Assert.hasText(signatureParameter, "signatureParameter must not be empty or null");
+        this.signatureParameter = signatureParameter;
+    }
+
+    public String getClientExtensionsJSONParameter() {
+        return clientExtensionsJSONParameter;
+    }
+
+    public void setClientExtensionsJSONParameter(String clientExtensionsJSONParameter) {
+        Assert.hasText(clientExtensionsJSONParameter, "clientExtensionsJSONParameter must not be empty or null");
+        this.clientExtensionsJSONParameter = clientExtensionsJSONParameter;
+    }
+
+}
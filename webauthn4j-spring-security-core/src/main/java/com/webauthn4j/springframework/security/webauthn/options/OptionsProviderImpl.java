@@ -16,59 +16,33 @@
 
 package com.webauthn4j.springframework.security.webauthn.options;
 
-import com.webauthn4j.authenticator.Authenticator;
-import com.webauthn4j.data.PublicKeyCredentialParameters;
-import com.webauthn4j.data.PublicKeyCredentialRpEntity;
 import com.webauthn4j.data.client.Origin;
 import com.webauthn4j.data.client.challenge.Challenge;
-import com.webauthn4j.data.extension.client.AuthenticationExtensionClientInput;
-import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
-import com.webauthn4j.data.extension.client.RegistrationExtensionClientInput;
-import com.webauthn4j.springframework.security.webauthn.WebAuthnProcessingFilter;
 import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeRepository;
-import com.webauthn4j.springframework.security.webauthn.endpoint.Parameters;
 import com.webauthn4j.springframework.security.webauthn.endpoint.WebAuthnPublicKeyCredentialUserEntity;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
 import com.webauthn4j.springframework.security.webauthn.util.ServletUtil;
 import com.webauthn4j.util.Base64UrlUtil;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.util.Assert;
 
 import javax.servlet.http.HttpServletRequest;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * An {@link OptionsProvider} implementation
  */
-public class OptionsProviderImpl implements OptionsProvider {
+public class OptionsProviderImpl extends OptionsProviderBase implements OptionsProvider {
 
     //~ Instance fields
     // ================================================================================================
-    private String rpId = null;
-    private String rpName = null;
-    private String rpIcon = null;
-    private List<PublicKeyCredentialParameters> pubKeyCredParams = new ArrayList<>();
-    private Long registrationTimeout = null;
-    private Long authenticationTimeout = null;
-    private AuthenticationExtensionsClientInputs<RegistrationExtensionClientInput<?>> registrationExtensions = new AuthenticationExtensionsClientInputs<>();
-    private AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> authenticationExtensions = new AuthenticationExtensionsClientInputs<>();
-
-    private String usernameParameter = UsernamePasswordAuthenticationFilter.SPRING_SECURITY_FORM_USERNAME_KEY;
-    private String passwordParameter = UsernamePasswordAuthenticationFilter.SPRING_SECURITY_FORM_PASSWORD_KEY;
-    private String credentialIdParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_CREDENTIAL_ID_KEY;
-    private String clientDataJSONParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_CLIENT_DATA_JSON_KEY;
-    private String authenticatorDataParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_AUTHENTICATOR_DATA_KEY;
-    private String signatureParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_SIGNATURE_KEY;
-    private String clientExtensionsJSONParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_CLIENT_EXTENSIONS_JSON_KEY;
-
     private final WebAuthnUserDetailsService userDetailsService;
     private final ChallengeRepository challengeRepository;
 
+    private EncodedUserCache encodedUserCache = null;
+
     // ~ Constructors
     // ===================================================================================================
 
@@ -89,70 +63,74 @@ public class OptionsProviderImpl implements OptionsProvider {
      * {@inheritDoc}
      */
     public AttestationOptions getAttestationOptions(HttpServletRequest request, String username, Challenge challenge) {
+        Optional<EncodedUserCache.EncodedUser> encodedUser = findEncodedUser(username);
+        return createAttestationOptions(getEffectiveRpId(request), getUser(encodedUser, username), getCredentials(encodedUser),
+                resolveChallenge(request, challenge));
+    }
 
-        WebAuthnPublicKeyCredentialUserEntity user;
-        Collection<? extends Authenticator> authenticators;
-
-        try {
-            WebAuthnUserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            authenticators = userDetails.getAuthenticators();
-            String userHandle = Base64UrlUtil.encodeToString(userDetails.getUserHandle());
-            user = new WebAuthnPublicKeyCredentialUserEntity(userHandle, username);
-        } catch (UsernameNotFoundException e) {
-            authenticators = Collections.emptyList();
-            user = null;
-        }
-
-        List<String> credentials = new ArrayList<>();
-        for (Authenticator authenticator : authenticators) {
-            String credentialId = Base64UrlUtil.encodeToString(authenticator.getAttestedCredentialData().getCredentialId());
-            credentials.add(credentialId);
-        }
+    public AssertionOptions getAssertionOptions(HttpServletRequest request, String username, Challenge challenge) {
+        Optional<EncodedUserCache.EncodedUser> encodedUser = findEncodedUser(username);
+        return createAssertionOptions(getEffectiveRpId(request), getCredentials(encodedUser), resolveChallenge(request, challenge));
+    }
 
-        PublicKeyCredentialRpEntity relyingParty = new PublicKeyCredentialRpEntity(getEffectiveRpId(request), rpName, rpIcon);
-        if (challenge == null) {
-            challenge = challengeRepository.loadOrGenerateChallenge(request);
-        } else {
-            challengeRepository.saveChallenge(challenge, request);
-        }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Options getOptions(HttpServletRequest request, String username, Challenge challenge) {
+        Optional<EncodedUserCache.EncodedUser> encodedUser = findEncodedUser(username);
+        String effectiveRpId = getEffectiveRpId(request);
+        List<String> credentials = getCredentials(encodedUser);
+        Challenge resolvedChallenge = resolveChallenge(request, challenge);
+        return new Options(
+                createAttestationOptions(effectiveRpId, getUser(encodedUser, username), credentials, resolvedChallenge),
+                createAssertionOptions(effectiveRpId, credentials, resolvedChallenge)
+        );
+    }
 
-        return new AttestationOptions(relyingParty, user, challenge, pubKeyCredParams, registrationTimeout,
-                credentials, registrationExtensions);
+    private WebAuthnPublicKeyCredentialUserEntity getUser(Optional<EncodedUserCache.EncodedUser> encodedUser, String username) {
+        return encodedUser
+                .map(user -> new WebAuthnPublicKeyCredentialUserEntity(user.getUserHandle(), username))
+                .orElse(null);
     }
 
-    public AssertionOptions getAssertionOptions(HttpServletRequest request, String username, Challenge challenge) {
+    private List<String> getCredentials(Optional<EncodedUserCache.EncodedUser> encodedUser) {
+        return encodedUser
+                .map(EncodedUserCache.EncodedUser::getCredentials)
+                .orElse(Collections.emptyList());
+    }
 
-        Collection<? extends Authenticator> authenticators;
-        try {
-            WebAuthnUserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            authenticators = userDetails.getAuthenticators();
-        } catch (UsernameNotFoundException e) {
-            authenticators = Collections.emptyList();
+    private Optional<EncodedUserCache.EncodedUser> findEncodedUser(String username) {
+        EncodedUserCache cache = encodedUserCache;
+        if (cache == null) {
+            return Optional.ofNullable(loadEncodedUser(username));
         }
+        return Optional.ofNullable(cache.get(username, this::loadEncodedUser));
+    }
 
-        String effectiveRpId = getEffectiveRpId(request);
+    private EncodedUserCache.EncodedUser loadEncodedUser(String username) {
+        return userDetailsService.findUserByUsername(username).map(this::encodeUser).orElse(null);
+    }
 
-        List<String> credentials = new ArrayList<>();
-        for (Authenticator authenticator : authenticators) {
-            String credentialId = Base64UrlUtil.encodeToString(authenticator.getAttestedCredentialData().getCredentialId());
-            credentials.add(credentialId);
-        }
+    private EncodedUserCache.EncodedUser encodeUser(WebAuthnUserDetails userDetails) {
+        return new EncodedUserCache.EncodedUser(Base64UrlUtil.encodeToString(userDetails.getUserHandle()), encodeCredentials(userDetails.getAuthenticators()));
+    }
+
+    private Challenge resolveChallenge(HttpServletRequest request, Challenge challenge) {
         if (challenge == null) {
-            challenge = challengeRepository.loadOrGenerateChallenge(request);
+            return challengeRepository.loadOrGenerateChallenge(request);
         } else {
             challengeRepository.saveChallenge(challenge, request);
+            // the repository may hand out a transformed challenge, such as a signed one
+            Challenge saved = challengeRepository.loadChallenge(request);
+            return saved == null ? challenge : saved;
         }
-        Parameters parameters
-                = new Parameters(usernameParameter, passwordParameter,
-                credentialIdParameter, clientDataJSONParameter, authenticatorDataParameter, signatureParameter, clientExtensionsJSONParameter);
-
-        return new AssertionOptions(challenge, authenticationTimeout, effectiveRpId, credentials, authenticationExtensions, parameters);
     }
 
     public String getEffectiveRpId(HttpServletRequest request) {
         String effectiveRpId;
-        if (this.rpId != null) {
-            effectiveRpId = this.rpId;
+        if (getRpId() != null) {
+            effectiveRpId = getRpId();
         } else {
             Origin origin = ServletUtil.getOrigin(request);
             effectiveRpId = origin.getHost();
@@ -160,139 +138,20 @@ public class OptionsProviderImpl implements OptionsProvider {
         return effectiveRpId;
     }
 
-    public String getRpId() {
-        return rpId;
-    }
-
-    public void setRpId(String rpId) {
-        this.rpId = rpId;
-    }
-
-    public String getRpName() {
-        return rpName;
-    }
-
-    public void setRpName(String rpName) {
-        Assert.hasText(rpName, "rpName parameter must not be empty or null");
-        this.rpName = rpName;
-    }
-
-    @Override
-    public String getRpIcon() {
-        return rpIcon;
-    }
-
-    @Override
-    public void setRpIcon(String rpIcon) {
-        Assert.hasText(rpIcon, "rpIcon parameter must not be empty or null");
-        this.rpIcon = rpIcon;
-    }
-
-    public List<PublicKeyCredentialParameters> getPubKeyCredParams() {
-        return pubKeyCredParams;
-    }
-
-    public void setPubKeyCredParams(List<PublicKeyCredentialParameters> pubKeyCredParams) {
-        this.pubKeyCredParams = pubKeyCredParams;
+    public EncodedUserCache getEncodedUserCache() {
+        return encodedUserCache;
     }
 
-    public Long getRegistrationTimeout() {
-        return registrationTimeout;
-    }
-
-    public void setRegistrationTimeout(Long registrationTimeout) {
-        Assert.notNull(registrationTimeout, "registrationTimeout must not be null.");
-        Assert.isTrue(registrationTimeout >= 0, "registrationTimeout must be within unsigned long.");
-        this.registrationTimeout = registrationTimeout;
-    }
-
-    public Long getAuthenticationTimeout() {
-        return authenticationTimeout;
-    }
-
-    public void setAuthenticationTimeout(Long authenticationTimeout) {
-        Assert.notNull(authenticationTimeout, "authenticationTimeout must not be null.");
-        Assert.isTrue(registrationTimeout >= 0, "registrationTimeout must be within unsigned long.");
-        this.authenticationTimeout = authenticationTimeout;
-    }
-
-    public AuthenticationExtensionsClientInputs<RegistrationExtensionClientInput<?>> getRegistrationExtensions() {
-        return registrationExtensions;
-    }
-
-    public void setRegistrationExtensions(AuthenticationExtensionsClientInputs<RegistrationExtensionClientInput<?>> registrationExtensions) {
-        this.registrationExtensions = registrationExtensions;
-    }
-
-    public AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> getAuthenticationExtensions() {
-        return authenticationExtensions;
-    }
-
-    public void setAuthenticationExtensions(AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> authenticationExtensions) {
-        this.authenticationExtensions = authenticationExtensions;
-    }
-
-    public String getUsernameParameter() {
-        return usernameParameter;
-    }
-
-    public void setUsernameParameter(String usernameParameter) {
-        Assert.hasText(usernameParameter, "usernameParameter must not be empty or null");
-        this.usernameParameter = usernameParameter;
-    }
-
-    public String getPasswordParameter() {
-        return passwordParameter;
-    }
-
-    public void setPasswordParameter(String passwordParameter) {
-        Assert.hasText(passwordParameter, "passwordParameter must not be empty or null");
-        this.passwordParameter = passwordParameter;
-    }
-
-    public String getCredentialIdParameter() {
-        return credentialIdParameter;
-    }
-
-    public void setCredentialIdParameter(String credentialIdParameter) {
-        Assert.hasText(credentialIdParameter, "credentialIdParameter must not be empty or null");
-        this.credentialIdParameter = credentialIdParameter;
-    }
-
-    public String getClientDataJSONParameter() {
-        return clientDataJSONParameter;
-    }
-
-    public void setClientDataJSONParameter(String clientDataJSONParameter) {
-        Assert.hasText(clientDataJSONParameter, "clientDataJSONParameter must not be empty or null");
-        this.clientDataJSONParameter = clientDataJSONParameter;
-    }
-
-    public String getAuthenticatorDataParameter() {
-        return authenticatorDataParameter;
-    }
-
-    public void setAuthenticatorDataParameter(String authenticatorDataParameter) {
-        Assert.hasText(authenticatorDataParameter, "authenticatorDataParameter must not be empty or null");
-        this.authenticatorDataParameter = authenticatorDataParameter;
-    }
-
-    public String getSignatureParameter() {
-        return signatureParameter;
-    }
-
-    public void setSignatureParameter(String signatureParameter) {
-        Assert.hasText(signatureParameter, "signatureParameter must not be empty or null");
-        this.signatureParameter = signatureParameter;
-    }
-
-    public String getClientExtensionsJSONParameter() {
-        return clientExtensionsJSONParameter;
-    }
-
-    public void setClientExtensionsJSONParameter(String clientExtensionsJSONParameter) {
-        Assert.hasText(clientExtensionsJSONParameter, "clientExtensionsJSONParameter must not be empty or null");
-        this.clientExtensionsJSONParameter = clientExtensionsJSONParameter;
+    /**
+     * Sets the {@link EncodedUserCache} to serve the encoded user handle and credentialIds of users from.
+     * The cache is disabled by default. It should also be given to the
+     * {@link com.webauthn4j.springframework.security.webauthn.userdetails.CachingWebAuthnUserDetailsService} through
+     * which authenticators are added and removed, so that changed users are invalidated.
+     *
+     * @param encodedUserCache encodedUserCache, or {@code null} to disable the cache
+     */
+    public void setEncodedUserCache(EncodedUserCache encodedUserCache) {
+        this.encodedUserCache = encodedUserCache;
     }
 
 }
@@ -16,6 +16,7 @@
 
 package com.webauthn4j.springframework.security.webauthn.request;
 
+import com.webauthn4j.data.client.CollectedClientData;
 import com.webauthn4j.server.ServerProperty;
 import com.webauthn4j.util.ArrayUtil;
 
@@ -42,7 +43,13 @@ public class WebAuthnAuthenticationRequest implements Serializable {
     private final boolean userVerificationRequired;
     private final boolean userPresenceRequired;
     private final List<String> expectedAuthenticationExtensionIds;
+    // parsed from clientDataJSON by the caller, if any
+    private final CollectedClientData collectedClientData;
 
+    /**
+     * Constructor for callers which have already parsed the clientDataJSON, so that it is not parsed again by the
+     * validation
+     */
     @SuppressWarnings("squid:S00107")
     public WebAuthnAuthenticationRequest(byte[] credentialId,
                                          byte[] clientDataJSON,
@@ -52,7 +59,8 @@ public class WebAuthnAuthenticationRequest implements Serializable {
                                          ServerProperty serverProperty,
                                          boolean userVerificationRequired,
                                          boolean userPresenceRequired,
-                                         List<String> expectedAuthenticationExtensionIds) {
+                                         List<String> expectedAuthenticationExtensionIds,
+                                         CollectedClientData collectedClientData) {
 
         this.credentialId = credentialId;
         this.clientDataJSON = clientDataJSON;
@@ -63,6 +71,32 @@ public class WebAuthnAuthenticationRequest implements Serializable {
         this.userVerificationRequired = userVerificationRequired;
         this.userPresenceRequired = userPresenceRequired;
         this.expectedAuthenticationExtensionIds = expectedAuthenticationExtensionIds;
+        this.collectedClientData = collectedClientData;
+    }
+
+    @SuppressWarnings("squid:S00107")
+    public WebAuthnAuthenticationRequest(byte[] credentialId,
+                                         byte[] clientDataJSON,
+                                         byte[] authenticatorData,
+                                         byte[] signature,
+                                         String clientExtensionsJSON,
+                                         ServerProperty serverProperty,
+                                         boolean userVerificationRequired,
+                                         boolean userPresenceRequired,
+                                         List<String> expectedAuthenticationExtensionIds) {
+
+        this(
+                credentialId,
+                clientDataJSON,
+                authenticatorData,
+                signature,
+                clientExtensionsJSON,
+                serverProperty,
+                userVerificationRequired,
+                userPresenceRequired,
+                expectedAuthenticationExtensionIds,
+                null
+        );
     }
 
     @SuppressWarnings("squid:S00107")
@@ -124,6 +158,16 @@ public class WebAuthnAuthenticationRequest implements Serializable {
         return expectedAuthenticationExtensionIds;
     }
 
+    /**
+     * Returns the clientDataJSON parsed by the caller. It is derived from {@link #getClientDataJSON()}, so it is not
+     * part of the equality.
+     *
+     * @return the parsed clientDataJSON, or {@code null} if the caller has not parsed it
+     */
+    public CollectedClientData getCollectedClientData() {
+        return collectedClientData;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
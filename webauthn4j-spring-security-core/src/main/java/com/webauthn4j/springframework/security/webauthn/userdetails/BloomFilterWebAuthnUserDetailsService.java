@@ -0,0 +1,337 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.userdetails;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.Assert;
+
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * A {@link WebAuthnUserDetailsService} decorator which rejects unknown credentialIds without querying the delegate.
+ * <p>
+ * The credentialIds of all registered authenticators are kept in a scalable Bloom filter, built by
+ * {@link #afterPropertiesSet()} from the given source, and updated by {@link #addAuthenticator(String, Authenticator)}.
+ * A credentialId which is not in the filter is definitely unknown, and lookups by it return empty or throw
+ * {@link CredentialIdNotFoundException} right away. Other lookups, including false positives, are passed to the
+ * delegate. Until the filter is built, all lookups are passed to the delegate.
+ * <p>
+ * A Bloom filter cannot forget a value, so removed credentialIds stay in the filter and are looked up in the delegate,
+ * as false positives are. {@link #rebuild()} rebuilds the filter from the source, to drop them.
+ * <p>
+ * The filter only learns the credentialIds of authenticators added through this instance, so as is, it is meant for
+ * single node deployments. Authenticators stored by other means, such as another node of the deployment, are rejected
+ * until the next rebuild, unless they are registered by {@link #addCredentialId(byte[])}, for example on a
+ * registration event published by the other nodes. Setting a {@code rebuildInterval} rebuilds the filter periodically
+ * in the background, from {@link #afterPropertiesSet()} until {@link #destroy()}, which bounds how long they are
+ * rejected.
+ */
+public class BloomFilterWebAuthnUserDetailsService implements WebAuthnUserDetailsService, InitializingBean, DisposableBean {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final int DEFAULT_EXPECTED_INSERTIONS = 10_000;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    //~ Instance fields
+    // ================================================================================================
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final WebAuthnUserDetailsService userDetailsService;
+    private final Supplier<Stream<byte[]>> credentialIdSource;
+
+    private final Object lock = new Object();
+    private volatile ScalableBloomFilter filter;
+    private ScalableBloomFilter rebuildingFilter;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private int expectedInsertions = DEFAULT_EXPECTED_INSERTIONS;
+    private double falsePositiveRate = DEFAULT_FALSE_POSITIVE_RATE;
+    private long rebuildInterval = 0;
+    private ScheduledExecutorService rebuildExecutor;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    /**
+     * Constructor
+     *
+     * @param userDetailsService the delegate
+     * @param credentialIdSource supplies the credentialIds of all registered authenticators. The stream is closed
+     *                           after use.
+     */
+    public BloomFilterWebAuthnUserDetailsService(WebAuthnUserDetailsService userDetailsService, Supplier<Stream<byte[]>> credentialIdSource) {
+        Assert.notNull(userDetailsService, "userDetailsService must not be null");
+        Assert.notNull(credentialIdSource, "credentialIdSource must not be null");
+        this.userDetailsService = userDetailsService;
+        this.credentialIdSource = credentialIdSource;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public void afterPropertiesSet() {
+        rebuild();
+        if (rebuildInterval > 0) {
+            rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "webauthn-credential-filter-rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+            rebuildExecutor.scheduleWithFixedDelay(this::rebuildSafely, rebuildInterval, rebuildInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (rebuildExecutor != null) {
+            rebuildExecutor.shutdownNow();
+            rebuildExecutor = null;
+        }
+    }
+
+    /**
+     * Rebuilds the filter from the credentialId source, dropping removed credentialIds.
+     * Authenticators added while rebuilding are kept.
+     */
+    public synchronized void rebuild() {
+        ScalableBloomFilter rebuilt = new ScalableBloomFilter(expectedInsertions, falsePositiveRate);
+        synchronized (lock) {
+            rebuildingFilter = rebuilt;
+        }
+        boolean completed = false;
+        try (Stream<byte[]> credentialIds = credentialIdSource.get()) {
+            credentialIds.forEach(rebuilt::put);
+            completed = true;
+        } finally {
+            synchronized (lock) {
+                rebuildingFilter = null;
+                if (completed) {
+                    filter = rebuilt;
+                }
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Built credentialId filter of " + rebuilt.getCount() + " credentialIds, using "
+                    + rebuilt.getMemoryFootprint() + " bytes");
+        }
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to rebuild credentialId filter", e);
+        }
+    }
+
+    @Override
+    public WebAuthnUserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return userDetailsService.loadUserByUsername(username);
+    }
+
+    @Override
+    public Optional<WebAuthnUserDetails> findUserByUsername(String username) {
+        return userDetailsService.findUserByUsername(username);
+    }
+
+    @Override
+    public WebAuthnUserDetails loadUserByCredentialId(byte[] credentialId) throws CredentialIdNotFoundException {
+        if (isUnknown(credentialId)) {
+            throw new CredentialIdNotFoundException("credentialId is not found", null, false);
+        }
+        return userDetailsService.loadUserByCredentialId(credentialId);
+    }
+
+    @Override
+    public Optional<WebAuthnUserDetails> findUserByCredentialId(byte[] credentialId) {
+        if (isUnknown(credentialId)) {
+            return Optional.empty();
+        }
+        return userDetailsService.findUserByCredentialId(credentialId);
+    }
+
+    @Override
+    public WebAuthnAuthenticationContext loadAuthenticationContextByCredentialId(byte[] credentialId) throws CredentialIdNotFoundException {
+        if (isUnknown(credentialId)) {
+            throw new CredentialIdNotFoundException("credentialId is not found", null, false);
+        }
+        return userDetailsService.loadAuthenticationContextByCredentialId(credentialId);
+    }
+
+    @Override
+    public Optional<WebAuthnAuthenticationContext> findAuthenticationContextByCredentialId(byte[] credentialId) {
+        if (isUnknown(credentialId)) {
+            return Optional.empty();
+        }
+        return userDetailsService.findAuthenticationContextByCredentialId(credentialId);
+    }
+
+    /**
+     * Adds the credentialId to the filter before the authenticator is stored, so that it is never rejected, then
+     * adds it again after, in case the filter has been rebuilt in between.
+     */
+    @Override
+    public void addAuthenticator(String username, Authenticator authenticator) {
+        byte[] credentialId = authenticator.getAttestedCredentialData().getCredentialId();
+        ScalableBloomFilter current = filter;
+        if (current != null) {
+            current.put(credentialId);
+        }
+        userDetailsService.addAuthenticator(username, authenticator);
+        addCredentialId(credentialId);
+    }
+
+    /**
+     * Adds the credentialId to the filter as {@link #addAuthenticator(String, Authenticator)} does. If the user is not
+     * found, the credentialId stays in the filter as a false positive until the next rebuild.
+     */
+    @Override
+    public boolean tryAddAuthenticator(String username, Authenticator authenticator) {
+        byte[] credentialId = authenticator.getAttestedCredentialData().getCredentialId();
+        ScalableBloomFilter current = filter;
+        if (current != null) {
+            current.put(credentialId);
+        }
+        boolean added = userDetailsService.tryAddAuthenticator(username, authenticator);
+        if (added) {
+            addCredentialId(credentialId);
+        }
+        return added;
+    }
+
+    @Override
+    public void removeAuthenticator(String username, Authenticator authenticator) {
+        userDetailsService.removeAuthenticator(username, authenticator);
+    }
+
+    @Override
+    public void removeAuthenticator(String username, byte[] credentialId) {
+        userDetailsService.removeAuthenticator(username, credentialId);
+    }
+
+    /**
+     * Adds the credentialId of an authenticator stored without going through this decorator
+     *
+     * @param credentialId credentialId
+     */
+    public void addCredentialId(byte[] credentialId) {
+        synchronized (lock) {
+            if (filter != null) {
+                filter.put(credentialId);
+            }
+            if (rebuildingFilter != null) {
+                rebuildingFilter.put(credentialId);
+            }
+        }
+    }
+
+    private boolean isUnknown(byte[] credentialId) {
+        ScalableBloomFilter current = filter;
+        if (current == null || current.mightContain(credentialId)) {
+            return false;
+        }
+        rejectedCount.increment();
+        return true;
+    }
+
+    /**
+     * Returns the number of lookups rejected by the filter
+     *
+     * @return the number of rejected lookups
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Returns the expected false positive rate of the filter, for the credentialIds added so far
+     *
+     * @return the expected false positive rate, or 0 if the filter is not built yet
+     */
+    public double getExpectedFalsePositiveRate() {
+        ScalableBloomFilter current = filter;
+        return current == null ? 0 : current.getExpectedFalsePositiveRate();
+    }
+
+    /**
+     * Returns the memory used by the bit arrays of the filter
+     *
+     * @return the size in bytes, or 0 if the filter is not built yet
+     */
+    public long getMemoryFootprint() {
+        ScalableBloomFilter current = filter;
+        return current == null ? 0 : current.getMemoryFootprint();
+    }
+
+    public int getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * Sets the number of credentialIds the filter is sized for when built. The filter grows beyond it as needed.
+     *
+     * @param expectedInsertions the expected number of credentialIds
+     */
+    public void setExpectedInsertions(int expectedInsertions) {
+        Assert.isTrue(expectedInsertions > 0, "expectedInsertions must be positive");
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public long getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    /**
+     * Sets the interval between background rebuilds of the filter. 0, the default, disables them.
+     *
+     * @param rebuildInterval the interval in milliseconds
+     */
+    public void setRebuildInterval(long rebuildInterval) {
+        Assert.isTrue(rebuildInterval >= 0, "rebuildInterval must not be negative");
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Sets the upper bound of the false positive rate of the filter
+     *
+     * @param falsePositiveRate the false positive rate, between 0 and 1 exclusive
+     */
+    public void setFalsePositiveRate(double falsePositiveRate) {
+        Assert.isTrue(falsePositiveRate > 0 && falsePositiveRate < 1, "falsePositiveRate must be between 0 and 1");
+        this.falsePositiveRate = falsePositiveRate;
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.userdetails;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.authenticator.AuthenticatorImpl;
+import com.webauthn4j.springframework.security.webauthn.authenticator.PublicKeyCache;
+import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticatorService;
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import com.webauthn4j.springframework.security.webauthn.options.EncodedUserCache;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A caching decorator for {@link WebAuthnUserDetailsService} and {@link WebAuthnAuthenticatorService}.
+ * <p>
+ * Loaded users are indexed both by username and by the credential ids of their authenticators, so that
+ * {@link #loadUserByUsername(String)} and {@link #loadUserByCredentialId(byte[])} are served from the same entry.
+ * The cache holds at most {@code maximumSize} users, evicting the least recently used one first, and each entry
+ * expires {@code timeToLive} milliseconds after it is loaded.
+ * <p>
+ * Adding or removing an authenticator through this decorator invalidates the user's entry. Updating a counter
+ * through {@link #updateCounter(byte[], long)} replaces the entry by one with the highest of the cached and the new
+ * counters instead, so that successful logins keep being served from the cache, and concurrent logins writing back
+ * their counters out of order never make the cached counter regress. Changes made to the underlying store by other
+ * means are only picked up when the entry expires, or after {@link #invalidate(String)} or {@link #invalidateAll()}.
+ * This includes the account status: a user who is disabled, locked or expired in the store keeps being served as
+ * loaded, for up to {@code timeToLive}, unless the application invalidates the user's entry.
+ * When given a {@link PublicKeyCache}, removing an authenticator also invalidates its PublicKey. When given an
+ * {@link EncodedUserCache}, invalidating a user also invalidates its encoded user handle and credentialIds.
+ * <p>
+ * Cache entries are immutable snapshots, and callers are given copies: a {@link WebAuthnUserDetailsImpl} is copied
+ * along with its authenticators, and the authenticator of a {@link WebAuthnAuthenticationContext} is always a copy
+ * carrying the current counter. Other {@link WebAuthnUserDetails} implementations, including subclasses of
+ * {@link WebAuthnUserDetailsImpl}, cannot be copied, so they are never cached: sharing them would let callers, such
+ * as the credential erasure of {@code ProviderManager}, modify the cached user.
+ */
+public class CachingWebAuthnUserDetailsService implements WebAuthnUserDetailsService, WebAuthnAuthenticatorService {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+    public static final long DEFAULT_TIME_TO_LIVE = 5 * 60 * 1000L;
+
+    //~ Instance fields
+    // ================================================================================================
+    private final WebAuthnUserDetailsService userDetailsService;
+    private final WebAuthnAuthenticatorService authenticatorService;
+
+    private final Object lock = new Object();
+    private final LinkedHashMap<String, CacheEntry> usernameIndex = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<ByteBuffer, String> credentialIdIndex = new HashMap<>();
+    private long invalidationCount = 0;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private long timeToLive = DEFAULT_TIME_TO_LIVE;
+    private Clock clock = Clock.systemUTC();
+    private PublicKeyCache publicKeyCache = null;
+    private EncodedUserCache encodedUserCache = null;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public CachingWebAuthnUserDetailsService(WebAuthnUserDetailsService userDetailsService, WebAuthnAuthenticatorService authenticatorService) {
+        Assert.notNull(userDetailsService, "userDetailsService must not be null");
+        Assert.notNull(authenticatorService, "authenticatorService must not be null");
+        this.userDetailsService = userDetailsService;
+        this.authenticatorService = authenticatorService;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public WebAuthnUserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return copyUser(getOrLoadByUsername(username, () -> userDetailsService.loadUserByUsername(username)));
+    }
+
+    @Override
+    public Optional<WebAuthnUserDetails> findUserByUsername(String username) {
+        return Optional.ofNullable(getOrLoadByUsername(username, () -> userDetailsService.findUserByUsername(username).orElse(null)))
+                .map(this::copyUser);
+    }
+
+    @Override
+    public WebAuthnUserDetails loadUserByCredentialId(byte[] credentialId) throws CredentialIdNotFoundException {
+        return copyUser(getOrLoadByCredentialId(credentialId, () -> userDetailsService.loadUserByCredentialId(credentialId)));
+    }
+
+    @Override
+    public Optional<WebAuthnUserDetails> findUserByCredentialId(byte[] credentialId) {
+        return Optional.ofNullable(getOrLoadByCredentialId(credentialId, () -> userDetailsService.findUserByCredentialId(credentialId).orElse(null)))
+                .map(this::copyUser);
+    }
+
+    /**
+     * Serves the user and the authenticator from the cached entry. On a cache miss, the whole user is loaded and
+     * cached, so that subsequent authentications by any of its credentials are cache hits.
+     */
+    @Override
+    public WebAuthnAuthenticationContext loadAuthenticationContextByCredentialId(byte[] credentialId) throws CredentialIdNotFoundException {
+        return toAuthenticationContext(getOrLoadByCredentialId(credentialId, () -> userDetailsService.loadUserByCredentialId(credentialId)), credentialId);
+    }
+
+    /**
+     * Serves the user and the authenticator from the cached entry, as {@link #loadAuthenticationContextByCredentialId(byte[])}
+     * does, without throwing an exception if the authenticator could not be found.
+     */
+    @Override
+    public Optional<WebAuthnAuthenticationContext> findAuthenticationContextByCredentialId(byte[] credentialId) {
+        return Optional.ofNullable(getOrLoadByCredentialId(credentialId, () -> userDetailsService.findUserByCredentialId(credentialId).orElse(null)))
+                .map(entry -> toAuthenticationContext(entry, credentialId));
+    }
+
+    @Override
+    public void addAuthenticator(String username, Authenticator authenticator) {
+        try {
+            userDetailsService.addAuthenticator(username, authenticator);
+        } finally {
+            invalidate(username);
+        }
+    }
+
+    @Override
+    public boolean tryAddAuthenticator(String username, Authenticator authenticator) {
+        try {
+            return userDetailsService.tryAddAuthenticator(username, authenticator);
+        } finally {
+            invalidate(username);
+        }
+    }
+
+    @Override
+    public void removeAuthenticator(String username, Authenticator authenticator) {
+        try {
+            userDetailsService.removeAuthenticator(username, authenticator);
+        } finally {
+            invalidate(username);
+            if (publicKeyCache != null && authenticator.getAttestedCredentialData() != null) {
+                publicKeyCache.invalidate(authenticator.getAttestedCredentialData().getCredentialId());
+            }
+        }
+    }
+
+    @Override
+    public void removeAuthenticator(String username, byte[] credentialId) {
+        try {
+            userDetailsService.removeAuthenticator(username, credentialId);
+        } finally {
+            invalidate(username);
+            if (publicKeyCache != null) {
+                publicKeyCache.invalidate(credentialId);
+            }
+        }
+    }
+
+    /**
+     * Updates the counter in the underlying store, then replaces the cached entry, if any, by one with the new counter
+     */
+    @Override
+    public void updateCounter(byte[] credentialId, long counter) throws CredentialIdNotFoundException {
+        authenticatorService.updateCounter(credentialId, counter);
+        synchronized (lock) {
+            replaceCounter(credentialId, counter);
+        }
+    }
+
+    /**
+     * Updates the counters in the underlying store, then replaces the cached entries as
+     * {@link #updateCounter(byte[], long)} does
+     */
+    @Override
+    public void updateCounters(Map<byte[], Long> counters) {
+        authenticatorService.updateCounters(counters);
+        synchronized (lock) {
+            for (Map.Entry<byte[], Long> counter : counters.entrySet()) {
+                replaceCounter(counter.getKey(), counter.getValue());
+            }
+        }
+    }
+
+    /**
+     * Removes the cached entry of a user, and its entry in the {@link EncodedUserCache} if any
+     *
+     * @param username the username identifying the user
+     */
+    public void invalidate(String username) {
+        synchronized (lock) {
+            invalidationCount++;
+            removeEntry(username);
+        }
+        if (encodedUserCache != null) {
+            encodedUserCache.invalidate(username);
+        }
+    }
+
+    /**
+     * Removes all cached entries
+     */
+    public void invalidateAll() {
+        synchronized (lock) {
+            invalidationCount++;
+            usernameIndex.clear();
+            credentialIdIndex.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return usernameIndex.size();
+        }
+    }
+
+    /**
+     * Returns the cached entry, or loads and caches the user on a cache miss
+     *
+     * @param loader loads the user, returning {@code null} or throwing an exception if it is not found
+     * @return the entry, or {@code null} if the user is not found
+     */
+    private CacheEntry getOrLoadByUsername(String username, Supplier<WebAuthnUserDetails> loader) {
+        long invalidationCountBeforeLoad;
+        synchronized (lock) {
+            CacheEntry entry = getEntry(username);
+            if (entry != null) {
+                hitCount.increment();
+                return entry;
+            }
+            invalidationCountBeforeLoad = invalidationCount;
+        }
+        missCount.increment();
+        WebAuthnUserDetails user = loader.get();
+        return user == null ? null : putEntry(user, invalidationCountBeforeLoad);
+    }
+
+    private CacheEntry getOrLoadByCredentialId(byte[] credentialId, Supplier<WebAuthnUserDetails> loader) {
+        long invalidationCountBeforeLoad;
+        synchronized (lock) {
+            String username = credentialIdIndex.get(ByteBuffer.wrap(credentialId));
+            CacheEntry entry = username == null ? null : getEntry(username);
+            if (entry != null) {
+                hitCount.increment();
+                return entry;
+            }
+            invalidationCountBeforeLoad = invalidationCount;
+        }
+        missCount.increment();
+        WebAuthnUserDetails user = loader.get();
+        return user == null ? null : putEntry(user, invalidationCountBeforeLoad);
+    }
+
+    private WebAuthnAuthenticationContext toAuthenticationContext(CacheEntry entry, byte[] credentialId) {
+        Authenticator authenticator = entry.authenticators.get(ByteBuffer.wrap(credentialId));
+        if (authenticator == null) {
+            throw new IllegalStateException("credentialId doesn't match.");
+        }
+        return new WebAuthnAuthenticationContext(copyUser(entry), copyAuthenticator(entry, authenticator));
+    }
+
+    private WebAuthnUserDetails copyUser(CacheEntry entry) {
+        if (!isCopyable(entry.user)) {
+            // not cached, so the entry holds the instance just loaded for this caller
+            return entry.user;
+        }
+        WebAuthnUserDetailsImpl user = (WebAuthnUserDetailsImpl) entry.user;
+        List<Authenticator> authenticators = new ArrayList<>(user.getAuthenticators().size());
+        for (Authenticator authenticator : user.getAuthenticators()) {
+            authenticators.add(copyAuthenticator(entry, authenticator));
+        }
+        return new WebAuthnUserDetailsImpl(user.getUserHandle(), user.getUsername(), user.getPassword(), authenticators,
+                user.isSingleFactorAuthenticationAllowed(), user.isEnabled(), user.isAccountNonExpired(),
+                user.isCredentialsNonExpired(), user.isAccountNonLocked(), user.getAuthorities());
+    }
+
+    private boolean isCopyable(WebAuthnUserDetails user) {
+        return user.getClass() == WebAuthnUserDetailsImpl.class;
+    }
+
+    private Authenticator copyAuthenticator(CacheEntry entry, Authenticator authenticator) {
+        Long counter = entry.counters.get(ByteBuffer.wrap(authenticator.getAttestedCredentialData().getCredentialId()));
+        return new AuthenticatorImpl(authenticator.getAttestedCredentialData(), authenticator.getAttestationStatement(),
+                counter == null ? authenticator.getCounter() : counter, authenticator.getTransports(),
+                authenticator.getClientExtensions(), authenticator.getAuthenticatorExtensions());
+    }
+
+    private CacheEntry getEntry(String username) {
+        CacheEntry entry = usernameIndex.get(username);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= clock.millis()) {
+            removeEntry(username);
+            return null;
+        }
+        return entry;
+    }
+
+    private CacheEntry putEntry(WebAuthnUserDetails user, long invalidationCountBeforeLoad) {
+        CacheEntry entry = new CacheEntry(user, clock.millis() + timeToLive);
+        if (!isCopyable(user)) {
+            return entry;
+        }
+        synchronized (lock) {
+            // Skip caching if an invalidation happened while loading, as the loaded user may be stale
+            if (invalidationCount != invalidationCountBeforeLoad) {
+                return entry;
+            }
+            removeEntry(user.getUsername());
+            usernameIndex.put(user.getUsername(), entry);
+            for (ByteBuffer credentialId : entry.authenticators.keySet()) {
+                credentialIdIndex.put(credentialId, user.getUsername());
+            }
+            Iterator<Map.Entry<String, CacheEntry>> iterator = usernameIndex.entrySet().iterator();
+            while (usernameIndex.size() > maximumSize && iterator.hasNext()) {
+                CacheEntry eldest = iterator.next().getValue();
+                iterator.remove();
+                unindex(eldest);
+            }
+        }
+        return entry;
+    }
+
+    private void replaceCounter(byte[] credentialId, long counter) {
+        ByteBuffer key = ByteBuffer.wrap(credentialId);
+        String username = credentialIdIndex.get(key);
+        CacheEntry entry = username == null ? null : usernameIndex.get(username);
+        Long cachedCounter = entry == null ? null : entry.counters.get(key);
+        if (cachedCounter != null && counter > cachedCounter) {
+            usernameIndex.put(username, entry.withCounter(key, counter));
+        }
+    }
+
+    private void removeEntry(String username) {
+        CacheEntry entry = usernameIndex.remove(username);
+        if (entry != null) {
+            unindex(entry);
+        }
+    }
+
+    private void unindex(CacheEntry entry) {
+        for (ByteBuffer credentialId : entry.authenticators.keySet()) {
+            credentialIdIndex.remove(credentialId, entry.user.getUsername());
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        Assert.isTrue(maximumSize > 0, "maximumSize must be positive");
+        this.maximumSize = maximumSize;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Sets how long a loaded user is cached
+     *
+     * @param timeToLive time to live in milliseconds
+     */
+    public void setTimeToLive(long timeToLive) {
+        Assert.isTrue(timeToLive > 0, "timeToLive must be positive");
+        this.timeToLive = timeToLive;
+    }
+
+    public PublicKeyCache getPublicKeyCache() {
+        return publicKeyCache;
+    }
+
+    /**
+     * Sets the {@link PublicKeyCache} to invalidate when an authenticator is removed, typically the one of
+     * {@code WebAuthnAuthenticationProvider}
+     *
+     * @param publicKeyCache publicKeyCache
+     */
+    public void setPublicKeyCache(PublicKeyCache publicKeyCache) {
+        this.publicKeyCache = publicKeyCache;
+    }
+
+    public EncodedUserCache getEncodedUserCache() {
+        return encodedUserCache;
+    }
+
+    /**
+     * Sets the {@link EncodedUserCache} to invalidate when an authenticator is added or removed, typically the one
+     * of {@code OptionsProviderImpl}
+     *
+     * @param encodedUserCache encodedUserCache
+     */
+    public void setEncodedUserCache(EncodedUserCache encodedUserCache) {
+        this.encodedUserCache = encodedUserCache;
+    }
+
+    void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * An immutable cache entry. The cached user and authenticators are never modified; the counters
+     * are kept apart, so that a counter update replaces the entry.
+     */
+    private static class CacheEntry {
+
+        private final WebAuthnUserDetails user;
+        private final Map<ByteBuffer, Authenticator> authenticators;
+        private final Map<ByteBuffer, Long> counters;
+        private final long expiresAt;
+
+        CacheEntry(WebAuthnUserDetails user, long expiresAt) {
+            Map<ByteBuffer, Authenticator> authenticatorMap = new HashMap<>();
+            Map<ByteBuffer, Long> counterMap = new HashMap<>();
+            for (Authenticator authenticator : user.getAuthenticators()) {
+                ByteBuffer credentialId = ByteBuffer.wrap(authenticator.getAttestedCredentialData().getCredentialId());
+                authenticatorMap.put(credentialId, authenticator);
+                counterMap.put(credentialId, authenticator.getCounter());
+            }
+            this.user = user;
+            this.authenticators = Collections.unmodifiableMap(authenticatorMap);
+            this.counters = Collections.unmodifiableMap(counterMap);
+            this.expiresAt = expiresAt;
+        }
+
+        private CacheEntry(CacheEntry entry, Map<ByteBuffer, Long> counters) {
+            this.user = entry.user;
+            this.authenticators = entry.authenticators;
+            this.counters = Collections.unmodifiableMap(counters);
+            this.expiresAt = entry.expiresAt;
+        }
+
+        CacheEntry withCounter(ByteBuffer credentialId, long counter) {
+            Map<ByteBuffer, Long> counterMap = new HashMap<>(counters);
+            counterMap.put(credentialId, counter);
+            return new CacheEntry(this, counterMap);
+        }
+    }
+}
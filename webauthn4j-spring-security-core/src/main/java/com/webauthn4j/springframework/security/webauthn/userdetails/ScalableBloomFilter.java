@@ -0,0 +1,239 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.userdetails;
+
+import org.springframework.util.Assert;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter over byte arrays which grows as elements are added.
+ * <p>
+ * Elements are added to the newest stage, and a new stage with twice the capacity is appended when it is full. The
+ * false positive rate of each stage is half the one of the previous stage, so that the overall false positive rate
+ * stays below the configured one however many elements are added (Almeida et al., "Scalable Bloom Filters").
+ * <p>
+ * Lookups are lock free; additions are serialized. An element is visible to lookups as soon as {@link #put(byte[])}
+ * returns.
+ */
+class ScalableBloomFilter {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    private static final double TIGHTENING_RATIO = 0.5;
+    private static final double LN2 = Math.log(2);
+
+    //~ Instance fields
+    // ================================================================================================
+    private final double falsePositiveRate;
+    private final long seed;
+    private volatile Stage[] stages;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    /**
+     * Constructor
+     *
+     * @param expectedInsertions capacity of the first stage
+     * @param falsePositiveRate  upper bound of the overall false positive rate
+     */
+    ScalableBloomFilter(int expectedInsertions, double falsePositiveRate) {
+        Assert.isTrue(expectedInsertions > 0, "expectedInsertions must be positive");
+        Assert.isTrue(falsePositiveRate > 0 && falsePositiveRate < 1, "falsePositiveRate must be between 0 and 1");
+        this.falsePositiveRate = falsePositiveRate;
+        // A random seed keeps an attacker from crafting values which collide with the stored ones
+        this.seed = new SecureRandom().nextLong();
+        this.stages = new Stage[]{new Stage(expectedInsertions, falsePositiveRate * (1 - TIGHTENING_RATIO))};
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Returns whether the value might have been added. {@code false} means the value has definitely not been added.
+     *
+     * @param value the value
+     * @return {@code false} if the value has not been added
+     */
+    boolean mightContain(byte[] value) {
+        long hash1 = hash(value, seed);
+        long hash2 = hash(value, ~seed);
+        for (Stage stage : stages) {
+            if (stage.mightContain(hash1, hash2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void put(byte[] value) {
+        long hash1 = hash(value, seed);
+        long hash2 = hash(value, ~seed);
+        Stage[] current = stages;
+        for (Stage stage : current) {
+            if (stage.mightContain(hash1, hash2)) {
+                return;
+            }
+        }
+        Stage last = current[current.length - 1];
+        if (last.count >= last.capacity) {
+            Stage[] grown = new Stage[current.length + 1];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            last = new Stage((int) Math.min(Integer.MAX_VALUE / 2, last.capacity * 2L), last.falsePositiveRate * TIGHTENING_RATIO);
+            grown[current.length] = last;
+            stages = grown;
+        }
+        last.put(hash1, hash2);
+    }
+
+    /**
+     * Returns the expected false positive rate for the elements added so far
+     *
+     * @return the expected false positive rate
+     */
+    double getExpectedFalsePositiveRate() {
+        double trueNegativeRate = 1;
+        for (Stage stage : stages) {
+            trueNegativeRate *= 1 - stage.getExpectedFalsePositiveRate();
+        }
+        return 1 - trueNegativeRate;
+    }
+
+    double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Returns the size of the bit arrays of all stages
+     *
+     * @return the size in bytes
+     */
+    long getMemoryFootprint() {
+        long bytes = 0;
+        for (Stage stage : stages) {
+            bytes += stage.bits.length() * (long) Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the number of distinct elements added, not counting the ones taken as already added
+     *
+     * @return the number of elements
+     */
+    long getCount() {
+        long count = 0;
+        for (Stage stage : stages) {
+            count += stage.count;
+        }
+        return count;
+    }
+
+    int getStageCount() {
+        return stages.length;
+    }
+
+    /**
+     * 64-bit hash of a byte array, reading eight bytes at a time and mixed with the MurmurHash3 finalizer
+     */
+    private static long hash(byte[] value, long seed) {
+        long hash = seed ^ (value.length * 0x9E3779B97F4A7C15L);
+        int i = 0;
+        for (; i + 8 <= value.length; i += 8) {
+            long chunk = (value[i] & 0xFFL)
+                    | (value[i + 1] & 0xFFL) << 8
+                    | (value[i + 2] & 0xFFL) << 16
+                    | (value[i + 3] & 0xFFL) << 24
+                    | (value[i + 4] & 0xFFL) << 32
+                    | (value[i + 5] & 0xFFL) << 40
+                    | (value[i + 6] & 0xFFL) << 48
+                    | (value[i + 7] & 0xFFL) << 56;
+            hash = Long.rotateLeft(hash ^ mix(chunk), 27) * 0x9E3779B97F4A7C15L + 0x52DCE729L;
+        }
+        long tail = 0;
+        for (int shift = 0; i < value.length; i++, shift += 8) {
+            tail |= (value[i] & 0xFFL) << shift;
+        }
+        return mix(hash ^ mix(tail));
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * A fixed-size Bloom filter, probed by double hashing (Kirsch and Mitzenmacher)
+     */
+    private static class Stage {
+
+        private final int capacity;
+        private final double falsePositiveRate;
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+        private volatile int count;
+
+        Stage(int capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+            int words = (int) Math.max(1, Math.min(Integer.MAX_VALUE, (optimalBits + 63) / 64));
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = words * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / capacity * LN2));
+        }
+
+        boolean mightContain(long hash1, long hash2) {
+            long combined = hash1;
+            for (int i = 0; i < hashCount; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitCount;
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+                combined += hash2;
+            }
+            return true;
+        }
+
+        void put(long hash1, long hash2) {
+            long combined = hash1;
+            for (int i = 0; i < hashCount; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitCount;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+                combined += hash2;
+            }
+            count++;
+        }
+
+        double getExpectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-hashCount * (double) count / bitCount), hashCount);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.userdetails;
+
+import com.webauthn4j.authenticator.Authenticator;
+import org.springframework.util.Assert;
+
+/**
+ * The user and the one {@link Authenticator} involved in an authentication by credentialId.
+ * <p>
+ * The user provides the account status and the authorities checked by the authentication provider. Its
+ * {@link WebAuthnUserDetails#getAuthenticators()} is not used during authentication, and may contain only the
+ * authenticator of this context.
+ */
+public class WebAuthnAuthenticationContext {
+
+    // ~ Instance fields
+    // ================================================================================================
+    private final WebAuthnUserDetails user;
+    private final Authenticator authenticator;
+
+    public WebAuthnAuthenticationContext(WebAuthnUserDetails user, Authenticator authenticator) {
+        Assert.notNull(user, "user must not be null");
+        Assert.notNull(authenticator, "authenticator must not be null");
+        this.user = user;
+        this.authenticator = authenticator;
+    }
+
+    public WebAuthnUserDetails getUser() {
+        return user;
+    }
+
+    public Authenticator getAuthenticator() {
+        return authenticator;
+    }
+}
@@ -21,6 +21,9 @@ import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNo
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
+import java.util.Arrays;
+import java.util.Optional;
+
 /**
  * An extended {@link UserDetailsService} for WebAuthn
  */
@@ -47,6 +50,77 @@ public interface WebAuthnUserDetailsService extends UserDetailsService {
     @SuppressWarnings("squid:RedundantThrowsDeclarationCheck")
     WebAuthnUserDetails loadUserByCredentialId(byte[] credentialId) throws CredentialIdNotFoundException;
 
+    /**
+     * Locates the user and the authenticator based on the credentialId.
+     * The default implementation loads the user by {@link #loadUserByCredentialId(byte[])}, and looks up the
+     * authenticator in its authenticators. Implementations which can load the authenticator alone should override it,
+     * so that the cost of an authentication does not depend on how many authenticators the user has.
+     *
+     * @param credentialId credentialId
+     * @return {@link WebAuthnAuthenticationContext} instance (never <code>null</code>)
+     * @throws CredentialIdNotFoundException if the authenticator could not be found
+     */
+    @SuppressWarnings("squid:RedundantThrowsDeclarationCheck")
+    default WebAuthnAuthenticationContext loadAuthenticationContextByCredentialId(byte[] credentialId) throws CredentialIdNotFoundException {
+        WebAuthnUserDetails user = loadUserByCredentialId(credentialId);
+        if (user == null) {
+            return null;
+        }
+        Authenticator authenticator = user.getAuthenticators().stream()
+                .filter(item -> Arrays.equals(item.getAttestedCredentialData().getCredentialId(), credentialId))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("credentialId doesn't match."));
+        return new WebAuthnAuthenticationContext(user, authenticator);
+    }
+
+    /**
+     * Locates a user based on the username, without throwing an exception if the user could not be found.
+     * The default implementation adapts {@link #loadUserByUsername(String)}. Implementations should override it to
+     * avoid the cost of the exception, as it is called for every options request, including ones for unknown users.
+     *
+     * @param username the username identifying the user whose data is required
+     * @return a fully populated {@link WebAuthnUserDetails} instance, or empty if the user could not be found
+     */
+    default Optional<WebAuthnUserDetails> findUserByUsername(String username) {
+        try {
+            return Optional.of(loadUserByUsername(username));
+        } catch (UsernameNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Locates a user based on the credentialId, without throwing an exception if the authenticator could not be found.
+     * The default implementation adapts {@link #loadUserByCredentialId(byte[])}.
+     *
+     * @param credentialId credentialId
+     * @return a fully populated {@link WebAuthnUserDetails} instance, or empty if the authenticator could not be found
+     */
+    default Optional<WebAuthnUserDetails> findUserByCredentialId(byte[] credentialId) {
+        try {
+            return Optional.of(loadUserByCredentialId(credentialId));
+        } catch (CredentialIdNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Locates the user and the authenticator based on the credentialId, without throwing an exception if the
+     * authenticator could not be found. The default implementation adapts
+     * {@link #loadAuthenticationContextByCredentialId(byte[])}. Implementations should override it to avoid the cost of
+     * the exception, as it is called for every authentication request, including ones for unknown credentials.
+     *
+     * @param credentialId credentialId
+     * @return {@link WebAuthnAuthenticationContext} instance, or empty if the authenticator could not be found
+     */
+    default Optional<WebAuthnAuthenticationContext> findAuthenticationContextByCredentialId(byte[] credentialId) {
+        try {
+            return Optional.of(loadAuthenticationContextByCredentialId(credentialId));
+        } catch (CredentialIdNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
     /**
      * Adds {@link Authenticator} to the user record
      *
@@ -55,6 +129,24 @@ public interface WebAuthnUserDetailsService extends UserDetailsService {
      */
     void addAuthenticator(String username, Authenticator authenticator);
 
+    /**
+     * Adds {@link Authenticator} to the user record if the user exists.
+     * The default implementation looks the user up by {@link #findUserByUsername(String)}, then calls
+     * {@link #addAuthenticator(String, Authenticator)}. Implementations backed by a store should override it to check
+     * the user and insert the authenticator in a single round trip, as it is called for every registration.
+     *
+     * @param username      the username identifying the user
+     * @param authenticator the authenticator to be added
+     * @return {@code true} if the authenticator is added, {@code false} if the user could not be found
+     */
+    default boolean tryAddAuthenticator(String username, Authenticator authenticator) {
+        if (!findUserByUsername(username).isPresent()) {
+            return false;
+        }
+        addAuthenticator(username, authenticator);
+        return true;
+    }
+
     /**
      * Removes {@link Authenticator} from the user record
      *
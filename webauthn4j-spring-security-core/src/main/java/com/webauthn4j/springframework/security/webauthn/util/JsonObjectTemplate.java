@@ -0,0 +1,147 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.util;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.webauthn4j.converter.util.JsonConverter;
+import org.springframework.util.Assert;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Internal utility to render a JSON object whose properties are mostly the same for every request.
+ * <p>
+ * The template is compiled from a prototype value: all properties except the dynamic ones are serialized once, and
+ * {@link #render(Object)} only serializes the dynamic properties of the given value after them. As the serializer of
+ * {@link com.webauthn4j.converter.util.ObjectConverter} does, dynamic properties whose value is {@code null} are
+ * omitted. The order of the properties may differ from the one of the plain serialization.
+ * <p>
+ * The template keeps the settings the static properties were derived from. Callers compare them with the current
+ * settings by {@link #isCompiledFor(Object...)}, and compile a new template when they have changed.
+ *
+ * @param <T> type of the rendered value
+ */
+public class JsonObjectTemplate<T> {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final JsonConverter jsonConverter;
+    private final byte[] staticPart;
+    private final boolean staticPartEmpty;
+    private final List<DynamicProperty<T>> dynamicProperties;
+    private final Object[] settings;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    /**
+     * Constructor
+     *
+     * @param jsonConverter     converter
+     * @param prototype         a value whose static properties are the ones of all the values to be rendered
+     * @param dynamicProperties accessors of the dynamic properties, by JSON property name
+     * @param settings          the settings the static properties are derived from
+     */
+    public JsonObjectTemplate(JsonConverter jsonConverter, T prototype, Map<String, Function<T, ?>> dynamicProperties, Object... settings) {
+        Assert.notNull(jsonConverter, "jsonConverter must not be null");
+        Assert.notNull(prototype, "prototype must not be null");
+        Assert.notNull(dynamicProperties, "dynamicProperties must not be null");
+        this.jsonConverter = jsonConverter;
+
+        ObjectNode node = jsonConverter.readValue(new ByteArrayInputStream(jsonConverter.writeValueAsBytes(prototype)), ObjectNode.class);
+        node.remove(dynamicProperties.keySet());
+        byte[] bytes = jsonConverter.writeValueAsBytes(node);
+        // The closing brace is written after the dynamic properties
+        this.staticPart = Arrays.copyOf(bytes, bytes.length - 1);
+        this.staticPartEmpty = node.size() == 0;
+
+        this.dynamicProperties = new ArrayList<>(dynamicProperties.size());
+        dynamicProperties.forEach((name, accessor) -> {
+            byte[] quotedName = jsonConverter.writeValueAsBytes(name);
+            byte[] prefix = Arrays.copyOf(quotedName, quotedName.length + 1);
+            prefix[quotedName.length] = ':';
+            this.dynamicProperties.add(new DynamicProperty<>(prefix, accessor));
+        });
+        this.settings = settings.clone();
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Returns whether the template was compiled for the given settings, compared by identity
+     *
+     * @param settings the current settings
+     * @return {@code true} if the template is up to date
+     */
+    public boolean isCompiledFor(Object... settings) {
+        if (settings.length != this.settings.length) {
+            return false;
+        }
+        for (int i = 0; i < settings.length; i++) {
+            if (settings[i] != this.settings[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Renders the value
+     *
+     * @param value the value, whose static properties are the ones of the prototype
+     * @return UTF-8 encoded JSON
+     */
+    public byte[] render(T value) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(staticPart.length + 256);
+        outputStream.write(staticPart, 0, staticPart.length);
+        boolean first = staticPartEmpty;
+        for (DynamicProperty<T> dynamicProperty : dynamicProperties) {
+            Object propertyValue = dynamicProperty.accessor.apply(value);
+            if (propertyValue == null) {
+                continue;
+            }
+            if (!first) {
+                outputStream.write(',');
+            }
+            first = false;
+            outputStream.write(dynamicProperty.prefix, 0, dynamicProperty.prefix.length);
+            byte[] bytes = jsonConverter.writeValueAsBytes(propertyValue);
+            outputStream.write(bytes, 0, bytes.length);
+        }
+        outputStream.write('}');
+        return outputStream.toByteArray();
+    }
+
+    private static class DynamicProperty<T> {
+
+        private final byte[] prefix;
+        private final Function<T, ?> accessor;
+
+        DynamicProperty(byte[] prefix, Function<T, ?> accessor) {
+            this.prefix = prefix;
+            this.accessor = accessor;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.util;
+
+import com.webauthn4j.converter.util.JsonConverter;
+import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.options.OptionsProviderImpl;
+import org.springframework.util.Assert;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Internal utility holding the {@link JsonObjectTemplate} of an options response, shared by the options endpoints.
+ * <p>
+ * The static properties of the template are those the endpoint derives from the settings of the
+ * {@link OptionsProvider}. As only {@link OptionsProviderImpl} is known to derive them from its settings alone,
+ * templates are not supported for other implementations, whose responses may vary per request.
+ *
+ * @param <T> type of the rendered response
+ */
+public class OptionsTemplateHolder<T> {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final OptionsProvider optionsProvider;
+    private final JsonConverter jsonConverter;
+    private final Function<OptionsProvider, Object[]> settingsExtractor;
+    private final Supplier<Map<String, Function<T, ?>>> dynamicPropertiesSupplier;
+
+    private volatile JsonObjectTemplate<T> template;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    /**
+     * Constructor
+     *
+     * @param optionsProvider           the {@link OptionsProvider} the static properties are derived from
+     * @param jsonConverter             converter
+     * @param settingsExtractor         returns the settings of the {@link OptionsProvider} the static properties are
+     *                                  derived from
+     * @param dynamicPropertiesSupplier returns the accessors of the dynamic properties, by JSON property name, when a
+     *                                  template is compiled
+     */
+    public OptionsTemplateHolder(OptionsProvider optionsProvider, JsonConverter jsonConverter,
+                                 Function<OptionsProvider, Object[]> settingsExtractor,
+                                 Supplier<Map<String, Function<T, ?>>> dynamicPropertiesSupplier) {
+        Assert.notNull(optionsProvider, "optionsProvider must not be null");
+        Assert.notNull(jsonConverter, "jsonConverter must not be null");
+        Assert.notNull(settingsExtractor, "settingsExtractor must not be null");
+        Assert.notNull(dynamicPropertiesSupplier, "dynamicPropertiesSupplier must not be null");
+        this.optionsProvider = optionsProvider;
+        this.jsonConverter = jsonConverter;
+        this.settingsExtractor = settingsExtractor;
+        this.dynamicPropertiesSupplier = dynamicPropertiesSupplier;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Returns whether responses can be rendered from a template
+     *
+     * @return {@code true} if the {@link OptionsProvider} is an {@link OptionsProviderImpl}
+     */
+    public boolean isSupported() {
+        return optionsProvider instanceof OptionsProviderImpl;
+    }
+
+    /**
+     * Returns the template, compiling it from the response if the settings of the {@link OptionsProvider} have
+     * changed since it was compiled
+     *
+     * @param prototype the response to compile the template from
+     * @return the template
+     */
+    public JsonObjectTemplate<T> getTemplate(T prototype) {
+        Object[] settings = settingsExtractor.apply(optionsProvider);
+        JsonObjectTemplate<T> current = template;
+        if (current == null || !current.isCompiledFor(settings)) {
+            current = new JsonObjectTemplate<>(jsonConverter, prototype, dynamicPropertiesSupplier.get(), settings);
+            template = current;
+        }
+        return current;
+    }
+
+    /**
+     * Renders the response from the template
+     *
+     * @param response the response
+     * @return UTF-8 encoded JSON
+     */
+    public byte[] render(T response) {
+        return getTemplate(response).render(response);
+    }
+}
@@ -17,9 +17,12 @@
 package com.webauthn4j.springframework.security.webauthn.util;
 
 
+import com.webauthn4j.converter.util.JsonConverter;
 import com.webauthn4j.data.client.Origin;
 
 import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
 /**
  * Internal utility to handle servlet
@@ -38,4 +41,30 @@ public class ServletUtil {
     public static Origin getOrigin(ServletRequest request) {
         return new Origin(request.getScheme(), request.getServerName(), request.getServerPort());
     }
+
+    /**
+     * Writes the value as UTF-8 encoded JSON bytes, skipping the intermediate String and the encoding by the Writer.
+     * As the length is known, the response is committed once written, so the status must be set before.
+     *
+     * @param response      http servlet response
+     * @param jsonConverter converter serializing the value
+     * @param value         value
+     * @throws IOException if the response cannot be written
+     */
+    public static void writeJson(HttpServletResponse response, JsonConverter jsonConverter, Object value) throws IOException {
+        writeJson(response, jsonConverter.writeValueAsBytes(value));
+    }
+
+    /**
+     * Writes UTF-8 encoded JSON bytes, as {@link #writeJson(HttpServletResponse, JsonConverter, Object)} does
+     *
+     * @param response http servlet response
+     * @param json     UTF-8 encoded JSON
+     * @throws IOException if the response cannot be written
+     */
+    public static void writeJson(HttpServletResponse response, byte[] json) throws IOException {
+        response.setContentType("application/json");
+        response.setContentLength(json.length);
+        response.getOutputStream().write(json);
+    }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test for AsyncDelegatingFilter
+ */
+public class AsyncDelegatingFilterTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final AtomicReference<Thread> delegateThread = new AtomicReference<>();
+    private final AtomicReference<Authentication> delegateAuthentication = new AtomicReference<>();
+
+    private final Filter delegate = (request, response, chain) -> {
+        if (!((MockHttpServletRequest) request).getRequestURI().equals("/login")) {
+            chain.doFilter(request, response);
+            return;
+        }
+        delegateThread.set(Thread.currentThread());
+        delegateAuthentication.set(SecurityContextHolder.getContext().getAuthentication());
+        ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_ACCEPTED);
+    };
+
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private MockFilterChain filterChain;
+
+    @Before
+    public void setup() {
+        request = new MockHttpServletRequest("POST", "/login");
+        request.setServletPath("/login");
+        request.setAsyncSupported(true);
+        response = new MockHttpServletResponse();
+        filterChain = new MockFilterChain();
+    }
+
+    @After
+    public void teardown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void doFilter_test() throws Exception {
+        AsyncDelegatingFilter target = new AsyncDelegatingFilter(delegate, new AntPathRequestMatcher("/login", "POST"), tasks::add);
+        Authentication authentication = new TestingAuthenticationToken("john", "password");
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        target.doFilter(request, response, filterChain);
+
+        assertThat(request.isAsyncStarted()).isTrue();
+        assertThat(delegateThread.get()).isNull();
+        assertThat(tasks).hasSize(1);
+
+        SecurityContextHolder.clearContext();
+        tasks.get(0).run();
+
+        assertThat(delegateAuthentication.get()).isEqualTo(authentication);
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_ACCEPTED);
+        assertThat(response.isCommitted()).isTrue();
+        assertThat(request.isAsyncStarted()).isFalse();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        assertThat(filterChain.getRequest()).isNull();
+    }
+
+    @Test
+    public void doFilter_test_on_executor_thread() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AsyncDelegatingFilter target = new AsyncDelegatingFilter(delegate, new AntPathRequestMatcher("/login", "POST"), executor);
+            Authentication authentication = new TestingAuthenticationToken("john", "password");
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+            CountDownLatch completed = new CountDownLatch(1);
+
+            target.doFilter(request, response, filterChain);
+            executor.execute(completed::countDown);
+
+            assertThat(completed.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(delegateThread.get()).isNotNull().isNotEqualTo(Thread.currentThread());
+            assertThat(delegateAuthentication.get()).isEqualTo(authentication);
+            assertThat(request.isAsyncStarted()).isFalse();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void doFilter_test_with_unmatched_request() throws Exception {
+        AsyncDelegatingFilter target = new AsyncDelegatingFilter(delegate, new AntPathRequestMatcher("/login", "POST"), tasks::add);
+        request.setRequestURI("/other");
+        request.setServletPath("/other");
+
+        target.doFilter(request, response, filterChain);
+
+        assertThat(request.isAsyncStarted()).isFalse();
+        assertThat(tasks).isEmpty();
+        assertThat(filterChain.getRequest()).isEqualTo(request);
+    }
+
+    @Test
+    public void doFilter_test_without_async_support() throws Exception {
+        AsyncDelegatingFilter target = new AsyncDelegatingFilter(delegate, new AntPathRequestMatcher("/login", "POST"), tasks::add);
+        request.setAsyncSupported(false);
+
+        target.doFilter(request, response, filterChain);
+
+        assertThat(tasks).isEmpty();
+        assertThat(delegateThread.get()).isEqualTo(Thread.currentThread());
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_ACCEPTED);
+    }
+
+    @Test
+    public void doFilter_test_with_rejected_execution() throws Exception {
+        AsyncDelegatingFilter target = new AsyncDelegatingFilter(delegate, new AntPathRequestMatcher("/login", "POST"), task -> {
+            throw new RejectedExecutionException();
+        });
+
+        target.doFilter(request, response, filterChain);
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        assertThat(request.isAsyncStarted()).isFalse();
+        assertThat(delegateThread.get()).isNull();
+    }
+
+    @Test
+    public void doFilter_test_with_request_not_handled_by_delegate() throws Exception {
+        AsyncDelegatingFilter target = new AsyncDelegatingFilter(delegate, new AntPathRequestMatcher("/**"), tasks::add);
+        request.setRequestURI("/other");
+        request.setServletPath("/other");
+
+        target.doFilter(request, response, filterChain);
+        tasks.get(0).run();
+
+        assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        assertThat(request.isAsyncStarted()).isFalse();
+        assertThat(filterChain.getRequest()).isNull();
+    }
+
+    @Test
+    public void setAsyncTimeout_test() {
+        AsyncDelegatingFilter target = new AsyncDelegatingFilter(delegate, new AntPathRequestMatcher("/login", "POST"), tasks::add);
+        assertThat(target.getAsyncTimeout()).isEqualTo(AsyncDelegatingFilter.DEFAULT_ASYNC_TIMEOUT);
+        target.setAsyncTimeout(1000);
+        assertThat(target.getAsyncTimeout()).isEqualTo(1000);
+        assertThatThrownBy(() -> target.setAsyncTimeout(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
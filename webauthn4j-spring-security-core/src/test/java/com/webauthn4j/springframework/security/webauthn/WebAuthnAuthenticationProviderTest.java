@@ -19,13 +19,19 @@ package com.webauthn4j.springframework.security.webauthn;
 import com.webauthn4j.WebAuthnManager;
 import com.webauthn4j.authenticator.Authenticator;
 import com.webauthn4j.authenticator.AuthenticatorImpl;
+import com.webauthn4j.data.AuthenticationData;
 import com.webauthn4j.data.AuthenticationParameters;
 import com.webauthn4j.data.AuthenticationRequest;
+import com.webauthn4j.data.client.CollectedClientData;
+import com.webauthn4j.springframework.security.webauthn.authenticator.PublicKeyCache;
 import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticator;
 import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticatorService;
 import com.webauthn4j.springframework.security.webauthn.exception.BadChallengeException;
 import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
 import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnAuthenticationContext;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsImpl;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
@@ -42,8 +48,10 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetailsChecker;
 
 import java.util.Collections;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 /**
@@ -62,6 +70,8 @@ public class WebAuthnAuthenticationProviderTest {
 
     @Before
     public void setup() {
+        when(userDetailsService.findAuthenticationContextByCredentialId(any())).thenCallRealMethod();
+        when(userDetailsService.loadAuthenticationContextByCredentialId(any())).thenCallRealMethod();
         authenticationProvider = new WebAuthnAuthenticationProvider(userDetailsService, authenticatorService, webAuthnManager);
     }
 
@@ -120,6 +130,104 @@ public class WebAuthnAuthenticationProviderTest {
         assertThat(authenticatedToken.getAuthorities().toArray()).containsExactly(grantedAuthority);
     }
 
+    /**
+     * Verifies that the clientDataJSON parsed by the caller is validated without being parsed again.
+     */
+    @Test
+    public void authenticate_with_collectedClientData_test() {
+        //Given
+        byte[] credentialId = new byte[32];
+        WebAuthnAuthenticator authenticator = mock(WebAuthnAuthenticator.class, RETURNS_DEEP_STUBS);
+        WebAuthnUserDetailsImpl user = new WebAuthnUserDetailsImpl(
+                new byte[0],
+                "dummy",
+                "dummy",
+                Collections.singletonList(authenticator),
+                Collections.emptyList());
+        when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
+        CollectedClientData collectedClientData = mock(CollectedClientData.class);
+        byte[] clientDataJSON = new byte[]{0x01, 0x23};
+
+        //When
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        when(credential.getClientDataJSON()).thenReturn(clientDataJSON);
+        when(credential.getCollectedClientData()).thenReturn(collectedClientData);
+        when(userDetailsService.loadUserByCredentialId(credentialId)).thenReturn(user);
+        authenticationProvider.authenticate(new WebAuthnAssertionAuthenticationToken(credential));
+
+        //Then
+        ArgumentCaptor<AuthenticationData> dataCaptor = ArgumentCaptor.forClass(AuthenticationData.class);
+        verify(webAuthnManager).validate(dataCaptor.capture(), any(AuthenticationParameters.class));
+        verify(webAuthnManager, never()).validate(any(AuthenticationRequest.class), any(AuthenticationParameters.class));
+        AuthenticationData authenticationData = dataCaptor.getValue();
+        assertThat(authenticationData.getCredentialId()).isEqualTo(credentialId);
+        assertThat(authenticationData.getCollectedClientData()).isSameAs(collectedClientData);
+        assertThat(authenticationData.getCollectedClientDataBytes()).isEqualTo(clientDataJSON);
+    }
+
+    /**
+     * Verifies that the authenticator is validated through the PublicKeyCache, with the counter still updated.
+     */
+    @Test
+    public void authenticate_with_publicKeyCache_test() {
+        //Given
+        byte[] credentialId = new byte[32];
+        WebAuthnAuthenticator authenticator = mock(WebAuthnAuthenticator.class, RETURNS_DEEP_STUBS);
+        WebAuthnUserDetailsImpl user = new WebAuthnUserDetailsImpl(
+                new byte[0],
+                "dummy",
+                "dummy",
+                Collections.singletonList(authenticator),
+                Collections.emptyList());
+        when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
+        PublicKeyCache publicKeyCache = new PublicKeyCache();
+        authenticationProvider.setPublicKeyCache(publicKeyCache);
+
+        //When
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        when(userDetailsService.loadUserByCredentialId(credentialId)).thenReturn(user);
+        authenticationProvider.authenticate(new WebAuthnAssertionAuthenticationToken(credential));
+
+        //Then
+        ArgumentCaptor<AuthenticationParameters> parameterCaptor = ArgumentCaptor.forClass(AuthenticationParameters.class);
+        verify(webAuthnManager).validate(any(AuthenticationRequest.class), parameterCaptor.capture());
+        Authenticator validated = parameterCaptor.getValue().getAuthenticator();
+        assertThat(validated).isNotSameAs(authenticator);
+        assertThat(validated.getAttestedCredentialData().getCredentialId()).isEqualTo(credentialId);
+        validated.setCounter(7L);
+        verify(authenticator).setCounter(7L);
+    }
+
+    /**
+     * Verifies that the latest counter known by the authenticatorService is validated against.
+     */
+    @Test
+    public void authenticate_with_latest_counter_test() {
+        //Given
+        byte[] credentialId = new byte[32];
+        WebAuthnAuthenticator authenticator = mock(WebAuthnAuthenticator.class, RETURNS_DEEP_STUBS);
+        WebAuthnUserDetailsImpl user = new WebAuthnUserDetailsImpl(
+                new byte[0],
+                "dummy",
+                "dummy",
+                Collections.singletonList(authenticator),
+                Collections.emptyList());
+        when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
+        when(authenticator.getCounter()).thenReturn(3L);
+        when(authenticatorService.getLatestCounter(credentialId, 3L)).thenReturn(5L);
+
+        //When
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        when(userDetailsService.loadUserByCredentialId(credentialId)).thenReturn(user);
+        authenticationProvider.authenticate(new WebAuthnAssertionAuthenticationToken(credential));
+
+        //Then
+        verify(authenticator).setCounter(5L);
+    }
+
     /**
      * Verifies that authentication process passes successfully if input is correct.
      */
@@ -177,36 +285,105 @@ public class WebAuthnAuthenticationProviderTest {
         authenticationProvider.authenticate(token);
     }
 
+    /**
+     * Verifies that the stages are reported to the instrumentation, with the mapped exception on failure
+     */
+    @Test
+    public void authenticate_with_instrumentation_test() {
+        //Given
+        byte[] credentialId = new byte[32];
+        WebAuthnAuthenticator authenticator = mock(WebAuthnAuthenticator.class, RETURNS_DEEP_STUBS);
+        WebAuthnUserDetailsImpl user = new WebAuthnUserDetailsImpl(
+                new byte[0],
+                "dummy",
+                "dummy",
+                Collections.singletonList(authenticator),
+                Collections.emptyList());
+        when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
+        doThrow(com.webauthn4j.validator.exception.BadChallengeException.class).when(webAuthnManager).validate((AuthenticationRequest) any(), any());
+        WebAuthnInstrumentation instrumentation = mock(WebAuthnInstrumentation.class, CALLS_REAL_METHODS);
+        WebAuthnInstrumentation.Sample userLookupSample = mock(WebAuthnInstrumentation.Sample.class);
+        WebAuthnInstrumentation.Sample validationSample = mock(WebAuthnInstrumentation.Sample.class);
+        when(instrumentation.start(WebAuthnStage.AUTHENTICATION_USER_LOOKUP)).thenReturn(userLookupSample);
+        when(instrumentation.start(WebAuthnStage.AUTHENTICATION_VALIDATION)).thenReturn(validationSample);
+        authenticationProvider.setInstrumentation(instrumentation);
+
+        //When
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        when(userDetailsService.loadUserByCredentialId(credentialId)).thenReturn(user);
+        Throwable thrown = Assertions.catchThrowable(() -> authenticationProvider.authenticate(new WebAuthnAssertionAuthenticationToken(credential)));
+
+        //Then
+        assertThat(thrown).isInstanceOf(BadChallengeException.class);
+        verify(userLookupSample).success();
+        verify(validationSample).failure(thrown);
+        verify(instrumentation, never()).start(WebAuthnStage.AUTHENTICATION_COUNTER_UPDATE);
+    }
 
     @Test
-    public void retrieveWebAuthnUserDetails_test() {
+    public void retrieveAuthenticationContext_test() {
         byte[] credentialId = new byte[0];
-        WebAuthnUserDetails expectedUser = mock(WebAuthnUserDetails.class);
+        WebAuthnAuthenticator expectedAuthenticator = mock(WebAuthnAuthenticator.class, RETURNS_DEEP_STUBS);
+        when(expectedAuthenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
+        WebAuthnUserDetailsImpl expectedUser = new WebAuthnUserDetailsImpl(
+                new byte[0],
+                "dummy",
+                "dummy",
+                Collections.singletonList(expectedAuthenticator),
+                Collections.emptyList());
 
         //Given
         when(userDetailsService.loadUserByCredentialId(credentialId)).thenReturn(expectedUser);
 
         //When
-        WebAuthnUserDetails userDetails = authenticationProvider.retrieveWebAuthnUserDetails(credentialId);
+        WebAuthnAuthenticationContext authenticationContext = authenticationProvider.retrieveAuthenticationContext(credentialId);
 
         //Then
-        assertThat(userDetails).isEqualTo(expectedUser);
+        assertThat(authenticationContext.getUser()).isEqualTo(expectedUser);
+        assertThat(authenticationContext.getAuthenticator()).isEqualTo(expectedAuthenticator);
+    }
+
+    @Test
+    public void retrieveAuthenticationContext_test_with_credential_scoped_lookup() {
+        byte[] credentialId = new byte[0];
+        WebAuthnAuthenticationContext expectedAuthenticationContext = new WebAuthnAuthenticationContext(mock(WebAuthnUserDetails.class), mock(Authenticator.class));
+
+        //Given
+        doReturn(expectedAuthenticationContext).when(userDetailsService).loadAuthenticationContextByCredentialId(credentialId);
 
+        //When
+        WebAuthnAuthenticationContext authenticationContext = authenticationProvider.retrieveAuthenticationContext(credentialId);
+
+        //Then
+        assertThat(authenticationContext).isEqualTo(expectedAuthenticationContext);
+        verify(userDetailsService, never()).loadUserByCredentialId(credentialId);
+    }
+
+    @Test(expected = InternalAuthenticationServiceException.class)
+    public void retrieveAuthenticationContext_test_with_unmatched_credentialId() {
+        byte[] credentialId = new byte[0];
+
+        //Given
+        when(userDetailsService.loadUserByCredentialId(credentialId)).thenReturn(mock(WebAuthnUserDetails.class));
+
+        //When
+        authenticationProvider.retrieveAuthenticationContext(credentialId);
     }
 
     @Test(expected = BadCredentialsException.class)
-    public void retrieveWebAuthnUserDetails_test_with_CredentialIdNotFoundException() {
+    public void retrieveAuthenticationContext_test_with_CredentialIdNotFoundException() {
         byte[] credentialId = new byte[0];
 
         //Given
         when(userDetailsService.loadUserByCredentialId(credentialId)).thenThrow(CredentialIdNotFoundException.class);
 
         //When
-        authenticationProvider.retrieveWebAuthnUserDetails(credentialId);
+        authenticationProvider.retrieveAuthenticationContext(credentialId);
     }
 
     @Test(expected = CredentialIdNotFoundException.class)
-    public void retrieveWebAuthnUserDetails_test_with_CredentialIdNotFoundException_and_hideCredentialIdNotFoundExceptions_option_false() {
+    public void retrieveAuthenticationContext_test_with_CredentialIdNotFoundException_and_hideCredentialIdNotFoundExceptions_option_false() {
         byte[] credentialId = new byte[0];
 
         //Given
@@ -214,11 +391,28 @@ public class WebAuthnAuthenticationProviderTest {
 
         //When
         authenticationProvider.setHideCredentialIdNotFoundExceptions(false);
-        authenticationProvider.retrieveWebAuthnUserDetails(credentialId);
+        authenticationProvider.retrieveAuthenticationContext(credentialId);
+    }
+
+    @Test
+    public void retrieveAuthenticationContext_test_with_empty_result_and_hideCredentialIdNotFoundExceptions_option_false() {
+        byte[] credentialId = new byte[0];
+
+        //Given
+        doReturn(Optional.empty()).when(userDetailsService).findAuthenticationContextByCredentialId(credentialId);
+
+        //When
+        authenticationProvider.setHideCredentialIdNotFoundExceptions(false);
+        Throwable thrown = Assertions.catchThrowable(() -> authenticationProvider.retrieveAuthenticationContext(credentialId));
+
+        //Then
+        assertThat(thrown).isInstanceOf(CredentialIdNotFoundException.class);
+        assertThat(thrown.getStackTrace()).isEmpty();
+        verify(userDetailsService, never()).loadUserByCredentialId(credentialId);
     }
 
     @Test(expected = InternalAuthenticationServiceException.class)
-    public void retrieveWebAuthnUserDetails_test_with_RuntimeException_from_webAuthnAuthenticatorService() {
+    public void retrieveAuthenticationContext_test_with_RuntimeException_from_webAuthnAuthenticatorService() {
         byte[] credentialId = new byte[0];
 
         //Given
@@ -226,11 +420,11 @@ public class WebAuthnAuthenticationProviderTest {
 
         //When
         authenticationProvider.setHideCredentialIdNotFoundExceptions(false);
-        authenticationProvider.retrieveWebAuthnUserDetails(credentialId);
+        authenticationProvider.retrieveAuthenticationContext(credentialId);
     }
 
     @Test(expected = InternalAuthenticationServiceException.class)
-    public void retrieveWebAuthnUserDetails_test_with_null_from_webAuthnAuthenticatorService() {
+    public void retrieveAuthenticationContext_test_with_null_from_webAuthnAuthenticatorService() {
         byte[] credentialId = new byte[0];
 
         //Given
@@ -238,7 +432,7 @@ public class WebAuthnAuthenticationProviderTest {
 
         //When
         authenticationProvider.setHideCredentialIdNotFoundExceptions(false);
-        authenticationProvider.retrieveWebAuthnUserDetails(credentialId);
+        authenticationProvider.retrieveAuthenticationContext(credentialId);
     }
 
     @Test
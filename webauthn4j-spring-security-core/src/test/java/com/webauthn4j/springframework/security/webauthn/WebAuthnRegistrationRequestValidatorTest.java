@@ -96,6 +96,35 @@ public class WebAuthnRegistrationRequestValidatorTest {
         assertThat(registrationParameters.getExpectedExtensionIds()).isEqualTo(target.getExpectedRegistrationExtensionIds());
     }
 
+    @Test
+    public void validate_with_bytes_test() {
+        WebAuthnRegistrationRequestValidator target = new WebAuthnRegistrationRequestValidator(
+                webAuthnManager, serverPropertyProvider
+        );
+
+        ServerProperty serverProperty = mock(ServerProperty.class);
+        when(serverPropertyProvider.provide(any())).thenReturn(serverProperty);
+
+        CollectedClientData collectedClientData = mock(CollectedClientData.class);
+        AttestationObject attestationObject = mock(AttestationObject.class);
+        AuthenticationExtensionsClientOutputs<RegistrationExtensionClientOutput<?>> clientExtensionOutputs = new AuthenticationExtensionsClientOutputs<>();
+        when(webAuthnManager.validate(any(RegistrationRequest.class), any(RegistrationParameters.class))).thenReturn(
+                new RegistrationData(attestationObject, null, collectedClientData, null, clientExtensionOutputs, null));
+
+        byte[] clientDataBytes = new byte[]{0x01, 0x02};
+        byte[] attestationObjectBytes = new byte[]{0x03, 0x04};
+        WebAuthnRegistrationRequestValidationResponse response = target.validate(new MockHttpServletRequest(), clientDataBytes, attestationObjectBytes, null, "clientExtensionsJSON");
+
+        ArgumentCaptor<RegistrationRequest> registrationRequestArgumentCaptor = ArgumentCaptor.forClass(RegistrationRequest.class);
+        verify(webAuthnManager).validate(registrationRequestArgumentCaptor.capture(), any(RegistrationParameters.class));
+        RegistrationRequest registrationRequest = registrationRequestArgumentCaptor.getValue();
+        assertThat(registrationRequest.getClientDataJSON()).isEqualTo(clientDataBytes);
+        assertThat(registrationRequest.getAttestationObject()).isEqualTo(attestationObjectBytes);
+        assertThat(response.getCollectedClientData()).isSameAs(collectedClientData);
+        assertThat(response.getAttestationObject()).isSameAs(attestationObject);
+        assertThat(response.getRegistrationExtensionsClientOutputs()).isSameAs(clientExtensionOutputs);
+    }
+
     @Test
     public void validate_with_transports_null_test() {
         WebAuthnRegistrationRequestValidator target = new WebAuthnRegistrationRequestValidator(
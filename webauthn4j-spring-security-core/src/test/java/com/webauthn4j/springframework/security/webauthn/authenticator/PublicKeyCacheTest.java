@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.authenticator;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.COSEKey;
+import com.webauthn4j.data.attestation.authenticator.EC2COSEKey;
+import org.junit.Test;
+
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class PublicKeyCacheTest {
+
+    private static final byte[] CREDENTIAL_ID = new byte[]{0x01, 0x23, 0x45};
+
+    private final PublicKeyCache target = new PublicKeyCache(2);
+
+    @Test
+    public void getPublicKey_test() throws Exception {
+        COSEKey coseKey = createCOSEKey();
+
+        PublicKey first = target.getPublicKey(CREDENTIAL_ID, coseKey);
+        PublicKey second = target.getPublicKey(CREDENTIAL_ID.clone(), coseKey);
+
+        assertThat(first).isEqualTo(coseKey.getPublicKey());
+        assertThat(second).isSameAs(first);
+        assertThat(target.getHitCount()).isEqualTo(1);
+        assertThat(target.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getPublicKey_with_different_COSEKey_test() throws Exception {
+        COSEKey coseKey = createCOSEKey();
+        COSEKey otherCOSEKey = createCOSEKey();
+        target.getPublicKey(CREDENTIAL_ID, coseKey);
+
+        PublicKey publicKey = target.getPublicKey(CREDENTIAL_ID, otherCOSEKey);
+
+        assertThat(publicKey).isEqualTo(otherCOSEKey.getPublicKey());
+        assertThat(target.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void getPublicKey_does_not_decode_on_hit_test() throws Exception {
+        COSEKey coseKey = spy(createCOSEKey());
+
+        target.getPublicKey(CREDENTIAL_ID, coseKey);
+        target.getPublicKey(CREDENTIAL_ID, coseKey);
+
+        verify(coseKey, times(1)).getPublicKey();
+    }
+
+    @Test
+    public void invalidate_test() throws Exception {
+        COSEKey coseKey = createCOSEKey();
+        target.getPublicKey(CREDENTIAL_ID, coseKey);
+
+        target.invalidate(CREDENTIAL_ID.clone());
+
+        assertThat(target.size()).isZero();
+        target.getPublicKey(CREDENTIAL_ID, coseKey);
+        assertThat(target.getMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void eviction_test() throws Exception {
+        target.getPublicKey(new byte[]{0x01}, createCOSEKey());
+        target.getPublicKey(new byte[]{0x02}, createCOSEKey());
+        target.getPublicKey(new byte[]{0x03}, createCOSEKey());
+
+        assertThat(target.size()).isEqualTo(2);
+        target.invalidateAll();
+        assertThat(target.size()).isZero();
+    }
+
+    @Test
+    public void wrap_test() throws Exception {
+        COSEKey coseKey = createCOSEKey();
+        AttestedCredentialData attestedCredentialData = new AttestedCredentialData(AAGUID.ZERO, CREDENTIAL_ID, coseKey);
+        WebAuthnAuthenticator authenticator = new WebAuthnAuthenticator("authenticator", attestedCredentialData, null, 3);
+
+        Authenticator wrapped = target.wrap(authenticator);
+        wrapped.setCounter(5);
+
+        assertThat(wrapped.getAttestedCredentialData().getCredentialId()).isEqualTo(CREDENTIAL_ID);
+        assertThat(wrapped.getAttestedCredentialData().getCOSEKey().getAlgorithm()).isEqualTo(coseKey.getAlgorithm());
+        assertThat(wrapped.getAttestedCredentialData().getCOSEKey().getPublicKey()).isEqualTo(coseKey.getPublicKey());
+        assertThat(authenticator.getCounter()).isEqualTo(5);
+        assertThat(target.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void wrap_without_attestedCredentialData_test() {
+        WebAuthnAuthenticator authenticator = new WebAuthnAuthenticator("authenticator", null, null, 0);
+
+        assertThat(target.wrap(authenticator)).isSameAs(authenticator);
+    }
+
+    private static COSEKey createCOSEKey() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        return EC2COSEKey.create((ECPublicKey) keyPairGenerator.generateKeyPair().getPublic());
+    }
+}
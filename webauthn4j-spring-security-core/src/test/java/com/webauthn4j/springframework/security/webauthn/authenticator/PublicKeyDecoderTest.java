@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.authenticator;
+
+import com.webauthn4j.data.attestation.authenticator.COSEKey;
+import com.webauthn4j.data.attestation.authenticator.EC2COSEKey;
+import com.webauthn4j.data.attestation.authenticator.RSACOSEKey;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import org.junit.Test;
+
+import java.security.KeyPairGenerator;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class PublicKeyDecoderTest {
+
+    private final PublicKeyDecoder target = new PublicKeyDecoder();
+
+    @Test
+    public void decode_without_provider_test() throws Exception {
+        COSEKey coseKey = spy(createEC2COSEKey());
+
+        assertThat(target.decode(coseKey)).isEqualTo(coseKey.getPublicKey());
+        verify(coseKey, times(2)).getPublicKey();
+        assertThat(target.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void decode_EC2COSEKey_with_provider_test() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        ECPublicKey publicKey = (ECPublicKey) keyPairGenerator.generateKeyPair().getPublic();
+        Provider provider = keyPairGenerator.getProvider();
+        target.setProvider(COSEAlgorithmIdentifier.ES256, provider);
+
+        PublicKey decoded = target.decode(EC2COSEKey.create(publicKey, COSEAlgorithmIdentifier.ES256));
+
+        assertThat(decoded).isEqualTo(publicKey);
+        assertThat(target.getProvider(COSEAlgorithmIdentifier.ES256)).isSameAs(provider);
+        assertThat(target.getProvider(COSEAlgorithmIdentifier.RS256)).isNull();
+    }
+
+    @Test
+    public void decode_RSACOSEKey_with_provider_test() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        RSAPublicKey publicKey = (RSAPublicKey) keyPairGenerator.generateKeyPair().getPublic();
+        target.setProvider(COSEAlgorithmIdentifier.RS256, keyPairGenerator.getProvider());
+
+        PublicKey decoded = target.decode(RSACOSEKey.create(publicKey, COSEAlgorithmIdentifier.RS256));
+
+        assertThat(decoded).isEqualTo(publicKey);
+    }
+
+    private static COSEKey createEC2COSEKey() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        return EC2COSEKey.create((ECPublicKey) keyPairGenerator.generateKeyPair().getPublic(), COSEAlgorithmIdentifier.ES256);
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.authenticator;
+
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class WriteBehindWebAuthnAuthenticatorServiceTest {
+
+    private final WebAuthnAuthenticatorService delegate = mock(WebAuthnAuthenticatorService.class);
+    private final WriteBehindWebAuthnAuthenticatorService target = new WriteBehindWebAuthnAuthenticatorService(delegate);
+
+    @Before
+    public void setup() {
+        doCallRealMethod().when(delegate).updateCounters(any());
+        target.setFlushInterval(60 * 1000L);
+        target.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        target.destroy();
+    }
+
+    @Test
+    public void updateCounter_with_zero_counter_test() {
+        target.updateCounter(new byte[]{0x01}, 0);
+
+        assertThat(target.getPendingCount()).isZero();
+        assertThat(target.flush()).isZero();
+        verify(delegate, never()).updateCounter(any(), anyLong());
+    }
+
+    @Test
+    public void updateCounter_coalesces_to_highest_counter_test() {
+        byte[] credentialId = new byte[]{0x01};
+        target.updateCounter(credentialId, 3);
+        target.updateCounter(credentialId, 5);
+        target.updateCounter(credentialId, 4);
+
+        assertThat(target.getPendingCount()).isEqualTo(1);
+        verify(delegate, never()).updateCounter(any(), anyLong());
+
+        assertThat(target.flush()).isEqualTo(1);
+        verify(delegate).updateCounter(credentialId, 5);
+        assertThat(target.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void getLatestCounter_returns_pending_counter_test() {
+        byte[] credentialId = new byte[]{0x01};
+        when(delegate.getLatestCounter(credentialId, 2)).thenReturn(2L);
+        target.updateCounter(credentialId, 7);
+
+        assertThat(target.getLatestCounter(credentialId, 2)).isEqualTo(7);
+
+        target.flush();
+        // the stored counter was loaded before the flush, so the flushed counter is still returned
+        assertThat(target.getLatestCounter(credentialId, 2)).isEqualTo(7);
+    }
+
+    @Test
+    public void getLatestCounter_during_flush_test() throws InterruptedException {
+        byte[] credentialId = new byte[]{0x01};
+        when(delegate.getLatestCounter(eq(credentialId), anyLong())).thenAnswer(invocation -> invocation.getArgument(1));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            written.await();
+            return invocation.callRealMethod();
+        }).when(delegate).updateCounters(any());
+        target.updateCounter(credentialId, 7);
+
+        Thread flushThread = new Thread(target::flush);
+        flushThread.start();
+        writing.await();
+        assertThat(target.getLatestCounter(credentialId, 2)).isEqualTo(7);
+        written.countDown();
+        flushThread.join();
+
+        assertThat(target.getPendingCount()).isZero();
+        assertThat(target.getLatestCounter(credentialId, 2)).isEqualTo(7);
+    }
+
+    @Test
+    public void getLatestCounter_with_concurrent_flush_test() throws InterruptedException {
+        byte[] credentialId = new byte[]{0x01};
+        Map<ByteBuffer, Long> store = new ConcurrentHashMap<>();
+        store.put(ByteBuffer.wrap(credentialId), 0L);
+        WriteBehindWebAuthnAuthenticatorService concurrent = new WriteBehindWebAuthnAuthenticatorService(
+                (id, counter) -> store.put(ByteBuffer.wrap(id), counter));
+        concurrent.setFlushInterval(60 * 1000L);
+        concurrent.afterPropertiesSet();
+        AtomicLong acknowledged = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread updateThread = new Thread(() -> {
+            for (long counter = 1; running.get(); counter++) {
+                concurrent.updateCounter(credentialId, counter);
+                acknowledged.set(counter);
+            }
+        });
+        Thread flushThread = new Thread(() -> {
+            while (running.get()) {
+                concurrent.flush();
+            }
+        });
+        updateThread.start();
+        flushThread.start();
+        try {
+            long deadline = System.currentTimeMillis() + 200L;
+            while (System.currentTimeMillis() < deadline) {
+                long expected = acknowledged.get();
+                // as an authentication does, the stored counter is loaded before the latest counter is checked
+                long storedCounter = store.get(ByteBuffer.wrap(credentialId));
+                assertThat(concurrent.getLatestCounter(credentialId, storedCounter)).isGreaterThanOrEqualTo(expected);
+            }
+        } finally {
+            running.set(false);
+            updateThread.join();
+            flushThread.join();
+            concurrent.destroy();
+        }
+    }
+
+    @Test
+    public void flush_writes_in_batches_test() {
+        target.setBatchSize(2);
+        for (byte i = 1; i <= 5; i++) {
+            target.updateCounter(new byte[]{i}, i);
+        }
+
+        assertThat(target.flush()).isEqualTo(5);
+        verify(delegate, times(3)).updateCounters(any());
+        verify(delegate, times(5)).updateCounter(any(), anyLong());
+        assertThat(target.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void flush_ignores_removed_authenticator_test() {
+        byte[] removed = new byte[]{0x01};
+        byte[] existing = new byte[]{0x02};
+        doThrow(new CredentialIdNotFoundException("not found")).when(delegate).updateCounter(removed, 1);
+        target.updateCounter(removed, 1);
+        target.updateCounter(existing, 1);
+
+        assertThat(target.flush()).isEqualTo(2);
+        verify(delegate).updateCounter(existing, 1);
+        assertThat(target.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void updateCounter_writes_through_when_full_test() {
+        target.setMaximumPending(1);
+        byte[] first = new byte[]{0x01};
+        byte[] second = new byte[]{0x02};
+        target.updateCounter(first, 1);
+        target.updateCounter(second, 1);
+        target.updateCounter(first, 2);
+
+        assertThat(target.getPendingCount()).isEqualTo(1);
+        verify(delegate).updateCounter(second, 1);
+        verify(delegate, never()).updateCounter(first, 1);
+        verify(delegate, never()).updateCounter(first, 2);
+    }
+
+    @Test
+    public void destroy_flushes_pending_counters_test() throws InterruptedException {
+        byte[] credentialId = new byte[]{0x01};
+        target.updateCounter(credentialId, 1);
+
+        target.destroy();
+
+        verify(delegate).updateCounter(credentialId, 1);
+        assertThat(target.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void updateCounter_after_destroy_writes_through_test() throws InterruptedException {
+        byte[] credentialId = new byte[]{0x01};
+        target.destroy();
+
+        target.updateCounter(credentialId, 1);
+
+        verify(delegate).updateCounter(credentialId, 1);
+        assertThat(target.getPendingCount()).isZero();
+    }
+
+    @Test
+    public void updateCounter_before_afterPropertiesSet_test() {
+        WriteBehindWebAuthnAuthenticatorService notStarted = new WriteBehindWebAuthnAuthenticatorService(delegate);
+
+        assertThatThrownBy(() -> notStarted.updateCounter(new byte[]{0x01}, 1)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void scheduled_flush_test() throws InterruptedException {
+        WriteBehindWebAuthnAuthenticatorService scheduled = new WriteBehindWebAuthnAuthenticatorService(delegate);
+        byte[] credentialId = new byte[]{0x01};
+        scheduled.setFlushInterval(10);
+        scheduled.afterPropertiesSet();
+        try {
+            scheduled.updateCounter(credentialId, 1);
+            verify(delegate, timeout(1000)).updateCounter(credentialId, 1);
+        } finally {
+            scheduled.destroy();
+        }
+    }
+}
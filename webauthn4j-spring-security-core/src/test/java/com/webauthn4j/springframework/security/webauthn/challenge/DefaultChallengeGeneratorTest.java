@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test for DefaultChallengeGenerator
+ */
+public class DefaultChallengeGeneratorTest {
+
+    @Test
+    public void generate_test() {
+        DefaultChallengeGenerator target = new DefaultChallengeGenerator();
+
+        Challenge challenge = target.generate();
+
+        assertThat(challenge.getValue()).hasSize(DefaultChallengeGenerator.DEFAULT_LENGTH);
+        assertThat(target.generate()).isNotEqualTo(challenge);
+    }
+
+    @Test
+    public void generate_test_across_reseeds() {
+        DefaultChallengeGenerator target = new DefaultChallengeGenerator(32, 64);
+        Set<Challenge> challenges = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            challenges.add(target.generate());
+        }
+        assertThat(challenges).hasSize(100);
+    }
+
+    @Test
+    public void constructor_test_with_too_short_length() {
+        assertThatThrownBy(() -> new DefaultChallengeGenerator(8)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for ExpiringChallengeCache
+ */
+public class ExpiringChallengeCacheTest {
+
+    private final InMemoryChallengeRepositoryTest.MutableClock clock = new InMemoryChallengeRepositoryTest.MutableClock();
+    private final ExpiringChallengeCache<String> target = new ExpiringChallengeCache<>(1024, clock);
+
+    @Test
+    public void remove_test() {
+        target.put(key(1), "value", 1000L);
+
+        assertThat(target.remove(key(1))).isEqualTo("value");
+        assertThat(target.remove(key(1))).isNull();
+    }
+
+    @Test
+    public void expired_entries_are_purged_without_access() {
+        for (int i = 0; i < 100; i++) {
+            target.put(key(i), "short", 2 * 1000L);
+        }
+        for (int i = 100; i < 110; i++) {
+            target.put(key(i), "long", 2 * 60 * 60 * 1000L);
+        }
+
+        clock.advance(3 * 1000L);
+        target.remove(key(-1));
+        assertThat(target.size()).isEqualTo(10);
+
+        clock.advance(60 * 60 * 1000L);
+        assertThat(target.remove(key(100))).isEqualTo("long");
+
+        clock.advance(60 * 60 * 1000L);
+        target.remove(key(-1));
+        assertThat(target.size()).isZero();
+    }
+
+    @Test
+    public void entries_are_cascaded_across_levels_until_expiry() {
+        long[] timeToLives = {500L, 5 * 1000L, 5 * 60 * 1000L, 5 * 60 * 60 * 1000L, 5 * 24 * 60 * 60 * 1000L};
+        for (int i = 0; i < timeToLives.length; i++) {
+            target.put(key(i), "value", timeToLives[i]);
+        }
+        long elapsed = 0;
+        for (int i = 0; i < timeToLives.length; i++) {
+            clock.advance(timeToLives[i] - 1 - elapsed);
+            elapsed = timeToLives[i] - 1;
+            target.remove(key(-1));
+            assertThat(target.size()).isEqualTo(timeToLives.length - i);
+
+            // entries are expired once the wheel passes their bucket, so allow for the bucket width
+            clock.advance(1 + 1024);
+            elapsed += 1 + 1024;
+            target.remove(key(-1));
+            assertThat(target.size()).isEqualTo(timeToLives.length - i - 1);
+        }
+    }
+
+    @Test
+    public void put_test_evicts_earliest_expiring_entry_when_full() {
+        ExpiringChallengeCache<String> bounded = new ExpiringChallengeCache<>(1, clock);
+        bounded.put(key(1), "first", 1000L);
+        bounded.put(key(2), "second", 60 * 1000L);
+
+        assertThat(bounded.size()).isEqualTo(1);
+        assertThat(bounded.remove(key(1))).isNull();
+        assertThat(bounded.remove(key(2))).isEqualTo("second");
+    }
+
+    private ByteBuffer key(int i) {
+        return ByteBuffer.allocate(4).putInt(0, i);
+    }
+}
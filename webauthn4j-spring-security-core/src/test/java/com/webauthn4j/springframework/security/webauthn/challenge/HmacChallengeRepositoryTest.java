@@ -0,0 +1,188 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Test for HmacChallengeRepository
+ */
+public class HmacChallengeRepositoryTest {
+
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes();
+    private static final byte[] ANOTHER_SECRET = "fedcba9876543210fedcba9876543210".getBytes();
+
+    private final HmacChallengeRepository target = new HmacChallengeRepository((byte) 1, SECRET);
+
+    @Test
+    public void generateChallenge_test() {
+        Challenge challenge = target.generateChallenge();
+        assertThat(challenge).isNotNull();
+        assertThat(challenge.getValue()).hasSize(42);
+        assertThat(target.generateChallenge()).isNotEqualTo(challenge);
+    }
+
+    @Test
+    public void saveChallenge_test_does_not_create_session() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        Challenge challenge = target.generateChallenge();
+        target.saveChallenge(challenge, request);
+
+        assertThat(request.getSession(false)).isNull();
+        assertThat(target.loadChallenge(request)).isEqualTo(challenge);
+    }
+
+    @Test
+    public void saveChallenge_test_signs_challenge_generated_elsewhere() {
+        byte[] value = new DefaultChallengeGenerator().generate().getValue();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        target.saveChallenge(new DefaultChallenge(value), request);
+        Challenge signed = target.loadChallenge(request);
+
+        assertThat(signed.getValue()).startsWith(value);
+        assertThat(target.verify(signed.getValue())).isTrue();
+        MockHttpServletRequest resultRequest = new MockHttpServletRequest();
+        resultRequest.addHeader(HmacChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, Base64UrlUtil.encodeToString(signed.getValue()));
+        assertThat(target.loadChallenge(resultRequest)).isEqualTo(signed);
+    }
+
+    @Test
+    public void saveChallenge_test_does_not_sign_signed_challenge_again() {
+        Challenge challenge = target.generateChallenge();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        target.saveChallenge(challenge, request);
+        target.saveChallenge(challenge, request);
+
+        assertThat(target.loadChallenge(request)).isEqualTo(challenge);
+    }
+
+    @Test
+    public void saveChallenge_test_with_too_short_challenge() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        assertThatThrownBy(() -> target.saveChallenge(new DefaultChallenge(new byte[8]), request))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void saveChallenge_test_with_null() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        target.saveChallenge(target.generateChallenge(), request);
+        target.saveChallenge(null, request);
+
+        assertThat(target.loadChallenge(request)).isNull();
+    }
+
+    @Test
+    public void loadChallenge_test_from_header_on_another_node() {
+        HmacChallengeRepository anotherNode = new HmacChallengeRepository((byte) 1, SECRET);
+        Challenge challenge = target.generateChallenge();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HmacChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, Base64UrlUtil.encodeToString(challenge.getValue()));
+
+        assertThat(anotherNode.loadChallenge(request)).isEqualTo(challenge);
+        assertThat(request.getSession(false)).isNull();
+    }
+
+    @Test
+    public void loadChallenge_test_from_parameter() {
+        Challenge challenge = target.generateChallenge();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setParameter(HmacChallengeRepository.DEFAULT_CHALLENGE_PARAMETER_NAME, Base64UrlUtil.encodeToString(challenge.getValue()));
+
+        assertThat(target.loadChallenge(request)).isEqualTo(challenge);
+    }
+
+    @Test
+    public void loadChallenge_test_with_tampered_challenge() {
+        byte[] value = target.generateChallenge().getValue();
+        value[5] ^= 0x01;
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HmacChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, Base64UrlUtil.encodeToString(value));
+
+        assertThat(target.loadChallenge(request)).isNull();
+    }
+
+    @Test
+    public void loadChallenge_test_with_malformed_challenge() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HmacChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, "!!not-base64url!!");
+
+        assertThat(target.loadChallenge(request)).isNull();
+    }
+
+    @Test
+    public void loadChallenge_test_with_expired_challenge() {
+        Instant issuedAt = Instant.parse("2019-01-01T00:00:00Z");
+        target.setClock(Clock.fixed(issuedAt, ZoneOffset.UTC));
+        target.setTimeToLive(60 * 1000L);
+        Challenge challenge = target.generateChallenge();
+
+        target.setClock(Clock.fixed(issuedAt.plusSeconds(61), ZoneOffset.UTC));
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HmacChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, Base64UrlUtil.encodeToString(challenge.getValue()));
+
+        assertThat(target.loadChallenge(request)).isNull();
+    }
+
+    @Test
+    public void loadChallenge_test_with_rotated_key() {
+        Challenge oldChallenge = target.generateChallenge();
+        target.addKey((byte) 2, ANOTHER_SECRET);
+        target.setCurrentKeyId((byte) 2);
+        Challenge newChallenge = target.generateChallenge();
+
+        assertThat(target.verify(oldChallenge.getValue())).isTrue();
+        assertThat(target.verify(newChallenge.getValue())).isTrue();
+
+        target.removeKey((byte) 1);
+
+        assertThat(target.verify(oldChallenge.getValue())).isFalse();
+        assertThat(target.verify(newChallenge.getValue())).isTrue();
+    }
+
+    @Test
+    public void removeKey_test_with_current_key() {
+        assertThatThrownBy(() -> target.removeKey((byte) 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void loadOrGenerateChallenge_test_without_previous_request() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        Challenge challenge = target.loadOrGenerateChallenge(request);
+
+        assertThat(challenge).isNotNull();
+        assertThat(target.loadOrGenerateChallenge(request)).isEqualTo(challenge);
+        assertThat(request.getSession(false)).isNull();
+    }
+}
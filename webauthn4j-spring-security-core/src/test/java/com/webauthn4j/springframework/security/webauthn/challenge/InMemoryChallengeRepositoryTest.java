@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for InMemoryChallengeRepository
+ */
+public class InMemoryChallengeRepositoryTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final InMemoryChallengeRepository target = new InMemoryChallengeRepository(1024, clock);
+
+    @Test
+    public void loadChallenge_test_consumes_challenge() {
+        Challenge challenge = target.generateChallenge();
+        target.saveChallenge(challenge, new MockHttpServletRequest());
+
+        assertThat(target.loadChallenge(createRequest(challenge))).isEqualTo(challenge);
+        assertThat(target.loadChallenge(createRequest(challenge))).isNull();
+        assertThat(target.size()).isZero();
+    }
+
+    @Test
+    public void loadChallenge_test_is_stable_within_request() {
+        Challenge challenge = target.generateChallenge();
+        target.saveChallenge(challenge, new MockHttpServletRequest());
+        MockHttpServletRequest request = createRequest(challenge);
+
+        assertThat(target.loadChallenge(request)).isEqualTo(challenge);
+        assertThat(target.loadChallenge(request)).isEqualTo(challenge);
+        assertThat(request.getSession(false)).isNull();
+    }
+
+    @Test
+    public void loadChallenge_test_with_unknown_challenge() {
+        assertThat(target.loadChallenge(createRequest(new DefaultChallenge()))).isNull();
+    }
+
+    @Test
+    public void loadChallenge_test_with_expired_challenge() {
+        target.setTimeToLive(60 * 1000L);
+        Challenge challenge = target.generateChallenge();
+        target.saveChallenge(challenge, new MockHttpServletRequest());
+
+        clock.advance(61 * 1000L);
+
+        assertThat(target.loadChallenge(createRequest(challenge))).isNull();
+    }
+
+    @Test
+    public void saveChallenge_test_removes_replaced_challenge() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        Challenge first = target.generateChallenge();
+        Challenge second = target.generateChallenge();
+        target.saveChallenge(first, request);
+        target.saveChallenge(second, request);
+
+        assertThat(target.size()).isEqualTo(1);
+        assertThat(target.loadChallenge(createRequest(first))).isNull();
+        assertThat(target.loadChallenge(createRequest(second))).isEqualTo(second);
+    }
+
+    @Test
+    public void saveChallenge_test_is_bounded() {
+        InMemoryChallengeRepository bounded = new InMemoryChallengeRepository(16, clock);
+        for (int i = 0; i < 1000; i++) {
+            bounded.saveChallenge(bounded.generateChallenge(), new MockHttpServletRequest());
+        }
+        assertThat(bounded.size()).isLessThanOrEqualTo(16);
+    }
+
+    private MockHttpServletRequest createRequest(Challenge challenge) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(AbstractClientHeldChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, Base64UrlUtil.encodeToString(challenge.getValue()));
+        return request;
+    }
+
+    static class MutableClock extends Clock {
+
+        private long millis = Instant.parse("2019-01-01T00:00:00Z").toEpochMilli();
+
+        void advance(long millis) {
+            this.millis += millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
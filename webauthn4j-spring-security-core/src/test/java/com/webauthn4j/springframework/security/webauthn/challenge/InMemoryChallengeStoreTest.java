@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for InMemoryChallengeStore
+ */
+public class InMemoryChallengeStoreTest {
+
+    private final InMemoryChallengeRepositoryTest.MutableClock clock = new InMemoryChallengeRepositoryTest.MutableClock();
+    private final InMemoryChallengeStore target = new InMemoryChallengeStore(1024, clock);
+
+    @Test
+    public void getAndDelete_test() {
+        byte[] key = {0x01, 0x02};
+        target.put(key, new byte[]{0x03}, 1000L);
+
+        assertThat(target.getAndDelete(new byte[]{0x01, 0x02})).containsExactly(0x03);
+        assertThat(target.getAndDelete(key)).isNull();
+    }
+
+    @Test
+    public void getAndDelete_test_with_expired_entry() {
+        byte[] key = {0x01};
+        target.put(key, key, 1000L);
+
+        clock.advance(1000L);
+
+        assertThat(target.getAndDelete(key)).isNull();
+    }
+
+    @Test
+    public void getAndDeleteOrPut_test() {
+        byte[] key = {0x01};
+        byte[] newKey = {0x02};
+
+        assertThat(target.getAndDeleteOrPut(key, () -> newKey, 1000L)).isNull();
+        assertThat(target.getAndDeleteOrPut(newKey, () -> key, 1000L)).containsExactly(0x02);
+        assertThat(target.getAndDelete(key)).isNull();
+    }
+
+    @Test
+    public void deleteAndPut_test() {
+        byte[] key = {0x01};
+        byte[] newKey = {0x02};
+        target.put(key, key, 1000L);
+
+        target.deleteAndPut(key, newKey, newKey, 1000L);
+
+        assertThat(target.getAndDelete(key)).isNull();
+        assertThat(target.getAndDelete(newKey)).containsExactly(0x02);
+    }
+
+    @Test
+    public void delete_test() {
+        byte[] key = {0x01};
+        target.put(key, key, 1000L);
+        target.delete(key);
+
+        assertThat(target.getAndDelete(key)).isNull();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for JdbcChallengeRepository
+ */
+public class JdbcChallengeRepositoryTest {
+
+    private final InMemoryChallengeRepositoryTest.MutableClock clock = new InMemoryChallengeRepositoryTest.MutableClock();
+    private EmbeddedDatabase dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcChallengeRepository target;
+
+    @Before
+    public void setup() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript(JdbcChallengeRepository.DEFAULT_SCHEMA_LOCATION)
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        target = new JdbcChallengeRepository(dataSource);
+        target.setClock(clock);
+        target.setPurgeInterval(0);
+        target.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        target.destroy();
+        dataSource.shutdown();
+    }
+
+    @Test
+    public void loadChallenge_test_on_another_node_consumes_challenge() {
+        JdbcChallengeRepository anotherNode = new JdbcChallengeRepository(dataSource);
+        anotherNode.setClock(clock);
+        Challenge challenge = target.loadOrGenerateChallenge(new MockHttpServletRequest());
+
+        assertThat(anotherNode.loadChallenge(createRequest(challenge))).isEqualTo(challenge);
+        assertThat(target.loadChallenge(createRequest(challenge))).isNull();
+        assertThat(countRows()).isZero();
+    }
+
+    @Test
+    public void loadChallenge_test_with_expired_challenge() {
+        target.setTimeToLive(60 * 1000L);
+        Challenge challenge = target.loadOrGenerateChallenge(new MockHttpServletRequest());
+
+        clock.advance(60 * 1000L);
+
+        assertThat(target.loadChallenge(createRequest(challenge))).isNull();
+    }
+
+    @Test
+    public void saveChallenge_test_saving_challenge_twice_extends_it() {
+        target.setTimeToLive(1000L);
+        Challenge challenge = target.generateChallenge();
+        target.saveChallenge(challenge, new MockHttpServletRequest());
+        clock.advance(500L);
+        target.saveChallenge(challenge, new MockHttpServletRequest());
+        clock.advance(500L);
+
+        assertThat(countRows()).isEqualTo(1);
+        assertThat(target.loadChallenge(createRequest(challenge))).isEqualTo(challenge);
+    }
+
+    @Test
+    public void saveChallenge_test_with_long_challenge() {
+        Challenge challenge = new DefaultChallenge(new byte[512]);
+        target.saveChallenge(challenge, new MockHttpServletRequest());
+
+        assertThat(target.loadChallenge(createRequest(challenge))).isEqualTo(challenge);
+    }
+
+    @Test
+    public void saveChallenge_test_with_null() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        Challenge challenge = target.generateChallenge();
+        target.saveChallenge(challenge, request);
+        target.saveChallenge(null, request);
+
+        assertThat(countRows()).isZero();
+    }
+
+    @Test
+    public void purgeExpiredChallenges_test_in_batches() {
+        target.setPurgeBatchSize(7);
+        target.setTimeToLive(1000L);
+        for (int i = 0; i < 30; i++) {
+            target.saveChallenge(target.generateChallenge(), new MockHttpServletRequest());
+        }
+        clock.advance(1000L);
+        target.setTimeToLive(60 * 1000L);
+        Challenge alive = target.generateChallenge();
+        target.saveChallenge(alive, new MockHttpServletRequest());
+
+        assertThat(target.purgeExpiredChallenges()).isEqualTo(30);
+        assertThat(countRows()).isEqualTo(1);
+        assertThat(target.loadChallenge(createRequest(alive))).isEqualTo(alive);
+    }
+
+    private int countRows() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM webauthn_challenges", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private MockHttpServletRequest createRequest(Challenge challenge) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(AbstractClientHeldChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, Base64UrlUtil.encodeToString(challenge.getValue()));
+        return request;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test for KeyValueChallengeRepository
+ */
+public class KeyValueChallengeRepositoryTest {
+
+    private final ChallengeStore challengeStore = spy(new InMemoryChallengeStore());
+    private final KeyValueChallengeRepository target = new KeyValueChallengeRepository(challengeStore);
+
+    @Test
+    public void loadChallenge_test_on_another_node_consumes_challenge() {
+        KeyValueChallengeRepository anotherNode = new KeyValueChallengeRepository(challengeStore);
+        Challenge challenge = target.loadOrGenerateChallenge(new MockHttpServletRequest());
+
+        assertThat(anotherNode.loadChallenge(createRequest(challenge))).isEqualTo(challenge);
+        assertThat(target.loadChallenge(createRequest(challenge))).isNull();
+    }
+
+    @Test
+    public void loadOrGenerateChallenge_test_without_presented_challenge_costs_single_operation() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        Challenge challenge = target.loadOrGenerateChallenge(request);
+
+        assertThat(target.loadOrGenerateChallenge(request)).isEqualTo(challenge);
+        verify(challengeStore).put(any(), any(), anyLong());
+        verifyNoMoreInteractions(challengeStore);
+        assertThat(request.getSession(false)).isNull();
+    }
+
+    @Test
+    public void loadOrGenerateChallenge_test_with_presented_challenge_costs_single_operation() {
+        Challenge challenge = target.generateChallenge();
+        target.saveChallenge(challenge, new MockHttpServletRequest());
+        reset(challengeStore);
+        MockHttpServletRequest request = createRequest(challenge);
+
+        assertThat(target.loadOrGenerateChallenge(request)).isEqualTo(challenge);
+        assertThat(target.loadOrGenerateChallenge(request)).isEqualTo(challenge);
+        verify(challengeStore).getAndDeleteOrPut(any(), any(), anyLong());
+    }
+
+    @Test
+    public void loadOrGenerateChallenge_test_with_presented_challenge_does_not_generate() {
+        Challenge challenge = target.generateChallenge();
+        target.saveChallenge(challenge, new MockHttpServletRequest());
+        ChallengeGenerator challengeGenerator = mock(ChallengeGenerator.class);
+        target.setChallengeGenerator(challengeGenerator);
+
+        assertThat(target.loadOrGenerateChallenge(createRequest(challenge))).isEqualTo(challenge);
+        verifyNoInteractions(challengeGenerator);
+    }
+
+    @Test
+    public void saveChallenge_test_replacing_challenge_costs_single_operation() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        Challenge previous = target.loadOrGenerateChallenge(request);
+        Challenge challenge = target.generateChallenge();
+        reset(challengeStore);
+
+        target.saveChallenge(challenge, request);
+
+        verify(challengeStore).deleteAndPut(any(), any(), any(), anyLong());
+        assertThat(target.loadChallenge(createRequest(previous))).isNull();
+        assertThat(target.loadChallenge(createRequest(challenge))).isEqualTo(challenge);
+    }
+
+    @Test
+    public void loadOrGenerateChallenge_test_with_unknown_challenge_stores_new_challenge() {
+        Challenge unknown = target.generateChallenge();
+
+        Challenge challenge = target.loadOrGenerateChallenge(createRequest(unknown));
+
+        assertThat(challenge).isNotEqualTo(unknown);
+        assertThat(target.loadChallenge(createRequest(challenge))).isEqualTo(challenge);
+    }
+
+    @Test
+    public void saveChallenge_test_with_null() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        Challenge challenge = target.generateChallenge();
+        target.saveChallenge(challenge, request);
+        target.saveChallenge(null, request);
+
+        assertThat(target.loadChallenge(request)).isNull();
+        assertThat(target.loadChallenge(createRequest(challenge))).isNull();
+    }
+
+    private MockHttpServletRequest createRequest(Challenge challenge) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(AbstractClientHeldChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, Base64UrlUtil.encodeToString(challenge.getValue()));
+        return request;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test for PrefetchingChallengeGenerator
+ */
+public class PrefetchingChallengeGeneratorTest {
+
+    @Test
+    public void generate_test_without_filler_falls_back_to_delegate() {
+        ChallengeGenerator delegate = spy(new DefaultChallengeGenerator());
+        PrefetchingChallengeGenerator target = new PrefetchingChallengeGenerator(delegate, 8);
+
+        Challenge challenge = target.generate();
+
+        assertThat(challenge).isNotNull();
+        verify(delegate).generate();
+    }
+
+    @Test
+    public void generate_test_with_filler() throws InterruptedException {
+        PrefetchingChallengeGenerator target = new PrefetchingChallengeGenerator(new DefaultChallengeGenerator(), 8);
+        target.afterPropertiesSet();
+        try {
+            for (int i = 0; i < 100 && target.size() < 8; i++) {
+                Thread.sleep(10);
+            }
+            assertThat(target.size()).isEqualTo(8);
+
+            Challenge first = target.generate();
+            assertThat(target.generate()).isNotEqualTo(first);
+        } finally {
+            target.destroy();
+        }
+    }
+}
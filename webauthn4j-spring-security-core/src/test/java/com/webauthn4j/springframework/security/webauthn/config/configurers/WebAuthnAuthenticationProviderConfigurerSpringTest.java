@@ -17,10 +17,12 @@
 package com.webauthn4j.springframework.security.webauthn.config.configurers;
 
 import com.webauthn4j.WebAuthnManager;
+import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.springframework.security.webauthn.WebAuthnAuthenticationProvider;
 import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticatorService;
 import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeRepository;
 import com.webauthn4j.springframework.security.webauthn.challenge.HttpSessionChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProviderImpl;
 import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProvider;
@@ -47,11 +49,33 @@ public class WebAuthnAuthenticationProviderConfigurerSpringTest {
     @Autowired
     ProviderManager providerManager;
 
+    @Autowired
+    WebAuthnInstrumentation instrumentation;
+
+    @Autowired
+    ObjectConverter objectConverter;
+
     @Test
     public void test() {
         assertThat(providerManager.getProviders()).extracting("class").contains(WebAuthnAuthenticationProvider.class);
     }
 
+    @Test
+    public void instrumentation_test() {
+        assertThat(providerManager.getProviders())
+                .filteredOn(WebAuthnAuthenticationProvider.class::isInstance)
+                .extracting("instrumentation")
+                .containsExactly(instrumentation);
+    }
+
+    @Test
+    public void objectConverter_test() {
+        assertThat(providerManager.getProviders())
+                .filteredOn(WebAuthnAuthenticationProvider.class::isInstance)
+                .extracting("authenticatorDataConverter.cborConverter")
+                .containsExactly(objectConverter.getCborConverter());
+    }
+
     @EnableWebSecurity
     static class Config extends WebSecurityConfigurerAdapter {
 
@@ -61,6 +85,16 @@ public class WebAuthnAuthenticationProviderConfigurerSpringTest {
         @MockBean
         private WebAuthnAuthenticatorService authenticatorService;
 
+        @Bean
+        public WebAuthnInstrumentation instrumentation() {
+            return stage -> WebAuthnInstrumentation.Sample.NOOP;
+        }
+
+        @Bean
+        public ObjectConverter objectConverter() {
+            return new ObjectConverter();
+        }
+
         @Bean
         public ChallengeRepository challengeRepository() {
             return new HttpSessionChallengeRepository();
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.config.configurers;
+
+import com.webauthn4j.springframework.security.webauthn.challenge.InMemoryChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+public class WebAuthnConfigurerChallengeTimeToLiveSpringTest {
+
+    @MockBean
+    private WebAuthnUserDetailsService userDetailsService;
+
+    @Autowired
+    private InMemoryChallengeRepository challengeRepository;
+
+    @Test
+    public void timeToLive_of_repository_bean_is_kept_when_not_configured_test() {
+        assertThat(challengeRepository.getTimeToLive()).isEqualTo(12345L);
+    }
+
+    @EnableWebSecurity
+    static class Config extends WebSecurityConfigurerAdapter {
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            http.apply(WebAuthnConfigurer.webAuthn())
+                    .rpId("example.com");
+
+            http.authorizeRequests()
+                    .anyRequest().authenticated();
+        }
+
+        @Configuration
+        static class BeanConfig {
+
+            @Bean
+            public InMemoryChallengeRepository challengeRepository() {
+                InMemoryChallengeRepository challengeRepository = new InMemoryChallengeRepository();
+                challengeRepository.setTimeToLive(12345L);
+                return challengeRepository;
+            }
+        }
+    }
+}
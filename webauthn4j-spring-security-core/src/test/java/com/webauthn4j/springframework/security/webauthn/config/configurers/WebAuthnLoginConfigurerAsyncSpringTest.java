@@ -0,0 +1,74 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.config.configurers;
+
+import com.webauthn4j.springframework.security.webauthn.AsyncDelegatingFilter;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnProcessingFilter;
+import com.webauthn4j.springframework.security.webauthn.endpoint.OptionsEndpointFilter;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.servlet.Filter;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+public class WebAuthnLoginConfigurerAsyncSpringTest {
+
+    @MockBean
+    private WebAuthnUserDetailsService userDetailsService;
+
+    @Autowired
+    private FilterChainProxy springSecurityFilterChain;
+
+    @Test
+    public void filters_are_registered_only_wrapped_test() {
+        List<Filter> filters = springSecurityFilterChain.getFilterChains().get(0).getFilters();
+
+        assertThat(filters).filteredOn(AsyncDelegatingFilter.class::isInstance)
+                .extracting("delegate.class")
+                .containsExactlyInAnyOrder(WebAuthnProcessingFilter.class, OptionsEndpointFilter.class);
+        assertThat(filters).noneMatch(filter -> filter instanceof WebAuthnProcessingFilter || filter instanceof OptionsEndpointFilter);
+    }
+
+    @EnableWebSecurity
+    static class Config extends WebSecurityConfigurerAdapter {
+
+        @Override
+        protected void configure(HttpSecurity http) throws Exception {
+            http.apply(WebAuthnConfigurer.webAuthn())
+                    .rpId("example.com");
+
+            Executor executor = Runnable::run;
+            http.apply(WebAuthnLoginConfigurer.webAuthnLogin())
+                    .asyncExecutor(executor);
+
+            http.authorizeRequests()
+                    .anyRequest().authenticated();
+        }
+    }
+}
@@ -72,6 +72,7 @@ public class WebAuthnLoginConfigurerSetterSpringTest {
         when(mockUserDetails.getUserHandle()).thenReturn(new byte[32]);
         doThrow(new UsernameNotFoundException(null)).when(userDetailsService).loadUserByUsername(null);
         when(userDetailsService.loadUserByUsername(anyString())).thenReturn(mockUserDetails);
+        when(userDetailsService.findUserByUsername(any())).thenCallRealMethod();
     }
 
     @Test
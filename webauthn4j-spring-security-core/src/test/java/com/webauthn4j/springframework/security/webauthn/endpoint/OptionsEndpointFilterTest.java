@@ -16,10 +16,17 @@
 
 package com.webauthn4j.springframework.security.webauthn.endpoint;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
 import com.webauthn4j.springframework.security.webauthn.options.AssertionOptions;
 import com.webauthn4j.springframework.security.webauthn.options.AttestationOptions;
+import com.webauthn4j.springframework.security.webauthn.options.Options;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.options.OptionsProviderImpl;
+import com.webauthn4j.springframework.security.webauthn.util.JsonObjectTemplate;
 import org.junit.Test;
 import org.springframework.http.HttpStatus;
 import org.springframework.mock.web.MockFilterChain;
@@ -30,6 +37,7 @@ import org.springframework.security.authentication.AuthenticationTrustResolverIm
 import org.springframework.security.authentication.InsufficientAuthenticationException;
 
 import javax.servlet.ServletException;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Collections;
 
@@ -59,9 +67,8 @@ public class OptionsEndpointFilterTest {
     public void doFilter_test() throws IOException, ServletException {
         OptionsProvider optionsProvider = mock(OptionsProvider.class);
         AttestationOptions attestationOptions = new AttestationOptions(null, null, null, null, null, Collections.emptyList(), null);
-        when(optionsProvider.getAttestationOptions(any(), any(), any())).thenReturn(attestationOptions);
         AssertionOptions assertionOptions = new AssertionOptions(null, null, null, null, null, null);
-        when(optionsProvider.getAssertionOptions(any(), any(), any())).thenReturn(assertionOptions);
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(new Options(attestationOptions, assertionOptions));
         OptionsEndpointFilter optionsEndpointFilter = new OptionsEndpointFilter(optionsProvider, objectConverter);
         AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
         optionsEndpointFilter.setTrustResolver(trustResolver);
@@ -75,10 +82,82 @@ public class OptionsEndpointFilterTest {
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
     }
 
+    @Test
+    public void doFilter_test_observes_response_write() throws IOException, ServletException {
+        OptionsProvider optionsProvider = mock(OptionsProvider.class);
+        AttestationOptions attestationOptions = new AttestationOptions(null, null, null, null, null, Collections.emptyList(), null);
+        AssertionOptions assertionOptions = new AssertionOptions(null, null, null, null, null, null);
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(new Options(attestationOptions, assertionOptions));
+        OptionsEndpointFilter optionsEndpointFilter = new OptionsEndpointFilter(optionsProvider, objectConverter);
+        WebAuthnInstrumentation.Sample sample = mock(WebAuthnInstrumentation.Sample.class);
+        optionsEndpointFilter.setInstrumentation(stage -> stage == WebAuthnStage.RESPONSE_WRITE ? sample : WebAuthnInstrumentation.Sample.NOOP);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRequestURI(OptionsEndpointFilter.FILTER_URL);
+        optionsEndpointFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        verify(sample).success();
+    }
+
+    @Test
+    public void doFilter_with_templateRendering_test() throws IOException, ServletException {
+        OptionsProvider optionsProvider = mock(OptionsProviderImpl.class);
+        when(optionsProvider.getRpId()).thenReturn("example.com");
+        AttestationOptions attestationOptions = new AttestationOptions(null, null, null, null, null, Collections.emptyList(), null);
+        AssertionOptions assertionOptions = new AssertionOptions(new DefaultChallenge(), 60000L, "example.com", null, null, null);
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(new Options(attestationOptions, assertionOptions));
+        OptionsEndpointFilter optionsEndpointFilter = new OptionsEndpointFilter(optionsProvider, objectConverter);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRequestURI(OptionsEndpointFilter.FILTER_URL);
+        MockHttpServletResponse plainResponse = new MockHttpServletResponse();
+        optionsEndpointFilter.doFilter(request, plainResponse, new MockFilterChain());
+
+        optionsEndpointFilter.setTemplateRendering(true);
+        MockHttpServletResponse templateResponse = new MockHttpServletResponse();
+        optionsEndpointFilter.doFilter(request, templateResponse, new MockFilterChain());
+
+        assertThat(templateResponse.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(templateResponse.getContentLength()).isEqualTo(templateResponse.getContentAsByteArray().length);
+        assertThat(parse(templateResponse)).isEqualTo(parse(plainResponse));
+    }
+
+    @Test
+    public void doFilter_with_templateRendering_test_ignored_for_custom_OptionsProvider() throws IOException, ServletException {
+        OptionsProvider optionsProvider = mock(OptionsProvider.class);
+        AttestationOptions attestationOptions = new AttestationOptions(null, null, null, null, null, Collections.emptyList(), null);
+        AssertionOptions assertionOptions = new AssertionOptions(new DefaultChallenge(), 60000L, "example.com", null, null, null);
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(new Options(attestationOptions, assertionOptions));
+        OptionsEndpointFilter optionsEndpointFilter = spy(new OptionsEndpointFilter(optionsProvider, objectConverter));
+        optionsEndpointFilter.setTemplateRendering(true);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRequestURI(OptionsEndpointFilter.FILTER_URL);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        optionsEndpointFilter.doFilter(request, response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(optionsEndpointFilter).writeResponse(any(), any());
+    }
+
+    @Test
+    public void getTemplate_recompiles_on_settings_change_test() {
+        OptionsProvider optionsProvider = mock(OptionsProvider.class);
+        when(optionsProvider.getRpId()).thenReturn("example.com");
+        when(optionsProvider.getPubKeyCredParams()).thenReturn(Collections.emptyList());
+        OptionsEndpointFilter optionsEndpointFilter = new OptionsEndpointFilter(optionsProvider, objectConverter);
+        OptionsResponse optionsResponse = new OptionsResponse(null, null, new DefaultChallenge(), null, null, null, Collections.emptyList(), null, null, null);
+
+        JsonObjectTemplate<OptionsResponse> template = optionsEndpointFilter.getTemplate(optionsResponse);
+        assertThat(optionsEndpointFilter.getTemplate(optionsResponse)).isSameAs(template);
+        when(optionsProvider.getRegistrationTimeout()).thenReturn(30000L);
+        assertThat(optionsEndpointFilter.getTemplate(optionsResponse)).isNotSameAs(template);
+    }
+
     @Test
     public void doFilter_with_error_test() throws IOException, ServletException {
         OptionsProvider optionsProvider = mock(OptionsProvider.class);
-        doThrow(new RuntimeException()).when(optionsProvider).getAttestationOptions(any(), any(), any());
+        doThrow(new RuntimeException()).when(optionsProvider).getOptions(any(), any(), any());
         OptionsEndpointFilter optionsEndpointFilter = new OptionsEndpointFilter(optionsProvider, objectConverter);
         AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
         optionsEndpointFilter.setTrustResolver(trustResolver);
@@ -111,7 +190,13 @@ public class OptionsEndpointFilterTest {
         MockHttpServletResponse response = new MockHttpServletResponse();
         InsufficientAuthenticationException exception = new InsufficientAuthenticationException(null);
         optionsEndpointFilter.writeErrorResponse(response, exception);
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.FORBIDDEN.value());
         assertThat(response.getContentAsString()).isEqualTo("{\"errorMessage\":\"Anonymous access is prohibited\"}");
+        assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length);
+    }
+
+    private JsonNode parse(MockHttpServletResponse response) {
+        return objectConverter.getJsonConverter().readValue(new ByteArrayInputStream(response.getContentAsByteArray()), JsonNode.class);
     }
 
 }
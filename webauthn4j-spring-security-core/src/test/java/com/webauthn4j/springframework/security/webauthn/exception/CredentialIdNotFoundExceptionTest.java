@@ -18,6 +18,7 @@ package com.webauthn4j.springframework.security.webauthn.exception;
 
 import org.junit.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 
 @SuppressWarnings("ThrowableNotThrown")
@@ -30,6 +31,14 @@ public class CredentialIdNotFoundExceptionTest {
         assertThatCode(() -> {
             new CredentialIdNotFoundException("dummy", cause);
             new CredentialIdNotFoundException("dummy");
+            new CredentialIdNotFoundException("dummy", null, false);
         }).doesNotThrowAnyException();
     }
+
+    @Test
+    public void writableStackTrace_test() {
+        assertThat(new CredentialIdNotFoundException("dummy").getStackTrace()).isNotEmpty();
+        assertThat(new CredentialIdNotFoundException("dummy", cause, true).getStackTrace()).isNotEmpty();
+        assertThat(new CredentialIdNotFoundException("dummy", cause, false).getStackTrace()).isEmpty();
+    }
 }
@@ -18,6 +18,7 @@ package com.webauthn4j.springframework.security.webauthn.exception;
 
 import org.junit.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 
 @SuppressWarnings("ThrowableNotThrown")
@@ -31,6 +32,14 @@ public class TrustAnchorNotFoundExceptionTest {
         assertThatCode(() -> {
             new TrustAnchorNotFoundException("dummy", cause);
             new TrustAnchorNotFoundException("dummy");
+            new TrustAnchorNotFoundException("dummy", null, false);
         }).doesNotThrowAnyException();
     }
+
+    @Test
+    public void writableStackTrace_test() {
+        assertThat(new TrustAnchorNotFoundException("dummy").getStackTrace()).isNotEmpty();
+        assertThat(new TrustAnchorNotFoundException("dummy", cause, true).getStackTrace()).isNotEmpty();
+        assertThat(new TrustAnchorNotFoundException("dummy", cause, false).getStackTrace()).isEmpty();
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.metrics;
+
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.mockito.Mockito.*;
+
+public class CompositeWebAuthnInstrumentationTest {
+
+    private final WebAuthnInstrumentation first = mock(WebAuthnInstrumentation.class);
+    private final WebAuthnInstrumentation second = mock(WebAuthnInstrumentation.class);
+    private final WebAuthnInstrumentation.Sample firstSample = mock(WebAuthnInstrumentation.Sample.class);
+    private final WebAuthnInstrumentation.Sample secondSample = mock(WebAuthnInstrumentation.Sample.class);
+    private final CompositeWebAuthnInstrumentation target = new CompositeWebAuthnInstrumentation(Arrays.asList(first, second));
+
+    @Test
+    public void success_test() {
+        when(first.start(WebAuthnStage.REGISTRATION_VALIDATION)).thenReturn(firstSample);
+        when(second.start(WebAuthnStage.REGISTRATION_VALIDATION)).thenReturn(secondSample);
+        byte[] credentialId = new byte[]{0x01};
+
+        WebAuthnInstrumentation.Sample sample = target.start(WebAuthnStage.REGISTRATION_VALIDATION);
+        sample.setCredentialId(credentialId);
+        sample.setAttestationFormat("packed");
+        sample.setAaguid(AAGUID.ZERO);
+        sample.success();
+
+        for (WebAuthnInstrumentation.Sample delegate : Arrays.asList(firstSample, secondSample)) {
+            verify(delegate).setCredentialId(credentialId);
+            verify(delegate).setAttestationFormat("packed");
+            verify(delegate).setAaguid(AAGUID.ZERO);
+            verify(delegate).success();
+        }
+    }
+
+    @Test
+    public void failure_test() {
+        when(first.start(WebAuthnStage.RESPONSE_WRITE)).thenReturn(firstSample);
+        when(second.start(WebAuthnStage.RESPONSE_WRITE)).thenReturn(secondSample);
+        RuntimeException exception = new IllegalStateException("dummy");
+
+        target.start(WebAuthnStage.RESPONSE_WRITE).failure(exception);
+
+        verify(firstSample).failure(exception);
+        verify(secondSample).failure(exception);
+        verify(firstSample, never()).success();
+    }
+}
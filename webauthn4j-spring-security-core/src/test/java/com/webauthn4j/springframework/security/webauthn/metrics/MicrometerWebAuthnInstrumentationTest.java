@@ -0,0 +1,110 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.metrics;
+
+import com.webauthn4j.springframework.security.webauthn.exception.BadChallengeException;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.simple.SimpleConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MicrometerWebAuthnInstrumentationTest {
+
+    private final MockClock clock = new MockClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry(SimpleConfig.DEFAULT, clock);
+    private final MicrometerWebAuthnInstrumentation target = new MicrometerWebAuthnInstrumentation(meterRegistry);
+
+    @Test
+    public void success_test() {
+        WebAuthnInstrumentation.Sample sample = target.start(WebAuthnStage.AUTHENTICATION_VALIDATION);
+        clock.add(5, TimeUnit.MILLISECONDS);
+        sample.success();
+
+        Timer timer = meterRegistry.get(MicrometerWebAuthnInstrumentation.METRIC_NAME)
+                .tag("operation", "authentication")
+                .tag("stage", "validation")
+                .tag("outcome", "success")
+                .tag("exception", "none")
+                .timer();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(timer.totalTime(TimeUnit.MILLISECONDS)).isEqualTo(5);
+    }
+
+    @Test
+    public void failure_test() {
+        target.start(WebAuthnStage.REGISTRATION_SERVER_PROPERTY).failure(new BadChallengeException("dummy"));
+        target.start(WebAuthnStage.REGISTRATION_SERVER_PROPERTY).failure(new BadChallengeException("dummy"));
+        target.start(WebAuthnStage.REGISTRATION_SERVER_PROPERTY).failure(new IllegalStateException("dummy"));
+
+        assertThat(meterRegistry.get(MicrometerWebAuthnInstrumentation.METRIC_NAME)
+                .tag("stage", "server-property")
+                .tag("outcome", "failure")
+                .tag("exception", "BadChallengeException")
+                .timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get(MicrometerWebAuthnInstrumentation.METRIC_NAME)
+                .tag("exception", "IllegalStateException")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void failure_with_anonymous_exception_class_test() {
+        target.start(WebAuthnStage.RESPONSE_WRITE).failure(new RuntimeException() {
+        });
+
+        assertThat(meterRegistry.get(MicrometerWebAuthnInstrumentation.METRIC_NAME)
+                .tag("operation", "endpoint")
+                .tag("stage", "response-write")
+                .timer().getId().getTag("exception"))
+                .startsWith(MicrometerWebAuthnInstrumentationTest.class.getName());
+    }
+
+    @Test
+    public void percentile_histogram_test() {
+        Map<String, Boolean> publishingHistogram = new HashMap<>();
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                publishingHistogram.put(id.getTag("stage"), config.isPublishingHistogram());
+                return config;
+            }
+        });
+
+        target.start(WebAuthnStage.AUTHENTICATION_USER_LOOKUP).success();
+        target.setPublishPercentileHistogram(false);
+        target.start(WebAuthnStage.AUTHENTICATION_COUNTER_UPDATE).success();
+
+        assertThat(target.isPublishPercentileHistogram()).isFalse();
+        assertThat(publishingHistogram).containsEntry("user-lookup", true).containsEntry("counter-update", false);
+    }
+
+    @Test
+    public void noop_test() {
+        assertThat(WebAuthnInstrumentation.NOOP.start(WebAuthnStage.AUTHENTICATION_VALIDATION))
+                .isSameAs(WebAuthnInstrumentation.Sample.NOOP);
+    }
+}
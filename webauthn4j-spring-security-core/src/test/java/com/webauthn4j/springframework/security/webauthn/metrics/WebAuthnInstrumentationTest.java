@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.metrics;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class WebAuthnInstrumentationTest {
+
+    private final WebAuthnInstrumentation.Sample sample = mock(WebAuthnInstrumentation.Sample.class);
+    private final WebAuthnInstrumentation target = stage -> sample;
+
+    @Test
+    public void time_test() {
+        assertThat(target.time(WebAuthnStage.REGISTRATION_VALIDATION, () -> "value")).isEqualTo("value");
+
+        verify(sample).success();
+        verify(sample, never()).failure(any());
+    }
+
+    @Test
+    public void time_test_with_exception() {
+        RuntimeException exception = new IllegalStateException("dummy");
+
+        assertThatThrownBy(() -> target.time(WebAuthnStage.REGISTRATION_VALIDATION, () -> {
+            throw exception;
+        })).isSameAs(exception);
+
+        verify(sample).failure(exception);
+        verify(sample, never()).success();
+    }
+
+    @Test
+    public void run_test() {
+        Runnable runnable = mock(Runnable.class);
+
+        target.run(WebAuthnStage.AUTHENTICATION_COUNTER_UPDATE, runnable);
+
+        verify(runnable).run();
+        verify(sample).success();
+    }
+
+    @Test
+    public void runIO_test() throws IOException {
+        WebAuthnInstrumentation.IORunnable runnable = mock(WebAuthnInstrumentation.IORunnable.class);
+
+        target.runIO(WebAuthnStage.RESPONSE_WRITE, runnable);
+
+        verify(runnable).run();
+        verify(sample).success();
+    }
+
+    @Test
+    public void runIO_test_with_IOException() {
+        IOException exception = new IOException("dummy");
+
+        assertThatThrownBy(() -> target.runIO(WebAuthnStage.RESPONSE_WRITE, () -> {
+            throw exception;
+        })).isSameAs(exception);
+
+        verify(sample).failure(exception);
+        verify(sample, never()).success();
+    }
+
+    @Test
+    public void observe_test() {
+        byte[] credentialId = new byte[]{0x01};
+
+        target.observe(WebAuthnStage.AUTHENTICATION_USER_LOOKUP, observed -> {
+            observed.setCredentialId(credentialId);
+            return null;
+        });
+
+        verify(sample).setCredentialId(credentialId);
+        verify(sample).success();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.options;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class EncodedUserCacheTest {
+
+    private final AtomicInteger loadCount = new AtomicInteger();
+    private final Function<String, EncodedUserCache.EncodedUser> loader = username -> {
+        loadCount.incrementAndGet();
+        return username.equals("unknown") ? null : new EncodedUserCache.EncodedUser("userHandle", Collections.singletonList("credentialId"));
+    };
+
+    @Test
+    public void get_returns_cached_entry_test() {
+        EncodedUserCache cache = new EncodedUserCache(10);
+
+        EncodedUserCache.EncodedUser encodedUser = cache.get("john", loader);
+        assertThat(cache.get("john", loader)).isSameAs(encodedUser);
+        assertThat(loadCount).hasValue(1);
+        assertThat(encodedUser.getCredentials()).containsExactly("credentialId");
+    }
+
+    @Test
+    public void get_does_not_cache_unknown_user_test() {
+        EncodedUserCache cache = new EncodedUserCache(10);
+        assertThat(cache.get("unknown", loader)).isNull();
+        assertThat(cache.get("unknown", loader)).isNull();
+        assertThat(loadCount).hasValue(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void get_evicts_least_recently_used_entry_test() {
+        EncodedUserCache cache = new EncodedUserCache(2);
+        cache.get("user1", loader);
+        cache.get("user2", loader);
+        cache.get("user1", loader);
+        cache.get("user3", loader);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(loadCount).hasValue(3);
+
+        cache.get("user1", loader);
+        assertThat(loadCount).hasValue(3);
+        cache.get("user2", loader);
+        assertThat(loadCount).hasValue(4);
+    }
+
+    @Test
+    public void invalidate_test() {
+        EncodedUserCache cache = new EncodedUserCache(10);
+        cache.get("john", loader);
+        cache.invalidate("john");
+        assertThat(cache.size()).isZero();
+        cache.get("john", loader);
+        assertThat(loadCount).hasValue(2);
+    }
+
+    @Test
+    public void get_does_not_cache_user_invalidated_while_loading_test() {
+        EncodedUserCache cache = new EncodedUserCache(10);
+        cache.get("john", username -> {
+            cache.invalidate(username);
+            return loader.apply(username);
+        });
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void constructor_with_invalid_maximumSize_test() {
+        assertThatThrownBy(() -> new EncodedUserCache(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -31,6 +31,7 @@ import org.springframework.mock.web.MockHttpServletRequest;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -49,7 +50,7 @@ public class OptionsProviderImplTest {
 
         MockHttpServletRequest mockRequest = new MockHttpServletRequest();
 
-        when(userDetailsService.loadUserByUsername(any())).thenReturn(userDetails);
+        when(userDetailsService.findUserByUsername(any())).thenReturn(Optional.of(userDetails));
         doReturn(new byte[0]).when(userDetails).getUserHandle();
         doReturn(authenticators).when(userDetails).getAuthenticators();
         when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
@@ -81,7 +82,7 @@ public class OptionsProviderImplTest {
 
         MockHttpServletRequest mockRequest = new MockHttpServletRequest();
 
-        when(userDetailsService.loadUserByUsername(any())).thenReturn(userDetails);
+        when(userDetailsService.findUserByUsername(any())).thenReturn(Optional.of(userDetails));
         doReturn(new byte[0]).when(userDetails).getUserHandle();
         doReturn(authenticators).when(userDetails).getAuthenticators();
         when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
@@ -112,7 +113,7 @@ public class OptionsProviderImplTest {
 
         MockHttpServletRequest mockRequest = new MockHttpServletRequest();
 
-        when(userDetailsService.loadUserByUsername(any())).thenReturn(userDetails);
+        when(userDetailsService.findUserByUsername(any())).thenReturn(Optional.of(userDetails));
         doReturn(new byte[0]).when(userDetails).getUserHandle();
         doReturn(authenticators).when(userDetails).getAuthenticators();
         when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
@@ -128,6 +129,113 @@ public class OptionsProviderImplTest {
 
     }
 
+    @Test
+    public void getAssertionOptions_with_unknown_user_test() {
+        Challenge challenge = new DefaultChallenge();
+        WebAuthnUserDetailsService userDetailsService = mock(WebAuthnUserDetailsService.class);
+        ChallengeRepository challengeRepository = mock(ChallengeRepository.class);
+
+        when(userDetailsService.findUserByUsername("unknown")).thenReturn(Optional.empty());
+
+        OptionsProvider optionsProvider = new OptionsProviderImpl(userDetailsService, challengeRepository);
+        optionsProvider.setRpId("example.com");
+
+        AssertionOptions assertionOptions = optionsProvider.getAssertionOptions(new MockHttpServletRequest(), "unknown", challenge);
+        assertThat(assertionOptions.getCredentials()).isEmpty();
+        verify(userDetailsService, never()).loadUserByUsername(any());
+    }
+
+    @Test
+    public void getOptions_test() {
+        Challenge challenge = new DefaultChallenge();
+        byte[] credentialId = new byte[]{0x01, 0x23, 0x45};
+        WebAuthnUserDetailsService userDetailsService = mock(WebAuthnUserDetailsService.class);
+        WebAuthnUserDetails userDetails = mock(WebAuthnUserDetails.class);
+        Authenticator authenticator = mock(Authenticator.class, RETURNS_DEEP_STUBS);
+        List<Authenticator> authenticators = Collections.singletonList(authenticator);
+        ChallengeRepository challengeRepository = mock(ChallengeRepository.class);
+
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+
+        when(userDetailsService.findUserByUsername(any())).thenReturn(Optional.of(userDetails));
+        doReturn(new byte[0]).when(userDetails).getUserHandle();
+        doReturn(authenticators).when(userDetails).getAuthenticators();
+        when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
+        when(challengeRepository.loadOrGenerateChallenge(mockRequest)).thenReturn(challenge);
+
+        OptionsProvider optionsProvider = new OptionsProviderImpl(userDetailsService, challengeRepository);
+        optionsProvider.setRpId("example.com");
+        optionsProvider.setRpName("rpName");
+
+        Options options = optionsProvider.getOptions(mockRequest, "dummy", null);
+        assertThat(options.getAttestationOptions()).isEqualTo(optionsProvider.getAttestationOptions(mockRequest, "dummy", null));
+        assertThat(options.getAssertionOptions()).isEqualTo(optionsProvider.getAssertionOptions(mockRequest, "dummy", null));
+        assertThat(options.getAttestationOptions().getUser().getUsername()).isEqualTo("dummy");
+        assertThat(options.getAssertionOptions().getRpId()).isEqualTo("example.com");
+        assertThat(options.getAssertionOptions().getChallenge()).isEqualTo(challenge);
+        assertThat(options.getAssertionOptions().getCredentials()).containsExactly(Base64UrlUtil.encodeToString(credentialId));
+
+        // getOptions looks up the user and the challenge once, and the two other calls once each
+        verify(userDetailsService, times(3)).findUserByUsername("dummy");
+        verify(challengeRepository, times(3)).loadOrGenerateChallenge(mockRequest);
+    }
+
+    @Test
+    public void getOptions_with_unknown_user_test() {
+        Challenge challenge = new DefaultChallenge();
+        WebAuthnUserDetailsService userDetailsService = mock(WebAuthnUserDetailsService.class);
+        ChallengeRepository challengeRepository = mock(ChallengeRepository.class);
+
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+        when(userDetailsService.findUserByUsername("unknown")).thenReturn(Optional.empty());
+
+        OptionsProvider optionsProvider = new OptionsProviderImpl(userDetailsService, challengeRepository);
+        optionsProvider.setRpId("example.com");
+
+        Options options = optionsProvider.getOptions(mockRequest, "unknown", challenge);
+        assertThat(options.getAttestationOptions().getUser()).isNull();
+        assertThat(options.getAttestationOptions().getCredentials()).isEmpty();
+        assertThat(options.getAssertionOptions().getCredentials()).isEmpty();
+        assertThat(options.getAssertionOptions().getChallenge()).isEqualTo(challenge);
+        verify(userDetailsService, times(1)).findUserByUsername("unknown");
+        verify(challengeRepository, times(1)).saveChallenge(challenge, mockRequest);
+    }
+
+    @Test
+    public void getOptions_with_encodedUserCache_test() {
+        byte[] credentialId = new byte[]{0x01, 0x23, 0x45};
+        WebAuthnUserDetailsService userDetailsService = mock(WebAuthnUserDetailsService.class);
+        WebAuthnUserDetails userDetails = mock(WebAuthnUserDetails.class);
+        Authenticator authenticator = mock(Authenticator.class, RETURNS_DEEP_STUBS);
+        List<Authenticator> authenticators = Collections.singletonList(authenticator);
+        ChallengeRepository challengeRepository = mock(ChallengeRepository.class);
+
+        MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+
+        when(userDetailsService.findUserByUsername(any())).thenReturn(Optional.of(userDetails));
+        doReturn(new byte[]{0x01}).when(userDetails).getUserHandle();
+        doReturn(authenticators).when(userDetails).getAuthenticators();
+        when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
+
+        OptionsProviderImpl optionsProvider = new OptionsProviderImpl(userDetailsService, challengeRepository);
+        optionsProvider.setRpId("example.com");
+        EncodedUserCache encodedUserCache = new EncodedUserCache(100);
+        optionsProvider.setEncodedUserCache(encodedUserCache);
+        assertThat(optionsProvider.getEncodedUserCache()).isSameAs(encodedUserCache);
+
+        Options first = optionsProvider.getOptions(mockRequest, "dummy", null);
+        Options second = optionsProvider.getOptions(mockRequest, "dummy", null);
+        assertThat(second.getAttestationOptions().getCredentials()).containsExactly(Base64UrlUtil.encodeToString(credentialId));
+        assertThat(second.getAttestationOptions().getUser()).isEqualTo(first.getAttestationOptions().getUser());
+        verify(userDetailsService, times(1)).findUserByUsername("dummy");
+        verify(authenticator.getAttestedCredentialData(), times(1)).getCredentialId();
+
+        encodedUserCache.invalidate("dummy");
+        optionsProvider.getOptions(mockRequest, "dummy", null);
+        verify(userDetailsService, times(2)).findUserByUsername("dummy");
+        verify(authenticator.getAttestedCredentialData(), times(2)).getCredentialId();
+    }
+
     @Test
     public void getEffectiveRpId() {
         WebAuthnUserDetailsService userDetailsService = mock(WebAuthnUserDetailsService.class);
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.options;
+
+import com.webauthn4j.data.PublicKeyCredentialRpEntity;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionClientInput;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test for the default methods of OptionsProvider
+ */
+public class OptionsProviderTest {
+
+    @Test
+    public void getOptions_test_builds_assertion_options_from_attestation_options() {
+        Challenge challenge = new DefaultChallenge();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> authenticationExtensions = new AuthenticationExtensionsClientInputs<>();
+        AttestationOptions attestationOptions = new AttestationOptions(new PublicKeyCredentialRpEntity("example.com", "rpName"), null,
+                challenge, Collections.emptyList(), 1000L, Collections.singletonList("credentialId"), null);
+        OptionsProvider target = mock(OptionsProvider.class, CALLS_REAL_METHODS);
+        doReturn(attestationOptions).when(target).getAttestationOptions(request, "john", null);
+        doReturn("example.com").when(target).getEffectiveRpId(request);
+        doReturn(2000L).when(target).getAuthenticationTimeout();
+        doReturn(authenticationExtensions).when(target).getAuthenticationExtensions();
+        doReturn("username").when(target).getUsernameParameter();
+
+        Options options = target.getOptions(request, "john", null);
+
+        assertThat(options.getAttestationOptions()).isSameAs(attestationOptions);
+        AssertionOptions assertionOptions = options.getAssertionOptions();
+        assertThat(assertionOptions.getChallenge()).isEqualTo(challenge);
+        assertThat(assertionOptions.getRpId()).isEqualTo("example.com");
+        assertThat(assertionOptions.getCredentials()).containsExactly("credentialId");
+        assertThat(assertionOptions.getAuthenticationTimeout()).isEqualTo(2000L);
+        assertThat(assertionOptions.getAuthenticationExtensions()).isSameAs(authenticationExtensions);
+        assertThat(assertionOptions.getParameters().getUsername()).isEqualTo("username");
+        verify(target, never()).getAssertionOptions(any(), any(), any());
+    }
+}
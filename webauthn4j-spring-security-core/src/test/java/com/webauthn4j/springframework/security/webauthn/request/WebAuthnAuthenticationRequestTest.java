@@ -65,6 +65,7 @@ public class WebAuthnAuthenticationRequestTest {
         assertThat(request.isUserVerificationRequired()).isEqualTo(true);
         assertThat(request.isUserPresenceRequired()).isEqualTo(true);
         assertThat(request.getExpectedAuthenticationExtensionIds()).isEqualTo(Collections.singletonList("uvi"));
+        assertThat(request.getCollectedClientData()).isNull();
     }
 
     @Test
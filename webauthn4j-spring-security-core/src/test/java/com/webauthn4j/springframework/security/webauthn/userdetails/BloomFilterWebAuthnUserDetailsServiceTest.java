@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.userdetails;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.authenticator.AuthenticatorImpl;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test for BloomFilterWebAuthnUserDetailsService
+ */
+public class BloomFilterWebAuthnUserDetailsServiceTest {
+
+    private static final byte[] CREDENTIAL_ID = new byte[]{0x01, 0x23, 0x45};
+    private static final byte[] UNKNOWN_CREDENTIAL_ID = new byte[]{0x67, (byte) 0x89};
+
+    private final WebAuthnUserDetailsService userDetailsService = mock(WebAuthnUserDetailsService.class);
+    private final List<byte[]> storedCredentialIds = new ArrayList<>(Collections.singletonList(CREDENTIAL_ID));
+    private final BloomFilterWebAuthnUserDetailsService target = new BloomFilterWebAuthnUserDetailsService(userDetailsService, () -> storedCredentialIds.stream());
+
+    private final WebAuthnUserDetails user = mock(WebAuthnUserDetails.class);
+
+    @Test
+    public void findAuthenticationContextByCredentialId_test_rejects_unknown_credentialId() {
+        target.afterPropertiesSet();
+
+        assertThat(target.findAuthenticationContextByCredentialId(UNKNOWN_CREDENTIAL_ID)).isEmpty();
+        assertThat(target.findUserByCredentialId(UNKNOWN_CREDENTIAL_ID)).isEmpty();
+        assertThatThrownBy(() -> target.loadUserByCredentialId(UNKNOWN_CREDENTIAL_ID)).isInstanceOf(CredentialIdNotFoundException.class);
+        assertThatThrownBy(() -> target.loadAuthenticationContextByCredentialId(UNKNOWN_CREDENTIAL_ID)).isInstanceOf(CredentialIdNotFoundException.class);
+
+        verifyNoInteractions(userDetailsService);
+        assertThat(target.getRejectedCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void findUserByCredentialId_test_passes_known_credentialId() {
+        when(userDetailsService.findUserByCredentialId(CREDENTIAL_ID)).thenReturn(Optional.of(user));
+        target.afterPropertiesSet();
+
+        assertThat(target.findUserByCredentialId(CREDENTIAL_ID)).containsSame(user);
+        assertThat(target.getRejectedCount()).isZero();
+    }
+
+    @Test
+    public void findUserByCredentialId_test_passes_all_before_built() {
+        when(userDetailsService.findUserByCredentialId(UNKNOWN_CREDENTIAL_ID)).thenReturn(Optional.empty());
+
+        assertThat(target.findUserByCredentialId(UNKNOWN_CREDENTIAL_ID)).isEmpty();
+        verify(userDetailsService).findUserByCredentialId(UNKNOWN_CREDENTIAL_ID);
+    }
+
+    @Test
+    public void addAuthenticator_test_adds_credentialId() {
+        byte[] credentialId = new byte[]{0x0A, 0x0B};
+        Authenticator authenticator = new AuthenticatorImpl(new AttestedCredentialData(AAGUID.ZERO, credentialId, null), null, 0);
+        when(userDetailsService.findUserByCredentialId(credentialId)).thenReturn(Optional.of(user));
+        target.afterPropertiesSet();
+
+        target.addAuthenticator("john", authenticator);
+
+        verify(userDetailsService).addAuthenticator("john", authenticator);
+        assertThat(target.findUserByCredentialId(credentialId)).containsSame(user);
+    }
+
+    @Test
+    public void tryAddAuthenticator_test_adds_credentialId() {
+        byte[] credentialId = new byte[]{0x0A, 0x0B};
+        Authenticator authenticator = new AuthenticatorImpl(new AttestedCredentialData(AAGUID.ZERO, credentialId, null), null, 0);
+        when(userDetailsService.tryAddAuthenticator("john", authenticator)).thenReturn(true);
+        when(userDetailsService.findUserByCredentialId(credentialId)).thenReturn(Optional.of(user));
+        target.afterPropertiesSet();
+
+        assertThat(target.tryAddAuthenticator("john", authenticator)).isTrue();
+
+        verify(userDetailsService).tryAddAuthenticator("john", authenticator);
+        assertThat(target.findUserByCredentialId(credentialId)).containsSame(user);
+    }
+
+    @Test
+    public void rebuild_test_drops_removed_credentialIds() {
+        target.afterPropertiesSet();
+        target.removeAuthenticator("john", CREDENTIAL_ID);
+        storedCredentialIds.clear();
+
+        target.rebuild();
+
+        verify(userDetailsService).removeAuthenticator("john", CREDENTIAL_ID);
+        assertThat(target.findUserByCredentialId(CREDENTIAL_ID)).isEmpty();
+        verify(userDetailsService, never()).findUserByCredentialId(any());
+    }
+
+    @Test
+    public void scheduled_rebuild_test_picks_up_credentialId_stored_on_another_node() throws InterruptedException {
+        List<byte[]> sharedCredentialIds = new CopyOnWriteArrayList<>(Collections.singletonList(CREDENTIAL_ID));
+        BloomFilterWebAuthnUserDetailsService scheduled = new BloomFilterWebAuthnUserDetailsService(userDetailsService, sharedCredentialIds::stream);
+        scheduled.setRebuildInterval(10);
+        scheduled.afterPropertiesSet();
+        try {
+            assertThat(scheduled.findUserByCredentialId(UNKNOWN_CREDENTIAL_ID)).isEmpty();
+            when(userDetailsService.findUserByCredentialId(UNKNOWN_CREDENTIAL_ID)).thenReturn(Optional.of(user));
+
+            sharedCredentialIds.add(UNKNOWN_CREDENTIAL_ID);
+
+            await(() -> scheduled.findUserByCredentialId(UNKNOWN_CREDENTIAL_ID).isPresent());
+        } finally {
+            scheduled.destroy();
+        }
+    }
+
+    @Test
+    public void statistics_test() {
+        assertThat(target.getMemoryFootprint()).isZero();
+        target.afterPropertiesSet();
+
+        assertThat(target.getMemoryFootprint()).isGreaterThan(0);
+        assertThat(target.getExpectedFalsePositiveRate()).isBetween(0.0, target.getFalsePositiveRate());
+    }
+
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000L;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
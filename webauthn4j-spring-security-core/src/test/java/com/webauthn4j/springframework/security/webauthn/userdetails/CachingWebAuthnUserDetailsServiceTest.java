@@ -0,0 +1,260 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.userdetails;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.authenticator.AuthenticatorImpl;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.springframework.security.webauthn.authenticator.PublicKeyCache;
+import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticatorService;
+import com.webauthn4j.springframework.security.webauthn.options.EncodedUserCache;
+import org.junit.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test for CachingWebAuthnUserDetailsService
+ */
+public class CachingWebAuthnUserDetailsServiceTest {
+
+    private static final byte[] CREDENTIAL_ID = new byte[]{0x01, 0x23, 0x45};
+
+    private final WebAuthnUserDetailsService userDetailsService = mock(WebAuthnUserDetailsService.class);
+    private final WebAuthnAuthenticatorService authenticatorService = mock(WebAuthnAuthenticatorService.class);
+    private final CachingWebAuthnUserDetailsService target = new CachingWebAuthnUserDetailsService(userDetailsService, authenticatorService);
+
+    private final Authenticator authenticator = new AuthenticatorImpl(new AttestedCredentialData(AAGUID.ZERO, CREDENTIAL_ID, null), null, 0);
+    private final WebAuthnUserDetails user = new WebAuthnUserDetailsImpl(new byte[0], "john", "password",
+            Collections.singletonList(authenticator), Collections.emptyList());
+
+    @Test
+    public void loadUserByUsername_test_serves_both_indexes_from_cache() {
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(user);
+
+        assertThat(target.loadUserByUsername("john")).isEqualTo(user);
+        assertThat(target.loadUserByUsername("john")).isEqualTo(user);
+        assertThat(target.loadUserByCredentialId(new byte[]{0x01, 0x23, 0x45})).isEqualTo(user);
+
+        verify(userDetailsService, times(1)).loadUserByUsername("john");
+        verify(userDetailsService, never()).loadUserByCredentialId(any());
+        assertThat(target.getHitCount()).isEqualTo(2);
+        assertThat(target.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadUserByCredentialId_test_serves_username_index_from_cache() {
+        when(userDetailsService.loadUserByCredentialId(CREDENTIAL_ID)).thenReturn(user);
+
+        assertThat(target.loadUserByCredentialId(CREDENTIAL_ID)).isEqualTo(user);
+        assertThat(target.loadUserByUsername("john")).isEqualTo(user);
+
+        verify(userDetailsService, never()).loadUserByUsername(any());
+    }
+
+    @Test
+    public void loadAuthenticationContextByCredentialId_test_serves_from_cache() {
+        when(userDetailsService.loadUserByCredentialId(CREDENTIAL_ID)).thenReturn(user);
+
+        WebAuthnAuthenticationContext first = target.loadAuthenticationContextByCredentialId(CREDENTIAL_ID);
+        WebAuthnAuthenticationContext second = target.loadAuthenticationContextByCredentialId(CREDENTIAL_ID);
+
+        assertThat(first.getUser()).isEqualTo(user);
+        assertThat(first.getAuthenticator()).isEqualTo(authenticator);
+        assertThat(second.getAuthenticator()).isEqualTo(authenticator);
+        verify(userDetailsService, times(1)).loadUserByCredentialId(CREDENTIAL_ID);
+        assertThat(target.getHitCount()).isEqualTo(1);
+        assertThat(target.getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadUserByUsername_test_returns_copies() {
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(user);
+
+        WebAuthnUserDetails first = target.loadUserByUsername("john");
+        first.getAuthenticators().iterator().next().setCounter(42);
+        ((WebAuthnUserDetailsImpl) first).eraseCredentials();
+        WebAuthnUserDetails second = target.loadUserByUsername("john");
+
+        assertThat(second).isNotSameAs(first).isNotSameAs(user);
+        assertThat(second.getPassword()).isEqualTo("password");
+        assertThat(second.getAuthenticators().iterator().next().getCounter()).isZero();
+        assertThat(authenticator.getCounter()).isZero();
+    }
+
+    @Test
+    public void findUserByUsername_test_serves_from_cache() {
+        when(userDetailsService.findUserByUsername("john")).thenReturn(Optional.of(user));
+        when(userDetailsService.findUserByUsername("unknown")).thenReturn(Optional.empty());
+
+        assertThat(target.findUserByUsername("john")).contains(user);
+        assertThat(target.findUserByUsername("john")).contains(user);
+        assertThat(target.findUserByUsername("unknown")).isEmpty();
+        assertThat(target.findAuthenticationContextByCredentialId(CREDENTIAL_ID).map(WebAuthnAuthenticationContext::getAuthenticator)).contains(authenticator);
+
+        verify(userDetailsService, times(1)).findUserByUsername("john");
+        verify(userDetailsService, never()).loadUserByUsername(any());
+        assertThat(target.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadUserByUsername_test_does_not_cache_not_found() {
+        when(userDetailsService.loadUserByUsername("unknown")).thenThrow(new UsernameNotFoundException("not found"));
+
+        assertThatThrownBy(() -> target.loadUserByUsername("unknown")).isInstanceOf(UsernameNotFoundException.class);
+        assertThat(target.size()).isZero();
+    }
+
+    @Test
+    public void loadUserByUsername_test_with_expired_entry() {
+        Instant now = Instant.parse("2019-01-01T00:00:00Z");
+        target.setClock(Clock.fixed(now, ZoneOffset.UTC));
+        target.setTimeToLive(1000L);
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(user);
+        target.loadUserByUsername("john");
+
+        target.setClock(Clock.offset(Clock.fixed(now, ZoneOffset.UTC), Duration.ofMillis(1000L)));
+        target.loadUserByUsername("john");
+
+        verify(userDetailsService, times(2)).loadUserByUsername("john");
+    }
+
+    @Test
+    public void loadUserByUsername_test_evicts_least_recently_used() {
+        WebAuthnUserDetails another = new WebAuthnUserDetailsImpl(new byte[0], "jane", "password",
+                Collections.emptyList(), Collections.emptyList());
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(user);
+        when(userDetailsService.loadUserByUsername("jane")).thenReturn(another);
+        when(userDetailsService.loadUserByCredentialId(CREDENTIAL_ID)).thenReturn(user);
+        target.setMaximumSize(1);
+
+        target.loadUserByUsername("john");
+        target.loadUserByUsername("jane");
+        target.loadUserByCredentialId(CREDENTIAL_ID);
+
+        assertThat(target.size()).isEqualTo(1);
+        verify(userDetailsService).loadUserByCredentialId(CREDENTIAL_ID);
+    }
+
+    @Test
+    public void addAuthenticator_test_invalidates_entry() {
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(user);
+        target.loadUserByUsername("john");
+
+        target.addAuthenticator("john", authenticator);
+        target.loadUserByUsername("john");
+
+        verify(userDetailsService).addAuthenticator("john", authenticator);
+        verify(userDetailsService, times(2)).loadUserByUsername("john");
+    }
+
+    @Test
+    public void tryAddAuthenticator_test_invalidates_entry() {
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(user);
+        when(userDetailsService.tryAddAuthenticator("john", authenticator)).thenReturn(true);
+        target.loadUserByUsername("john");
+
+        assertThat(target.tryAddAuthenticator("john", authenticator)).isTrue();
+        target.loadUserByUsername("john");
+
+        verify(userDetailsService).tryAddAuthenticator("john", authenticator);
+        verify(userDetailsService, times(2)).loadUserByUsername("john");
+    }
+
+    @Test
+    public void removeAuthenticator_test_invalidates_both_indexes() {
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(user);
+        when(userDetailsService.loadUserByCredentialId(CREDENTIAL_ID)).thenReturn(user);
+        target.loadUserByUsername("john");
+
+        target.removeAuthenticator("john", CREDENTIAL_ID);
+        target.loadUserByCredentialId(CREDENTIAL_ID);
+
+        verify(userDetailsService).removeAuthenticator("john", CREDENTIAL_ID);
+        verify(userDetailsService).loadUserByCredentialId(CREDENTIAL_ID);
+    }
+
+    @Test
+    public void removeAuthenticator_test_invalidates_publicKeyCache() {
+        PublicKeyCache publicKeyCache = mock(PublicKeyCache.class);
+        target.setPublicKeyCache(publicKeyCache);
+
+        target.removeAuthenticator("john", CREDENTIAL_ID);
+
+        verify(publicKeyCache).invalidate(CREDENTIAL_ID);
+    }
+
+    @Test
+    public void addAuthenticator_and_removeAuthenticator_test_invalidate_encodedUserCache() {
+        EncodedUserCache encodedUserCache = mock(EncodedUserCache.class);
+        target.setEncodedUserCache(encodedUserCache);
+
+        target.addAuthenticator("john", mock(Authenticator.class));
+        target.removeAuthenticator("john", CREDENTIAL_ID);
+
+        verify(encodedUserCache, times(2)).invalidate("john");
+    }
+
+    @Test
+    public void updateCounter_test_updates_cached_authenticator() {
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(user);
+        target.loadUserByUsername("john");
+
+        target.updateCounter(CREDENTIAL_ID, 42);
+
+        verify(authenticatorService).updateCounter(CREDENTIAL_ID, 42);
+        assertThat(target.loadUserByCredentialId(CREDENTIAL_ID).getAuthenticators().iterator().next().getCounter()).isEqualTo(42);
+        verify(userDetailsService, times(1)).loadUserByUsername("john");
+        assertThat(target.loadAuthenticationContextByCredentialId(CREDENTIAL_ID).getAuthenticator().getCounter()).isEqualTo(42);
+        assertThat(authenticator.getCounter()).isZero();
+    }
+
+    @Test
+    public void updateCounter_test_keeps_highest_counter() {
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(user);
+        target.loadUserByUsername("john");
+
+        target.updateCounter(CREDENTIAL_ID, 42);
+        target.updateCounter(CREDENTIAL_ID, 41);
+
+        assertThat(target.loadAuthenticationContextByCredentialId(CREDENTIAL_ID).getAuthenticator().getCounter()).isEqualTo(42);
+    }
+
+    @Test
+    public void loadUserByUsername_test_does_not_cache_not_copyable_user() {
+        WebAuthnUserDetailsImpl subclassed = new WebAuthnUserDetailsImpl(new byte[0], "john", "password",
+                Collections.singletonList(authenticator), Collections.emptyList()) {
+        };
+        when(userDetailsService.loadUserByUsername("john")).thenReturn(subclassed);
+
+        target.loadUserByUsername("john");
+        target.loadUserByUsername("john");
+
+        verify(userDetailsService, times(2)).loadUserByUsername("john");
+        assertThat(target.size()).isZero();
+    }
+}
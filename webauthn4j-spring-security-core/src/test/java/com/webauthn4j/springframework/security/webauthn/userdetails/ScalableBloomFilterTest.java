@@ -0,0 +1,79 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.userdetails;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ScalableBloomFilterTest {
+
+    @Test
+    public void mightContain_test_without_false_negatives() {
+        ScalableBloomFilter target = new ScalableBloomFilter(100, 0.01);
+        Random random = new Random(0);
+        byte[][] values = new byte[1000][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new byte[1 + random.nextInt(64)];
+            random.nextBytes(values[i]);
+            target.put(values[i]);
+        }
+
+        for (byte[] value : values) {
+            assertThat(target.mightContain(value)).isTrue();
+        }
+    }
+
+    @Test
+    public void put_test_grows_within_false_positive_rate() {
+        ScalableBloomFilter target = new ScalableBloomFilter(1000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            target.put(ByteBuffer.allocate(16).putInt(i).array());
+        }
+
+        int falsePositives = 0;
+        int lookups = 100_000;
+        for (int i = 0; i < lookups; i++) {
+            if (target.mightContain(ByteBuffer.allocate(16).putInt(0, -1 - i).array())) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(target.getStageCount()).isGreaterThan(1);
+        assertThat(target.getCount()).isBetween(19_800L, 20_000L);
+        assertThat(target.getExpectedFalsePositiveRate()).isLessThan(0.01);
+        assertThat((double) falsePositives / lookups).isLessThan(0.015);
+        assertThat(target.getMemoryFootprint()).isGreaterThan(0);
+    }
+
+    @Test
+    public void mightContain_test_with_empty_filter() {
+        ScalableBloomFilter target = new ScalableBloomFilter(10, 0.01);
+
+        assertThat(target.mightContain(new byte[0])).isFalse();
+        assertThat(target.getExpectedFalsePositiveRate()).isZero();
+    }
+
+    @Test
+    public void constructor_test_with_invalid_false_positive_rate() {
+        assertThatThrownBy(() -> new ScalableBloomFilter(10, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
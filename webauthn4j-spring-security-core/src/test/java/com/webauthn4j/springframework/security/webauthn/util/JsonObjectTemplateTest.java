@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.webauthn4j.converter.util.JsonConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JsonObjectTemplateTest {
+
+    private final JsonConverter jsonConverter = new ObjectConverter().getJsonConverter();
+
+    @Test
+    public void render_test() {
+        Map<String, Function<Value, ?>> dynamicProperties = new LinkedHashMap<>();
+        dynamicProperties.put("challenge", Value::getChallenge);
+        dynamicProperties.put("credentials", Value::getCredentials);
+        JsonObjectTemplate<Value> template = new JsonObjectTemplate<>(jsonConverter, new Value("example.com", "prototype", null), dynamicProperties);
+
+        Value value = new Value("example.com", "\"challenge\"", Collections.singletonList("credential"));
+        assertThat(parse(template.render(value))).isEqualTo(parse(jsonConverter.writeValueAsBytes(value)));
+    }
+
+    @Test
+    public void render_omits_null_dynamic_property_test() {
+        Map<String, Function<Value, ?>> dynamicProperties = new LinkedHashMap<>();
+        dynamicProperties.put("challenge", Value::getChallenge);
+        dynamicProperties.put("credentials", Value::getCredentials);
+        JsonObjectTemplate<Value> template = new JsonObjectTemplate<>(jsonConverter, new Value("example.com", "prototype", null), dynamicProperties);
+
+        assertThat(new String(template.render(new Value("example.com", "challenge", null)))).isEqualTo("{\"rpId\":\"example.com\",\"challenge\":\"challenge\"}");
+    }
+
+    @Test
+    public void render_without_static_property_test() {
+        Map<String, Function<Value, ?>> dynamicProperties = new LinkedHashMap<>();
+        dynamicProperties.put("rpId", Value::getRpId);
+        dynamicProperties.put("challenge", Value::getChallenge);
+        JsonObjectTemplate<Value> template = new JsonObjectTemplate<>(jsonConverter, new Value(null, null, null), dynamicProperties);
+
+        assertThat(new String(template.render(new Value(null, null, null)))).isEqualTo("{}");
+        assertThat(new String(template.render(new Value(null, "challenge", null)))).isEqualTo("{\"challenge\":\"challenge\"}");
+    }
+
+    @Test
+    public void isCompiledFor_test() {
+        String setting = "example.com";
+        JsonObjectTemplate<Value> template = new JsonObjectTemplate<>(jsonConverter, new Value(setting, null, null), Collections.emptyMap(), setting, null);
+
+        assertThat(template.isCompiledFor(setting, null)).isTrue();
+        assertThat(template.isCompiledFor(new String(setting), null)).isFalse();
+        assertThat(template.isCompiledFor(setting)).isFalse();
+    }
+
+    private JsonNode parse(byte[] bytes) {
+        return jsonConverter.readValue(new ByteArrayInputStream(bytes), JsonNode.class);
+    }
+
+    public static class Value {
+
+        private final String rpId;
+        private final String challenge;
+        private final List<String> credentials;
+
+        Value(String rpId, String challenge, List<String> credentials) {
+            this.rpId = rpId;
+            this.challenge = challenge;
+            this.credentials = credentials;
+        }
+
+        public String getRpId() {
+            return rpId;
+        }
+
+        public String getChallenge() {
+            return challenge;
+        }
+
+        public List<String> getCredentials() {
+            return credentials;
+        }
+    }
+}
@@ -19,7 +19,9 @@ package com.webauthn4j.springframework.security.fido.server.config.configurer;
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.springframework.security.fido.server.endpoint.*;
 import com.webauthn4j.springframework.security.webauthn.WebAuthnRegistrationRequestValidator;
+import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeGenerator;
 import com.webauthn4j.springframework.security.webauthn.config.configurers.WebAuthnConfigurerUtil;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
 import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProvider;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
@@ -35,6 +37,7 @@ import org.springframework.util.Assert;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends AbstractHttpConfigurer<FidoServerConfigurer<H>, H> {
 
@@ -47,6 +50,11 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
     // ================================================================================================
     private OptionsProvider optionsProvider;
     private ObjectConverter objectConverter;
+    private ChallengeGenerator challengeGenerator;
+    private WebAuthnInstrumentation instrumentation;
+    private ChallengeEnvelopeCodec challengeEnvelopeCodec;
+    private boolean singleDispatchingFilter = false;
+    private Executor asyncExecutor;
 
     public static FidoServerConfigurer<HttpSecurity> fidoServer() {
         return new FidoServerConfigurer<>();
@@ -63,10 +71,35 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
             objectConverter = WebAuthnConfigurerUtil.getObjectConverter(http);
         }
         http.setSharedObject(ObjectConverter.class, objectConverter);
+        if (challengeGenerator == null) {
+            challengeGenerator = WebAuthnConfigurerUtil.getChallengeGenerator(http);
+        }
+        http.setSharedObject(ChallengeGenerator.class, challengeGenerator);
+        if (instrumentation == null) {
+            instrumentation = WebAuthnConfigurerUtil.getInstrumentation(http);
+        }
 
-        fidoServerAttestationOptionsEndpointConfig.configure(http);
-        fidoServerAttestationResultEndpointConfig.configure(http);
-        fidoServerAssertionOptionsEndpointConfig.configure(http);
+        List<ServerEndpointFilterBase> endpointFilters = new ArrayList<>();
+        endpointFilters.add(fidoServerAttestationOptionsEndpointConfig.configure(http));
+        endpointFilters.add(fidoServerAttestationResultEndpointConfig.configure(http));
+        endpointFilters.add(fidoServerAssertionOptionsEndpointConfig.configure(http));
+        if (singleDispatchingFilter) {
+            FidoServerEndpointDispatchingFilter dispatchingFilter = new FidoServerEndpointDispatchingFilter(endpointFilters);
+            http.setSharedObject(FidoServerEndpointDispatchingFilter.class, dispatchingFilter);
+            if (asyncExecutor == null) {
+                http.addFilterAfter(dispatchingFilter, SessionManagementFilter.class);
+            } else {
+                WebAuthnConfigurerUtil.addAsyncDelegatingFilter(http, dispatchingFilter, dispatchingFilter::matches, asyncExecutor);
+            }
+        } else {
+            for (ServerEndpointFilterBase endpointFilter : endpointFilters) {
+                if (asyncExecutor == null) {
+                    http.addFilterAfter(endpointFilter, SessionManagementFilter.class);
+                } else {
+                    WebAuthnConfigurerUtil.addAsyncDelegatingFilter(http, endpointFilter, endpointFilter::matches, asyncExecutor);
+                }
+            }
+        }
         fidoServerAssertionResultEndpointConfig.configure(http);
     }
 
@@ -98,6 +131,65 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
         return this;
     }
 
+    public FidoServerConfigurer<H> challengeGenerator(ChallengeGenerator challengeGenerator) {
+        Assert.notNull(challengeGenerator, "challengeGenerator must not be null");
+        this.challengeGenerator = challengeGenerator;
+        return this;
+    }
+
+    public FidoServerConfigurer<H> instrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ChallengeEnvelopeCodec} to be used by the endpoints created by this configurer,
+     * authenticating the envelopes with a key shared by all servers.
+     * <p>
+     * The codec must have a key, as a codec without a key provides no integrity of its own. By default, the envelopes
+     * are not authenticated, and are protected by the challenge validation only.
+     *
+     * @param challengeEnvelopeCodec the {@link ChallengeEnvelopeCodec}
+     * @return the {@link FidoServerConfigurer} for additional customization
+     */
+    public FidoServerConfigurer<H> challengeEnvelopeCodec(ChallengeEnvelopeCodec challengeEnvelopeCodec) {
+        Assert.notNull(challengeEnvelopeCodec, "challengeEnvelopeCodec must not be null");
+        Assert.isTrue(challengeEnvelopeCodec.isMacEnabled(), "challengeEnvelopeCodec must authenticate envelopes with a key");
+        this.challengeEnvelopeCodec = challengeEnvelopeCodec;
+        return this;
+    }
+
+    /**
+     * Runs the endpoints created by this configurer on the given {@link Executor}, through asynchronous servlet
+     * processing, so that the container threads are not blocked by the registration and authentication. The executor
+     * can be a bounded thread pool, or {@code Executors.newVirtualThreadPerTaskExecutor()} on JDK 21 or later.
+     * The endpoints are then placed before {@link UsernamePasswordAuthenticationFilter}.
+     *
+     * @param asyncExecutor the {@link Executor}
+     * @return the {@link FidoServerConfigurer} for additional customization
+     * @see com.webauthn4j.springframework.security.webauthn.AsyncDelegatingFilter
+     */
+    public FidoServerConfigurer<H> asyncExecutor(Executor asyncExecutor) {
+        Assert.notNull(asyncExecutor, "asyncExecutor must not be null");
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    /**
+     * Registers the attestation options, attestation result and assertion options endpoints behind a single
+     * {@link FidoServerEndpointDispatchingFilter} instead of one filter each. The dispatching filter matches the path
+     * within the application exactly, while the endpoint filters match any request URI containing their URL.
+     * The assertion result endpoint, an authentication processing filter, is registered on its own either way.
+     *
+     * @param singleDispatchingFilter {@code true} to register a single dispatching filter
+     * @return the {@link FidoServerConfigurer} for additional customization
+     */
+    public FidoServerConfigurer<H> singleDispatchingFilter(boolean singleDispatchingFilter) {
+        this.singleDispatchingFilter = singleDispatchingFilter;
+        return this;
+    }
+
     public class FidoServerAttestationOptionsEndpointConfig extends AbstractServerEndpointConfig<FidoServerAttestationOptionsEndpointFilter> {
 
         FidoServerAttestationOptionsEndpointConfig() {
@@ -106,7 +198,9 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
 
         @Override
         protected FidoServerAttestationOptionsEndpointFilter createInstance() {
-            return new FidoServerAttestationOptionsEndpointFilter(objectConverter, optionsProvider);
+            FidoServerAttestationOptionsEndpointFilter filter = new FidoServerAttestationOptionsEndpointFilter(objectConverter, optionsProvider);
+            filter.setChallengeGenerator(challengeGenerator);
+            return filter;
         }
     }
 
@@ -124,8 +218,8 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
         }
 
         @Override
-        void configure(H http) {
-            super.configure(http);
+        FidoServerAttestationResultEndpointFilter configure(H http) {
+            FidoServerAttestationResultEndpointFilter serverEndpointFilter = super.configure(http);
             if (webAuthnUserDetailsService == null) {
                 webAuthnUserDetailsService = WebAuthnConfigurerUtil.getWebAuthnUserDetailsService(http);
             }
@@ -133,6 +227,9 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
             if (webAuthnRegistrationRequestValidator == null) {
                 webAuthnRegistrationRequestValidator = WebAuthnConfigurerUtil.getWebAuthnRegistrationRequestValidator(http);
             }
+            if (webAuthnRegistrationRequestValidator.getInstrumentation() == WebAuthnInstrumentation.NOOP) {
+                webAuthnRegistrationRequestValidator.setInstrumentation(instrumentation);
+            }
             if (!expectedRegistrationExtensionIds.isEmpty()) {
                 webAuthnRegistrationRequestValidator.setExpectedRegistrationExtensionIds(expectedRegistrationExtensionIds);
             }
@@ -144,6 +241,7 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
             }
 
             http.setSharedObject(WebAuthnRegistrationRequestValidator.class, webAuthnRegistrationRequestValidator);
+            return serverEndpointFilter;
         }
 
         public FidoServerAttestationResultEndpointConfig expectedRegistrationExtensionIds(List<String> expectedRegistrationExtensionIds) {
@@ -222,7 +320,9 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
 
         @Override
         protected FidoServerAssertionOptionsEndpointFilter createInstance() {
-            return new FidoServerAssertionOptionsEndpointFilter(objectConverter, optionsProvider);
+            FidoServerAssertionOptionsEndpointFilter filter = new FidoServerAssertionOptionsEndpointFilter(objectConverter, optionsProvider);
+            filter.setChallengeGenerator(challengeGenerator);
+            return filter;
         }
     }
 
@@ -256,6 +356,10 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
             String[] beanNames = applicationContext.getBeanNamesForType(FidoServerAssertionResultEndpointFilter.class);
             if (beanNames.length == 0) {
                 serverEndpointFilter = new FidoServerAssertionResultEndpointFilter(objectConverter, serverPropertyProvider);
+                serverEndpointFilter.setInstrumentation(instrumentation);
+                if (challengeEnvelopeCodec != null) {
+                    serverEndpointFilter.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+                }
                 if (filterProcessingUrl != null) {
                     serverEndpointFilter.setFilterProcessesUrl(filterProcessingUrl);
                 }
@@ -272,7 +376,11 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
             }
 
             http.setSharedObject(FidoServerAssertionResultEndpointFilter.class, serverEndpointFilter);
-            http.addFilterAfter(serverEndpointFilter, UsernamePasswordAuthenticationFilter.class);
+            if (asyncExecutor == null) {
+                http.addFilterAfter(serverEndpointFilter, UsernamePasswordAuthenticationFilter.class);
+            } else {
+                WebAuthnConfigurerUtil.addAsyncDelegatingFilter(http, serverEndpointFilter, serverEndpointFilter::matches, asyncExecutor);
+            }
         }
 
 
@@ -337,12 +445,16 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
             this.filterClass = filterClass;
         }
 
-        void configure(H http) {
+        F configure(H http) {
             F serverEndpointFilter;
             ApplicationContext applicationContext = http.getSharedObject(ApplicationContext.class);
             String[] beanNames = applicationContext.getBeanNamesForType(filterClass);
             if (beanNames.length == 0) {
                 serverEndpointFilter = createInstance();
+                serverEndpointFilter.setInstrumentation(instrumentation);
+                if (challengeEnvelopeCodec != null) {
+                    serverEndpointFilter.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+                }
                 if (filterProcessingUrl != null) {
                     serverEndpointFilter.setFilterProcessesUrl(filterProcessingUrl);
                 }
@@ -350,7 +462,7 @@ public class FidoServerConfigurer<H extends HttpSecurityBuilder<H>> extends Abst
                 serverEndpointFilter = applicationContext.getBean(filterClass);
             }
             http.setSharedObject(filterClass, serverEndpointFilter);
-            http.addFilterAfter(serverEndpointFilter, SessionManagementFilter.class);
+            return serverEndpointFilter;
         }
 
         public AbstractServerEndpointConfig<F> processingUrl(String processingUrl) {
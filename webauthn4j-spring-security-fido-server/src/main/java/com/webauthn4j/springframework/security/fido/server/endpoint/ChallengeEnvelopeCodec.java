@@ -0,0 +1,297 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.fido.server.endpoint;
+
+import com.webauthn4j.data.UserVerificationRequirement;
+import org.springframework.util.Assert;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+/**
+ * Encodes the username or the user verification requirement of a ceremony into its challenge, so that the result
+ * endpoints can recover them from the clientDataJSON without server-side state.
+ * <p>
+ * An envelope has the following fixed layout:
+ * <pre>
+ * version (1) | type and flags (1) | challenge length (1) | challenge | payload | MAC (16, optional)
+ * </pre>
+ * The payload of a username envelope is the length of the UTF-8 encoded username as an unsigned 16-bit big-endian
+ * integer, {@code 0xFFFF} standing for no username, followed by the username. The payload of a user verification
+ * envelope is a single byte. When the codec is given a key, envelopes are authenticated by a HMAC-SHA256 tag
+ * truncated to 16 bytes, and envelopes without a valid tag are rejected.
+ * <p>
+ * A codec without a key provides no integrity: anyone can forge the type, flags and payload of an envelope. It is
+ * only safe when the whole challenge is validated against the one issued by the server, as the
+ * {@code ChallengeRepository} of the endpoints does, and must not be relied on to carry data across servers which do
+ * not share the challenge.
+ * <p>
+ * As the layout is self-delimiting, bytes following an envelope are ignored, so that a {@code ChallengeRepository}
+ * may append its own data to the challenge, as {@code HmacChallengeRepository} appends its signature.
+ * <p>
+ * Decoding does not throw on malformed input, which is expected from clients: the decode methods return
+ * {@code null} instead, and only allocate the decoded username.
+ */
+public class ChallengeEnvelopeCodec {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    static final byte VERSION = 0x01;
+    static final int TYPE_USERNAME = 0x01;
+    static final int TYPE_USER_VERIFICATION = 0x02;
+    static final int FLAG_MAC = 0x80;
+    static final int MAC_LENGTH = 16;
+
+    private static final int HEADER_LENGTH = 3;
+    private static final int MAX_CHALLENGE_LENGTH = 0xFF;
+    private static final int NULL_USERNAME = 0xFFFF;
+    private static final int MAX_USERNAME_LENGTH = NULL_USERNAME - 1;
+    private static final int MIN_KEY_LENGTH = 16;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final byte USER_VERIFICATION_NONE = 0;
+    private static final byte USER_VERIFICATION_REQUIRED = 1;
+    private static final byte USER_VERIFICATION_PREFERRED = 2;
+    private static final byte USER_VERIFICATION_DISCOURAGED = 3;
+
+    //~ Instance fields
+    // ================================================================================================
+    private final Mac prototypeMac;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    /**
+     * Constructor for a codec which does not authenticate envelopes
+     */
+    public ChallengeEnvelopeCodec() {
+        this.prototypeMac = null;
+    }
+
+    /**
+     * Constructor for a codec which authenticates envelopes. All the servers of a deployment must share the key.
+     *
+     * @param macKey HMAC-SHA256 key, at least 16 bytes long
+     */
+    public ChallengeEnvelopeCodec(byte[] macKey) {
+        Assert.notNull(macKey, "macKey must not be null");
+        Assert.isTrue(macKey.length >= MIN_KEY_LENGTH, "macKey must be at least " + MIN_KEY_LENGTH + " bytes long");
+        try {
+            this.prototypeMac = Mac.getInstance(MAC_ALGORITHM);
+            this.prototypeMac.init(new SecretKeySpec(macKey, MAC_ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Failed to initialize " + MAC_ALGORITHM, e);
+        }
+        // fail fast if the provider cannot clone the initialized Mac
+        newMac();
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Returns whether the envelopes are authenticated
+     *
+     * @return {@code true} if the codec has a key
+     */
+    public boolean isMacEnabled() {
+        return prototypeMac != null;
+    }
+
+    /**
+     * Encodes the username into the challenge
+     *
+     * @param challenge challenge value
+     * @param username  username, may be {@code null}
+     * @return envelope
+     */
+    public byte[] encodeUsername(byte[] challenge, String username) {
+        byte[] usernameBytes = username == null ? null : username.getBytes(StandardCharsets.UTF_8);
+        Assert.isTrue(usernameBytes == null || usernameBytes.length <= MAX_USERNAME_LENGTH, "username is too long");
+        int usernameLength = usernameBytes == null ? 0 : usernameBytes.length;
+        byte[] envelope = allocate(TYPE_USERNAME, challenge, 2 + usernameLength);
+        int offset = HEADER_LENGTH + challenge.length;
+        int encodedLength = usernameBytes == null ? NULL_USERNAME : usernameLength;
+        envelope[offset] = (byte) (encodedLength >>> 8);
+        envelope[offset + 1] = (byte) encodedLength;
+        if (usernameBytes != null) {
+            System.arraycopy(usernameBytes, 0, envelope, offset + 2, usernameLength);
+        }
+        sign(envelope);
+        return envelope;
+    }
+
+    /**
+     * Decodes the username from an envelope created by {@link #encodeUsername(byte[], String)}
+     *
+     * @param envelope envelope
+     * @return username, or {@code null} if the envelope is malformed, not authentic or has no username
+     */
+    public String decodeUsername(byte[] envelope) {
+        int payloadOffset = checkEnvelope(envelope, TYPE_USERNAME);
+        if (payloadOffset < 0 || payloadOffset + 2 + tagLength() > envelope.length) {
+            return null;
+        }
+        int usernameLength = (envelope[payloadOffset] & 0xFF) << 8 | (envelope[payloadOffset + 1] & 0xFF);
+        int usernameOffset = payloadOffset + 2;
+        if (usernameLength == NULL_USERNAME) {
+            return null;
+        }
+        int end = usernameOffset + usernameLength + tagLength();
+        if (end > envelope.length || !verify(envelope, end)) {
+            return null;
+        }
+        return new String(envelope, usernameOffset, usernameLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Encodes the user verification requirement into the challenge
+     *
+     * @param challenge        challenge value
+     * @param userVerification user verification requirement, may be {@code null}
+     * @return envelope
+     */
+    public byte[] encodeUserVerification(byte[] challenge, UserVerificationRequirement userVerification) {
+        byte[] envelope = allocate(TYPE_USER_VERIFICATION, challenge, 1);
+        envelope[HEADER_LENGTH + challenge.length] = toByte(userVerification);
+        sign(envelope);
+        return envelope;
+    }
+
+    /**
+     * Decodes the user verification requirement from an envelope created by
+     * {@link #encodeUserVerification(byte[], UserVerificationRequirement)}
+     *
+     * @param envelope envelope
+     * @return user verification requirement, or {@code null} if the envelope is malformed, not authentic or has no
+     * user verification requirement
+     */
+    public UserVerificationRequirement decodeUserVerification(byte[] envelope) {
+        int payloadOffset = checkEnvelope(envelope, TYPE_USER_VERIFICATION);
+        int end = payloadOffset + 1 + tagLength();
+        if (payloadOffset < 0 || end > envelope.length || !verify(envelope, end)) {
+            return null;
+        }
+        return fromByte(envelope[payloadOffset]);
+    }
+
+    private byte[] allocate(int type, byte[] challenge, int payloadLength) {
+        Assert.notNull(challenge, "challenge must not be null");
+        Assert.isTrue(challenge.length <= MAX_CHALLENGE_LENGTH, "challenge is too long");
+        byte[] envelope = new byte[HEADER_LENGTH + challenge.length + payloadLength + tagLength()];
+        envelope[0] = VERSION;
+        envelope[1] = (byte) (isMacEnabled() ? type | FLAG_MAC : type);
+        envelope[2] = (byte) challenge.length;
+        System.arraycopy(challenge, 0, envelope, HEADER_LENGTH, challenge.length);
+        return envelope;
+    }
+
+    /**
+     * Checks the header of the envelope
+     *
+     * @return the offset of the payload, or -1 if the header is malformed
+     */
+    private int checkEnvelope(byte[] envelope, int type) {
+        if (envelope == null || envelope.length < HEADER_LENGTH + tagLength()) {
+            return -1;
+        }
+        int expectedTypeAndFlags = isMacEnabled() ? type | FLAG_MAC : type;
+        if (envelope[0] != VERSION || (envelope[1] & 0xFF) != expectedTypeAndFlags) {
+            return -1;
+        }
+        int payloadOffset = HEADER_LENGTH + (envelope[2] & 0xFF);
+        return payloadOffset > envelope.length - tagLength() ? -1 : payloadOffset;
+    }
+
+    private int tagLength() {
+        return isMacEnabled() ? MAC_LENGTH : 0;
+    }
+
+    private void sign(byte[] envelope) {
+        if (!isMacEnabled()) {
+            return;
+        }
+        int dataLength = envelope.length - MAC_LENGTH;
+        byte[] tag = computeTag(envelope, dataLength);
+        System.arraycopy(tag, 0, envelope, dataLength, MAC_LENGTH);
+    }
+
+    private boolean verify(byte[] envelope, int end) {
+        if (!isMacEnabled()) {
+            return true;
+        }
+        int dataLength = end - MAC_LENGTH;
+        byte[] tag = computeTag(envelope, dataLength);
+        // constant time comparison
+        int diff = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            diff |= tag[i] ^ envelope[dataLength + i];
+        }
+        return diff == 0;
+    }
+
+    private byte[] computeTag(byte[] data, int length) {
+        Mac mac = newMac();
+        mac.update(data, 0, length);
+        return mac.doFinal();
+    }
+
+    /**
+     * Returns a copy of the initialized prototype, as Mac is not thread-safe. Cloning skips the provider lookup and
+     * the key schedule, and nothing is kept per thread.
+     */
+    private Mac newMac() {
+        try {
+            return (Mac) prototypeMac.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " provider does not support cloning", e);
+        }
+    }
+
+    private static byte toByte(UserVerificationRequirement userVerification) {
+        if (userVerification == null) {
+            return USER_VERIFICATION_NONE;
+        }
+        switch (userVerification) {
+            case REQUIRED:
+                return USER_VERIFICATION_REQUIRED;
+            case PREFERRED:
+                return USER_VERIFICATION_PREFERRED;
+            case DISCOURAGED:
+                return USER_VERIFICATION_DISCOURAGED;
+            default:
+                throw new IllegalArgumentException("unknown userVerification: " + userVerification);
+        }
+    }
+
+    private static UserVerificationRequirement fromByte(byte value) {
+        switch (value) {
+            case USER_VERIFICATION_REQUIRED:
+                return UserVerificationRequirement.REQUIRED;
+            case USER_VERIFICATION_PREFERRED:
+                return UserVerificationRequirement.PREFERRED;
+            case USER_VERIFICATION_DISCOURAGED:
+                return UserVerificationRequirement.DISCOURAGED;
+            default:
+                return null;
+        }
+    }
+}
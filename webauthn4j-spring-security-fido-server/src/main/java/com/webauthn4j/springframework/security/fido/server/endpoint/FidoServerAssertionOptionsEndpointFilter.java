@@ -18,11 +18,13 @@ package com.webauthn4j.springframework.security.fido.server.endpoint;
 
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.data.client.challenge.Challenge;
-import com.webauthn4j.data.client.challenge.DefaultChallenge;
 import com.webauthn4j.data.extension.client.AuthenticationExtensionClientInput;
 import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
+import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeGenerator;
+import com.webauthn4j.springframework.security.webauthn.challenge.DefaultChallengeGenerator;
 import com.webauthn4j.springframework.security.webauthn.options.AssertionOptions;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.util.OptionsTemplateHolder;
 import com.webauthn4j.util.Base64UrlUtil;
 import org.springframework.util.Assert;
 
@@ -30,7 +32,10 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -48,11 +53,31 @@ public class FidoServerAssertionOptionsEndpointFilter extends ServerEndpointFilt
     // ================================================================================================
 
     private final OptionsProvider optionsProvider;
+    private ChallengeGenerator challengeGenerator = new DefaultChallengeGenerator();
+    private volatile boolean templateRendering = false;
+    private final OptionsTemplateHolder<ServerPublicKeyCredentialGetOptionsResponse> templateHolder;
 
     public FidoServerAssertionOptionsEndpointFilter(ObjectConverter objectConverter, OptionsProvider optionsProvider) {
         super(FILTER_URL, objectConverter);
         this.optionsProvider = optionsProvider;
         checkConfig();
+        this.templateHolder = new OptionsTemplateHolder<>(optionsProvider, objectConverter.getJsonConverter(),
+                provider -> new Object[]{
+                        provider.getRpId(),
+                        provider.getAuthenticationTimeout()
+                },
+                () -> {
+                    Map<String, Function<ServerPublicKeyCredentialGetOptionsResponse, ?>> dynamicProperties = new LinkedHashMap<>();
+                    if (optionsProvider.getRpId() == null) {
+                        // The rpId is derived from the request origin
+                        dynamicProperties.put("rpId", ServerPublicKeyCredentialGetOptionsResponse::getRpId);
+                    }
+                    dynamicProperties.put("challenge", ServerPublicKeyCredentialGetOptionsResponse::getChallenge);
+                    dynamicProperties.put("allowCredentials", ServerPublicKeyCredentialGetOptionsResponse::getAllowCredentials);
+                    dynamicProperties.put("userVerification", ServerPublicKeyCredentialGetOptionsResponse::getUserVerification);
+                    dynamicProperties.put("extensions", ServerPublicKeyCredentialGetOptionsResponse::getExtensions);
+                    return dynamicProperties;
+                });
     }
 
     @Override
@@ -66,6 +91,39 @@ public class FidoServerAssertionOptionsEndpointFilter extends ServerEndpointFilt
         Assert.notNull(optionsProvider, "optionsProvider must not be null");
     }
 
+    public boolean isTemplateRendering() {
+        return templateRendering;
+    }
+
+    /**
+     * Sets whether the response is rendered from a template, in which the properties derived from the settings of the
+     * {@link OptionsProvider} are serialized once. The template is compiled again when the rpId or authentication timeout settings are replaced
+     * through the setters of the {@link OptionsProvider}; settings modified in place are not detected. Ignored unless
+     * the {@link OptionsProvider} is an {@link com.webauthn4j.springframework.security.webauthn.options.OptionsProviderImpl}.
+     *
+     * @param templateRendering {@code true} to render the response from a template
+     */
+    public void setTemplateRendering(boolean templateRendering) {
+        this.templateRendering = templateRendering;
+    }
+
+    public ChallengeGenerator getChallengeGenerator() {
+        return challengeGenerator;
+    }
+
+    public void setChallengeGenerator(ChallengeGenerator challengeGenerator) {
+        Assert.notNull(challengeGenerator, "challengeGenerator must not be null");
+        this.challengeGenerator = challengeGenerator;
+    }
+
+
+    @Override
+    protected byte[] serializeResponse(ServerResponse serverResponse) {
+        if (!templateRendering || !templateHolder.isSupported()) {
+            return super.serializeResponse(serverResponse);
+        }
+        return templateHolder.render((ServerPublicKeyCredentialGetOptionsResponse) serverResponse);
+    }
 
     @Override
     protected ServerResponse processRequest(HttpServletRequest request) {
@@ -78,7 +136,7 @@ public class FidoServerAssertionOptionsEndpointFilter extends ServerEndpointFilt
         ServerPublicKeyCredentialGetOptionsRequest serverRequest =
                 objectConverter.getJsonConverter().readValue(inputStream, ServerPublicKeyCredentialGetOptionsRequest.class);
         String username = serverRequest.getUsername();
-        Challenge challenge = serverEndpointFilterUtil.encodeUserVerification(new DefaultChallenge(), serverRequest.getUserVerification());
+        Challenge challenge = serverEndpointFilterUtil.encodeUserVerification(challengeGenerator.generate(), serverRequest.getUserVerification());
         AssertionOptions options = optionsProvider.getAssertionOptions(request, username, challenge);
         List<ServerPublicKeyCredentialDescriptor> credentials = options.getCredentials().stream().map(ServerPublicKeyCredentialDescriptor::new).collect(Collectors.toList());
         AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> authenticationExtensionsClientInputs;
@@ -25,6 +25,8 @@ import com.webauthn4j.data.client.CollectedClientData;
 import com.webauthn4j.server.ServerProperty;
 import com.webauthn4j.springframework.security.fido.server.validator.ServerPublicKeyCredentialValidator;
 import com.webauthn4j.springframework.security.webauthn.WebAuthnAssertionAuthenticationToken;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
 import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
 import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProvider;
 import com.webauthn4j.util.Base64UrlUtil;
@@ -42,6 +44,7 @@ import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 public class FidoServerAssertionResultEndpointFilter extends AbstractAuthenticationProcessingFilter {
 
@@ -60,6 +63,7 @@ public class FidoServerAssertionResultEndpointFilter extends AbstractAuthenticat
     private final ServerEndpointFilterUtil serverEndpointFilterUtil;
 
     private List<String> expectedAuthenticationExtensionIds = Collections.emptyList();
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
 
     public FidoServerAssertionResultEndpointFilter(
             ObjectConverter objectConverter,
@@ -101,6 +105,41 @@ public class FidoServerAssertionResultEndpointFilter extends AbstractAuthenticat
 
     @Override
     public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response) {
+        // The request is decoded before the ServerProperty is resolved, and completed with it afterwards
+        Function<ServerProperty, WebAuthnAuthenticationRequest> decodedRequest = instrumentation.time(WebAuthnStage.AUTHENTICATION_REQUEST_DECODE, () -> {
+            ServerPublicKeyCredential<ServerAuthenticatorAssertionResponse> credential = readCredential(request);
+            ServerAuthenticatorAssertionResponse assertionResponse = credential.getResponse();
+            // The clientDataJSON is parsed once here, and carried to WebAuthnAuthenticationProvider with the request
+            byte[] clientDataBytes = Base64UrlUtil.decode(assertionResponse.getClientDataJSON());
+            CollectedClientData collectedClientData = collectedClientDataConverter.convert(clientDataBytes);
+            UserVerificationRequirement userVerificationRequirement = serverEndpointFilterUtil.decodeUserVerification(collectedClientData.getChallenge());
+            byte[] credentialId = Base64UrlUtil.decode(credential.getRawId());
+            byte[] authenticatorData = Base64UrlUtil.decode(assertionResponse.getAuthenticatorData());
+            byte[] signature = Base64UrlUtil.decode(assertionResponse.getSignature());
+            return serverProperty -> new WebAuthnAuthenticationRequest(
+                    credentialId,
+                    clientDataBytes,
+                    authenticatorData,
+                    signature,
+                    credential.getClientExtensionResults(),
+                    serverProperty,
+                    userVerificationRequirement == UserVerificationRequirement.REQUIRED,
+                    false,
+                    expectedAuthenticationExtensionIds,
+                    collectedClientData
+            );
+        });
+
+        ServerProperty serverProperty =
+                instrumentation.time(WebAuthnStage.AUTHENTICATION_SERVER_PROPERTY, () -> serverPropertyProvider.provide(request));
+        WebAuthnAuthenticationRequest webAuthnAuthenticationRequest = decodedRequest.apply(serverProperty);
+
+        WebAuthnAssertionAuthenticationToken authRequest = new WebAuthnAssertionAuthenticationToken(webAuthnAuthenticationRequest);
+        setDetails(request, authRequest);
+        return this.getAuthenticationManager().authenticate(authRequest);
+    }
+
+    private ServerPublicKeyCredential<ServerAuthenticatorAssertionResponse> readCredential(HttpServletRequest request) {
         InputStream inputStream;
         try {
             inputStream = request.getInputStream();
@@ -110,29 +149,18 @@ public class FidoServerAssertionResultEndpointFilter extends AbstractAuthenticat
         ServerPublicKeyCredential<ServerAuthenticatorAssertionResponse> credential =
                 jsonConverter.readValue(inputStream, credentialTypeRef);
         serverPublicKeyCredentialValidator.validate(credential);
+        return credential;
+    }
 
-        ServerAuthenticatorAssertionResponse assertionResponse = credential.getResponse();
-
-        ServerProperty serverProperty = serverPropertyProvider.provide(request);
-
-        CollectedClientData collectedClientData = collectedClientDataConverter.convert(assertionResponse.getClientDataJSON());
-        UserVerificationRequirement userVerificationRequirement = serverEndpointFilterUtil.decodeUserVerification(collectedClientData.getChallenge());
-
-        WebAuthnAuthenticationRequest webAuthnAuthenticationRequest = new WebAuthnAuthenticationRequest(
-                Base64UrlUtil.decode(credential.getRawId()),
-                Base64UrlUtil.decode(assertionResponse.getClientDataJSON()),
-                Base64UrlUtil.decode(assertionResponse.getAuthenticatorData()),
-                Base64UrlUtil.decode(assertionResponse.getSignature()),
-                credential.getClientExtensionResults(),
-                serverProperty,
-                userVerificationRequirement == UserVerificationRequirement.REQUIRED,
-                false,
-                expectedAuthenticationExtensionIds
-        );
-
-        WebAuthnAssertionAuthenticationToken authRequest = new WebAuthnAssertionAuthenticationToken(webAuthnAuthenticationRequest);
-        setDetails(request, authRequest);
-        return this.getAuthenticationManager().authenticate(authRequest);
+    /**
+     * Returns whether the request is processed by this filter, as decided by
+     * {@link #requiresAuthentication(HttpServletRequest, HttpServletResponse)}
+     *
+     * @param request request
+     * @return {@code true} if the request is processed by this filter
+     */
+    public boolean matches(HttpServletRequest request) {
+        return requiresAuthentication(request, null);
     }
 
     protected void setDetails(HttpServletRequest request, WebAuthnAssertionAuthenticationToken authRequest) {
@@ -152,4 +180,32 @@ public class FidoServerAssertionResultEndpointFilter extends AbstractAuthenticat
     public void setExpectedAuthenticationExtensionIds(List<String> expectedAuthenticationExtensionIds) {
         this.expectedAuthenticationExtensionIds = expectedAuthenticationExtensionIds;
     }
+
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the request decode and ServerProperty resolution stages
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
+
+    public ChallengeEnvelopeCodec getChallengeEnvelopeCodec() {
+        return serverEndpointFilterUtil.getChallengeEnvelopeCodec();
+    }
+
+    /**
+     * Sets the codec decoding the user verification requirement from the challenge. It must be configured as the one
+     * of the assertion options endpoint.
+     *
+     * @param challengeEnvelopeCodec challengeEnvelopeCodec
+     */
+    public void setChallengeEnvelopeCodec(ChallengeEnvelopeCodec challengeEnvelopeCodec) {
+        serverEndpointFilterUtil.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+    }
 }
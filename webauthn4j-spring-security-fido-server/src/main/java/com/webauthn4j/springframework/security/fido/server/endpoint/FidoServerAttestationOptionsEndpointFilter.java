@@ -18,11 +18,13 @@ package com.webauthn4j.springframework.security.fido.server.endpoint;
 
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.data.client.challenge.Challenge;
-import com.webauthn4j.data.client.challenge.DefaultChallenge;
 import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
 import com.webauthn4j.data.extension.client.RegistrationExtensionClientInput;
+import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeGenerator;
+import com.webauthn4j.springframework.security.webauthn.challenge.DefaultChallengeGenerator;
 import com.webauthn4j.springframework.security.webauthn.options.AttestationOptions;
 import com.webauthn4j.springframework.security.webauthn.options.OptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.util.OptionsTemplateHolder;
 import com.webauthn4j.util.Base64UrlUtil;
 import org.springframework.util.Assert;
 
@@ -31,8 +33,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -50,11 +55,36 @@ public class FidoServerAttestationOptionsEndpointFilter extends ServerEndpointFi
     // ================================================================================================
 
     private final OptionsProvider optionsProvider;
+    private ChallengeGenerator challengeGenerator = new DefaultChallengeGenerator();
+    private volatile boolean templateRendering = false;
+    private final OptionsTemplateHolder<ServerPublicKeyCredentialCreationOptionsResponse> templateHolder;
 
     public FidoServerAttestationOptionsEndpointFilter(ObjectConverter objectConverter, OptionsProvider optionsProvider) {
         super(FILTER_URL, objectConverter);
         this.optionsProvider = optionsProvider;
         checkConfig();
+        this.templateHolder = new OptionsTemplateHolder<>(optionsProvider, objectConverter.getJsonConverter(),
+                provider -> new Object[]{
+                        provider.getRpId(),
+                        provider.getRpName(),
+                        provider.getRpIcon(),
+                        provider.getPubKeyCredParams(),
+                        provider.getRegistrationTimeout()
+                },
+                () -> {
+                    Map<String, Function<ServerPublicKeyCredentialCreationOptionsResponse, ?>> dynamicProperties = new LinkedHashMap<>();
+                    if (optionsProvider.getRpId() == null) {
+                        // The rpId is derived from the request origin
+                        dynamicProperties.put("rp", ServerPublicKeyCredentialCreationOptionsResponse::getRp);
+                    }
+                    dynamicProperties.put("user", ServerPublicKeyCredentialCreationOptionsResponse::getUser);
+                    dynamicProperties.put("challenge", ServerPublicKeyCredentialCreationOptionsResponse::getChallenge);
+                    dynamicProperties.put("excludeCredentials", ServerPublicKeyCredentialCreationOptionsResponse::getExcludeCredentials);
+                    dynamicProperties.put("authenticatorSelection", ServerPublicKeyCredentialCreationOptionsResponse::getAuthenticatorSelection);
+                    dynamicProperties.put("attestation", ServerPublicKeyCredentialCreationOptionsResponse::getAttestation);
+                    dynamicProperties.put("extensions", ServerPublicKeyCredentialCreationOptionsResponse::getExtensions);
+                    return dynamicProperties;
+                });
     }
 
     @Override
@@ -68,6 +98,39 @@ public class FidoServerAttestationOptionsEndpointFilter extends ServerEndpointFi
         Assert.notNull(optionsProvider, "optionsProvider must not be null");
     }
 
+    public boolean isTemplateRendering() {
+        return templateRendering;
+    }
+
+    /**
+     * Sets whether the response is rendered from a template, in which the properties derived from the settings of the
+     * {@link OptionsProvider} are serialized once. The template is compiled again when the relying party, pubKeyCredParams or registration timeout settings are replaced
+     * through the setters of the {@link OptionsProvider}; settings modified in place are not detected. Ignored unless
+     * the {@link OptionsProvider} is an {@link com.webauthn4j.springframework.security.webauthn.options.OptionsProviderImpl}.
+     *
+     * @param templateRendering {@code true} to render the response from a template
+     */
+    public void setTemplateRendering(boolean templateRendering) {
+        this.templateRendering = templateRendering;
+    }
+
+    public ChallengeGenerator getChallengeGenerator() {
+        return challengeGenerator;
+    }
+
+    public void setChallengeGenerator(ChallengeGenerator challengeGenerator) {
+        Assert.notNull(challengeGenerator, "challengeGenerator must not be null");
+        this.challengeGenerator = challengeGenerator;
+    }
+
+    @Override
+    protected byte[] serializeResponse(ServerResponse serverResponse) {
+        if (!templateRendering || !templateHolder.isSupported()) {
+            return super.serializeResponse(serverResponse);
+        }
+        return templateHolder.render((ServerPublicKeyCredentialCreationOptionsResponse) serverResponse);
+    }
+
     @Override
     protected ServerResponse processRequest(HttpServletRequest request) {
         InputStream inputStream;
@@ -80,7 +143,7 @@ public class FidoServerAttestationOptionsEndpointFilter extends ServerEndpointFi
                 .readValue(inputStream, ServerPublicKeyCredentialCreationOptionsRequest.class);
         String username = serverRequest.getUsername();
         String displayName = serverRequest.getDisplayName();
-        Challenge challenge = serverEndpointFilterUtil.encodeUsername(new DefaultChallenge(), username);
+        Challenge challenge = serverEndpointFilterUtil.encodeUsername(challengeGenerator.generate(), username);
         AttestationOptions attestationOptions = optionsProvider.getAttestationOptions(request, username, challenge);
         String userHandle;
         if (attestationOptions.getUser() == null) {
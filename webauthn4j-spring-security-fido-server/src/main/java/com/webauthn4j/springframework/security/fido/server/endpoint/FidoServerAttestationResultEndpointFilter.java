@@ -17,15 +17,15 @@
 package com.webauthn4j.springframework.security.fido.server.endpoint;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.webauthn4j.converter.AttestationObjectConverter;
-import com.webauthn4j.converter.CollectedClientDataConverter;
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.data.attestation.AttestationObject;
 import com.webauthn4j.data.client.CollectedClientData;
 import com.webauthn4j.springframework.security.fido.server.validator.ServerPublicKeyCredentialValidator;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnRegistrationRequestValidationResponse;
 import com.webauthn4j.springframework.security.webauthn.WebAuthnRegistrationRequestValidator;
 import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticator;
 import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
+import com.webauthn4j.util.Base64UrlUtil;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.util.Assert;
 
@@ -44,8 +44,6 @@ public class FidoServerAttestationResultEndpointFilter extends ServerEndpointFil
     public static final String FILTER_URL = "/webauthn/attestation/result";
 
     private final WebAuthnUserDetailsService webAuthnUserDetailsService;
-    private final AttestationObjectConverter attestationObjectConverter;
-    private final CollectedClientDataConverter collectedClientDataConverter;
     private final WebAuthnRegistrationRequestValidator webAuthnRegistrationRequestValidator;
     private final ServerPublicKeyCredentialValidator<ServerAuthenticatorAttestationResponse> serverPublicKeyCredentialValidator;
 
@@ -59,8 +57,6 @@ public class FidoServerAttestationResultEndpointFilter extends ServerEndpointFil
             WebAuthnUserDetailsService webAuthnUserDetailsService,
             WebAuthnRegistrationRequestValidator webAuthnRegistrationRequestValidator) {
         super(FILTER_URL, objectConverter);
-        this.attestationObjectConverter = new AttestationObjectConverter(objectConverter);
-        this.collectedClientDataConverter = new CollectedClientDataConverter(objectConverter);
         this.serverPublicKeyCredentialValidator = new ServerPublicKeyCredentialValidator<>();
 
         this.webAuthnUserDetailsService = webAuthnUserDetailsService;
@@ -92,15 +88,17 @@ public class FidoServerAttestationResultEndpointFilter extends ServerEndpointFil
                 this.objectConverter.getJsonConverter().readValue(inputStream, credentialTypeRef);
         serverPublicKeyCredentialValidator.validate(credential);
         ServerAuthenticatorAttestationResponse response = credential.getResponse();
-        CollectedClientData collectedClientData = collectedClientDataConverter.convert(response.getClientDataJSON());
-        AttestationObject attestationObject = attestationObjectConverter.convert(response.getAttestationObject());
+        byte[] clientDataBytes = Base64UrlUtil.decode(response.getClientDataJSON());
+        byte[] attestationObjectBytes = Base64UrlUtil.decode(response.getAttestationObject());
         Set<String> transports = Collections.emptySet();
-        webAuthnRegistrationRequestValidator.validate(
+        WebAuthnRegistrationRequestValidationResponse registrationRequestValidationResponse = webAuthnRegistrationRequestValidator.validate(
                 request,
-                response.getClientDataJSON(),
-                response.getAttestationObject(),
+                clientDataBytes,
+                attestationObjectBytes,
                 transports,
                 credential.getClientExtensionResults());
+        CollectedClientData collectedClientData = registrationRequestValidationResponse.getCollectedClientData();
+        AttestationObject attestationObject = registrationRequestValidationResponse.getAttestationObject();
 
         WebAuthnAuthenticator webAuthnAuthenticator =
                 new WebAuthnAuthenticator(
@@ -109,12 +107,10 @@ public class FidoServerAttestationResultEndpointFilter extends ServerEndpointFil
                         attestationObject.getAttestationStatement(),
                         attestationObject.getAuthenticatorData().getSignCount());
         String loginUsername = serverEndpointFilterUtil.decodeUsername(collectedClientData.getChallenge());
-        try {
-            webAuthnUserDetailsService.loadUserByUsername(loginUsername);
-        } catch (UsernameNotFoundException e) {
+        if (!webAuthnUserDetailsService.tryAddAuthenticator(loginUsername, webAuthnAuthenticator)) {
             usernameNotFoundHandler.onUsernameNotFound(loginUsername);
+            webAuthnUserDetailsService.addAuthenticator(loginUsername, webAuthnAuthenticator);
         }
-        webAuthnUserDetailsService.addAuthenticator(loginUsername, webAuthnAuthenticator);
         return new AttestationResultSuccessResponse();
     }
 
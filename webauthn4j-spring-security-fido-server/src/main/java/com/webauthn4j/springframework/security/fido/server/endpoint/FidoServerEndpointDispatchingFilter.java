@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.fido.server.endpoint;
+
+import org.springframework.util.Assert;
+import org.springframework.web.filter.GenericFilterBean;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A filter dispatching requests to {@link ServerEndpointFilterBase} endpoints, in place of registering each of them
+ * in the filter chain.
+ * <p>
+ * The table of endpoints is built once from their {@code filterProcessesUrl} at construction; later changes of the
+ * endpoints' URLs are not reflected. A request is dispatched when its path within the application, that is the request
+ * URI without the context path, equals the URL of an endpoint. Unlike the endpoint filters, which match any request URI
+ * containing their URL, a request for another path is passed down the chain after a length check and, only for paths
+ * as long as an endpoint URL, one hash lookup.
+ */
+public class FidoServerEndpointDispatchingFilter extends GenericFilterBean {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final Map<String, ServerEndpointFilterBase> endpoints = new HashMap<>();
+    private final boolean[] pathLengths;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public FidoServerEndpointDispatchingFilter(List<? extends ServerEndpointFilterBase> endpointFilters) {
+        Assert.notEmpty(endpointFilters, "endpointFilters must not be empty");
+        int maxLength = 0;
+        for (ServerEndpointFilterBase endpointFilter : endpointFilters) {
+            String url = endpointFilter.getFilterProcessesUrl();
+            Assert.hasText(url, "filterProcessesUrl must not be empty or null");
+            ServerEndpointFilterBase previous = endpoints.put(url, endpointFilter);
+            Assert.isNull(previous, () -> "filterProcessesUrl '" + url + "' is mapped to more than one endpoint");
+            maxLength = Math.max(maxLength, url.length());
+        }
+        this.pathLengths = new boolean[maxLength + 1];
+        for (String url : endpoints.keySet()) {
+            pathLengths[url.length()] = true;
+        }
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        ServerEndpointFilterBase endpoint = request instanceof HttpServletRequest ? findEndpoint((HttpServletRequest) request) : null;
+        if (endpoint == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        endpoint.doFilter(request, response, chain);
+    }
+
+    /**
+     * Returns whether an endpoint is mapped to the path of the request
+     *
+     * @param request request
+     * @return {@code true} if the request is dispatched to an endpoint
+     */
+    public boolean matches(HttpServletRequest request) {
+        return findEndpoint(request) != null;
+    }
+
+    /**
+     * Returns the endpoint mapped to the path of the request
+     *
+     * @param request request
+     * @return the endpoint, or {@code null} if no endpoint is mapped to the path
+     */
+    ServerEndpointFilterBase findEndpoint(HttpServletRequest request) {
+        String requestURI = request.getRequestURI();
+        String contextPath = request.getContextPath();
+        int contextPathLength = contextPath == null ? 0 : contextPath.length();
+        int pathLength = requestURI.length() - contextPathLength;
+        if (pathLength < 0 || pathLength >= pathLengths.length || !pathLengths[pathLength]) {
+            return null;
+        }
+        if (contextPathLength == 0) {
+            return endpoints.get(requestURI);
+        }
+        if (!requestURI.startsWith(contextPath)) {
+            return null;
+        }
+        return endpoints.get(requestURI.substring(contextPathLength));
+    }
+}
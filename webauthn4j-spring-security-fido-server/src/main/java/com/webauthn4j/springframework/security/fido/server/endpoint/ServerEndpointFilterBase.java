@@ -17,6 +17,8 @@
 package com.webauthn4j.springframework.security.fido.server.endpoint;
 
 import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
 import com.webauthn4j.springframework.security.webauthn.util.ExceptionUtil;
 import com.webauthn4j.util.exception.WebAuthnException;
 import org.springframework.context.support.MessageSourceAccessor;
@@ -42,6 +44,7 @@ public abstract class ServerEndpointFilterBase extends GenericFilterBean {
     protected MessageSourceAccessor messages = SpringSecurityMessageSource.getAccessor();
     protected ObjectConverter objectConverter;
     protected ServerEndpointFilterUtil serverEndpointFilterUtil;
+    protected WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
     /**
      * Url this filter should get activated on.
      */
@@ -73,21 +76,21 @@ public abstract class ServerEndpointFilterBase extends GenericFilterBean {
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
         FilterInvocation fi = new FilterInvocation(request, response, chain);
+        HttpServletRequest httpServletRequest = fi.getRequest();
+        HttpServletResponse httpServletResponse = fi.getResponse();
+        if (!processFilter(httpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
         try {
-            HttpServletRequest httpServletRequest = fi.getRequest();
-            HttpServletResponse httpServletResponse = fi.getResponse();
             if (!httpServletRequest.getMethod().equals(HttpMethod.POST.name())) {
                 throw new AuthenticationServiceException("Authentication method not supported: " + httpServletRequest.getMethod());
             }
 
-            if (!processFilter(httpServletRequest)) {
-                chain.doFilter(request, response);
-                return;
-            }
-
             try {
                 ServerResponse serverResponse = processRequest(httpServletRequest);
-                serverEndpointFilterUtil.writeResponse(httpServletResponse, serverResponse);
+                writeResponse(httpServletResponse, serverResponse);
             } catch (WebAuthnException e) {
                 throw ExceptionUtil.wrapWithAuthenticationException(e);
             }
@@ -99,6 +102,21 @@ public abstract class ServerEndpointFilterBase extends GenericFilterBean {
 
     protected abstract ServerResponse processRequest(HttpServletRequest request);
 
+    /**
+     * Serializes the response to UTF-8 encoded JSON. Subclasses may override it to render the response from a template.
+     *
+     * @param serverResponse response
+     * @return the serialized response
+     */
+    protected byte[] serializeResponse(ServerResponse serverResponse) {
+        return objectConverter.getJsonConverter().writeValueAsBytes(serverResponse);
+    }
+
+    private void writeResponse(HttpServletResponse httpServletResponse, ServerResponse serverResponse) throws IOException {
+        instrumentation.runIO(WebAuthnStage.RESPONSE_WRITE,
+                () -> serverEndpointFilterUtil.writeResponse(httpServletResponse, serializeResponse(serverResponse)));
+    }
+
     /**
      * The filter will be used in case the URL of the request contains the FILTER_URL.
      *
@@ -109,6 +127,17 @@ public abstract class ServerEndpointFilterBase extends GenericFilterBean {
         return (request.getRequestURI().contains(filterProcessesUrl));
     }
 
+    /**
+     * Returns whether the request is handled by this filter, for use as the {@code RequestMatcher} of an
+     * {@code AsyncDelegatingFilter} wrapping it
+     *
+     * @param request request
+     * @return {@code true} if the request is handled by this filter
+     */
+    public boolean matches(HttpServletRequest request) {
+        return processFilter(request);
+    }
+
     public String getFilterProcessesUrl() {
         return filterProcessesUrl;
     }
@@ -118,4 +147,32 @@ public abstract class ServerEndpointFilterBase extends GenericFilterBean {
         this.filterProcessesUrl = filterProcessesUrl;
     }
 
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the response write stage
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
+
+    public ChallengeEnvelopeCodec getChallengeEnvelopeCodec() {
+        return serverEndpointFilterUtil.getChallengeEnvelopeCodec();
+    }
+
+    /**
+     * Sets the codec encoding the username or the user verification requirement into the challenge. The options and
+     * result endpoints must share the same codec configuration.
+     *
+     * @param challengeEnvelopeCodec challengeEnvelopeCodec
+     */
+    public void setChallengeEnvelopeCodec(ChallengeEnvelopeCodec challengeEnvelopeCodec) {
+        serverEndpointFilterUtil.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+    }
+
 }
@@ -16,16 +16,17 @@
 
 package com.webauthn4j.springframework.security.fido.server.endpoint;
 
-import com.webauthn4j.converter.util.CborConverter;
 import com.webauthn4j.converter.util.JsonConverter;
 import com.webauthn4j.converter.util.ObjectConverter;
 import com.webauthn4j.data.UserVerificationRequirement;
 import com.webauthn4j.data.client.challenge.Challenge;
 import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.springframework.security.webauthn.util.ServletUtil;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.security.authentication.InsufficientAuthenticationException;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.util.Assert;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
@@ -35,17 +36,14 @@ class ServerEndpointFilterUtil {
     protected final Log logger = LogFactory.getLog(getClass());
 
     private final JsonConverter jsonConverter;
-    private final CborConverter cborConverter;
+    private ChallengeEnvelopeCodec challengeEnvelopeCodec = new ChallengeEnvelopeCodec();
 
     ServerEndpointFilterUtil(ObjectConverter objectConverter) {
         this.jsonConverter = objectConverter.getJsonConverter();
-        this.cborConverter = objectConverter.getCborConverter();
     }
 
     void writeResponse(HttpServletResponse httpServletResponse, ServerResponse response) throws IOException {
-        String responseText = jsonConverter.writeValueAsString(response);
-        httpServletResponse.setContentType("application/json");
-        httpServletResponse.getWriter().print(responseText);
+        ServletUtil.writeJson(httpServletResponse, jsonConverter, response);
     }
 
     void writeErrorResponse(HttpServletResponse httpServletResponse, RuntimeException e) throws IOException {
@@ -61,86 +59,37 @@ class ServerEndpointFilterUtil {
             errorResponse = new ErrorResponse("The server encountered an internal error");
             statusCode = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
         }
-        String errorResponseText = jsonConverter.writeValueAsString(errorResponse);
-        httpServletResponse.setContentType("application/json");
-        httpServletResponse.getWriter().print(errorResponseText);
         httpServletResponse.setStatus(statusCode);
+        ServletUtil.writeJson(httpServletResponse, jsonConverter, errorResponse);
+    }
+
+    void writeResponse(HttpServletResponse httpServletResponse, byte[] bytes) throws IOException {
+        ServletUtil.writeJson(httpServletResponse, bytes);
     }
 
     Challenge encodeUsername(Challenge challenge, String username) {
-        UsernameEncodedChallengeEnvelope envelope = new UsernameEncodedChallengeEnvelope();
-        envelope.setChallenge(challenge.getValue());
-        envelope.setUsername(username);
-        byte[] bytes = cborConverter.writeValueAsBytes(envelope);
-        return new DefaultChallenge(bytes);
+        return new DefaultChallenge(challengeEnvelopeCodec.encodeUsername(challenge.getValue(), username));
     }
 
     String decodeUsername(Challenge challenge) {
-        try {
-            UsernameEncodedChallengeEnvelope envelope = cborConverter.readValue(challenge.getValue(), UsernameEncodedChallengeEnvelope.class);
-            return envelope.getUsername();
-        } catch (RuntimeException e) {
-            return null;
-        }
+        return challengeEnvelopeCodec.decodeUsername(challenge == null ? null : challenge.getValue());
     }
 
     Challenge encodeUserVerification(Challenge challenge, UserVerificationRequirement userVerification) {
-        UserVerificationEncodedChallengeEnvelope envelope = new UserVerificationEncodedChallengeEnvelope();
-        envelope.setChallenge(challenge.getValue());
-        envelope.setUserVerification(userVerification);
-        byte[] bytes = cborConverter.writeValueAsBytes(envelope);
-        return new DefaultChallenge(bytes);
+        return new DefaultChallenge(challengeEnvelopeCodec.encodeUserVerification(challenge.getValue(), userVerification));
     }
 
     UserVerificationRequirement decodeUserVerification(Challenge challenge) {
-        try {
-            UserVerificationEncodedChallengeEnvelope envelope = cborConverter.readValue(challenge.getValue(), UserVerificationEncodedChallengeEnvelope.class);
-            return envelope.getUserVerification();
-        } catch (RuntimeException e) {
-            return null;
-        }
+        return challengeEnvelopeCodec.decodeUserVerification(challenge == null ? null : challenge.getValue());
     }
 
-    static class UsernameEncodedChallengeEnvelope {
-        private String username;
-        private byte[] challenge;
-
-        public String getUsername() {
-            return username;
-        }
-
-        public void setUsername(String username) {
-            this.username = username;
-        }
-
-        public byte[] getChallenge() {
-            return challenge;
-        }
-
-        public void setChallenge(byte[] challenge) {
-            this.challenge = challenge;
-        }
+    ChallengeEnvelopeCodec getChallengeEnvelopeCodec() {
+        return challengeEnvelopeCodec;
     }
 
-    static class UserVerificationEncodedChallengeEnvelope {
-        private UserVerificationRequirement userVerification;
-        private byte[] challenge;
-
-        public UserVerificationRequirement getUserVerification() {
-            return userVerification;
-        }
-
-        public void setUserVerification(UserVerificationRequirement userVerification) {
-            this.userVerification = userVerification;
-        }
-
-        public byte[] getChallenge() {
-            return challenge;
-        }
-
-        public void setChallenge(byte[] challenge) {
-            this.challenge = challenge;
-        }
+    void setChallengeEnvelopeCodec(ChallengeEnvelopeCodec challengeEnvelopeCodec) {
+        Assert.notNull(challengeEnvelopeCodec, "challengeEnvelopeCodec must not be null");
+        this.challengeEnvelopeCodec = challengeEnvelopeCodec;
     }
 
 }
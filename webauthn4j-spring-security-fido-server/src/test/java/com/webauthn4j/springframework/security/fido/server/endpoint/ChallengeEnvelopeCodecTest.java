@@ -0,0 +1,178 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.fido.server.endpoint;
+
+import com.webauthn4j.data.UserVerificationRequirement;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ChallengeEnvelopeCodecTest {
+
+    private static final byte[] CHALLENGE = new byte[]{0x01, 0x23, 0x45, 0x67, (byte) 0x89, (byte) 0xAB, (byte) 0xCD, (byte) 0xEF};
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final ChallengeEnvelopeCodec target = new ChallengeEnvelopeCodec();
+    private final ChallengeEnvelopeCodec macTarget = new ChallengeEnvelopeCodec(KEY);
+
+    @Test
+    public void encodeUsername_layout_test() {
+        byte[] envelope = target.encodeUsername(CHALLENGE, "john");
+
+        assertThat(envelope).hasSize(3 + CHALLENGE.length + 2 + 4);
+        assertThat(envelope[0]).isEqualTo(ChallengeEnvelopeCodec.VERSION);
+        assertThat(envelope[1]).isEqualTo((byte) ChallengeEnvelopeCodec.TYPE_USERNAME);
+        assertThat(envelope[2]).isEqualTo((byte) CHALLENGE.length);
+        assertThat(Arrays.copyOfRange(envelope, 3, 3 + CHALLENGE.length)).isEqualTo(CHALLENGE);
+    }
+
+    @Test
+    public void username_round_trip_test() {
+        assertThat(target.decodeUsername(target.encodeUsername(CHALLENGE, "john"))).isEqualTo("john");
+        assertThat(target.decodeUsername(target.encodeUsername(CHALLENGE, "\u30e6\u30fc\u30b6"))).isEqualTo("\u30e6\u30fc\u30b6");
+        assertThat(target.decodeUsername(target.encodeUsername(CHALLENGE, ""))).isEmpty();
+        assertThat(target.decodeUsername(target.encodeUsername(CHALLENGE, null))).isNull();
+    }
+
+    @Test
+    public void userVerification_round_trip_test() {
+        for (UserVerificationRequirement userVerification : UserVerificationRequirement.values()) {
+            byte[] envelope = target.encodeUserVerification(CHALLENGE, userVerification);
+            assertThat(envelope).hasSize(3 + CHALLENGE.length + 1);
+            assertThat(target.decodeUserVerification(envelope)).isEqualTo(userVerification);
+        }
+        assertThat(target.decodeUserVerification(target.encodeUserVerification(CHALLENGE, null))).isNull();
+    }
+
+    @Test
+    public void decode_malformed_envelope_test() {
+        byte[] envelope = target.encodeUsername(CHALLENGE, "john");
+
+        assertThat(target.decodeUsername(null)).isNull();
+        assertThat(target.decodeUsername(new byte[0])).isNull();
+        assertThat(target.decodeUsername(Arrays.copyOf(envelope, envelope.length - 1))).isNull();
+        assertThat(target.decodeUsername(CHALLENGE)).isNull();
+        byte[] wrongVersion = envelope.clone();
+        wrongVersion[0] = 0x02;
+        assertThat(target.decodeUsername(wrongVersion)).isNull();
+        byte[] wrongChallengeLength = envelope.clone();
+        wrongChallengeLength[2] = (byte) 0xFF;
+        assertThat(target.decodeUsername(wrongChallengeLength)).isNull();
+        // a user verification envelope is not a username envelope
+        assertThat(target.decodeUsername(target.encodeUserVerification(CHALLENGE, UserVerificationRequirement.REQUIRED))).isNull();
+        assertThat(target.decodeUserVerification(envelope)).isNull();
+    }
+
+    @Test
+    public void decode_envelope_with_appended_data_test() {
+        byte[] trailer = new byte[]{0x01, 0x02, 0x03};
+
+        assertThat(target.decodeUsername(append(target.encodeUsername(CHALLENGE, "john"), trailer))).isEqualTo("john");
+        assertThat(target.decodeUserVerification(append(target.encodeUserVerification(CHALLENGE, UserVerificationRequirement.REQUIRED), trailer)))
+                .isEqualTo(UserVerificationRequirement.REQUIRED);
+        assertThat(macTarget.decodeUsername(append(macTarget.encodeUsername(CHALLENGE, "john"), trailer))).isEqualTo("john");
+        byte[] tampered = append(macTarget.encodeUsername(CHALLENGE, "john"), trailer);
+        tampered[3] ^= 0x01;
+        assertThat(macTarget.decodeUsername(tampered)).isNull();
+    }
+
+    @Test
+    public void mac_round_trip_test() {
+        byte[] envelope = macTarget.encodeUsername(CHALLENGE, "john");
+
+        assertThat(envelope).hasSize(3 + CHALLENGE.length + 2 + 4 + ChallengeEnvelopeCodec.MAC_LENGTH);
+        assertThat(envelope[1]).isEqualTo((byte) (ChallengeEnvelopeCodec.TYPE_USERNAME | ChallengeEnvelopeCodec.FLAG_MAC));
+        assertThat(macTarget.decodeUsername(envelope)).isEqualTo("john");
+        assertThat(macTarget.decodeUserVerification(macTarget.encodeUserVerification(CHALLENGE, UserVerificationRequirement.REQUIRED)))
+                .isEqualTo(UserVerificationRequirement.REQUIRED);
+    }
+
+    @Test
+    public void decode_tampered_envelope_with_mac_test() {
+        byte[] envelope = macTarget.encodeUsername(CHALLENGE, "john");
+        byte[] tampered = envelope.clone();
+        tampered[tampered.length - ChallengeEnvelopeCodec.MAC_LENGTH - 1] = 'x';
+        byte[] otherKey = KEY.clone();
+        otherKey[0] = 'x';
+
+        assertThat(macTarget.decodeUsername(tampered)).isNull();
+        assertThat(new ChallengeEnvelopeCodec(otherKey).decodeUsername(envelope)).isNull();
+        // unauthenticated envelopes are rejected by a codec with a key, and vice versa
+        assertThat(macTarget.decodeUsername(target.encodeUsername(CHALLENGE, "john"))).isNull();
+        assertThat(target.decodeUsername(envelope)).isNull();
+    }
+
+    @Test
+    public void mac_concurrent_round_trip_test() throws InterruptedException, ExecutionException {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String username = "user" + i;
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        if (!username.equals(macTarget.decodeUsername(macTarget.encodeUsername(CHALLENGE, username)))) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get()).isTrue();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void decode_forged_envelope_without_mac_test() {
+        byte[] forged = target.encodeUserVerification(CHALLENGE, UserVerificationRequirement.DISCOURAGED);
+        forged[forged.length - 1] = 1;
+
+        // a codec without a key provides no integrity
+        assertThat(target.decodeUserVerification(forged)).isEqualTo(UserVerificationRequirement.REQUIRED);
+    }
+
+    @Test
+    public void constructor_with_short_key_test() {
+        assertThatThrownBy(() -> new ChallengeEnvelopeCodec(new byte[8])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void encode_with_too_long_challenge_test() {
+        assertThatThrownBy(() -> target.encodeUsername(new byte[256], "john")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] append(byte[] envelope, byte[] trailer) {
+        byte[] value = Arrays.copyOf(envelope, envelope.length + trailer.length);
+        System.arraycopy(trailer, 0, value, envelope.length, trailer.length);
+        return value;
+    }
+}
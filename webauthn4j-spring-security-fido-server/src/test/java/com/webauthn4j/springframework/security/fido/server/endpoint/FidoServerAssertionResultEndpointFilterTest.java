@@ -0,0 +1,64 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.fido.server.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProvider;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class FidoServerAssertionResultEndpointFilterTest {
+
+    private final ServerPropertyProvider serverPropertyProvider = mock(ServerPropertyProvider.class);
+
+    @Test
+    public void matches_test_with_default_url() {
+        FidoServerAssertionResultEndpointFilter target = new FidoServerAssertionResultEndpointFilter(new ObjectConverter(), serverPropertyProvider);
+
+        assertThat(target.matches(request("POST", FidoServerAssertionResultEndpointFilter.FILTER_URL))).isTrue();
+        assertThat(target.matches(request("GET", FidoServerAssertionResultEndpointFilter.FILTER_URL))).isFalse();
+        assertThat(target.matches(request("POST", "/login"))).isFalse();
+    }
+
+    @Test
+    public void matches_test_with_custom_request_matcher() {
+        FidoServerAssertionResultEndpointFilter target = new FidoServerAssertionResultEndpointFilter(new ObjectConverter(), serverPropertyProvider,
+                new AntPathRequestMatcher("/custom/assertion/result", "PUT"));
+
+        assertThat(target.matches(request("PUT", "/custom/assertion/result"))).isTrue();
+        assertThat(target.matches(request("POST", FidoServerAssertionResultEndpointFilter.FILTER_URL))).isFalse();
+    }
+
+    @Test
+    public void matches_test_follows_filter_processes_url() {
+        FidoServerAssertionResultEndpointFilter target = new FidoServerAssertionResultEndpointFilter(new ObjectConverter(), serverPropertyProvider);
+        target.setFilterProcessesUrl("/custom/assertion/result");
+
+        assertThat(target.matches(request("POST", "/custom/assertion/result"))).isTrue();
+        assertThat(target.matches(request("POST", FidoServerAssertionResultEndpointFilter.FILTER_URL))).isFalse();
+    }
+
+    private MockHttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.fido.server.endpoint;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class FidoServerEndpointDispatchingFilterTest {
+
+    private final ServerEndpointFilterBase attestationOptionsEndpoint = mockEndpoint("/webauthn/attestation/options");
+    private final ServerEndpointFilterBase assertionOptionsEndpoint = mockEndpoint("/webauthn/assertion/options");
+    private final FidoServerEndpointDispatchingFilter target
+            = new FidoServerEndpointDispatchingFilter(Arrays.asList(attestationOptionsEndpoint, assertionOptionsEndpoint));
+
+    @Test
+    public void doFilter_dispatches_to_endpoint_test() throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/webauthn/assertion/options");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        target.doFilter(request, response, chain);
+
+        verify(assertionOptionsEndpoint).doFilter(request, response, chain);
+        verify(attestationOptionsEndpoint, never()).doFilter(any(), any(), any());
+        assertThat(chain.getRequest()).isNull();
+    }
+
+    @Test
+    public void doFilter_passes_unrelated_request_down_the_chain_test() throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/index.html");
+        MockFilterChain chain = new MockFilterChain();
+
+        target.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(chain.getRequest()).isSameAs(request);
+        verify(attestationOptionsEndpoint, never()).doFilter(any(), any(), any());
+        verify(assertionOptionsEndpoint, never()).doFilter(any(), any(), any());
+    }
+
+    @Test
+    public void findEndpoint_test() {
+        assertThat(target.findEndpoint(new MockHttpServletRequest("POST", "/webauthn/attestation/options"))).isSameAs(attestationOptionsEndpoint);
+        // same length as an endpoint URL
+        assertThat(target.findEndpoint(new MockHttpServletRequest("POST", "/webauthn/attestation/optionz"))).isNull();
+        // exact match only
+        assertThat(target.findEndpoint(new MockHttpServletRequest("POST", "/prefix/webauthn/attestation/options"))).isNull();
+        assertThat(target.findEndpoint(new MockHttpServletRequest("POST", "/"))).isNull();
+    }
+
+    @Test
+    public void findEndpoint_with_contextPath_test() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/app/webauthn/assertion/options");
+        request.setContextPath("/app");
+        assertThat(target.findEndpoint(request)).isSameAs(assertionOptionsEndpoint);
+
+        MockHttpServletRequest otherContextRequest = new MockHttpServletRequest("POST", "/abc/webauthn/assertion/options");
+        otherContextRequest.setContextPath("/app");
+        assertThat(target.findEndpoint(otherContextRequest)).isNull();
+    }
+
+    @Test
+    public void matches_test() {
+        assertThat(target.matches(new MockHttpServletRequest("POST", "/webauthn/attestation/options"))).isTrue();
+        assertThat(target.matches(new MockHttpServletRequest("POST", "/webauthn/attestation/optionz"))).isFalse();
+    }
+
+    @Test
+    public void constructor_with_duplicated_url_test() {
+        ServerEndpointFilterBase duplicated = mockEndpoint("/webauthn/assertion/options");
+        assertThatThrownBy(() -> new FidoServerEndpointDispatchingFilter(Arrays.asList(assertionOptionsEndpoint, duplicated)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void constructor_with_empty_list_test() {
+        assertThatThrownBy(() -> new FidoServerEndpointDispatchingFilter(Collections.emptyList()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ServerEndpointFilterBase mockEndpoint(String url) {
+        ServerEndpointFilterBase endpoint = mock(ServerEndpointFilterBase.class);
+        when(endpoint.getFilterProcessesUrl()).thenReturn(url);
+        return endpoint;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.fido.server.endpoint;
+
+import com.webauthn4j.WebAuthnManager;
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.converter.AttestationObjectConverter;
+import com.webauthn4j.converter.CollectedClientDataConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.PublicKeyCredentialType;
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.AuthenticatorData;
+import com.webauthn4j.data.attestation.authenticator.EC2COSEKey;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.data.attestation.statement.NoneAttestationStatement;
+import com.webauthn4j.data.client.ClientDataType;
+import com.webauthn4j.data.client.CollectedClientData;
+import com.webauthn4j.data.client.Origin;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.data.extension.authenticator.RegistrationExtensionAuthenticatorOutput;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnRegistrationRequestValidator;
+import com.webauthn4j.springframework.security.webauthn.challenge.AbstractClientHeldChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.challenge.HmacChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.options.OptionsProviderImpl;
+import com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProviderImpl;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs a registration ceremony through the FIDO server attestation options and result endpoints, with the challenge
+ * held by a {@link HmacChallengeRepository}
+ */
+public class FidoServerHmacChallengeRepositoryTest {
+
+    private static final byte[] SECRET = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final WebAuthnUserDetailsService userDetailsService = mock(WebAuthnUserDetailsService.class);
+    private final HmacChallengeRepository challengeRepository = new HmacChallengeRepository((byte) 1, SECRET);
+    private final OptionsProviderImpl optionsProvider = new OptionsProviderImpl(userDetailsService, challengeRepository);
+    private final FidoServerAttestationOptionsEndpointFilter optionsEndpoint = new FidoServerAttestationOptionsEndpointFilter(objectConverter, optionsProvider);
+    private final FidoServerAttestationResultEndpointFilter resultEndpoint = new FidoServerAttestationResultEndpointFilter(
+            objectConverter,
+            userDetailsService,
+            new WebAuthnRegistrationRequestValidator(
+                    WebAuthnManager.createNonStrictWebAuthnManager(objectConverter),
+                    new ServerPropertyProviderImpl(optionsProvider, challengeRepository)));
+
+    @Test
+    public void registration_test() throws Exception {
+        when(userDetailsService.tryAddAuthenticator(eq("john"), any())).thenReturn(true);
+
+        byte[] challenge = requestAttestationOptions();
+        MockHttpServletResponse response = sendAttestationResult(challenge);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        verify(userDetailsService).tryAddAuthenticator(eq("john"), any(Authenticator.class));
+    }
+
+    @Test
+    public void registration_test_with_forged_challenge() throws Exception {
+        byte[] challenge = requestAttestationOptions();
+        byte[] forged = challenge.clone();
+        forged[4] ^= 0x01;
+        MockHttpServletResponse response = sendAttestationResult(forged);
+
+        assertThat(response.getStatus()).isEqualTo(403);
+        verify(userDetailsService, never()).tryAddAuthenticator(any(), any());
+    }
+
+    private byte[] requestAttestationOptions() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", FidoServerAttestationOptionsEndpointFilter.FILTER_URL);
+        request.setContent("{\"username\":\"john\",\"displayName\":\"John Doe\"}".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        optionsEndpoint.doFilter(request, response, new MockFilterChain());
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        Map<?, ?> options = objectConverter.getJsonConverter().readValue(response.getContentAsString(), Map.class);
+        byte[] challenge = Base64UrlUtil.decode((String) options.get("challenge"));
+        assertThat(challengeRepository.loadChallenge(requestWithChallenge(challenge))).isNotNull();
+        return challenge;
+    }
+
+    private MockHttpServletResponse sendAttestationResult(byte[] challenge) throws Exception {
+        byte[] credentialId = new byte[]{0x01, 0x02, 0x03, 0x04};
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        ECPublicKey publicKey = (ECPublicKey) keyPairGenerator.generateKeyPair().getPublic();
+        AttestedCredentialData attestedCredentialData = new AttestedCredentialData(AAGUID.ZERO, credentialId,
+                EC2COSEKey.create(publicKey, COSEAlgorithmIdentifier.ES256));
+        AuthenticatorData<RegistrationExtensionAuthenticatorOutput<?>> authenticatorData = new AuthenticatorData<>(
+                sha256("localhost"), (byte) (AuthenticatorData.BIT_UP | AuthenticatorData.BIT_AT), 0, attestedCredentialData);
+        byte[] attestationObject = new AttestationObjectConverter(objectConverter)
+                .convertToBytes(new AttestationObject(authenticatorData, new NoneAttestationStatement()));
+        byte[] clientDataJSON = new CollectedClientDataConverter(objectConverter).convertToBytes(
+                new CollectedClientData(ClientDataType.CREATE, new DefaultChallenge(challenge), new Origin("http://localhost"), null));
+
+        ServerPublicKeyCredential<ServerAuthenticatorAttestationResponse> credential = new ServerPublicKeyCredential<>(
+                Base64UrlUtil.encodeToString(credentialId),
+                PublicKeyCredentialType.PUBLIC_KEY,
+                new ServerAuthenticatorAttestationResponse(
+                        Base64UrlUtil.encodeToString(clientDataJSON),
+                        Base64UrlUtil.encodeToString(attestationObject)),
+                null);
+        MockHttpServletRequest request = requestWithChallenge(challenge);
+        request.setMethod("POST");
+        request.setRequestURI(FidoServerAttestationResultEndpointFilter.FILTER_URL);
+        request.setContent(objectConverter.getJsonConverter().writeValueAsBytes(credential));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        resultEndpoint.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private MockHttpServletRequest requestWithChallenge(byte[] challenge) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(AbstractClientHeldChallengeRepository.DEFAULT_CHALLENGE_HEADER_NAME, Base64UrlUtil.encodeToString(challenge));
+        return request;
+    }
+
+    private static byte[] sha256(String value) throws GeneralSecurityException {
+        return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -17,12 +17,16 @@
 package com.webauthn4j.springframework.security.fido.server.endpoint;
 
 import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.UserVerificationRequirement;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
 import org.junit.Test;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.InsufficientAuthenticationException;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -53,4 +57,33 @@ public class ServerEndpointFilterUtilTest {
         assertThat(response.getContentType()).isEqualTo("application/json");
         assertThat(response.getContentAsString()).isEqualTo("{\"status\":\"failed\",\"errorMessage\":\"Anonymous access is prohibited\"}");
     }
+
+    @Test
+    public void writeResponse_test() throws IOException {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        target.writeResponse(response, new ErrorResponse("\u8a8d\u8a3c\u5931\u6557"));
+
+        byte[] expected = "{\"status\":\"failed\",\"errorMessage\":\"\u8a8d\u8a3c\u5931\u6557\"}".getBytes(StandardCharsets.UTF_8);
+        assertThat(response.getContentType()).isEqualTo("application/json");
+        assertThat(response.getContentLength()).isEqualTo(expected.length);
+        assertThat(response.getContentAsByteArray()).isEqualTo(expected);
+    }
+
+    @Test
+    public void encodeUsername_decodeUsername_test() {
+        Challenge challenge = target.encodeUsername(new DefaultChallenge(), "john");
+
+        assertThat(target.decodeUsername(challenge)).isEqualTo("john");
+        assertThat(target.decodeUsername(new DefaultChallenge())).isNull();
+        assertThat(target.decodeUsername(null)).isNull();
+    }
+
+    @Test
+    public void encodeUserVerification_decodeUserVerification_test() {
+        Challenge challenge = target.encodeUserVerification(new DefaultChallenge(), UserVerificationRequirement.REQUIRED);
+
+        assertThat(target.decodeUserVerification(challenge)).isEqualTo(UserVerificationRequirement.REQUIRED);
+        assertThat(target.decodeUserVerification(new DefaultChallenge())).isNull();
+    }
 }
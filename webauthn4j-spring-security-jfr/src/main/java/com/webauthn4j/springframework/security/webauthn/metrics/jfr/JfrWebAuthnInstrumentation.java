@@ -0,0 +1,102 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.metrics.jfr;
+
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
+import com.webauthn4j.util.Base64UrlUtil;
+import com.webauthn4j.util.MessageDigestUtil;
+
+/**
+ * A {@link WebAuthnInstrumentation} implementation which commits a JDK Flight Recorder event for each stage.
+ * <p>
+ * The events, named {@value WebAuthnStageEvent#NAME}, carry the operation, the stage, the outcome, the fully
+ * qualified class name of the exception thrown to the caller, the SHA-256 hash of the credentialId, the attestation statement format and
+ * the AAGUID, as far as they are known to the stage. Their duration is the duration of the stage, so that they can be
+ * correlated with GC and lock events of the same thread and period.
+ * <p>
+ * While no recording enables the event, {@link #start(WebAuthnStage)} returns a shared no-op sample, and the
+ * credentialId is not hashed. As the {@code jdk.jfr} API is not part of Java SE 8, this class ships in its own module,
+ * which requires Java 11 or later.
+ */
+public class JfrWebAuthnInstrumentation implements WebAuthnInstrumentation {
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Sample start(WebAuthnStage stage) {
+        WebAuthnStageEvent event = new WebAuthnStageEvent();
+        if (!event.isEnabled()) {
+            return Sample.NOOP;
+        }
+        event.operation = stage.getOperation();
+        event.stage = stage.getStageName();
+        event.begin();
+        return new JfrSample(event);
+    }
+
+    private static class JfrSample implements Sample {
+
+        private final WebAuthnStageEvent event;
+        private byte[] credentialId;
+
+        JfrSample(WebAuthnStageEvent event) {
+            this.event = event;
+        }
+
+        @Override
+        public void setCredentialId(byte[] credentialId) {
+            this.credentialId = credentialId;
+        }
+
+        @Override
+        public void setAttestationFormat(String attestationFormat) {
+            event.attestationFormat = attestationFormat;
+        }
+
+        @Override
+        public void setAaguid(AAGUID aaguid) {
+            event.aaguid = aaguid == null ? null : aaguid.toString();
+        }
+
+        @Override
+        public void success() {
+            commit("success", null);
+        }
+
+        @Override
+        public void failure(Throwable exception) {
+            commit("failure", exception.getClass().getName());
+        }
+
+        private void commit(String outcome, String exception) {
+            event.end();
+            // Below the threshold of the recording, the event is dropped, so the hash is not computed
+            if (event.shouldCommit()) {
+                event.outcome = outcome;
+                event.exception = exception;
+                if (credentialId != null) {
+                    event.credentialIdHash = Base64UrlUtil.encodeToString(MessageDigestUtil.createSHA256().digest(credentialId));
+                }
+                event.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event of a stage of the WebAuthn pipelines, committed by {@link JfrWebAuthnInstrumentation}
+ */
+@Name(WebAuthnStageEvent.NAME)
+@Label("WebAuthn Stage")
+@Category({"WebAuthn4J", "Spring Security"})
+@Description("A stage of the WebAuthn authentication and registration pipelines")
+@StackTrace(false)
+class WebAuthnStageEvent extends Event {
+
+    static final String NAME = "com.webauthn4j.springframework.security.WebAuthnStage";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Exception")
+    String exception;
+
+    @Label("Credential ID Hash")
+    @Description("Base64url encoded SHA-256 hash of the credentialId")
+    String credentialIdHash;
+
+    @Label("Attestation Format")
+    String attestationFormat;
+
+    @Label("AAGUID")
+    String aaguid;
+}
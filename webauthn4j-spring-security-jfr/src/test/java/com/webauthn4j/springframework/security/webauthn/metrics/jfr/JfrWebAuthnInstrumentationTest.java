@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.metrics.jfr;
+
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.springframework.security.webauthn.exception.BadSignatureException;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
+import com.webauthn4j.util.Base64UrlUtil;
+import com.webauthn4j.util.MessageDigestUtil;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JfrWebAuthnInstrumentationTest {
+
+    private final JfrWebAuthnInstrumentation target = new JfrWebAuthnInstrumentation();
+
+    @Test
+    public void start_without_recording_test() {
+        assertThat(target.start(WebAuthnStage.AUTHENTICATION_VALIDATION)).isSameAs(WebAuthnInstrumentation.Sample.NOOP);
+    }
+
+    @Test
+    public void events_test() throws IOException {
+        byte[] credentialId = new byte[]{0x01, 0x02, 0x03};
+        AAGUID aaguid = new AAGUID("fa2b99dc-9e39-4257-8f92-4a30d23c4118");
+
+        List<RecordedEvent> events;
+        Path file = Files.createTempFile("webauthn", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(WebAuthnStageEvent.NAME);
+            recording.start();
+
+            WebAuthnInstrumentation.Sample sample = target.start(WebAuthnStage.REGISTRATION_VALIDATION);
+            sample.setCredentialId(credentialId);
+            sample.setAttestationFormat("tpm");
+            sample.setAaguid(aaguid);
+            sample.success();
+            target.start(WebAuthnStage.AUTHENTICATION_VALIDATION).failure(new BadSignatureException("dummy"));
+
+            recording.stop();
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals(WebAuthnStageEvent.NAME))
+                    .collect(Collectors.toList());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        assertThat(events).hasSize(2);
+        RecordedEvent registration = events.get(0);
+        assertThat(registration.getString("operation")).isEqualTo("registration");
+        assertThat(registration.getString("stage")).isEqualTo("validation");
+        assertThat(registration.getString("outcome")).isEqualTo("success");
+        assertThat(registration.getString("exception")).isNull();
+        assertThat(registration.getString("credentialIdHash"))
+                .isEqualTo(Base64UrlUtil.encodeToString(MessageDigestUtil.createSHA256().digest(credentialId)));
+        assertThat(registration.getString("attestationFormat")).isEqualTo("tpm");
+        assertThat(registration.getString("aaguid")).isEqualTo(aaguid.toString());
+        RecordedEvent authentication = events.get(1);
+        assertThat(authentication.getString("operation")).isEqualTo("authentication");
+        assertThat(authentication.getString("outcome")).isEqualTo("failure");
+        assertThat(authentication.getString("exception")).isEqualTo(BadSignatureException.class.getName());
+        assertThat(authentication.getString("credentialIdHash")).isNull();
+    }
+}
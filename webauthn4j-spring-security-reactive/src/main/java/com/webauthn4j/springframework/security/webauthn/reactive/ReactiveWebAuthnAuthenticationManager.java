@@ -0,0 +1,268 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive;
+
+import com.webauthn4j.WebAuthnManager;
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.data.AuthenticationParameters;
+import com.webauthn4j.data.AuthenticationRequest;
+import com.webauthn4j.springframework.security.webauthn.SpringSecurityWebAuthnMessageSource;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnAssertionAuthenticationToken;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnAuthenticationChecks;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnAuthenticationToken;
+import com.webauthn4j.springframework.security.webauthn.authenticator.PublicKeyCache;
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
+import com.webauthn4j.springframework.security.webauthn.reactive.authenticator.ReactiveWebAuthnAuthenticatorService;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import com.webauthn4j.springframework.security.webauthn.reactive.util.ReactiveInstrumentationUtil;
+import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnAuthenticationContext;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
+import com.webauthn4j.springframework.security.webauthn.util.ExceptionUtil;
+import com.webauthn4j.util.exception.WebAuthnException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.security.authentication.*;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+import java.io.Serializable;
+import java.util.Optional;
+
+/**
+ * A {@link ReactiveAuthenticationManager} implementation for processing {@link WebAuthnAssertionAuthenticationToken},
+ * the reactive counterpart of {@link com.webauthn4j.springframework.security.webauthn.WebAuthnAuthenticationProvider}.
+ * <p>
+ * The user and the authenticator are looked up, and the counter is updated, through the non-blocking
+ * {@link ReactiveWebAuthnUserDetailsService} and {@link ReactiveWebAuthnAuthenticatorService}. The assertion is
+ * validated on the subscribing thread, as it only takes CPU time. Other authentication tokens are not supported, and
+ * result in an empty {@link Mono}, so that the manager can be combined with others by a
+ * {@link DelegatingReactiveAuthenticationManager}.
+ */
+public class ReactiveWebAuthnAuthenticationManager implements ReactiveAuthenticationManager {
+
+    //~ Instance fields
+    // ================================================================================================
+
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    protected final MessageSourceAccessor messages = SpringSecurityWebAuthnMessageSource.getAccessor();
+    private final ReactiveWebAuthnUserDetailsService userDetailsService;
+    private final ReactiveWebAuthnAuthenticatorService authenticatorService;
+    private final WebAuthnManager webAuthnManager;
+    private boolean forcePrincipalAsString = false;
+    private boolean hideCredentialIdNotFoundExceptions = true;
+    private UserDetailsChecker preAuthenticationChecks = WebAuthnAuthenticationChecks.preAuthenticationChecks();
+    private UserDetailsChecker postAuthenticationChecks = WebAuthnAuthenticationChecks.postAuthenticationChecks();
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
+    private PublicKeyCache publicKeyCache = null;
+
+    // ~ Constructor
+    // ========================================================================================================
+
+    public ReactiveWebAuthnAuthenticationManager(
+            ReactiveWebAuthnUserDetailsService userDetailsService,
+            ReactiveWebAuthnAuthenticatorService authenticatorService,
+            WebAuthnManager webAuthnManager) {
+
+        Assert.notNull(userDetailsService, "userDetailsService must not be null");
+        Assert.notNull(authenticatorService, "authenticatorService must not be null");
+        Assert.notNull(webAuthnManager, "webAuthnManager must not be null");
+
+        this.userDetailsService = userDetailsService;
+        this.authenticatorService = authenticatorService;
+        this.webAuthnManager = webAuthnManager;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<Authentication> authenticate(Authentication authentication) {
+        if (!(authentication instanceof WebAuthnAssertionAuthenticationToken)) {
+            return Mono.empty();
+        }
+
+        WebAuthnAssertionAuthenticationToken authenticationToken = (WebAuthnAssertionAuthenticationToken) authentication;
+
+        WebAuthnAuthenticationRequest credentials = authenticationToken.getCredentials();
+        if (credentials == null) {
+            logger.debug("Authentication failed: no credentials provided");
+
+            return Mono.error(new BadCredentialsException(messages.getMessage(
+                    "WebAuthnAuthenticationProvider.badCredentials",
+                    "Bad credentials")));
+        }
+
+        byte[] credentialId = credentials.getCredentialId();
+
+        return observe(WebAuthnStage.AUTHENTICATION_USER_LOOKUP, credentialId, retrieveAuthenticationContext(credentialId))
+                .flatMap(authenticationContext -> authenticatorService.getLatestCounter(credentialId, authenticationContext.getAuthenticator().getCounter())
+                        .doOnNext(latestCounter -> WebAuthnAuthenticationChecks.applyLatestCounter(authenticationContext.getAuthenticator(), latestCounter))
+                        .thenReturn(authenticationContext))
+                .zipWith(getCurrentAuthentication())
+                .flatMap(tuple -> {
+                    WebAuthnUserDetails user = tuple.getT1().getUser();
+                    Authenticator authenticator = tuple.getT1().getAuthenticator();
+                    boolean userVerificationRequired = WebAuthnAuthenticationChecks.isUserVerificationRequired(user, credentials, tuple.getT2().orElse(null));
+
+                    preAuthenticationChecks.check(user);
+                    return observe(WebAuthnStage.AUTHENTICATION_VALIDATION, credentialId,
+                            Mono.<Void>fromRunnable(() -> validate(credentials, authenticator, userVerificationRequired)))
+                            .then(Mono.fromRunnable(() -> postAuthenticationChecks.check(user)))
+                            // the counter is read once validated, as the validation updates it
+                            .then(observe(WebAuthnStage.AUTHENTICATION_COUNTER_UPDATE, credentialId,
+                                    Mono.defer(() -> authenticatorService.updateCounter(credentialId, authenticator.getCounter()))))
+                            .then(Mono.fromSupplier(() -> createSuccessAuthentication(authenticationToken, user)));
+                });
+    }
+
+    void validate(WebAuthnAuthenticationRequest credentials, Authenticator authenticator, boolean userVerificationRequired) {
+        AuthenticationParameters authenticationParameters = new AuthenticationParameters(
+                credentials.getServerProperty(),
+                publicKeyCache == null ? authenticator : publicKeyCache.wrap(authenticator),
+                userVerificationRequired,
+                credentials.isUserPresenceRequired(),
+                credentials.getExpectedAuthenticationExtensionIds()
+        );
+        AuthenticationRequest authenticationRequest = new AuthenticationRequest(
+                credentials.getCredentialId(),
+                credentials.getAuthenticatorData(),
+                credentials.getClientDataJSON(),
+                credentials.getClientExtensionsJSON(),
+                credentials.getSignature()
+        );
+        try {
+            webAuthnManager.validate(authenticationRequest, authenticationParameters);
+        } catch (WebAuthnException e) {
+            throw ExceptionUtil.wrapWithAuthenticationException(e);
+        }
+    }
+
+    private Authentication createSuccessAuthentication(WebAuthnAssertionAuthenticationToken authenticationToken, WebAuthnUserDetails user) {
+        Serializable principalToReturn = user;
+
+        if (forcePrincipalAsString) {
+            principalToReturn = user.getUsername();
+        }
+
+        WebAuthnAuthenticationToken result = new WebAuthnAuthenticationToken(
+                principalToReturn, authenticationToken.getCredentials(), user.getAuthorities());
+        result.setDetails(authenticationToken.getDetails());
+        return result;
+    }
+
+    Mono<WebAuthnAuthenticationContext> retrieveAuthenticationContext(byte[] credentialId) {
+        return userDetailsService.findAuthenticationContextByCredentialId(credentialId)
+                .onErrorMap(e -> !(e instanceof CredentialIdNotFoundException),
+                        repositoryProblem -> new InternalAuthenticationServiceException(repositoryProblem.getMessage(), repositoryProblem))
+                // Unknown credentialIds are expected during enumeration attempts, so the stack trace is not captured
+                .switchIfEmpty(Mono.defer(() -> Mono.error(new CredentialIdNotFoundException("credentialId is not found", null, false))))
+                .onErrorMap(CredentialIdNotFoundException.class, this::hideCredentialIdNotFoundException);
+    }
+
+    private AuthenticationException hideCredentialIdNotFoundException(CredentialIdNotFoundException notFound) {
+        if (hideCredentialIdNotFoundExceptions) {
+            return new BadCredentialsException(messages.getMessage(
+                    "WebAuthnAuthenticationProvider.badCredentials",
+                    "Bad credentials"));
+        } else {
+            return notFound;
+        }
+    }
+
+    private Mono<Optional<Authentication>> getCurrentAuthentication() {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(context -> Optional.ofNullable(context.getAuthentication()))
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private <T> Mono<T> observe(WebAuthnStage stage, byte[] credentialId, Mono<T> mono) {
+        return ReactiveInstrumentationUtil.time(instrumentation, stage, sample -> sample.setCredentialId(credentialId), mono);
+    }
+
+    public boolean isForcePrincipalAsString() {
+        return forcePrincipalAsString;
+    }
+
+    public void setForcePrincipalAsString(boolean forcePrincipalAsString) {
+        this.forcePrincipalAsString = forcePrincipalAsString;
+    }
+
+    public boolean isHideCredentialIdNotFoundExceptions() {
+        return hideCredentialIdNotFoundExceptions;
+    }
+
+    /**
+     * Sets whether an unknown credentialId results in a <code>BadCredentialsException</code>, as an incorrect credential
+     * does, or in a <code>CredentialIdNotFoundException</code>.
+     *
+     * @param hideCredentialIdNotFoundExceptions set to <code>false</code> if you wish
+     *                                           <code>CredentialIdNotFoundException</code>s to be signaled (defaults to <code>true</code>)
+     */
+    public void setHideCredentialIdNotFoundExceptions(boolean hideCredentialIdNotFoundExceptions) {
+        this.hideCredentialIdNotFoundExceptions = hideCredentialIdNotFoundExceptions;
+    }
+
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the user lookup, validation and counter update stages
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
+
+    public PublicKeyCache getPublicKeyCache() {
+        return publicKeyCache;
+    }
+
+    /**
+     * Sets the cache of the PublicKeys the assertion signatures are verified with. No cache is used by default.
+     *
+     * @param publicKeyCache publicKeyCache, or {@code null} to decode the PublicKey on every assertion
+     */
+    public void setPublicKeyCache(PublicKeyCache publicKeyCache) {
+        this.publicKeyCache = publicKeyCache;
+    }
+
+    public void setPreAuthenticationChecks(UserDetailsChecker preAuthenticationChecks) {
+        Assert.notNull(preAuthenticationChecks, "preAuthenticationChecks must not be null");
+        this.preAuthenticationChecks = preAuthenticationChecks;
+    }
+
+    public void setPostAuthenticationChecks(UserDetailsChecker postAuthenticationChecks) {
+        Assert.notNull(postAuthenticationChecks, "postAuthenticationChecks must not be null");
+        this.postAuthenticationChecks = postAuthenticationChecks;
+    }
+}
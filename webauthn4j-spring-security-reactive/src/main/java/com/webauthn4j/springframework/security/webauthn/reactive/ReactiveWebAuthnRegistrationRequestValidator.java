@@ -0,0 +1,152 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive;
+
+import com.webauthn4j.WebAuthnManager;
+import com.webauthn4j.data.RegistrationData;
+import com.webauthn4j.data.RegistrationParameters;
+import com.webauthn4j.data.RegistrationRequest;
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.AuthenticatorData;
+import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnRegistrationRequestValidationResponse;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnRegistrationRequestValidator;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
+import com.webauthn4j.springframework.security.webauthn.reactive.server.ReactiveServerPropertyProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.util.ReactiveInstrumentationUtil;
+import com.webauthn4j.springframework.security.webauthn.util.ExceptionUtil;
+import com.webauthn4j.util.exception.WebAuthnException;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Validates a WebAuthn registration request, the reactive counterpart of {@link WebAuthnRegistrationRequestValidator}.
+ * Only the {@link ServerProperty} resolution is non-blocking; the validation itself runs on the subscribing thread.
+ */
+public class ReactiveWebAuthnRegistrationRequestValidator {
+
+    // ~ Instance fields
+    // ================================================================================================
+    private final WebAuthnManager webAuthnManager;
+    private final ReactiveServerPropertyProvider serverPropertyProvider;
+
+    private List<String> expectedRegistrationExtensionIds = Collections.emptyList();
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public ReactiveWebAuthnRegistrationRequestValidator(WebAuthnManager webAuthnManager, ReactiveServerPropertyProvider serverPropertyProvider) {
+
+        Assert.notNull(webAuthnManager, "webAuthnManager must not be null");
+        Assert.notNull(serverPropertyProvider, "serverPropertyProvider must not be null");
+
+        this.webAuthnManager = webAuthnManager;
+        this.serverPropertyProvider = serverPropertyProvider;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Validates a registration request whose clientDataJSON and attestationObject are already decoded from Base64Url.
+     *
+     * @param exchange               exchange
+     * @param clientDataBytes        clientDataJSON
+     * @param attestationObjectBytes attestationObject
+     * @param transports             transports, may be {@code null}
+     * @param clientExtensionsJSON   client extension outputs JSON, may be {@code null}
+     * @return the parsed and validated registration
+     */
+    public Mono<WebAuthnRegistrationRequestValidationResponse> validate(ServerWebExchange exchange,
+                                                                        byte[] clientDataBytes,
+                                                                        byte[] attestationObjectBytes,
+                                                                        Set<String> transports,
+                                                                        String clientExtensionsJSON
+    ) {
+        Assert.notNull(exchange, "exchange must not be null");
+        Assert.isTrue(clientDataBytes != null && clientDataBytes.length > 0, "clientDataBytes must not be empty");
+        Assert.isTrue(attestationObjectBytes != null && attestationObjectBytes.length > 0, "attestationObjectBytes must not be empty");
+        if (transports != null) {
+            transports.forEach(transport -> Assert.hasText(transport, "each transport must have text"));
+        }
+
+        RegistrationRequest registrationRequest = new RegistrationRequest(attestationObjectBytes, clientDataBytes, clientExtensionsJSON, transports);
+        return ReactiveInstrumentationUtil.time(instrumentation, WebAuthnStage.REGISTRATION_SERVER_PROPERTY, serverPropertyProvider.provide(exchange))
+                .map(serverProperty -> validate(registrationRequest, new RegistrationParameters(serverProperty, false, false, expectedRegistrationExtensionIds)));
+    }
+
+    private WebAuthnRegistrationRequestValidationResponse validate(RegistrationRequest registrationRequest, RegistrationParameters registrationParameters) {
+        return instrumentation.observe(WebAuthnStage.REGISTRATION_VALIDATION, sample -> {
+            RegistrationData response;
+            try {
+                response = webAuthnManager.validate(registrationRequest, registrationParameters);
+            } catch (WebAuthnException e) {
+                throw ExceptionUtil.wrapWithAuthenticationException(e);
+            }
+            setAttributes(sample, response.getAttestationObject());
+            return new WebAuthnRegistrationRequestValidationResponse(
+                    response.getCollectedClientData(),
+                    response.getAttestationObject(),
+                    response.getClientExtensions());
+        });
+    }
+
+    private void setAttributes(WebAuthnInstrumentation.Sample sample, AttestationObject attestationObject) {
+        if (attestationObject == null) {
+            return;
+        }
+        sample.setAttestationFormat(attestationObject.getFormat());
+        AuthenticatorData<?> authenticatorData = attestationObject.getAuthenticatorData();
+        AttestedCredentialData attestedCredentialData = authenticatorData == null ? null : authenticatorData.getAttestedCredentialData();
+        if (attestedCredentialData != null) {
+            sample.setCredentialId(attestedCredentialData.getCredentialId());
+            sample.setAaguid(attestedCredentialData.getAaguid());
+        }
+    }
+
+    public List<String> getExpectedRegistrationExtensionIds() {
+        return expectedRegistrationExtensionIds;
+    }
+
+    public void setExpectedRegistrationExtensionIds(List<String> expectedRegistrationExtensionIds) {
+        Assert.notNull(expectedRegistrationExtensionIds, "expectedRegistrationExtensionIds must not be null");
+        this.expectedRegistrationExtensionIds = expectedRegistrationExtensionIds;
+    }
+
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the ServerProperty resolution and validation stages
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive;
+
+import com.webauthn4j.springframework.security.webauthn.WebAuthnAssertionAuthenticationToken;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnProcessingFilter;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
+import com.webauthn4j.springframework.security.webauthn.reactive.server.ReactiveServerPropertyProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.util.ReactiveInstrumentationUtil;
+import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.util.Assert;
+import org.springframework.util.Base64Utils;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link ServerAuthenticationConverter} which reads a WebAuthn authentication form submission, the reactive
+ * counterpart of {@link WebAuthnProcessingFilter#attemptAuthentication}.
+ * <p>
+ * The form must present WebAuthn parameters (credentialId, clientDataJSON, authenticatorData, signature and
+ * clientExtensionJSON), converted to a {@link WebAuthnAssertionAuthenticationToken}, or username/password parameters,
+ * converted to a {@link UsernamePasswordAuthenticationToken} for another {@code ReactiveAuthenticationManager}.
+ * The default parameter names are the ones of {@link WebAuthnProcessingFilter}.
+ */
+public class WebAuthnServerAuthenticationConverter implements ServerAuthenticationConverter {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final ReactiveServerPropertyProvider serverPropertyProvider;
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
+
+    private String usernameParameter = UsernamePasswordAuthenticationFilter.SPRING_SECURITY_FORM_USERNAME_KEY;
+    private String passwordParameter = UsernamePasswordAuthenticationFilter.SPRING_SECURITY_FORM_PASSWORD_KEY;
+    private String credentialIdParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_CREDENTIAL_ID_KEY;
+    private String clientDataJSONParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_CLIENT_DATA_JSON_KEY;
+    private String authenticatorDataParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_AUTHENTICATOR_DATA_KEY;
+    private String signatureParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_SIGNATURE_KEY;
+    private String clientExtensionsJSONParameter = WebAuthnProcessingFilter.SPRING_SECURITY_FORM_CLIENT_EXTENSIONS_JSON_KEY;
+
+    private List<String> expectedAuthenticationExtensionIds = Collections.emptyList();
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public WebAuthnServerAuthenticationConverter(ReactiveServerPropertyProvider serverPropertyProvider) {
+        Assert.notNull(serverPropertyProvider, "serverPropertyProvider must not be null");
+        this.serverPropertyProvider = serverPropertyProvider;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Mono<Authentication> convert(ServerWebExchange exchange) {
+        return exchange.getFormData().flatMap(formData -> convert(exchange, formData));
+    }
+
+    private Mono<Authentication> convert(ServerWebExchange exchange, MultiValueMap<String, String> formData) {
+        String credentialId = formData.getFirst(credentialIdParameter);
+        if (StringUtils.isEmpty(credentialId)) {
+            String username = formData.getFirst(usernameParameter);
+            String password = formData.getFirst(passwordParameter);
+            return Mono.just(new UsernamePasswordAuthenticationToken(username, password));
+        }
+
+        byte[][] decoded;
+        try {
+            decoded = instrumentation.time(WebAuthnStage.AUTHENTICATION_REQUEST_DECODE, () -> new byte[][]{
+                    Base64Utils.decodeFromUrlSafeString(credentialId),
+                    Base64Utils.decodeFromUrlSafeString(formData.getFirst(clientDataJSONParameter)),
+                    Base64Utils.decodeFromUrlSafeString(formData.getFirst(authenticatorDataParameter)),
+                    Base64Utils.decodeFromUrlSafeString(formData.getFirst(signatureParameter))
+            });
+        } catch (RuntimeException e) {
+            return Mono.error(e);
+        }
+        String clientExtensionsJSON = formData.getFirst(clientExtensionsJSONParameter);
+
+        return ReactiveInstrumentationUtil.time(instrumentation, WebAuthnStage.AUTHENTICATION_SERVER_PROPERTY,
+                serverPropertyProvider.provide(exchange)).map(serverProperty -> {
+            WebAuthnAuthenticationRequest webAuthnAuthenticationRequest = new WebAuthnAuthenticationRequest(
+                    decoded[0],
+                    decoded[1],
+                    decoded[2],
+                    decoded[3],
+                    clientExtensionsJSON,
+                    serverProperty,
+                    true,
+                    expectedAuthenticationExtensionIds
+            );
+            return new WebAuthnAssertionAuthenticationToken(webAuthnAuthenticationRequest);
+        });
+    }
+
+    public String getUsernameParameter() {
+        return usernameParameter;
+    }
+
+    public void setUsernameParameter(String usernameParameter) {
+        Assert.hasText(usernameParameter, "usernameParameter must not be empty or null");
+        this.usernameParameter = usernameParameter;
+    }
+
+    public String getPasswordParameter() {
+        return passwordParameter;
+    }
+
+    public void setPasswordParameter(String passwordParameter) {
+        Assert.hasText(passwordParameter, "passwordParameter must not be empty or null");
+        this.passwordParameter = passwordParameter;
+    }
+
+    public String getCredentialIdParameter() {
+        return credentialIdParameter;
+    }
+
+    public void setCredentialIdParameter(String credentialIdParameter) {
+        Assert.hasText(credentialIdParameter, "credentialIdParameter must not be empty or null");
+        this.credentialIdParameter = credentialIdParameter;
+    }
+
+    public String getClientDataJSONParameter() {
+        return clientDataJSONParameter;
+    }
+
+    public void setClientDataJSONParameter(String clientDataJSONParameter) {
+        Assert.hasText(clientDataJSONParameter, "clientDataJSONParameter must not be empty or null");
+        this.clientDataJSONParameter = clientDataJSONParameter;
+    }
+
+    public String getAuthenticatorDataParameter() {
+        return authenticatorDataParameter;
+    }
+
+    public void setAuthenticatorDataParameter(String authenticatorDataParameter) {
+        Assert.hasText(authenticatorDataParameter, "authenticatorDataParameter must not be empty or null");
+        this.authenticatorDataParameter = authenticatorDataParameter;
+    }
+
+    public String getSignatureParameter() {
+        return signatureParameter;
+    }
+
+    public void setSignatureParameter(String signatureParameter) {
+        Assert.hasText(signatureParameter, "signatureParameter must not be empty or null");
+        this.signatureParameter = signatureParameter;
+    }
+
+    public String getClientExtensionsJSONParameter() {
+        return clientExtensionsJSONParameter;
+    }
+
+    public void setClientExtensionsJSONParameter(String clientExtensionsJSONParameter) {
+        Assert.hasText(clientExtensionsJSONParameter, "clientExtensionsJSONParameter must not be empty or null");
+        this.clientExtensionsJSONParameter = clientExtensionsJSONParameter;
+    }
+
+    public List<String> getExpectedAuthenticationExtensionIds() {
+        return expectedAuthenticationExtensionIds;
+    }
+
+    public void setExpectedAuthenticationExtensionIds(List<String> expectedAuthenticationExtensionIds) {
+        Assert.notNull(expectedAuthenticationExtensionIds, "expectedAuthenticationExtensionIds must not be null");
+        this.expectedAuthenticationExtensionIds = expectedAuthenticationExtensionIds;
+    }
+
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the request decode and server property stages
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
+}
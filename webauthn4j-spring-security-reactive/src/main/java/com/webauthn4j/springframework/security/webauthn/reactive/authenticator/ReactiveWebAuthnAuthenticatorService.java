@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.authenticator;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Updates authenticators without blocking. The reactive counterpart of
+ * {@link com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticatorService}.
+ */
+public interface ReactiveWebAuthnAuthenticatorService {
+
+    /**
+     * Updates Authenticator counter
+     *
+     * @param credentialId credentialId
+     * @param counter      counter
+     * @return completes when the counter is updated, or signals
+     * {@link com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException} if the
+     * authenticator could not be found
+     */
+    Mono<Void> updateCounter(byte[] credentialId, long counter);
+
+    /**
+     * Returns the latest known counter of an authenticator. Implementations which defer counter updates return the
+     * counter that is not persisted yet, so that counter regression is detected against it.
+     *
+     * @param credentialId  credentialId
+     * @param storedCounter the counter loaded from the persisted authenticator
+     * @return the latest known counter
+     */
+    default Mono<Long> getLatestCounter(byte[] credentialId, long storedCounter) {
+        return Mono.just(storedCounter);
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.authenticator;
+
+import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticatorService;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Adapts a blocking {@link WebAuthnAuthenticatorService} to {@link ReactiveWebAuthnAuthenticatorService}, by running
+ * the updates on a {@link Scheduler} suited to blocking calls, {@link Schedulers#boundedElastic()} by default.
+ */
+public class ReactiveWebAuthnAuthenticatorServiceAdapter implements ReactiveWebAuthnAuthenticatorService {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final WebAuthnAuthenticatorService authenticatorService;
+    private Scheduler scheduler = Schedulers.boundedElastic();
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public ReactiveWebAuthnAuthenticatorServiceAdapter(WebAuthnAuthenticatorService authenticatorService) {
+        Assert.notNull(authenticatorService, "authenticatorService must not be null");
+        this.authenticatorService = authenticatorService;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Mono<Void> updateCounter(byte[] credentialId, long counter) {
+        return Mono.<Void>fromRunnable(() -> authenticatorService.updateCounter(credentialId, counter))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Long> getLatestCounter(byte[] credentialId, long storedCounter) {
+        return Mono.fromSupplier(() -> authenticatorService.getLatestCounter(credentialId, storedCounter))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * Sets the {@link Scheduler} the blocking updates run on
+     *
+     * @param scheduler scheduler
+     */
+    public void setScheduler(Scheduler scheduler) {
+        Assert.notNull(scheduler, "scheduler must not be null");
+        this.scheduler = scheduler;
+    }
+}
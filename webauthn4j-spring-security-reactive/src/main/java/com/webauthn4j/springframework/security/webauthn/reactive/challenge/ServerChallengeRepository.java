@@ -0,0 +1,67 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * An API to allow changing the method in which the expected {@link Challenge} is
+ * associated to the {@link ServerWebExchange}. The reactive counterpart of
+ * {@link com.webauthn4j.springframework.security.webauthn.challenge.ChallengeRepository}.
+ */
+public interface ServerChallengeRepository {
+
+    /**
+     * Generates a {@link Challenge}
+     *
+     * @return the {@link Challenge} that was generated. Cannot be null.
+     */
+    Mono<Challenge> generateChallenge();
+
+    /**
+     * Saves the {@link Challenge} using the {@link ServerWebExchange}. If the {@link Challenge} is null, it is the
+     * same as deleting it.
+     *
+     * @param challenge the {@link Challenge} to save or null to delete
+     * @param exchange  the {@link ServerWebExchange} to use
+     * @return completes when the {@link Challenge} is saved
+     */
+    Mono<Void> saveChallenge(Challenge challenge, ServerWebExchange exchange);
+
+    /**
+     * Loads the expected {@link Challenge} from the {@link ServerWebExchange}
+     *
+     * @param exchange the {@link ServerWebExchange} to use
+     * @return the {@link Challenge}, or empty if none exists
+     */
+    Mono<Challenge> loadChallenge(ServerWebExchange exchange);
+
+    /**
+     * Loads or generates {@link Challenge} from the {@link ServerWebExchange}
+     *
+     * @param exchange the {@link ServerWebExchange} to use
+     * @return the {@link Challenge}
+     */
+    default Mono<Challenge> loadOrGenerateChallenge(ServerWebExchange exchange) {
+        return loadChallenge(exchange)
+                .switchIfEmpty(Mono.defer(() -> generateChallenge()
+                        .flatMap(challenge -> saveChallenge(challenge, exchange).thenReturn(challenge))));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeGenerator;
+import com.webauthn4j.springframework.security.webauthn.challenge.DefaultChallengeGenerator;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebSession;
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link ServerChallengeRepository} implementation which stores the {@link Challenge} in the {@link WebSession}
+ */
+public class WebSessionServerChallengeRepository implements ServerChallengeRepository {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    private static final String DEFAULT_CHALLENGE_ATTR_NAME = WebSessionServerChallengeRepository.class
+            .getName().concat(".CHALLENGE");
+
+    //~ Instance fields
+    // ================================================================================================
+    private String sessionAttributeName = DEFAULT_CHALLENGE_ATTR_NAME;
+    private ChallengeGenerator challengeGenerator = new DefaultChallengeGenerator();
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Mono<Challenge> generateChallenge() {
+        return Mono.fromSupplier(challengeGenerator::generate);
+    }
+
+    @Override
+    public Mono<Void> saveChallenge(Challenge challenge, ServerWebExchange exchange) {
+        return exchange.getSession()
+                .doOnNext(session -> {
+                    if (challenge == null) {
+                        session.getAttributes().remove(this.sessionAttributeName);
+                    } else {
+                        session.getAttributes().put(this.sessionAttributeName, challenge);
+                    }
+                })
+                .then();
+    }
+
+    @Override
+    public Mono<Challenge> loadChallenge(ServerWebExchange exchange) {
+        return exchange.getSession()
+                .flatMap(session -> Mono.justOrEmpty(session.<Challenge>getAttribute(this.sessionAttributeName)));
+    }
+
+    /**
+     * Sets the {@link WebSession} attribute name that the {@link Challenge} is stored in
+     *
+     * @param sessionAttributeName the new attribute name to use
+     */
+    public void setSessionAttributeName(String sessionAttributeName) {
+        Assert.hasLength(sessionAttributeName,
+                "sessionAttributeName cannot be null or empty");
+        this.sessionAttributeName = sessionAttributeName;
+    }
+
+    /**
+     * Sets the {@link ChallengeGenerator} used for generating new challenges
+     *
+     * @param challengeGenerator the {@link ChallengeGenerator} to use
+     */
+    public void setChallengeGenerator(ChallengeGenerator challengeGenerator) {
+        Assert.notNull(challengeGenerator, "challengeGenerator must not be null");
+        this.challengeGenerator = challengeGenerator;
+    }
+
+}
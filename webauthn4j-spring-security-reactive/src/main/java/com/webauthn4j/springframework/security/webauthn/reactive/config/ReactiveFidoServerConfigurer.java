@@ -0,0 +1,368 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.config;
+
+import com.webauthn4j.WebAuthnManager;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ChallengeEnvelopeCodec;
+import com.webauthn4j.springframework.security.fido.server.endpoint.FidoServerAssertionResultEndpointFilter;
+import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeGenerator;
+import com.webauthn4j.springframework.security.webauthn.challenge.DefaultChallengeGenerator;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.reactive.ReactiveWebAuthnAuthenticationManager;
+import com.webauthn4j.springframework.security.webauthn.reactive.ReactiveWebAuthnRegistrationRequestValidator;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.ServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint.*;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.server.ReactiveServerPropertyProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.server.ReactiveServerPropertyProviderImpl;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.security.web.server.context.WebSessionServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds the FIDO server endpoints to a {@link ServerHttpSecurity}, the reactive counterpart of
+ * {@code FidoServerConfigurer}. The configuration is applied by {@link #configure(ServerHttpSecurity)}:
+ * <pre>
+ * ReactiveFidoServerConfigurer.fidoServer()
+ *         .authenticationManager(authenticationManager)
+ *         .optionsProvider(optionsProvider)
+ *         .userDetailsService(userDetailsService)
+ *         .configure(http);
+ * </pre>
+ *
+ * <h2>Security Filters</h2>
+ * <p>
+ * The following WebFilters are populated
+ *
+ * <ul>
+ * <li>{@link FidoServerAttestationOptionsEndpointWebFilter}, {@link FidoServerAttestationResultEndpointWebFilter} and
+ * {@link FidoServerAssertionOptionsEndpointWebFilter}, at {@link SecurityWebFiltersOrder#LOGIN_PAGE_GENERATING}</li>
+ * <li>{@link AuthenticationWebFilter} with a {@link FidoServerAssertionResultServerAuthenticationConverter}, at
+ * {@link SecurityWebFiltersOrder#AUTHENTICATION}</li>
+ * </ul>
+ *
+ * @see ReactiveWebAuthnAuthenticationManager
+ */
+public class ReactiveFidoServerConfigurer {
+
+    //~ Instance fields
+    // ================================================================================================
+    private ApplicationContext applicationContext = null;
+    private ReactiveAuthenticationManager authenticationManager = null;
+    private ReactiveOptionsProvider optionsProvider = null;
+    private ReactiveWebAuthnUserDetailsService userDetailsService = null;
+    private WebAuthnManager webAuthnManager = null;
+    private ServerChallengeRepository challengeRepository = null;
+    private ReactiveServerPropertyProvider serverPropertyProvider = null;
+    private ObjectConverter objectConverter = null;
+    private ChallengeGenerator challengeGenerator = new DefaultChallengeGenerator();
+    private ChallengeEnvelopeCodec challengeEnvelopeCodec = new ChallengeEnvelopeCodec();
+    private ReactiveUsernameNotFoundHandler usernameNotFoundHandler = null;
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
+    private ServerSecurityContextRepository securityContextRepository = new WebSessionServerSecurityContextRepository();
+    private String assertionResultProcessingUrl = FidoServerAssertionResultEndpointFilter.FILTER_URL;
+    private List<String> expectedRegistrationExtensionIds = null;
+    private List<String> expectedAuthenticationExtensionIds = null;
+
+    public static ReactiveFidoServerConfigurer fidoServer() {
+        return new ReactiveFidoServerConfigurer();
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Adds the WebFilters to the {@link ServerHttpSecurity}
+     *
+     * @param http the {@link ServerHttpSecurity}
+     * @return the {@link ServerHttpSecurity} for additional customization
+     */
+    public ServerHttpSecurity configure(ServerHttpSecurity http) {
+        Assert.notNull(authenticationManager, "authenticationManager must be specified");
+        Assert.notNull(optionsProvider, "optionsProvider must be specified");
+        Assert.notNull(userDetailsService, "userDetailsService must be specified");
+        if (challengeRepository == null) {
+            challengeRepository = ReactiveWebAuthnConfigurerUtil.getChallengeRepository(applicationContext, optionsProvider);
+        }
+        if (serverPropertyProvider == null) {
+            serverPropertyProvider = new ReactiveServerPropertyProviderImpl(optionsProvider, challengeRepository);
+        }
+        if (objectConverter == null) {
+            objectConverter = new ObjectConverter();
+        }
+        if (webAuthnManager == null) {
+            webAuthnManager = WebAuthnManager.createNonStrictWebAuthnManager(objectConverter);
+        }
+        List<String> authenticationExtensionIds = expectedAuthenticationExtensionIds == null
+                ? new ArrayList<>(optionsProvider.getAuthenticationExtensions().keySet()) : expectedAuthenticationExtensionIds;
+
+        FidoServerAttestationOptionsEndpointWebFilter attestationOptionsEndpointFilter = new FidoServerAttestationOptionsEndpointWebFilter(objectConverter, optionsProvider);
+        attestationOptionsEndpointFilter.setChallengeGenerator(challengeGenerator);
+        attestationOptionsEndpointFilter.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+        http.addFilterAt(attestationOptionsEndpointFilter, SecurityWebFiltersOrder.LOGIN_PAGE_GENERATING);
+
+        ReactiveWebAuthnRegistrationRequestValidator registrationRequestValidator = new ReactiveWebAuthnRegistrationRequestValidator(webAuthnManager, serverPropertyProvider);
+        registrationRequestValidator.setInstrumentation(instrumentation);
+        // The expected registration extensions default to the authentication extensions, as FidoServerConfigurer does
+        registrationRequestValidator.setExpectedRegistrationExtensionIds(expectedRegistrationExtensionIds == null ? authenticationExtensionIds : expectedRegistrationExtensionIds);
+        FidoServerAttestationResultEndpointWebFilter attestationResultEndpointFilter = new FidoServerAttestationResultEndpointWebFilter(objectConverter, userDetailsService, registrationRequestValidator);
+        attestationResultEndpointFilter.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+        if (usernameNotFoundHandler != null) {
+            attestationResultEndpointFilter.setUsernameNotFoundHandler(usernameNotFoundHandler);
+        }
+        http.addFilterAt(attestationResultEndpointFilter, SecurityWebFiltersOrder.LOGIN_PAGE_GENERATING);
+
+        FidoServerAssertionOptionsEndpointWebFilter assertionOptionsEndpointFilter = new FidoServerAssertionOptionsEndpointWebFilter(objectConverter, optionsProvider);
+        assertionOptionsEndpointFilter.setChallengeGenerator(challengeGenerator);
+        assertionOptionsEndpointFilter.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+        http.addFilterAt(assertionOptionsEndpointFilter, SecurityWebFiltersOrder.LOGIN_PAGE_GENERATING);
+
+        FidoServerAssertionResultServerAuthenticationConverter authenticationConverter = new FidoServerAssertionResultServerAuthenticationConverter(objectConverter, serverPropertyProvider);
+        authenticationConverter.setInstrumentation(instrumentation);
+        authenticationConverter.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+        authenticationConverter.setExpectedAuthenticationExtensionIds(authenticationExtensionIds);
+        AuthenticationWebFilter assertionResultEndpointFilter = new AuthenticationWebFilter(authenticationManager);
+        assertionResultEndpointFilter.setRequiresAuthenticationMatcher(ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, assertionResultProcessingUrl));
+        assertionResultEndpointFilter.setServerAuthenticationConverter(authenticationConverter);
+        assertionResultEndpointFilter.setAuthenticationSuccessHandler(new FidoServerAssertionResultEndpointServerAuthenticationSuccessHandler(objectConverter));
+        assertionResultEndpointFilter.setAuthenticationFailureHandler(new FidoServerAssertionResultEndpointServerAuthenticationFailureHandler(objectConverter));
+        assertionResultEndpointFilter.setSecurityContextRepository(securityContextRepository);
+        http.addFilterAt(assertionResultEndpointFilter, SecurityWebFiltersOrder.AUTHENTICATION);
+
+        return http;
+    }
+
+    /**
+     * Specifies the {@link ApplicationContext} the shared components, such as the {@link ServerChallengeRepository},
+     * are looked up from.
+     *
+     * @param applicationContext the {@link ApplicationContext}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer applicationContext(ApplicationContext applicationContext) {
+        Assert.notNull(applicationContext, "applicationContext must not be null");
+        this.applicationContext = applicationContext;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ReactiveAuthenticationManager} of the assertion result endpoint, typically a
+     * {@link ReactiveWebAuthnAuthenticationManager}
+     *
+     * @param authenticationManager the {@link ReactiveAuthenticationManager}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer authenticationManager(ReactiveAuthenticationManager authenticationManager) {
+        Assert.notNull(authenticationManager, "authenticationManager must not be null");
+        this.authenticationManager = authenticationManager;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ReactiveOptionsProvider} of the options endpoints.
+     *
+     * @param optionsProvider the {@link ReactiveOptionsProvider}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer optionsProvider(ReactiveOptionsProvider optionsProvider) {
+        Assert.notNull(optionsProvider, "optionsProvider must not be null");
+        this.optionsProvider = optionsProvider;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ReactiveWebAuthnUserDetailsService} the attestation result endpoint adds the authenticators to.
+     *
+     * @param userDetailsService the {@link ReactiveWebAuthnUserDetailsService}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer userDetailsService(ReactiveWebAuthnUserDetailsService userDetailsService) {
+        Assert.notNull(userDetailsService, "userDetailsService must not be null");
+        this.userDetailsService = userDetailsService;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link WebAuthnManager} validating the registrations. A non-strict {@link WebAuthnManager} is used
+     * by default.
+     *
+     * @param webAuthnManager the {@link WebAuthnManager}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer webAuthnManager(WebAuthnManager webAuthnManager) {
+        Assert.notNull(webAuthnManager, "webAuthnManager must not be null");
+        this.webAuthnManager = webAuthnManager;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ServerChallengeRepository} of the default {@link ReactiveServerPropertyProvider}.
+     * Defaults to the {@link ServerChallengeRepository} bean, then to the one of the {@code ReactiveOptionsProviderImpl},
+     * then to a {@code WebSessionServerChallengeRepository}.
+     *
+     * @param challengeRepository the {@link ServerChallengeRepository}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer challengeRepository(ServerChallengeRepository challengeRepository) {
+        Assert.notNull(challengeRepository, "challengeRepository must not be null");
+        this.challengeRepository = challengeRepository;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ReactiveServerPropertyProvider} to be used.
+     *
+     * @param serverPropertyProvider the {@link ReactiveServerPropertyProvider}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer serverPropertyProvider(ReactiveServerPropertyProvider serverPropertyProvider) {
+        Assert.notNull(serverPropertyProvider, "serverPropertyProvider must not be null");
+        this.serverPropertyProvider = serverPropertyProvider;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ObjectConverter} to be used.
+     *
+     * @param objectConverter the {@link ObjectConverter}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer objectConverter(ObjectConverter objectConverter) {
+        Assert.notNull(objectConverter, "objectConverter must not be null");
+        this.objectConverter = objectConverter;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ChallengeGenerator} of the options endpoints.
+     *
+     * @param challengeGenerator the {@link ChallengeGenerator}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer challengeGenerator(ChallengeGenerator challengeGenerator) {
+        Assert.notNull(challengeGenerator, "challengeGenerator must not be null");
+        this.challengeGenerator = challengeGenerator;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ChallengeEnvelopeCodec} to be used by the endpoints, authenticating the envelopes with a
+     * key shared by all servers.
+     * <p>
+     * The codec must have a key, as a codec without a key provides no integrity of its own. By default, the envelopes
+     * are not authenticated, and are protected by the challenge validation only.
+     *
+     * @param challengeEnvelopeCodec the {@link ChallengeEnvelopeCodec}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer challengeEnvelopeCodec(ChallengeEnvelopeCodec challengeEnvelopeCodec) {
+        Assert.notNull(challengeEnvelopeCodec, "challengeEnvelopeCodec must not be null");
+        Assert.isTrue(challengeEnvelopeCodec.isMacEnabled(), "challengeEnvelopeCodec must authenticate envelopes with a key");
+        this.challengeEnvelopeCodec = challengeEnvelopeCodec;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ReactiveUsernameNotFoundHandler} of the attestation result endpoint. By default, registering
+     * an authenticator to an unknown user fails.
+     *
+     * @param usernameNotFoundHandler the {@link ReactiveUsernameNotFoundHandler}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer usernameNotFoundHandler(ReactiveUsernameNotFoundHandler usernameNotFoundHandler) {
+        Assert.notNull(usernameNotFoundHandler, "usernameNotFoundHandler must not be null");
+        this.usernameNotFoundHandler = usernameNotFoundHandler;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link WebAuthnInstrumentation} to be used.
+     *
+     * @param instrumentation the {@link WebAuthnInstrumentation}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer instrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ServerSecurityContextRepository} the authentication is saved to.
+     * A {@link WebSessionServerSecurityContextRepository} is used by default.
+     *
+     * @param securityContextRepository the {@link ServerSecurityContextRepository}
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer securityContextRepository(ServerSecurityContextRepository securityContextRepository) {
+        Assert.notNull(securityContextRepository, "securityContextRepository must not be null");
+        this.securityContextRepository = securityContextRepository;
+        return this;
+    }
+
+    /**
+     * Specifies the URL of the assertion result endpoint. Defaults to
+     * {@link FidoServerAssertionResultEndpointFilter#FILTER_URL}.
+     *
+     * @param assertionResultProcessingUrl the URL of the assertion result endpoint
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer assertionResultProcessingUrl(String assertionResultProcessingUrl) {
+        Assert.hasText(assertionResultProcessingUrl, "assertionResultProcessingUrl must not be empty or null");
+        this.assertionResultProcessingUrl = assertionResultProcessingUrl;
+        return this;
+    }
+
+    /**
+     * Specifies the expected registration extension identifiers. Defaults to the expected authentication extension
+     * identifiers.
+     *
+     * @param expectedRegistrationExtensionIds the expected registration extension identifiers
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer expectedRegistrationExtensionIds(List<String> expectedRegistrationExtensionIds) {
+        Assert.notNull(expectedRegistrationExtensionIds, "expectedRegistrationExtensionIds must not be null");
+        this.expectedRegistrationExtensionIds = expectedRegistrationExtensionIds;
+        return this;
+    }
+
+    /**
+     * Specifies the expected authentication extension identifiers. Defaults to the authentication extensions of the
+     * {@link ReactiveOptionsProvider}.
+     *
+     * @param expectedAuthenticationExtensionIds the expected authentication extension identifiers
+     * @return the {@link ReactiveFidoServerConfigurer} for additional customization
+     */
+    public ReactiveFidoServerConfigurer expectedAuthenticationExtensionIds(List<String> expectedAuthenticationExtensionIds) {
+        Assert.notNull(expectedAuthenticationExtensionIds, "expectedAuthenticationExtensionIds must not be null");
+        this.expectedAuthenticationExtensionIds = expectedAuthenticationExtensionIds;
+        return this;
+    }
+}
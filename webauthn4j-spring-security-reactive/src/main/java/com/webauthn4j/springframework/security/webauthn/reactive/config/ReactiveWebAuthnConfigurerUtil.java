@@ -0,0 +1,48 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.config;
+
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.ServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.WebSessionServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProviderImpl;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Internal utility for the reactive configurers
+ */
+class ReactiveWebAuthnConfigurerUtil {
+
+    private ReactiveWebAuthnConfigurerUtil() {
+    }
+
+    /**
+     * Resolves the {@link ServerChallengeRepository} shared by the options endpoints and the authentication: the
+     * {@link ServerChallengeRepository} bean if any, then the one of the {@link ReactiveOptionsProviderImpl}, so that
+     * the challenge issued by the options endpoints is the one the response is validated against.
+     */
+    static ServerChallengeRepository getChallengeRepository(ApplicationContext applicationContext, ReactiveOptionsProvider optionsProvider) {
+        if (applicationContext != null && applicationContext.getBeanNamesForType(ServerChallengeRepository.class).length > 0) {
+            return applicationContext.getBean(ServerChallengeRepository.class);
+        }
+        if (optionsProvider instanceof ReactiveOptionsProviderImpl) {
+            return ((ReactiveOptionsProviderImpl) optionsProvider).getChallengeRepository();
+        }
+        return new WebSessionServerChallengeRepository();
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.config;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.reactive.ReactiveWebAuthnAuthenticationManager;
+import com.webauthn4j.springframework.security.webauthn.reactive.WebAuthnServerAuthenticationConverter;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.ServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.WebSessionServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.endpoint.OptionsEndpointWebFilter;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.server.ReactiveServerPropertyProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.server.ReactiveServerPropertyProviderImpl;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.authentication.RedirectServerAuthenticationFailureHandler;
+import org.springframework.security.web.server.authentication.RedirectServerAuthenticationSuccessHandler;
+import org.springframework.security.web.server.authentication.ServerAuthenticationFailureHandler;
+import org.springframework.security.web.server.authentication.ServerAuthenticationSuccessHandler;
+import org.springframework.security.web.server.context.ServerSecurityContextRepository;
+import org.springframework.security.web.server.context.WebSessionServerSecurityContextRepository;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adds WebAuthn authentication to a {@link ServerHttpSecurity}, the reactive counterpart of
+ * {@code WebAuthnLoginConfigurer}.
+ * <p>
+ * {@link ServerHttpSecurity} has no extension point for third party configurers, so the configuration is applied by
+ * {@link #configure(ServerHttpSecurity)}:
+ * <pre>
+ * ReactiveWebAuthnLoginConfigurer.webAuthnLogin()
+ *         .authenticationManager(authenticationManager)
+ *         .optionsProvider(optionsProvider)
+ *         .configure(http);
+ * </pre>
+ *
+ * <h2>Security Filters</h2>
+ * <p>
+ * The following WebFilters are populated
+ *
+ * <ul>
+ * <li>{@link AuthenticationWebFilter} with a {@link WebAuthnServerAuthenticationConverter}, at
+ * {@link SecurityWebFiltersOrder#FORM_LOGIN}</li>
+ * <li>{@link OptionsEndpointWebFilter}, at {@link SecurityWebFiltersOrder#LOGIN_PAGE_GENERATING}</li>
+ * </ul>
+ *
+ * @see ReactiveWebAuthnAuthenticationManager
+ */
+public class ReactiveWebAuthnLoginConfigurer {
+
+    //~ Instance fields
+    // ================================================================================================
+    private ApplicationContext applicationContext = null;
+    private ReactiveAuthenticationManager authenticationManager = null;
+    private ReactiveOptionsProvider optionsProvider = null;
+    private ServerChallengeRepository challengeRepository = null;
+    private ReactiveServerPropertyProvider serverPropertyProvider = null;
+    private ObjectConverter objectConverter = null;
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
+    private ServerSecurityContextRepository securityContextRepository = new WebSessionServerSecurityContextRepository();
+    private ServerAuthenticationSuccessHandler authenticationSuccessHandler = new RedirectServerAuthenticationSuccessHandler("/");
+    private ServerAuthenticationFailureHandler authenticationFailureHandler = new RedirectServerAuthenticationFailureHandler("/login?error");
+    private String loginProcessingUrl = "/login";
+    private String optionsEndpointUrl = OptionsEndpointWebFilter.FILTER_URL;
+    private List<String> expectedAuthenticationExtensionIds = null;
+
+    public static ReactiveWebAuthnLoginConfigurer webAuthnLogin() {
+        return new ReactiveWebAuthnLoginConfigurer();
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * Adds the WebFilters to the {@link ServerHttpSecurity}
+     *
+     * @param http the {@link ServerHttpSecurity}
+     * @return the {@link ServerHttpSecurity} for additional customization
+     */
+    public ServerHttpSecurity configure(ServerHttpSecurity http) {
+        Assert.notNull(authenticationManager, "authenticationManager must be specified");
+        Assert.notNull(optionsProvider, "optionsProvider must be specified");
+        if (challengeRepository == null) {
+            challengeRepository = getSharedChallengeRepository();
+        }
+        if (serverPropertyProvider == null) {
+            serverPropertyProvider = new ReactiveServerPropertyProviderImpl(optionsProvider, challengeRepository);
+        }
+        if (objectConverter == null) {
+            objectConverter = new ObjectConverter();
+        }
+
+        WebAuthnServerAuthenticationConverter authenticationConverter = new WebAuthnServerAuthenticationConverter(serverPropertyProvider);
+        authenticationConverter.setInstrumentation(instrumentation);
+        if (expectedAuthenticationExtensionIds == null) {
+            authenticationConverter.setExpectedAuthenticationExtensionIds(new ArrayList<>(optionsProvider.getAuthenticationExtensions().keySet()));
+        } else {
+            authenticationConverter.setExpectedAuthenticationExtensionIds(expectedAuthenticationExtensionIds);
+        }
+
+        AuthenticationWebFilter authenticationFilter = new AuthenticationWebFilter(authenticationManager);
+        authenticationFilter.setRequiresAuthenticationMatcher(ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, loginProcessingUrl));
+        authenticationFilter.setServerAuthenticationConverter(authenticationConverter);
+        authenticationFilter.setAuthenticationSuccessHandler(authenticationSuccessHandler);
+        authenticationFilter.setAuthenticationFailureHandler(authenticationFailureHandler);
+        authenticationFilter.setSecurityContextRepository(securityContextRepository);
+        http.addFilterAt(authenticationFilter, SecurityWebFiltersOrder.FORM_LOGIN);
+
+        OptionsEndpointWebFilter optionsEndpointFilter = new OptionsEndpointWebFilter(optionsProvider, objectConverter);
+        optionsEndpointFilter.setRequiresOptionsMatcher(ServerWebExchangeMatchers.pathMatchers(optionsEndpointUrl));
+        http.addFilterAt(optionsEndpointFilter, SecurityWebFiltersOrder.LOGIN_PAGE_GENERATING);
+
+        return http;
+    }
+
+    ServerChallengeRepository getSharedChallengeRepository() {
+        return ReactiveWebAuthnConfigurerUtil.getChallengeRepository(applicationContext, optionsProvider);
+    }
+
+    /**
+     * Specifies the {@link ApplicationContext} the shared components, such as the {@link ServerChallengeRepository},
+     * are looked up from.
+     *
+     * @param applicationContext the {@link ApplicationContext}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer applicationContext(ApplicationContext applicationContext) {
+        Assert.notNull(applicationContext, "applicationContext must not be null");
+        this.applicationContext = applicationContext;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ReactiveAuthenticationManager} to be used, typically a
+     * {@link ReactiveWebAuthnAuthenticationManager}
+     *
+     * @param authenticationManager the {@link ReactiveAuthenticationManager}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer authenticationManager(ReactiveAuthenticationManager authenticationManager) {
+        Assert.notNull(authenticationManager, "authenticationManager must not be null");
+        this.authenticationManager = authenticationManager;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ReactiveOptionsProvider} to be used.
+     *
+     * @param optionsProvider the {@link ReactiveOptionsProvider}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer optionsProvider(ReactiveOptionsProvider optionsProvider) {
+        Assert.notNull(optionsProvider, "optionsProvider must not be null");
+        this.optionsProvider = optionsProvider;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ServerChallengeRepository} of the default {@link ReactiveServerPropertyProvider}.
+     * Defaults to the {@link ServerChallengeRepository} bean, then to the one of the {@code ReactiveOptionsProviderImpl},
+     * then to a {@link WebSessionServerChallengeRepository}.
+     *
+     * @param challengeRepository the {@link ServerChallengeRepository}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer challengeRepository(ServerChallengeRepository challengeRepository) {
+        Assert.notNull(challengeRepository, "challengeRepository must not be null");
+        this.challengeRepository = challengeRepository;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ReactiveServerPropertyProvider} to be used.
+     *
+     * @param serverPropertyProvider the {@link ReactiveServerPropertyProvider}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer serverPropertyProvider(ReactiveServerPropertyProvider serverPropertyProvider) {
+        Assert.notNull(serverPropertyProvider, "serverPropertyProvider must not be null");
+        this.serverPropertyProvider = serverPropertyProvider;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ObjectConverter} to be used.
+     *
+     * @param objectConverter the {@link ObjectConverter}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer objectConverter(ObjectConverter objectConverter) {
+        Assert.notNull(objectConverter, "objectConverter must not be null");
+        this.objectConverter = objectConverter;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link WebAuthnInstrumentation} to be used.
+     *
+     * @param instrumentation the {@link WebAuthnInstrumentation}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer instrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ServerSecurityContextRepository} the authentication is saved to.
+     * A {@link WebSessionServerSecurityContextRepository} is used by default.
+     *
+     * @param securityContextRepository the {@link ServerSecurityContextRepository}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer securityContextRepository(ServerSecurityContextRepository securityContextRepository) {
+        Assert.notNull(securityContextRepository, "securityContextRepository must not be null");
+        this.securityContextRepository = securityContextRepository;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ServerAuthenticationSuccessHandler}. Redirects to "/" by default.
+     *
+     * @param authenticationSuccessHandler the {@link ServerAuthenticationSuccessHandler}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer authenticationSuccessHandler(ServerAuthenticationSuccessHandler authenticationSuccessHandler) {
+        Assert.notNull(authenticationSuccessHandler, "authenticationSuccessHandler must not be null");
+        this.authenticationSuccessHandler = authenticationSuccessHandler;
+        return this;
+    }
+
+    /**
+     * Specifies the {@link ServerAuthenticationFailureHandler}. Redirects to "/login?error" by default.
+     *
+     * @param authenticationFailureHandler the {@link ServerAuthenticationFailureHandler}
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer authenticationFailureHandler(ServerAuthenticationFailureHandler authenticationFailureHandler) {
+        Assert.notNull(authenticationFailureHandler, "authenticationFailureHandler must not be null");
+        this.authenticationFailureHandler = authenticationFailureHandler;
+        return this;
+    }
+
+    /**
+     * Specifies the URL to validate the credentials. Defaults to "/login".
+     *
+     * @param loginProcessingUrl the URL to validate the credentials
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer loginProcessingUrl(String loginProcessingUrl) {
+        Assert.hasText(loginProcessingUrl, "loginProcessingUrl must not be empty or null");
+        this.loginProcessingUrl = loginProcessingUrl;
+        return this;
+    }
+
+    /**
+     * Specifies the URL of the options endpoint. Defaults to {@link OptionsEndpointWebFilter#FILTER_URL}.
+     *
+     * @param optionsEndpointUrl the URL of the options endpoint
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer optionsEndpointUrl(String optionsEndpointUrl) {
+        Assert.hasText(optionsEndpointUrl, "optionsEndpointUrl must not be empty or null");
+        this.optionsEndpointUrl = optionsEndpointUrl;
+        return this;
+    }
+
+    /**
+     * Specifies the expected authentication extension identifiers. Defaults to the authentication extensions of the
+     * {@link ReactiveOptionsProvider}.
+     *
+     * @param expectedAuthenticationExtensionIds the expected authentication extension identifiers
+     * @return the {@link ReactiveWebAuthnLoginConfigurer} for additional customization
+     */
+    public ReactiveWebAuthnLoginConfigurer expectedAuthenticationExtensionIds(List<String> expectedAuthenticationExtensionIds) {
+        Assert.notNull(expectedAuthenticationExtensionIds, "expectedAuthenticationExtensionIds must not be null");
+        this.expectedAuthenticationExtensionIds = expectedAuthenticationExtensionIds;
+        return this;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.endpoint;
+
+import com.webauthn4j.converter.util.JsonConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.webauthn.endpoint.ErrorResponse;
+import com.webauthn4j.springframework.security.webauthn.endpoint.OptionsEndpointFilter;
+import com.webauthn4j.springframework.security.webauthn.endpoint.OptionsResponse;
+import com.webauthn4j.springframework.security.webauthn.endpoint.Response;
+import com.webauthn4j.springframework.security.webauthn.endpoint.WebAuthnPublicKeyCredentialDescriptor;
+import com.webauthn4j.springframework.security.webauthn.options.AssertionOptions;
+import com.webauthn4j.springframework.security.webauthn.options.AttestationOptions;
+import com.webauthn4j.springframework.security.webauthn.options.Options;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link WebFilter} for providing WebAuthn option parameters to clients, the reactive counterpart of
+ * {@link OptionsEndpointFilter}. The response is the same {@link OptionsResponse}.
+ */
+public class OptionsEndpointWebFilter implements WebFilter {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    /**
+     * Default path of this endpoint
+     */
+    public static final String FILTER_URL = OptionsEndpointFilter.FILTER_URL;
+
+    //~ Instance fields
+    // ================================================================================================
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    private final ReactiveOptionsProvider optionsProvider;
+    private final JsonConverter jsonConverter;
+
+    private ServerWebExchangeMatcher requiresOptionsMatcher = ServerWebExchangeMatchers.pathMatchers(FILTER_URL);
+    private AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public OptionsEndpointWebFilter(ReactiveOptionsProvider optionsProvider, ObjectConverter objectConverter) {
+        Assert.notNull(optionsProvider, "optionsProvider must not be null");
+        Assert.notNull(objectConverter, "objectConverter must not be null");
+        this.optionsProvider = optionsProvider;
+        this.jsonConverter = objectConverter.getJsonConverter();
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return requiresOptionsMatcher.matches(exchange)
+                .filter(ServerWebExchangeMatcher.MatchResult::isMatch)
+                .switchIfEmpty(Mono.defer(() -> chain.filter(exchange).then(Mono.empty())))
+                .flatMap(matchResult -> processRequest(exchange)
+                        .flatMap(optionsResponse -> writeJson(exchange.getResponse(), HttpStatus.OK, optionsResponse))
+                        .onErrorResume(RuntimeException.class, e -> {
+                            logger.debug(e);
+                            return writeErrorResponse(exchange.getResponse(), e);
+                        }));
+    }
+
+    Mono<OptionsResponse> processRequest(ServerWebExchange exchange) {
+        return getLoginUsername()
+                .flatMap(loginUsername -> optionsProvider.getOptions(exchange, loginUsername.isEmpty() ? null : loginUsername, null))
+                .map(this::createOptionsResponse);
+    }
+
+    private OptionsResponse createOptionsResponse(Options options) {
+        AttestationOptions attestationOptions = options.getAttestationOptions();
+        AssertionOptions assertionOptions = options.getAssertionOptions();
+        List<WebAuthnPublicKeyCredentialDescriptor> credentials =
+                attestationOptions.getCredentials().stream().map(WebAuthnPublicKeyCredentialDescriptor::new).collect(Collectors.toList());
+        return new OptionsResponse(
+                attestationOptions.getRelyingParty(),
+                attestationOptions.getUser(),
+                attestationOptions.getChallenge(),
+                attestationOptions.getPubKeyCredParams(),
+                attestationOptions.getRegistrationTimeout(),
+                assertionOptions.getAuthenticationTimeout(),
+                credentials,
+                attestationOptions.getRegistrationExtensions(),
+                assertionOptions.getAuthenticationExtensions(),
+                assertionOptions.getParameters()
+        );
+    }
+
+    /**
+     * Returns the username of the current authentication, or an empty string for anonymous requests
+     */
+    Mono<String> getLoginUsername() {
+        return ReactiveSecurityContextHolder.getContext()
+                .flatMap(context -> Mono.justOrEmpty(context.getAuthentication()))
+                .filter(authentication -> !trustResolver.isAnonymous(authentication))
+                .map(Authentication::getName)
+                .defaultIfEmpty("");
+    }
+
+    Mono<Void> writeErrorResponse(ServerHttpResponse response, RuntimeException e) {
+        if (e instanceof InsufficientAuthenticationException) {
+            return writeJson(response, HttpStatus.FORBIDDEN, new ErrorResponse("Anonymous access is prohibited"));
+        } else {
+            return writeJson(response, HttpStatus.INTERNAL_SERVER_ERROR, new ErrorResponse("The server encountered an internal error"));
+        }
+    }
+
+    private Mono<Void> writeJson(ServerHttpResponse response, HttpStatus status, Response value) {
+        return Mono.defer(() -> {
+            byte[] bytes = jsonConverter.writeValueAsBytes(value);
+            response.setStatusCode(status);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setContentLength(bytes.length);
+            DataBuffer buffer = response.bufferFactory().wrap(bytes);
+            return response.writeWith(Mono.just(buffer));
+        });
+    }
+
+    /**
+     * Sets the matcher of the requests to this endpoint. Unlike {@link OptionsEndpointFilter}, which matches any request
+     * URI containing its URL, the default matcher matches the path within the application exactly.
+     *
+     * @param requiresOptionsMatcher the matcher
+     */
+    public void setRequiresOptionsMatcher(ServerWebExchangeMatcher requiresOptionsMatcher) {
+        Assert.notNull(requiresOptionsMatcher, "requiresOptionsMatcher must not be null");
+        this.requiresOptionsMatcher = requiresOptionsMatcher;
+    }
+
+    public AuthenticationTrustResolver getTrustResolver() {
+        return trustResolver;
+    }
+
+    public void setTrustResolver(AuthenticationTrustResolver trustResolver) {
+        Assert.notNull(trustResolver, "trustResolver must not be null");
+        this.trustResolver = trustResolver;
+    }
+}
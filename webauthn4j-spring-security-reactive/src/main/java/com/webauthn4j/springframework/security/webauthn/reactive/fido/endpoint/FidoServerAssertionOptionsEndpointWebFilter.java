@@ -0,0 +1,102 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionClientInput;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
+import com.webauthn4j.springframework.security.fido.server.endpoint.FidoServerAssertionOptionsEndpointFilter;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialDescriptor;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialGetOptionsRequest;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialGetOptionsResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerResponse;
+import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeGenerator;
+import com.webauthn4j.springframework.security.webauthn.challenge.DefaultChallengeGenerator;
+import com.webauthn4j.springframework.security.webauthn.options.AssertionOptions;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * FIDO Server Endpoint for assertion options processing, the reactive counterpart of
+ * {@link FidoServerAssertionOptionsEndpointFilter}.
+ * With this endpoint, non-authorized user can observe requested username existence and his/her credentialId list.
+ */
+public class FidoServerAssertionOptionsEndpointWebFilter extends ServerEndpointWebFilterBase {
+
+    /**
+     * Default path of this endpoint
+     */
+    public static final String FILTER_URL = FidoServerAssertionOptionsEndpointFilter.FILTER_URL;
+
+    //~ Instance fields
+    // ================================================================================================
+
+    private final ReactiveOptionsProvider optionsProvider;
+    private ChallengeGenerator challengeGenerator = new DefaultChallengeGenerator();
+
+    public FidoServerAssertionOptionsEndpointWebFilter(ObjectConverter objectConverter, ReactiveOptionsProvider optionsProvider) {
+        super(FILTER_URL, objectConverter);
+        Assert.notNull(optionsProvider, "optionsProvider must not be null");
+        this.optionsProvider = optionsProvider;
+    }
+
+    public ChallengeGenerator getChallengeGenerator() {
+        return challengeGenerator;
+    }
+
+    public void setChallengeGenerator(ChallengeGenerator challengeGenerator) {
+        Assert.notNull(challengeGenerator, "challengeGenerator must not be null");
+        this.challengeGenerator = challengeGenerator;
+    }
+
+    @Override
+    protected Mono<ServerResponse> processRequest(ServerWebExchange exchange) {
+        return serverEndpointWebFilterUtil.readRequest(exchange, ServerPublicKeyCredentialGetOptionsRequest.class)
+                .flatMap(serverRequest -> {
+                    Challenge challenge = serverEndpointWebFilterUtil.encodeUserVerification(challengeGenerator.generate(), serverRequest.getUserVerification());
+                    return optionsProvider.getOptions(exchange, serverRequest.getUsername(), challenge)
+                            .map(options -> createResponse(serverRequest, options.getAssertionOptions()));
+                });
+    }
+
+    private ServerResponse createResponse(ServerPublicKeyCredentialGetOptionsRequest serverRequest, AssertionOptions options) {
+        List<ServerPublicKeyCredentialDescriptor> credentials = options.getCredentials().stream().map(ServerPublicKeyCredentialDescriptor::new).collect(Collectors.toList());
+        AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> authenticationExtensionsClientInputs;
+        if (serverRequest.getExtensions() != null) {
+            authenticationExtensionsClientInputs = serverRequest.getExtensions();
+        } else {
+            authenticationExtensionsClientInputs = options.getAuthenticationExtensions();
+        }
+
+        return new ServerPublicKeyCredentialGetOptionsResponse(
+                Base64UrlUtil.encodeToString(options.getChallenge().getValue()),
+                options.getAuthenticationTimeout(),
+                options.getRpId(),
+                credentials,
+                serverRequest.getUserVerification(),
+                authenticationExtensionsClientInputs);
+    }
+
+}
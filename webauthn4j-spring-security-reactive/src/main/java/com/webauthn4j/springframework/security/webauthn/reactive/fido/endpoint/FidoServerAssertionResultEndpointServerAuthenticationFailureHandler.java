@@ -0,0 +1,46 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.fido.server.endpoint.FidoServerAssertionResultEndpointFailureHandler;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.server.WebFilterExchange;
+import org.springframework.security.web.server.authentication.ServerAuthenticationFailureHandler;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reactive counterpart of {@link FidoServerAssertionResultEndpointFailureHandler}
+ */
+public class FidoServerAssertionResultEndpointServerAuthenticationFailureHandler implements ServerAuthenticationFailureHandler {
+
+    private final ServerEndpointWebFilterUtil serverEndpointWebFilterUtil;
+
+    public FidoServerAssertionResultEndpointServerAuthenticationFailureHandler(ObjectConverter objectConverter) {
+        this.serverEndpointWebFilterUtil = new ServerEndpointWebFilterUtil(objectConverter);
+    }
+
+    public FidoServerAssertionResultEndpointServerAuthenticationFailureHandler() {
+        this(new ObjectConverter());
+    }
+
+    @Override
+    public Mono<Void> onAuthenticationFailure(WebFilterExchange webFilterExchange, AuthenticationException exception) {
+        return serverEndpointWebFilterUtil.writeErrorResponse(webFilterExchange.getExchange().getResponse(), exception);
+    }
+}
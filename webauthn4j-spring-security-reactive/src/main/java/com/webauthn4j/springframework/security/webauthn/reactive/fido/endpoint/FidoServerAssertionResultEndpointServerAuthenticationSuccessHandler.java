@@ -0,0 +1,47 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.fido.server.endpoint.AssertionResultSuccessResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.FidoServerAssertionResultEndpointSuccessHandler;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.WebFilterExchange;
+import org.springframework.security.web.server.authentication.ServerAuthenticationSuccessHandler;
+import reactor.core.publisher.Mono;
+
+/**
+ * The reactive counterpart of {@link FidoServerAssertionResultEndpointSuccessHandler}
+ */
+public class FidoServerAssertionResultEndpointServerAuthenticationSuccessHandler implements ServerAuthenticationSuccessHandler {
+
+    private final ServerEndpointWebFilterUtil serverEndpointWebFilterUtil;
+
+    public FidoServerAssertionResultEndpointServerAuthenticationSuccessHandler(ObjectConverter objectConverter) {
+        this.serverEndpointWebFilterUtil = new ServerEndpointWebFilterUtil(objectConverter);
+    }
+
+    public FidoServerAssertionResultEndpointServerAuthenticationSuccessHandler() {
+        this(new ObjectConverter());
+    }
+
+    @Override
+    public Mono<Void> onAuthenticationSuccess(WebFilterExchange webFilterExchange, Authentication authentication) {
+        return serverEndpointWebFilterUtil.writeResponse(webFilterExchange.getExchange().getResponse(), new AssertionResultSuccessResponse());
+    }
+}
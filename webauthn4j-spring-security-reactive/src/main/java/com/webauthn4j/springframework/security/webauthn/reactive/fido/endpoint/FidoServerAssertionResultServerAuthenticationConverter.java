@@ -0,0 +1,161 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.webauthn4j.converter.CollectedClientDataConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.UserVerificationRequirement;
+import com.webauthn4j.data.client.CollectedClientData;
+import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ChallengeEnvelopeCodec;
+import com.webauthn4j.springframework.security.fido.server.endpoint.FidoServerAssertionResultEndpointFilter;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerAuthenticatorAssertionResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredential;
+import com.webauthn4j.springframework.security.fido.server.validator.ServerPublicKeyCredentialValidator;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnAssertionAuthenticationToken;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
+import com.webauthn4j.springframework.security.webauthn.reactive.server.ReactiveServerPropertyProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.util.ReactiveInstrumentationUtil;
+import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import com.webauthn4j.springframework.security.webauthn.util.ExceptionUtil;
+import com.webauthn4j.util.Base64UrlUtil;
+import com.webauthn4j.util.exception.WebAuthnException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.server.authentication.ServerAuthenticationConverter;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A {@link ServerAuthenticationConverter} which reads a FIDO server assertion result request, the reactive
+ * counterpart of {@link FidoServerAssertionResultEndpointFilter#attemptAuthentication}
+ */
+public class FidoServerAssertionResultServerAuthenticationConverter implements ServerAuthenticationConverter {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final ReactiveServerPropertyProvider serverPropertyProvider;
+    private final ServerPublicKeyCredentialValidator<ServerAuthenticatorAssertionResponse> serverPublicKeyCredentialValidator = new ServerPublicKeyCredentialValidator<>();
+    private final TypeReference<ServerPublicKeyCredential<ServerAuthenticatorAssertionResponse>> credentialTypeRef
+            = new TypeReference<ServerPublicKeyCredential<ServerAuthenticatorAssertionResponse>>() {
+    };
+    private final CollectedClientDataConverter collectedClientDataConverter;
+    private final ServerEndpointWebFilterUtil serverEndpointWebFilterUtil;
+
+    private List<String> expectedAuthenticationExtensionIds = Collections.emptyList();
+    private WebAuthnInstrumentation instrumentation = WebAuthnInstrumentation.NOOP;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public FidoServerAssertionResultServerAuthenticationConverter(ObjectConverter objectConverter, ReactiveServerPropertyProvider serverPropertyProvider) {
+        Assert.notNull(objectConverter, "objectConverter must not be null");
+        Assert.notNull(serverPropertyProvider, "serverPropertyProvider must not be null");
+        this.serverPropertyProvider = serverPropertyProvider;
+        this.collectedClientDataConverter = new CollectedClientDataConverter(objectConverter);
+        this.serverEndpointWebFilterUtil = new ServerEndpointWebFilterUtil(objectConverter);
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Mono<Authentication> convert(ServerWebExchange exchange) {
+        return serverEndpointWebFilterUtil.readRequest(exchange, credentialTypeRef)
+                .map(credential -> instrumentation.time(WebAuthnStage.AUTHENTICATION_REQUEST_DECODE, () -> decode(credential)))
+                .flatMap(decodedRequest -> ReactiveInstrumentationUtil.time(instrumentation, WebAuthnStage.AUTHENTICATION_SERVER_PROPERTY,
+                        serverPropertyProvider.provide(exchange)).map(decodedRequest))
+                .<Authentication>map(WebAuthnAssertionAuthenticationToken::new)
+                .onErrorMap(WebAuthnException.class, ExceptionUtil::wrapWithAuthenticationException);
+    }
+
+    /**
+     * Decodes the request before the ServerProperty is resolved, returning the function completing it afterwards
+     */
+    private Function<ServerProperty, WebAuthnAuthenticationRequest> decode(ServerPublicKeyCredential<ServerAuthenticatorAssertionResponse> credential) {
+        serverPublicKeyCredentialValidator.validate(credential);
+        ServerAuthenticatorAssertionResponse assertionResponse = credential.getResponse();
+        // The clientDataJSON is parsed once here, and carried to the authentication manager with the request
+        byte[] clientDataBytes = Base64UrlUtil.decode(assertionResponse.getClientDataJSON());
+        CollectedClientData collectedClientData = collectedClientDataConverter.convert(clientDataBytes);
+        UserVerificationRequirement userVerificationRequirement = serverEndpointWebFilterUtil.decodeUserVerification(collectedClientData.getChallenge());
+        byte[] credentialId = Base64UrlUtil.decode(credential.getRawId());
+        byte[] authenticatorData = Base64UrlUtil.decode(assertionResponse.getAuthenticatorData());
+        byte[] signature = Base64UrlUtil.decode(assertionResponse.getSignature());
+        return serverProperty -> new WebAuthnAuthenticationRequest(
+                credentialId,
+                clientDataBytes,
+                authenticatorData,
+                signature,
+                credential.getClientExtensionResults(),
+                serverProperty,
+                userVerificationRequirement == UserVerificationRequirement.REQUIRED,
+                false,
+                expectedAuthenticationExtensionIds,
+                collectedClientData
+        );
+    }
+
+    public List<String> getExpectedAuthenticationExtensionIds() {
+        return expectedAuthenticationExtensionIds;
+    }
+
+    /**
+     * Sets expected authentication extensionId list
+     *
+     * @param expectedAuthenticationExtensionIds list of expected authentication extensionId
+     */
+    public void setExpectedAuthenticationExtensionIds(List<String> expectedAuthenticationExtensionIds) {
+        Assert.notNull(expectedAuthenticationExtensionIds, "expectedAuthenticationExtensionIds must not be null");
+        this.expectedAuthenticationExtensionIds = expectedAuthenticationExtensionIds;
+    }
+
+    public WebAuthnInstrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    /**
+     * Sets the instrumentation observing the request decode and ServerProperty resolution stages
+     *
+     * @param instrumentation instrumentation
+     */
+    public void setInstrumentation(WebAuthnInstrumentation instrumentation) {
+        Assert.notNull(instrumentation, "instrumentation must not be null");
+        this.instrumentation = instrumentation;
+    }
+
+    public ChallengeEnvelopeCodec getChallengeEnvelopeCodec() {
+        return serverEndpointWebFilterUtil.getChallengeEnvelopeCodec();
+    }
+
+    /**
+     * Sets the codec decoding the user verification requirement from the challenge. It must be configured as the one
+     * of the assertion options endpoint.
+     *
+     * @param challengeEnvelopeCodec challengeEnvelopeCodec
+     */
+    public void setChallengeEnvelopeCodec(ChallengeEnvelopeCodec challengeEnvelopeCodec) {
+        serverEndpointWebFilterUtil.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
+import com.webauthn4j.data.extension.client.RegistrationExtensionClientInput;
+import com.webauthn4j.springframework.security.fido.server.endpoint.FidoServerAttestationOptionsEndpointFilter;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialCreationOptionsRequest;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialCreationOptionsResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialDescriptor;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialUserEntity;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerResponse;
+import com.webauthn4j.springframework.security.webauthn.challenge.ChallengeGenerator;
+import com.webauthn4j.springframework.security.webauthn.challenge.DefaultChallengeGenerator;
+import com.webauthn4j.springframework.security.webauthn.options.AttestationOptions;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * FIDO Server Endpoint for attestation options processing, the reactive counterpart of
+ * {@link FidoServerAttestationOptionsEndpointFilter}.
+ * With this endpoint, non-authorized user can observe requested username existence and his/her credentialId list.
+ */
+public class FidoServerAttestationOptionsEndpointWebFilter extends ServerEndpointWebFilterBase {
+
+    /**
+     * Default path of this endpoint
+     */
+    public static final String FILTER_URL = FidoServerAttestationOptionsEndpointFilter.FILTER_URL;
+
+    //~ Instance fields
+    // ================================================================================================
+
+    private final ReactiveOptionsProvider optionsProvider;
+    private ChallengeGenerator challengeGenerator = new DefaultChallengeGenerator();
+
+    public FidoServerAttestationOptionsEndpointWebFilter(ObjectConverter objectConverter, ReactiveOptionsProvider optionsProvider) {
+        super(FILTER_URL, objectConverter);
+        Assert.notNull(optionsProvider, "optionsProvider must not be null");
+        this.optionsProvider = optionsProvider;
+    }
+
+    public ChallengeGenerator getChallengeGenerator() {
+        return challengeGenerator;
+    }
+
+    public void setChallengeGenerator(ChallengeGenerator challengeGenerator) {
+        Assert.notNull(challengeGenerator, "challengeGenerator must not be null");
+        this.challengeGenerator = challengeGenerator;
+    }
+
+    @Override
+    protected Mono<ServerResponse> processRequest(ServerWebExchange exchange) {
+        return serverEndpointWebFilterUtil.readRequest(exchange, ServerPublicKeyCredentialCreationOptionsRequest.class)
+                .flatMap(serverRequest -> {
+                    String username = serverRequest.getUsername();
+                    Challenge challenge = serverEndpointWebFilterUtil.encodeUsername(challengeGenerator.generate(), username);
+                    return optionsProvider.getOptions(exchange, username, challenge)
+                            .map(options -> createResponse(serverRequest, options.getAttestationOptions()));
+                });
+    }
+
+    private ServerResponse createResponse(ServerPublicKeyCredentialCreationOptionsRequest serverRequest, AttestationOptions attestationOptions) {
+        String userHandle;
+        if (attestationOptions.getUser() == null) {
+            userHandle = Base64UrlUtil.encodeToString(generateUserHandle());
+        } else {
+            userHandle = attestationOptions.getUser().getUserHandle();
+        }
+        ServerPublicKeyCredentialUserEntity user = new ServerPublicKeyCredentialUserEntity(userHandle, serverRequest.getUsername(), serverRequest.getDisplayName(), null);
+        List<ServerPublicKeyCredentialDescriptor> credentials =
+                attestationOptions.getCredentials().stream().map(ServerPublicKeyCredentialDescriptor::new).collect(Collectors.toList());
+        AuthenticationExtensionsClientInputs<RegistrationExtensionClientInput<?>> authenticationExtensionsClientInputs;
+        if (serverRequest.getExtensions() != null) {
+            authenticationExtensionsClientInputs = serverRequest.getExtensions();
+        } else {
+            authenticationExtensionsClientInputs = attestationOptions.getRegistrationExtensions();
+        }
+
+        return new ServerPublicKeyCredentialCreationOptionsResponse(
+                attestationOptions.getRelyingParty(),
+                user,
+                Base64UrlUtil.encodeToString(attestationOptions.getChallenge().getValue()),
+                attestationOptions.getPubKeyCredParams(),
+                attestationOptions.getRegistrationTimeout(),
+                credentials,
+                serverRequest.getAuthenticatorSelection(),
+                serverRequest.getAttestation(),
+                authenticationExtensionsClientInputs);
+    }
+
+    private byte[] generateUserHandle() {
+        UUID uuid = UUID.randomUUID();
+        long hi = uuid.getMostSignificantBits();
+        long lo = uuid.getLeastSignificantBits();
+        return ByteBuffer.allocate(16).putLong(hi).putLong(lo).array();
+    }
+
+}
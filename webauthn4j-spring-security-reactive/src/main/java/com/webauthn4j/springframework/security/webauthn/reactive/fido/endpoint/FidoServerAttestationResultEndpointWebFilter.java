@@ -0,0 +1,122 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.springframework.security.fido.server.endpoint.AttestationResultSuccessResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.FidoServerAttestationResultEndpointFilter;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerAuthenticatorAttestationResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredential;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerResponse;
+import com.webauthn4j.springframework.security.fido.server.validator.ServerPublicKeyCredentialValidator;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnRegistrationRequestValidationResponse;
+import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticator;
+import com.webauthn4j.springframework.security.webauthn.reactive.ReactiveWebAuthnRegistrationRequestValidator;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+
+/**
+ * FIDO Server Endpoint for attestation result processing, the reactive counterpart of
+ * {@link FidoServerAttestationResultEndpointFilter}
+ */
+public class FidoServerAttestationResultEndpointWebFilter extends ServerEndpointWebFilterBase {
+
+    /**
+     * Default path of this endpoint
+     */
+    public static final String FILTER_URL = FidoServerAttestationResultEndpointFilter.FILTER_URL;
+
+    //~ Instance fields
+    // ================================================================================================
+
+    private final ReactiveWebAuthnUserDetailsService webAuthnUserDetailsService;
+    private final ReactiveWebAuthnRegistrationRequestValidator webAuthnRegistrationRequestValidator;
+    private final ServerPublicKeyCredentialValidator<ServerAuthenticatorAttestationResponse> serverPublicKeyCredentialValidator = new ServerPublicKeyCredentialValidator<>();
+
+    private ReactiveUsernameNotFoundHandler usernameNotFoundHandler = new DefaultUsernameNotFoundHandler();
+    private final TypeReference<ServerPublicKeyCredential<ServerAuthenticatorAttestationResponse>> credentialTypeRef
+            = new TypeReference<ServerPublicKeyCredential<ServerAuthenticatorAttestationResponse>>() {
+    };
+
+    public FidoServerAttestationResultEndpointWebFilter(
+            ObjectConverter objectConverter,
+            ReactiveWebAuthnUserDetailsService webAuthnUserDetailsService,
+            ReactiveWebAuthnRegistrationRequestValidator webAuthnRegistrationRequestValidator) {
+        super(FILTER_URL, objectConverter);
+        Assert.notNull(webAuthnUserDetailsService, "webAuthnUserDetailsService must not be null");
+        Assert.notNull(webAuthnRegistrationRequestValidator, "webAuthnRegistrationRequestValidator must not be null");
+        this.webAuthnUserDetailsService = webAuthnUserDetailsService;
+        this.webAuthnRegistrationRequestValidator = webAuthnRegistrationRequestValidator;
+    }
+
+    @Override
+    protected Mono<ServerResponse> processRequest(ServerWebExchange exchange) {
+        return serverEndpointWebFilterUtil.readRequest(exchange, credentialTypeRef)
+                .flatMap(credential -> {
+                    serverPublicKeyCredentialValidator.validate(credential);
+                    ServerAuthenticatorAttestationResponse response = credential.getResponse();
+                    return webAuthnRegistrationRequestValidator.validate(
+                            exchange,
+                            Base64UrlUtil.decode(response.getClientDataJSON()),
+                            Base64UrlUtil.decode(response.getAttestationObject()),
+                            Collections.emptySet(),
+                            credential.getClientExtensionResults());
+                })
+                .flatMap(this::addAuthenticator)
+                .thenReturn(new AttestationResultSuccessResponse());
+    }
+
+    private Mono<Void> addAuthenticator(WebAuthnRegistrationRequestValidationResponse registrationRequestValidationResponse) {
+        AttestationObject attestationObject = registrationRequestValidationResponse.getAttestationObject();
+        WebAuthnAuthenticator webAuthnAuthenticator =
+                new WebAuthnAuthenticator(
+                        "Authenticator",
+                        attestationObject.getAuthenticatorData().getAttestedCredentialData(),
+                        attestationObject.getAttestationStatement(),
+                        attestationObject.getAuthenticatorData().getSignCount());
+        String loginUsername = serverEndpointWebFilterUtil.decodeUsername(registrationRequestValidationResponse.getCollectedClientData().getChallenge());
+        return webAuthnUserDetailsService.addAuthenticator(loginUsername, webAuthnAuthenticator)
+                .onErrorResume(UsernameNotFoundException.class, e -> usernameNotFoundHandler.onUsernameNotFound(loginUsername)
+                        .then(Mono.defer(() -> webAuthnUserDetailsService.addAuthenticator(loginUsername, webAuthnAuthenticator))));
+    }
+
+    public ReactiveUsernameNotFoundHandler getUsernameNotFoundHandler() {
+        return usernameNotFoundHandler;
+    }
+
+    public void setUsernameNotFoundHandler(ReactiveUsernameNotFoundHandler usernameNotFoundHandler) {
+        Assert.notNull(usernameNotFoundHandler, "usernameNotFoundHandler must not be null");
+        this.usernameNotFoundHandler = usernameNotFoundHandler;
+    }
+
+    private static class DefaultUsernameNotFoundHandler implements ReactiveUsernameNotFoundHandler {
+        @Override
+        public Mono<Void> onUsernameNotFound(String loginUsername) {
+            return Mono.error(new UsernameNotFoundException("Username not found"));
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.springframework.security.fido.server.endpoint.UsernameNotFoundHandler;
+import reactor.core.publisher.Mono;
+
+/**
+ * Handles the registration of an authenticator to an unknown user, the reactive counterpart of
+ * {@link UsernameNotFoundHandler}
+ */
+public interface ReactiveUsernameNotFoundHandler {
+
+    /**
+     * Called when the user the authenticator is registered to is not found
+     *
+     * @param loginUsername the username
+     * @return completes when the user is created, after which the authenticator is added again, or signals an error
+     */
+    Mono<Void> onUsernameNotFound(String loginUsername);
+
+}
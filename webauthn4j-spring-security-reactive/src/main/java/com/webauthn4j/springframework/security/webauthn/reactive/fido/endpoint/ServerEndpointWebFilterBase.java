@@ -0,0 +1,114 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ChallengeEnvelopeCodec;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerEndpointFilterBase;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerResponse;
+import com.webauthn4j.springframework.security.webauthn.util.ExceptionUtil;
+import com.webauthn4j.util.exception.WebAuthnException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Base class of the FIDO server endpoints, the reactive counterpart of {@link ServerEndpointFilterBase}.
+ * Unlike {@link ServerEndpointFilterBase}, which matches any request URI containing its URL, the endpoint matches the
+ * path within the application exactly.
+ */
+public abstract class ServerEndpointWebFilterBase implements WebFilter {
+
+    //~ Instance fields
+    // ================================================================================================
+    protected final Log logger = LogFactory.getLog(getClass());
+
+    protected final ObjectConverter objectConverter;
+    protected final ServerEndpointWebFilterUtil serverEndpointWebFilterUtil;
+    private String filterProcessesUrl;
+    private ServerWebExchangeMatcher requiresMatcher;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public ServerEndpointWebFilterBase(String filterProcessesUrl, ObjectConverter objectConverter) {
+        Assert.notNull(objectConverter, "objectConverter must not be null");
+        this.objectConverter = objectConverter;
+        this.serverEndpointWebFilterUtil = new ServerEndpointWebFilterUtil(objectConverter);
+        setFilterProcessesUrl(filterProcessesUrl);
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return requiresMatcher.matches(exchange)
+                .filter(ServerWebExchangeMatcher.MatchResult::isMatch)
+                .switchIfEmpty(Mono.defer(() -> chain.filter(exchange).then(Mono.empty())))
+                .flatMap(matchResult -> handle(exchange)
+                        .onErrorMap(WebAuthnException.class, ExceptionUtil::wrapWithAuthenticationException)
+                        .flatMap(serverResponse -> serverEndpointWebFilterUtil.writeResponse(exchange.getResponse(), serverResponse))
+                        .onErrorResume(RuntimeException.class, e -> {
+                            logger.debug("RuntimeException is thrown", e);
+                            return serverEndpointWebFilterUtil.writeErrorResponse(exchange.getResponse(), e);
+                        }));
+    }
+
+    private Mono<ServerResponse> handle(ServerWebExchange exchange) {
+        if (exchange.getRequest().getMethod() != HttpMethod.POST) {
+            return Mono.error(new AuthenticationServiceException("Authentication method not supported: " + exchange.getRequest().getMethodValue()));
+        }
+        return Mono.defer(() -> processRequest(exchange));
+    }
+
+    protected abstract Mono<ServerResponse> processRequest(ServerWebExchange exchange);
+
+    public String getFilterProcessesUrl() {
+        return filterProcessesUrl;
+    }
+
+    public void setFilterProcessesUrl(String filterProcessesUrl) {
+        Assert.hasText(filterProcessesUrl, "filterProcessesUrl parameter must not be empty or null");
+        this.filterProcessesUrl = filterProcessesUrl;
+        this.requiresMatcher = ServerWebExchangeMatchers.pathMatchers(filterProcessesUrl);
+    }
+
+    public ChallengeEnvelopeCodec getChallengeEnvelopeCodec() {
+        return serverEndpointWebFilterUtil.getChallengeEnvelopeCodec();
+    }
+
+    /**
+     * Sets the codec encoding the username or the user verification requirement into the challenge. The options and
+     * result endpoints must share the same codec configuration.
+     *
+     * @param challengeEnvelopeCodec challengeEnvelopeCodec
+     */
+    public void setChallengeEnvelopeCodec(ChallengeEnvelopeCodec challengeEnvelopeCodec) {
+        serverEndpointWebFilterUtil.setChallengeEnvelopeCodec(challengeEnvelopeCodec);
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.webauthn4j.converter.util.JsonConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.UserVerificationRequirement;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ChallengeEnvelopeCodec;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ErrorResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerResponse;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Function;
+
+/**
+ * The reactive counterpart of {@code ServerEndpointFilterUtil}
+ */
+class ServerEndpointWebFilterUtil {
+
+    private final JsonConverter jsonConverter;
+    private ChallengeEnvelopeCodec challengeEnvelopeCodec = new ChallengeEnvelopeCodec();
+
+    ServerEndpointWebFilterUtil(ObjectConverter objectConverter) {
+        this.jsonConverter = objectConverter.getJsonConverter();
+    }
+
+    <T> Mono<T> readRequest(ServerWebExchange exchange, Class<T> type) {
+        return readRequest(exchange, inputStream -> jsonConverter.readValue(inputStream, type));
+    }
+
+    <T> Mono<T> readRequest(ServerWebExchange exchange, TypeReference<T> typeReference) {
+        return readRequest(exchange, inputStream -> jsonConverter.readValue(inputStream, typeReference));
+    }
+
+    private <T> Mono<T> readRequest(ServerWebExchange exchange, Function<InputStream, T> reader) {
+        return DataBufferUtils.join(exchange.getRequest().getBody())
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("request body must not be empty")))
+                .map(dataBuffer -> {
+                    try (InputStream inputStream = dataBuffer.asInputStream(true)) {
+                        return reader.apply(inputStream);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    Mono<Void> writeResponse(ServerHttpResponse response, ServerResponse serverResponse) {
+        return writeResponse(response, HttpStatus.OK, serverResponse);
+    }
+
+    Mono<Void> writeErrorResponse(ServerHttpResponse response, RuntimeException e) {
+        if (e instanceof InsufficientAuthenticationException) {
+            return writeResponse(response, HttpStatus.FORBIDDEN, new ErrorResponse("Anonymous access is prohibited"));
+        } else if (e instanceof AuthenticationException || e instanceof IllegalArgumentException) {
+            return writeResponse(response, HttpStatus.FORBIDDEN, new ErrorResponse("Authentication failed"));
+        } else {
+            return writeResponse(response, HttpStatus.INTERNAL_SERVER_ERROR, new ErrorResponse("The server encountered an internal error"));
+        }
+    }
+
+    private Mono<Void> writeResponse(ServerHttpResponse response, HttpStatus status, ServerResponse serverResponse) {
+        return Mono.defer(() -> {
+            byte[] bytes = jsonConverter.writeValueAsBytes(serverResponse);
+            response.setStatusCode(status);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setContentLength(bytes.length);
+            DataBuffer buffer = response.bufferFactory().wrap(bytes);
+            return response.writeWith(Mono.just(buffer));
+        });
+    }
+
+    Challenge encodeUsername(Challenge challenge, String username) {
+        return new DefaultChallenge(challengeEnvelopeCodec.encodeUsername(challenge.getValue(), username));
+    }
+
+    String decodeUsername(Challenge challenge) {
+        return challengeEnvelopeCodec.decodeUsername(challenge == null ? null : challenge.getValue());
+    }
+
+    Challenge encodeUserVerification(Challenge challenge, UserVerificationRequirement userVerification) {
+        return new DefaultChallenge(challengeEnvelopeCodec.encodeUserVerification(challenge.getValue(), userVerification));
+    }
+
+    UserVerificationRequirement decodeUserVerification(Challenge challenge) {
+        return challengeEnvelopeCodec.decodeUserVerification(challenge == null ? null : challenge.getValue());
+    }
+
+    ChallengeEnvelopeCodec getChallengeEnvelopeCodec() {
+        return challengeEnvelopeCodec;
+    }
+
+    void setChallengeEnvelopeCodec(ChallengeEnvelopeCodec challengeEnvelopeCodec) {
+        Assert.notNull(challengeEnvelopeCodec, "challengeEnvelopeCodec must not be null");
+        this.challengeEnvelopeCodec = challengeEnvelopeCodec;
+    }
+
+}
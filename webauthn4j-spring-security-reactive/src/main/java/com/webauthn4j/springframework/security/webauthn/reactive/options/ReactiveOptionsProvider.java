@@ -0,0 +1,55 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.options;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionClientInput;
+import com.webauthn4j.data.extension.client.AuthenticationExtensionsClientInputs;
+import com.webauthn4j.springframework.security.webauthn.options.Options;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Provides {@link Options} for a {@link ServerWebExchange}. The reactive counterpart of
+ * {@link com.webauthn4j.springframework.security.webauthn.options.OptionsProvider}.
+ */
+public interface ReactiveOptionsProvider {
+
+    /**
+     * provides {@link com.webauthn4j.springframework.security.webauthn.options.AttestationOptions} and
+     * {@link com.webauthn4j.springframework.security.webauthn.options.AssertionOptions} at once. If <code>username</code>
+     * is <code>null</code>, <code>user</code>, <code>credentials</code> are not populated.
+     *
+     * @param exchange  exchange
+     * @param username  username
+     * @param challenge if null, new challenge is generated. Otherwise, specified challenge is used.
+     * @return {@link Options} instance
+     */
+    Mono<Options> getOptions(ServerWebExchange exchange, String username, Challenge challenge);
+
+    /**
+     * returns effective rpId based on request origin and configured <code>rpId</code>.
+     *
+     * @param exchange exchange
+     * @return effective rpId
+     */
+    String getEffectiveRpId(ServerWebExchange exchange);
+
+    AuthenticationExtensionsClientInputs<AuthenticationExtensionClientInput<?>> getAuthenticationExtensions();
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.options;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.springframework.security.webauthn.endpoint.WebAuthnPublicKeyCredentialUserEntity;
+import com.webauthn4j.springframework.security.webauthn.options.Options;
+import com.webauthn4j.springframework.security.webauthn.options.OptionsProviderBase;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.ServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import com.webauthn4j.springframework.security.webauthn.reactive.util.ServerWebExchangeUtil;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link ReactiveOptionsProvider} implementation
+ */
+public class ReactiveOptionsProviderImpl extends OptionsProviderBase implements ReactiveOptionsProvider {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final ReactiveWebAuthnUserDetailsService userDetailsService;
+    private final ServerChallengeRepository challengeRepository;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public ReactiveOptionsProviderImpl(ReactiveWebAuthnUserDetailsService userDetailsService, ServerChallengeRepository challengeRepository) {
+
+        Assert.notNull(userDetailsService, "userDetailsService must not be null");
+        Assert.notNull(challengeRepository, "challengeRepository must not be null");
+
+        this.userDetailsService = userDetailsService;
+        this.challengeRepository = challengeRepository;
+    }
+
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The user is looked up once, and the challenge is resolved once, for both options.
+     */
+    @Override
+    public Mono<Options> getOptions(ServerWebExchange exchange, String username, Challenge challenge) {
+        String effectiveRpId = getEffectiveRpId(exchange);
+        Mono<WebAuthnUserDetails> user = username == null ? Mono.empty() : userDetailsService.findByUsername(username);
+        return user
+                .map(this::createOptionsUser)
+                .defaultIfEmpty(OptionsUser.NONE)
+                .zipWith(resolveChallenge(exchange, challenge))
+                .map(tuple -> {
+                    OptionsUser optionsUser = tuple.getT1();
+                    Challenge resolvedChallenge = tuple.getT2();
+                    WebAuthnPublicKeyCredentialUserEntity userEntity = optionsUser.userHandle == null
+                            ? null : new WebAuthnPublicKeyCredentialUserEntity(optionsUser.userHandle, username);
+                    return new Options(
+                            createAttestationOptions(effectiveRpId, userEntity, optionsUser.credentials, resolvedChallenge),
+                            createAssertionOptions(effectiveRpId, optionsUser.credentials, resolvedChallenge)
+                    );
+                });
+    }
+
+    private OptionsUser createOptionsUser(WebAuthnUserDetails userDetails) {
+        return new OptionsUser(Base64UrlUtil.encodeToString(userDetails.getUserHandle()), encodeCredentials(userDetails.getAuthenticators()));
+    }
+
+    private Mono<Challenge> resolveChallenge(ServerWebExchange exchange, Challenge challenge) {
+        if (challenge == null) {
+            return challengeRepository.loadOrGenerateChallenge(exchange);
+        } else {
+            return challengeRepository.saveChallenge(challenge, exchange).thenReturn(challenge);
+        }
+    }
+
+    @Override
+    public String getEffectiveRpId(ServerWebExchange exchange) {
+        if (getRpId() != null) {
+            return getRpId();
+        }
+        return ServerWebExchangeUtil.getOrigin(exchange).getHost();
+    }
+
+    public ServerChallengeRepository getChallengeRepository() {
+        return challengeRepository;
+    }
+
+    /**
+     * The userHandle and the credentialIds of a user, encoded for the options
+     */
+    private static class OptionsUser {
+
+        private static final OptionsUser NONE = new OptionsUser(null, Collections.emptyList());
+
+        private final String userHandle;
+        private final List<String> credentials;
+
+        OptionsUser(String userHandle, List<String> credentials) {
+            this.userHandle = userHandle;
+            this.credentials = credentials;
+        }
+    }
+
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.r2dbc;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.converter.AttestedCredentialDataConverter;
+import com.webauthn4j.converter.util.CborConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticator;
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import com.webauthn4j.springframework.security.webauthn.reactive.authenticator.ReactiveWebAuthnAuthenticatorService;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnAuthenticationContext;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsImpl;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link ReactiveWebAuthnUserDetailsService} and {@link ReactiveWebAuthnAuthenticatorService} implementation backed
+ * by a relational database through R2DBC, so that no thread is blocked on the database.
+ * <p>
+ * Users, their authorities and their authenticators are kept in the {@code webauthn_users},
+ * {@code webauthn_user_authorities} and {@code webauthn_authenticators} tables, which can be created with the
+ * {@value #DEFAULT_SCHEMA_LOCATION} script on the classpath. The script is written for H2, and other databases may need
+ * their own binary column types. The attested credential data is stored in its authenticator data binary form, and the
+ * attestation statement as CBOR, together with its format.
+ * <p>
+ * Lookups by credentialId load the authenticator by its primary key, so that the cost of an authentication does not
+ * depend on how many authenticators the user has. The user of a {@link WebAuthnAuthenticationContext} therefore only
+ * returns the looked-up authenticator in getAuthenticators result. {@link #findCredentialIdsByUsername(String)} streams
+ * the credentialIds alone, without decoding the authenticators.
+ */
+public class R2dbcWebAuthnUserDetailsService implements ReactiveWebAuthnUserDetailsService, ReactiveWebAuthnAuthenticatorService {
+
+    // ~ Static fields/initializers
+    // =====================================================================================
+
+    public static final String DEFAULT_SCHEMA_LOCATION = "com/webauthn4j/springframework/security/webauthn/reactive/r2dbc/users.ddl";
+
+    private static final String USER_COLUMNS = "username, user_handle, password, single_factor_authentication_allowed, "
+            + "enabled, account_non_expired, credentials_non_expired, account_non_locked";
+    private static final String AUTHENTICATOR_COLUMNS = "credential_id, username, name, attested_credential_data, attestation_statement, counter";
+
+    private static final String SELECT_USER_SQL = "SELECT " + USER_COLUMNS + " FROM webauthn_users WHERE username = :username";
+    private static final String SELECT_AUTHORITIES_SQL = "SELECT authority FROM webauthn_user_authorities WHERE username = :username";
+    private static final String SELECT_AUTHENTICATORS_SQL = "SELECT " + AUTHENTICATOR_COLUMNS + " FROM webauthn_authenticators WHERE username = :username";
+    private static final String SELECT_AUTHENTICATOR_SQL = "SELECT " + AUTHENTICATOR_COLUMNS + " FROM webauthn_authenticators WHERE credential_id = :credentialId";
+    private static final String SELECT_USER_BY_CREDENTIAL_ID_SQL = "SELECT u.username, u.user_handle, u.password, "
+            + "u.single_factor_authentication_allowed, u.enabled, u.account_non_expired, u.credentials_non_expired, u.account_non_locked, "
+            + "a.credential_id, a.name, a.attested_credential_data, a.attestation_statement, a.counter, r.authority "
+            + "FROM webauthn_authenticators c "
+            + "JOIN webauthn_users u ON u.username = c.username "
+            + "JOIN webauthn_authenticators a ON a.username = u.username "
+            + "LEFT JOIN webauthn_user_authorities r ON r.username = u.username "
+            + "WHERE c.credential_id = :credentialId";
+    private static final String SELECT_CREDENTIAL_IDS_SQL = "SELECT credential_id FROM webauthn_authenticators WHERE username = :username";
+    private static final String COUNT_USER_SQL = "SELECT COUNT(*) FROM webauthn_users WHERE username = :username";
+    private static final String INSERT_AUTHENTICATOR_SQL = "INSERT INTO webauthn_authenticators (" + AUTHENTICATOR_COLUMNS + ") "
+            + "VALUES (:credentialId, :username, :name, :attestedCredentialData, :attestationStatement, :counter)";
+    private static final String DELETE_AUTHENTICATOR_SQL = "DELETE FROM webauthn_authenticators WHERE credential_id = :credentialId AND username = :username";
+    private static final String UPDATE_COUNTER_SQL = "UPDATE webauthn_authenticators SET counter = :counter WHERE credential_id = :credentialId";
+
+    //~ Instance fields
+    // ================================================================================================
+    private final DatabaseClient databaseClient;
+    private final AttestedCredentialDataConverter attestedCredentialDataConverter;
+    private final CborConverter cborConverter;
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public R2dbcWebAuthnUserDetailsService(ConnectionFactory connectionFactory, ObjectConverter objectConverter) {
+        this(DatabaseClient.create(connectionFactory), objectConverter);
+    }
+
+    public R2dbcWebAuthnUserDetailsService(DatabaseClient databaseClient, ObjectConverter objectConverter) {
+        Assert.notNull(databaseClient, "databaseClient must not be null");
+        Assert.notNull(objectConverter, "objectConverter must not be null");
+        this.databaseClient = databaseClient;
+        this.attestedCredentialDataConverter = new AttestedCredentialDataConverter(objectConverter);
+        this.cborConverter = objectConverter.getCborConverter();
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The authorities and the authenticators are queried concurrently, once the user is found.
+     */
+    @Override
+    public Mono<WebAuthnUserDetails> findByUsername(String username) {
+        return findUserRow(username)
+                .flatMap(userRow -> Mono.zip(findAuthorities(username), findAuthenticators(username))
+                        .map(tuple -> userRow.toUserDetails(tuple.getT2(), tuple.getT1())));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The user, its authenticators and its authorities are loaded by a single join, one row per pair of an
+     * authenticator and an authority. Each authenticator is decoded once.
+     */
+    @Override
+    public Mono<WebAuthnUserDetails> findByCredentialId(byte[] credentialId) {
+        return databaseClient.execute(SELECT_USER_BY_CREDENTIAL_ID_SQL)
+                .bind("credentialId", credentialId)
+                .map((row, metadata) -> new JoinedRow(row))
+                .all()
+                .collectList()
+                .filter(joinedRows -> !joinedRows.isEmpty())
+                .map(this::toUserDetails);
+    }
+
+    @Override
+    public Mono<WebAuthnAuthenticationContext> findAuthenticationContextByCredentialId(byte[] credentialId) {
+        return databaseClient.execute(SELECT_AUTHENTICATOR_SQL)
+                .bind("credentialId", credentialId)
+                .map((row, metadata) -> new AuthenticatorRow(row.get("username", String.class), mapAuthenticator(row)))
+                .one()
+                .flatMap(authenticatorRow -> findUserRow(authenticatorRow.username)
+                        .zipWith(findAuthorities(authenticatorRow.username))
+                        .map(tuple -> new WebAuthnAuthenticationContext(
+                                tuple.getT1().toUserDetails(Collections.singletonList(authenticatorRow.authenticator), tuple.getT2()),
+                                authenticatorRow.authenticator)));
+    }
+
+    @Override
+    public Flux<byte[]> findCredentialIdsByUsername(String username) {
+        return databaseClient.execute(SELECT_CREDENTIAL_IDS_SQL)
+                .bind("username", username)
+                .map((row, metadata) -> row.get("credential_id", byte[].class))
+                .all();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The user is checked before the authenticator is inserted. The foreign key of the {@code webauthn_authenticators}
+     * table rejects the insert if the user is removed in between.
+     */
+    @Override
+    public Mono<Void> addAuthenticator(String username, Authenticator authenticator) {
+        return databaseClient.execute(COUNT_USER_SQL)
+                .bind("username", username)
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .flatMap(count -> {
+                    if (count == 0) {
+                        return Mono.<Void>error(new UsernameNotFoundException("User is not found"));
+                    }
+                    return insertAuthenticator(username, authenticator);
+                });
+    }
+
+    private Mono<Void> insertAuthenticator(String username, Authenticator authenticator) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.execute(INSERT_AUTHENTICATOR_SQL)
+                .bind("credentialId", authenticator.getAttestedCredentialData().getCredentialId())
+                .bind("username", username)
+                .bind("attestedCredentialData", attestedCredentialDataConverter.convert(authenticator.getAttestedCredentialData()))
+                .bind("attestationStatement", cborConverter.writeValueAsBytes(new AttestationStatementEnvelope(authenticator.getAttestationStatement())))
+                .bind("counter", authenticator.getCounter());
+        String name = authenticator instanceof WebAuthnAuthenticator ? ((WebAuthnAuthenticator) authenticator).getName() : null;
+        spec = name == null ? spec.bindNull("name", String.class) : spec.bind("name", name);
+        return spec.fetch().rowsUpdated().then();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Signals {@link CredentialIdNotFoundException} if the user has no authenticator with the credentialId, as
+     * {@link #updateCounter(byte[], long)} does.
+     */
+    @Override
+    public Mono<Void> removeAuthenticator(String username, byte[] credentialId) {
+        return databaseClient.execute(DELETE_AUTHENTICATOR_SQL)
+                .bind("credentialId", credentialId)
+                .bind("username", username)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(this::checkUpdated);
+    }
+
+    @Override
+    public Mono<Void> updateCounter(byte[] credentialId, long counter) {
+        return databaseClient.execute(UPDATE_COUNTER_SQL)
+                .bind("counter", counter)
+                .bind("credentialId", credentialId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(this::checkUpdated);
+    }
+
+    private Mono<Void> checkUpdated(int updated) {
+        return updated == 0
+                ? Mono.error(new CredentialIdNotFoundException("credentialId is not found", null, false))
+                : Mono.empty();
+    }
+
+    private Mono<UserRow> findUserRow(String username) {
+        return databaseClient.execute(SELECT_USER_SQL)
+                .bind("username", username)
+                .map((row, metadata) -> new UserRow(row))
+                .one();
+    }
+
+    private Mono<List<GrantedAuthority>> findAuthorities(String username) {
+        return databaseClient.execute(SELECT_AUTHORITIES_SQL)
+                .bind("username", username)
+                .map((row, metadata) -> (GrantedAuthority) new SimpleGrantedAuthority(row.get("authority", String.class)))
+                .all()
+                .collectList();
+    }
+
+    private Mono<List<Authenticator>> findAuthenticators(String username) {
+        return databaseClient.execute(SELECT_AUTHENTICATORS_SQL)
+                .bind("username", username)
+                .map((row, metadata) -> mapAuthenticator(row))
+                .all()
+                .collectList();
+    }
+
+    private Authenticator mapAuthenticator(Row row) {
+        return mapAuthenticator(new AuthenticatorColumns(row));
+    }
+
+    private Authenticator mapAuthenticator(AuthenticatorColumns columns) {
+        AttestationStatementEnvelope envelope = cborConverter.readValue(columns.attestationStatement, AttestationStatementEnvelope.class);
+        return new WebAuthnAuthenticator(
+                columns.name,
+                attestedCredentialDataConverter.convert(columns.attestedCredentialData),
+                envelope.getAttestationStatement(),
+                columns.counter == null ? 0 : columns.counter
+        );
+    }
+
+    private WebAuthnUserDetails toUserDetails(List<JoinedRow> joinedRows) {
+        Map<ByteBuffer, Authenticator> authenticators = new LinkedHashMap<>();
+        Set<GrantedAuthority> authorities = new LinkedHashSet<>();
+        for (JoinedRow joinedRow : joinedRows) {
+            authenticators.computeIfAbsent(ByteBuffer.wrap(joinedRow.authenticator.credentialId), key -> mapAuthenticator(joinedRow.authenticator));
+            if (joinedRow.authority != null) {
+                authorities.add(new SimpleGrantedAuthority(joinedRow.authority));
+            }
+        }
+        return joinedRows.get(0).user.toUserDetails(new ArrayList<>(authenticators.values()), new ArrayList<>(authorities));
+    }
+
+    /**
+     * A row of the {@code webauthn_users} table
+     */
+    private static class UserRow {
+
+        private final String username;
+        private final byte[] userHandle;
+        private final String password;
+        private final boolean singleFactorAuthenticationAllowed;
+        private final boolean enabled;
+        private final boolean accountNonExpired;
+        private final boolean credentialsNonExpired;
+        private final boolean accountNonLocked;
+
+        UserRow(Row row) {
+            this.username = row.get("username", String.class);
+            this.userHandle = row.get("user_handle", byte[].class);
+            this.password = row.get("password", String.class);
+            this.singleFactorAuthenticationAllowed = Boolean.TRUE.equals(row.get("single_factor_authentication_allowed", Boolean.class));
+            this.enabled = Boolean.TRUE.equals(row.get("enabled", Boolean.class));
+            this.accountNonExpired = Boolean.TRUE.equals(row.get("account_non_expired", Boolean.class));
+            this.credentialsNonExpired = Boolean.TRUE.equals(row.get("credentials_non_expired", Boolean.class));
+            this.accountNonLocked = Boolean.TRUE.equals(row.get("account_non_locked", Boolean.class));
+        }
+
+        WebAuthnUserDetails toUserDetails(List<Authenticator> authenticators, List<GrantedAuthority> authorities) {
+            return new WebAuthnUserDetailsImpl(userHandle, username, password, authenticators, singleFactorAuthenticationAllowed,
+                    enabled, accountNonExpired, credentialsNonExpired, accountNonLocked, authorities);
+        }
+    }
+
+    /**
+     * The columns of a row of the {@code webauthn_authenticators} table, before they are decoded
+     */
+    private static class AuthenticatorColumns {
+
+        private final byte[] credentialId;
+        private final String name;
+        private final byte[] attestedCredentialData;
+        private final byte[] attestationStatement;
+        private final Long counter;
+
+        AuthenticatorColumns(Row row) {
+            this.credentialId = row.get("credential_id", byte[].class);
+            this.name = row.get("name", String.class);
+            this.attestedCredentialData = row.get("attested_credential_data", byte[].class);
+            this.attestationStatement = row.get("attestation_statement", byte[].class);
+            this.counter = row.get("counter", Long.class);
+        }
+    }
+
+    /**
+     * A row of the join of a user with its authenticators and its authorities
+     */
+    private static class JoinedRow {
+
+        private final UserRow user;
+        private final AuthenticatorColumns authenticator;
+        private final String authority;
+
+        JoinedRow(Row row) {
+            this.user = new UserRow(row);
+            this.authenticator = new AuthenticatorColumns(row);
+            this.authority = row.get("authority", String.class);
+        }
+    }
+
+    /**
+     * An authenticator, with the username of its user
+     */
+    private static class AuthenticatorRow {
+
+        private final String username;
+        private final Authenticator authenticator;
+
+        AuthenticatorRow(String username, Authenticator authenticator) {
+            this.username = username;
+            this.authenticator = authenticator;
+        }
+    }
+}
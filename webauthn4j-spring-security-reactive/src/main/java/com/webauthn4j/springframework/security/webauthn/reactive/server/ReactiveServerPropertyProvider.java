@@ -0,0 +1,38 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.server;
+
+import com.webauthn4j.server.ServerProperty;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+/**
+ * Provides {@link ServerProperty} instance associated with {@link ServerWebExchange}. The reactive counterpart of
+ * {@link com.webauthn4j.springframework.security.webauthn.server.ServerPropertyProvider}.
+ */
+public interface ReactiveServerPropertyProvider {
+
+    /**
+     * Provides {@link ServerProperty}
+     *
+     * @param exchange server web exchange
+     * @return the {@link ServerProperty}
+     */
+    Mono<ServerProperty> provide(ServerWebExchange exchange);
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.server;
+
+import com.webauthn4j.data.client.Origin;
+import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.ServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.util.ServerWebExchangeUtil;
+import org.springframework.util.Assert;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+public class ReactiveServerPropertyProviderImpl implements ReactiveServerPropertyProvider {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final ReactiveOptionsProvider optionsProvider;
+    private final ServerChallengeRepository challengeRepository;
+
+    public ReactiveServerPropertyProviderImpl(ReactiveOptionsProvider optionsProvider, ServerChallengeRepository challengeRepository) {
+
+        Assert.notNull(optionsProvider, "optionsProvider must not be null");
+        Assert.notNull(challengeRepository, "challengeRepository must not be null");
+
+        this.optionsProvider = optionsProvider;
+        this.challengeRepository = challengeRepository;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Mono<ServerProperty> provide(ServerWebExchange exchange) {
+
+        Origin origin = ServerWebExchangeUtil.getOrigin(exchange);
+        String effectiveRpId = optionsProvider.getEffectiveRpId(exchange);
+
+        return challengeRepository.loadOrGenerateChallenge(exchange)
+                .map(challenge -> new ServerProperty(origin, effectiveRpId, challenge, null)); // tokenBinding is not supported
+    }
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.userdetails;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnAuthenticationContext;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Looks up and updates {@link WebAuthnUserDetails} without blocking. The reactive counterpart of
+ * {@link com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService}, where lookups
+ * complete empty instead of signaling not-found exceptions.
+ */
+public interface ReactiveWebAuthnUserDetailsService {
+
+    /**
+     * Finds the user by username
+     *
+     * @param username username
+     * @return the user, or empty if the user is not found
+     */
+    Mono<WebAuthnUserDetails> findByUsername(String username);
+
+    /**
+     * Finds the user and the authenticator by credentialId
+     *
+     * @param credentialId credentialId
+     * @return the {@link WebAuthnAuthenticationContext}, or empty if the authenticator is not found
+     */
+    Mono<WebAuthnAuthenticationContext> findAuthenticationContextByCredentialId(byte[] credentialId);
+
+    /**
+     * Finds the user by credentialId
+     *
+     * @param credentialId credentialId
+     * @return the user, which returns the authenticator in getAuthenticators result, or empty if the authenticator is
+     * not found
+     */
+    Mono<WebAuthnUserDetails> findByCredentialId(byte[] credentialId);
+
+    /**
+     * Streams the credentialIds of the authenticators of the user.
+     * The default implementation loads the user by {@link #findByUsername(String)}. Implementations backed by a store
+     * should override it to query the credentialIds alone.
+     *
+     * @param username username
+     * @return the credentialIds, or empty if the user is not found or has no authenticator
+     */
+    default Flux<byte[]> findCredentialIdsByUsername(String username) {
+        return findByUsername(username)
+                .<Authenticator>flatMapIterable(WebAuthnUserDetails::getAuthenticators)
+                .map(authenticator -> authenticator.getAttestedCredentialData().getCredentialId());
+    }
+
+    /**
+     * Adds {@link Authenticator} to the user record
+     *
+     * @param username      the username identifying the user
+     * @param authenticator the authenticator to be added
+     * @return completes when the authenticator is added, or signals
+     * {@link org.springframework.security.core.userdetails.UsernameNotFoundException} if the user could not be found
+     */
+    Mono<Void> addAuthenticator(String username, Authenticator authenticator);
+
+    /**
+     * Removes {@link Authenticator} from the user record
+     *
+     * @param username     the username identifying the user
+     * @param credentialId the credentialId identifying the authenticator
+     * @return completes when the authenticator is removed
+     */
+    Mono<Void> removeAuthenticator(String username, byte[] credentialId);
+
+}
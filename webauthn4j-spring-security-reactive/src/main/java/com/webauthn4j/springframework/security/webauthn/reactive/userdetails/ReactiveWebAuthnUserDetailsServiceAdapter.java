@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.userdetails;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnAuthenticationContext;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Adapts a blocking {@link WebAuthnUserDetailsService} to {@link ReactiveWebAuthnUserDetailsService}, by running the
+ * lookups and updates on a {@link Scheduler} suited to blocking calls, {@link Schedulers#boundedElastic()} by default.
+ * Implementations backed by a non-blocking store, such as
+ * {@link com.webauthn4j.springframework.security.webauthn.reactive.r2dbc.R2dbcWebAuthnUserDetailsService}, implement
+ * {@link ReactiveWebAuthnUserDetailsService} directly.
+ */
+public class ReactiveWebAuthnUserDetailsServiceAdapter implements ReactiveWebAuthnUserDetailsService {
+
+    //~ Instance fields
+    // ================================================================================================
+    private final WebAuthnUserDetailsService userDetailsService;
+    private Scheduler scheduler = Schedulers.boundedElastic();
+
+    // ~ Constructors
+    // ===================================================================================================
+
+    public ReactiveWebAuthnUserDetailsServiceAdapter(WebAuthnUserDetailsService userDetailsService) {
+        Assert.notNull(userDetailsService, "userDetailsService must not be null");
+        this.userDetailsService = userDetailsService;
+    }
+
+    // ~ Methods
+    // ========================================================================================================
+
+    @Override
+    public Mono<WebAuthnUserDetails> findByUsername(String username) {
+        return Mono.defer(() -> Mono.justOrEmpty(userDetailsService.findUserByUsername(username)))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<WebAuthnAuthenticationContext> findAuthenticationContextByCredentialId(byte[] credentialId) {
+        return Mono.defer(() -> Mono.justOrEmpty(userDetailsService.findAuthenticationContextByCredentialId(credentialId)))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<WebAuthnUserDetails> findByCredentialId(byte[] credentialId) {
+        return Mono.defer(() -> Mono.justOrEmpty(userDetailsService.findUserByCredentialId(credentialId)))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Void> addAuthenticator(String username, Authenticator authenticator) {
+        return Mono.<Void>fromRunnable(() -> {
+            if (!userDetailsService.tryAddAuthenticator(username, authenticator)) {
+                throw new UsernameNotFoundException("User is not found");
+            }
+        }).subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<Void> removeAuthenticator(String username, byte[] credentialId) {
+        return Mono.<Void>fromRunnable(() -> userDetailsService.removeAuthenticator(username, credentialId))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * Sets the {@link Scheduler} the blocking lookups and updates run on
+     *
+     * @param scheduler scheduler
+     */
+    public void setScheduler(Scheduler scheduler) {
+        Assert.notNull(scheduler, "scheduler must not be null");
+        this.scheduler = scheduler;
+    }
+}
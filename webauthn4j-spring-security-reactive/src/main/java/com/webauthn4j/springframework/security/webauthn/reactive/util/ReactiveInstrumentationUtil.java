@@ -0,0 +1,69 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.util;
+
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Consumer;
+
+/**
+ * The reactive counterpart of {@link WebAuthnInstrumentation#time(WebAuthnStage, java.util.function.Supplier)}
+ */
+public class ReactiveInstrumentationUtil {
+
+    private ReactiveInstrumentationUtil() {
+    }
+
+    /**
+     * Observes a stage from the subscription to the {@link Mono} to its completion
+     *
+     * @param instrumentation instrumentation
+     * @param stage           the stage
+     * @param mono            the stage
+     * @param <T>             the type of the value
+     * @return the observed {@link Mono}
+     */
+    public static <T> Mono<T> time(WebAuthnInstrumentation instrumentation, WebAuthnStage stage, Mono<T> mono) {
+        return time(instrumentation, stage, sample -> {
+            // nop
+        }, mono);
+    }
+
+    /**
+     * Observes a stage from the subscription to the {@link Mono} to its completion
+     *
+     * @param instrumentation instrumentation
+     * @param stage           the stage
+     * @param attributes      sets the attributes of the sample when the stage starts
+     * @param mono            the stage
+     * @param <T>             the type of the value
+     * @return the observed {@link Mono}
+     */
+    public static <T> Mono<T> time(WebAuthnInstrumentation instrumentation, WebAuthnStage stage,
+                                   Consumer<WebAuthnInstrumentation.Sample> attributes, Mono<T> mono) {
+        return Mono.defer(() -> {
+            WebAuthnInstrumentation.Sample sample = instrumentation.start(stage);
+            attributes.accept(sample);
+            return mono
+                    .doOnSuccess(value -> sample.success())
+                    .doOnError(sample::failure);
+        });
+    }
+}
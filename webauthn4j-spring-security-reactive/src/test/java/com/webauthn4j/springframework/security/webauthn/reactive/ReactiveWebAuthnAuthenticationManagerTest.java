@@ -0,0 +1,288 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive;
+
+import com.webauthn4j.WebAuthnManager;
+import com.webauthn4j.data.AuthenticationParameters;
+import com.webauthn4j.data.AuthenticationRequest;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnAssertionAuthenticationToken;
+import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticator;
+import com.webauthn4j.springframework.security.webauthn.exception.BadChallengeException;
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
+import com.webauthn4j.springframework.security.webauthn.reactive.authenticator.ReactiveWebAuthnAuthenticatorService;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnAuthenticationContext;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.*;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test for ReactiveWebAuthnAuthenticationManager
+ */
+public class ReactiveWebAuthnAuthenticationManagerTest {
+
+    private final ReactiveWebAuthnUserDetailsService userDetailsService = mock(ReactiveWebAuthnUserDetailsService.class);
+
+    private final ReactiveWebAuthnAuthenticatorService authenticatorService = mock(ReactiveWebAuthnAuthenticatorService.class);
+
+    private final WebAuthnManager webAuthnManager = mock(WebAuthnManager.class);
+
+    private final ReactiveWebAuthnAuthenticationManager authenticationManager
+            = new ReactiveWebAuthnAuthenticationManager(userDetailsService, authenticatorService, webAuthnManager);
+
+    private final byte[] credentialId = new byte[32];
+
+    private final GrantedAuthority grantedAuthority = new SimpleGrantedAuthority("ROLE_ADMIN");
+
+    private WebAuthnAuthenticator authenticator;
+
+    private WebAuthnUserDetailsImpl user;
+
+    @Before
+    public void setup() {
+        authenticator = mock(WebAuthnAuthenticator.class, RETURNS_DEEP_STUBS);
+        when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
+        user = new WebAuthnUserDetailsImpl(
+                new byte[0],
+                "dummy",
+                "dummy",
+                Collections.singletonList(authenticator),
+                Collections.singletonList(grantedAuthority));
+        when(userDetailsService.findAuthenticationContextByCredentialId(credentialId))
+                .thenReturn(Mono.just(new WebAuthnAuthenticationContext(user, authenticator)));
+        when(authenticatorService.updateCounter(any(), anyLong())).thenReturn(Mono.empty());
+        when(authenticatorService.getLatestCounter(any(), anyLong())).thenAnswer(invocation -> Mono.just(invocation.getArgument(1)));
+    }
+
+    /**
+     * Verifies that an unsupported authentication token is left to other managers.
+     */
+    @Test
+    public void authenticate_with_unsupported_authenticationToken() {
+        Authentication token = new UsernamePasswordAuthenticationToken("username", "password");
+
+        StepVerifier.create(authenticationManager.authenticate(token))
+                .verifyComplete();
+    }
+
+    /**
+     * Verifies that the authentication token without credentials will be rejected.
+     */
+    @Test
+    public void authenticate_with_authenticationToken_without_credentials() {
+        Authentication token = new WebAuthnAssertionAuthenticationToken(null);
+
+        StepVerifier.create(authenticationManager.authenticate(token))
+                .verifyError(BadCredentialsException.class);
+    }
+
+    /**
+     * Verifies that authentication process passes successfully if input is correct.
+     */
+    @Test
+    public void authenticate_test() {
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        when(credential.isUserVerificationRequired()).thenReturn(true);
+
+        StepVerifier.create(authenticationManager.authenticate(new WebAuthnAssertionAuthenticationToken(credential)))
+                .assertNext(authenticatedToken -> {
+                    assertThat(authenticatedToken.isAuthenticated()).isTrue();
+                    assertThat(authenticatedToken.getPrincipal()).isEqualTo(user);
+                    assertThat(authenticatedToken.getCredentials()).isEqualTo(credential);
+                    assertThat(authenticatedToken.getAuthorities().toArray()).containsExactly(grantedAuthority);
+                })
+                .verifyComplete();
+
+        ArgumentCaptor<AuthenticationParameters> parameterCaptor = ArgumentCaptor.forClass(AuthenticationParameters.class);
+        verify(webAuthnManager).validate(any(AuthenticationRequest.class), parameterCaptor.capture());
+        assertThat(parameterCaptor.getValue().isUserVerificationRequired()).isTrue();
+    }
+
+    /**
+     * Verifies that the counter not persisted yet is applied before the validation.
+     */
+    @Test
+    public void authenticate_applies_latest_counter_test() {
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        when(authenticator.getCounter()).thenReturn(3L);
+        when(authenticatorService.getLatestCounter(credentialId, 3L)).thenReturn(Mono.just(5L));
+
+        StepVerifier.create(authenticationManager.authenticate(new WebAuthnAssertionAuthenticationToken(credential)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(authenticator).setCounter(5L);
+    }
+
+    /**
+     * Verifies that the counter is updated with the value set by the validation.
+     */
+    @Test
+    public void authenticate_updates_counter_after_validation_test() {
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        when(authenticator.getCounter()).thenReturn(3L);
+        doAnswer(invocation -> {
+            when(authenticator.getCounter()).thenReturn(4L);
+            return null;
+        }).when(webAuthnManager).validate(any(AuthenticationRequest.class), any(AuthenticationParameters.class));
+
+        StepVerifier.create(authenticationManager.authenticate(new WebAuthnAssertionAuthenticationToken(credential)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(authenticatorService).updateCounter(credentialId, 4L);
+    }
+
+    @Test
+    public void authenticate_with_forcePrincipalAsString_option_test() {
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        authenticationManager.setForcePrincipalAsString(true);
+
+        StepVerifier.create(authenticationManager.authenticate(new WebAuthnAssertionAuthenticationToken(credential)))
+                .assertNext(authenticatedToken -> assertThat(authenticatedToken.getPrincipal()).isEqualTo("dummy"))
+                .verifyComplete();
+    }
+
+    /**
+     * Verifies that the user verification is not required for the user already authenticated.
+     */
+    @Test
+    public void authenticate_with_current_authentication_of_same_user_test() {
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        when(credential.isUserVerificationRequired()).thenReturn(true);
+        Authentication currentAuthentication = new UsernamePasswordAuthenticationToken("dummy", "dummy", Collections.emptyList());
+
+        StepVerifier.create(authenticationManager.authenticate(new WebAuthnAssertionAuthenticationToken(credential))
+                .subscriberContext(ReactiveSecurityContextHolder.withAuthentication(currentAuthentication)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        ArgumentCaptor<AuthenticationParameters> parameterCaptor = ArgumentCaptor.forClass(AuthenticationParameters.class);
+        verify(webAuthnManager).validate(any(AuthenticationRequest.class), parameterCaptor.capture());
+        assertThat(parameterCaptor.getValue().isUserVerificationRequired()).isFalse();
+    }
+
+    @Test
+    public void authenticate_with_locked_user_test() {
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        WebAuthnUserDetailsImpl lockedUser = new WebAuthnUserDetailsImpl(
+                new byte[0],
+                "dummy",
+                "dummy",
+                Collections.singletonList(authenticator),
+                false,
+                true,
+                true,
+                true,
+                false,
+                Collections.singletonList(grantedAuthority));
+        when(userDetailsService.findAuthenticationContextByCredentialId(credentialId))
+                .thenReturn(Mono.just(new WebAuthnAuthenticationContext(lockedUser, authenticator)));
+
+        StepVerifier.create(authenticationManager.authenticate(new WebAuthnAssertionAuthenticationToken(credential)))
+                .verifyError(LockedException.class);
+        verifyNoInteractions(webAuthnManager);
+    }
+
+    /**
+     * Verifies that the WebAuthn4J exceptions are mapped, and the counter is not updated on validation failure.
+     */
+    @Test
+    public void authenticate_with_BadChallengeException_from_webAuthnManager_test() {
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        doThrow(com.webauthn4j.validator.exception.BadChallengeException.class).when(webAuthnManager).validate((AuthenticationRequest) any(), any());
+
+        StepVerifier.create(authenticationManager.authenticate(new WebAuthnAssertionAuthenticationToken(credential)))
+                .verifyError(BadChallengeException.class);
+        verify(authenticatorService, never()).updateCounter(any(), anyLong());
+    }
+
+    @Test
+    public void authenticate_with_instrumentation_test() {
+        WebAuthnAuthenticationRequest credential = mock(WebAuthnAuthenticationRequest.class);
+        when(credential.getCredentialId()).thenReturn(credentialId);
+        WebAuthnInstrumentation instrumentation = mock(WebAuthnInstrumentation.class, CALLS_REAL_METHODS);
+        WebAuthnInstrumentation.Sample sample = mock(WebAuthnInstrumentation.Sample.class);
+        when(instrumentation.start(any())).thenReturn(sample);
+        authenticationManager.setInstrumentation(instrumentation);
+
+        StepVerifier.create(authenticationManager.authenticate(new WebAuthnAssertionAuthenticationToken(credential)))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(instrumentation).start(WebAuthnStage.AUTHENTICATION_USER_LOOKUP);
+        verify(instrumentation).start(WebAuthnStage.AUTHENTICATION_VALIDATION);
+        verify(instrumentation).start(WebAuthnStage.AUTHENTICATION_COUNTER_UPDATE);
+        verify(sample, times(3)).success();
+        verify(sample, times(3)).setCredentialId(credentialId);
+    }
+
+    @Test
+    public void retrieveAuthenticationContext_with_unknown_credentialId_test() {
+        byte[] unknownCredentialId = new byte[]{0x01};
+        when(userDetailsService.findAuthenticationContextByCredentialId(unknownCredentialId)).thenReturn(Mono.empty());
+
+        StepVerifier.create(authenticationManager.retrieveAuthenticationContext(unknownCredentialId))
+                .verifyError(BadCredentialsException.class);
+    }
+
+    @Test
+    public void retrieveAuthenticationContext_with_unknown_credentialId_and_hideCredentialIdNotFoundExceptions_option_false_test() {
+        byte[] unknownCredentialId = new byte[]{0x01};
+        when(userDetailsService.findAuthenticationContextByCredentialId(unknownCredentialId)).thenReturn(Mono.empty());
+        authenticationManager.setHideCredentialIdNotFoundExceptions(false);
+
+        StepVerifier.create(authenticationManager.retrieveAuthenticationContext(unknownCredentialId))
+                .verifyError(CredentialIdNotFoundException.class);
+    }
+
+    @Test
+    public void retrieveAuthenticationContext_with_RuntimeException_from_userDetailsService_test() {
+        byte[] failingCredentialId = new byte[]{0x02};
+        when(userDetailsService.findAuthenticationContextByCredentialId(failingCredentialId))
+                .thenReturn(Mono.error(new IllegalStateException("store unavailable")));
+
+        StepVerifier.create(authenticationManager.retrieveAuthenticationContext(failingCredentialId))
+                .verifyError(InternalAuthenticationServiceException.class);
+    }
+}
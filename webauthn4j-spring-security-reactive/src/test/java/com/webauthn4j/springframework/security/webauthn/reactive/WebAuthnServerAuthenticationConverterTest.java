@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive;
+
+import com.webauthn4j.data.client.Origin;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnAssertionAuthenticationToken;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnInstrumentation;
+import com.webauthn4j.springframework.security.webauthn.metrics.WebAuthnStage;
+import com.webauthn4j.springframework.security.webauthn.reactive.server.ReactiveServerPropertyProvider;
+import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.util.Base64Utils;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class WebAuthnServerAuthenticationConverterTest {
+
+    private final ReactiveServerPropertyProvider serverPropertyProvider = mock(ReactiveServerPropertyProvider.class);
+    private final WebAuthnServerAuthenticationConverter target = new WebAuthnServerAuthenticationConverter(serverPropertyProvider);
+
+    @Test
+    public void convert_with_webauthn_parameters_test() {
+        String credentialId = "AAhdofeLeQWG6Y6gwwytZKNCDFB1WaIgqDsOwVYR5UavKQhAti4ic9_Dz-_CQEPpN0To6hiDRSCvmFHXaG6HK5yvvhm4DJRVJXzSvZiq5NefbXSYIr2uUaKbsoBe1lulhNdL9dRt6Dkkp38uq02YIR5CDaoxD-HQgMsS667aWlhHVKE884Sq0d1VVgGTDb1ds-Py_H7CDqk9SDErb8-XtQ9L";
+        String clientDataJSON = "eyJjaGFsbGVuZ2UiOiJGT3JHWklmSFJfeURaSklydTVPdXBBIiwiaGFzaEFsZyI6IlMyNTYiLCJvcmlnaW4iOiJsb2NhbGhvc3QifQ";
+        String authenticatorData = "SZYN5YgOjGh0NBcPZHZgW4_krrmihjLHmVzzuoMdl2MBAAABRQ";
+        String signature = "MEUCIGBYMUVg2KkMG7V7UEsGxUeKVaO8x587JyVoZkk6FmsgAiEA5XRKxlYe2Vpwn-JYEJhcEVJ3-0nYFG-JfheOk4rA3dc";
+        String clientExtensionsJSON = "";
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/login")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body("credentialId=" + credentialId
+                        + "&clientDataJSON=" + clientDataJSON
+                        + "&authenticatorData=" + authenticatorData
+                        + "&signature=" + signature
+                        + "&clientExtensionsJSON=" + clientExtensionsJSON));
+        ServerProperty serverProperty = new ServerProperty(new Origin("https://example.com"), "example.com", new DefaultChallenge(), null);
+        when(serverPropertyProvider.provide(exchange)).thenReturn(Mono.just(serverProperty));
+        target.setExpectedAuthenticationExtensionIds(Collections.singletonList("appid"));
+
+        StepVerifier.create(target.convert(exchange))
+                .assertNext(authentication -> {
+                    assertThat(authentication).isInstanceOf(WebAuthnAssertionAuthenticationToken.class);
+                    WebAuthnAuthenticationRequest credentials = ((WebAuthnAssertionAuthenticationToken) authentication).getCredentials();
+                    assertThat(credentials.getCredentialId()).isEqualTo(Base64Utils.decodeFromUrlSafeString(credentialId));
+                    assertThat(credentials.getClientDataJSON()).isEqualTo(Base64Utils.decodeFromUrlSafeString(clientDataJSON));
+                    assertThat(credentials.getAuthenticatorData()).isEqualTo(Base64Utils.decodeFromUrlSafeString(authenticatorData));
+                    assertThat(credentials.getSignature()).isEqualTo(Base64Utils.decodeFromUrlSafeString(signature));
+                    assertThat(credentials.getServerProperty()).isEqualTo(serverProperty);
+                    assertThat(credentials.isUserVerificationRequired()).isTrue();
+                    assertThat(credentials.getExpectedAuthenticationExtensionIds()).containsExactly("appid");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void convert_with_username_password_parameters_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/login")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body("username=john&password=secret"));
+
+        StepVerifier.create(target.convert(exchange))
+                .assertNext(authentication -> {
+                    assertThat(authentication).isInstanceOf(UsernamePasswordAuthenticationToken.class);
+                    assertThat(authentication.getPrincipal()).isEqualTo("john");
+                    assertThat(authentication.getCredentials()).isEqualTo("secret");
+                })
+                .verifyComplete();
+        verifyNoInteractions(serverPropertyProvider);
+    }
+
+    @Test
+    public void convert_with_malformed_parameter_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/login")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .body("credentialId=AA&clientDataJSON=%25%25&authenticatorData=AA&signature=AA"));
+        WebAuthnInstrumentation.Sample sample = mock(WebAuthnInstrumentation.Sample.class);
+        target.setInstrumentation(stage -> stage == WebAuthnStage.AUTHENTICATION_REQUEST_DECODE ? sample : WebAuthnInstrumentation.Sample.NOOP);
+
+        StepVerifier.create(target.convert(exchange))
+                .verifyError(IllegalArgumentException.class);
+        verify(sample).failure(any(IllegalArgumentException.class));
+        verifyNoInteractions(serverPropertyProvider);
+    }
+
+    @Test
+    public void getter_setter_test() {
+        target.setUsernameParameter("usernameParameter");
+        target.setPasswordParameter("passwordParameter");
+        target.setCredentialIdParameter("credentialIdParameter");
+        target.setClientDataJSONParameter("clientDataJSONParameter");
+        target.setAuthenticatorDataParameter("authenticatorDataParameter");
+        target.setSignatureParameter("signatureParameter");
+        target.setClientExtensionsJSONParameter("clientExtensionsJSONParameter");
+
+        assertThat(target.getUsernameParameter()).isEqualTo("usernameParameter");
+        assertThat(target.getPasswordParameter()).isEqualTo("passwordParameter");
+        assertThat(target.getCredentialIdParameter()).isEqualTo("credentialIdParameter");
+        assertThat(target.getClientDataJSONParameter()).isEqualTo("clientDataJSONParameter");
+        assertThat(target.getAuthenticatorDataParameter()).isEqualTo("authenticatorDataParameter");
+        assertThat(target.getSignatureParameter()).isEqualTo("signatureParameter");
+        assertThat(target.getClientExtensionsJSONParameter()).isEqualTo("clientExtensionsJSONParameter");
+    }
+}
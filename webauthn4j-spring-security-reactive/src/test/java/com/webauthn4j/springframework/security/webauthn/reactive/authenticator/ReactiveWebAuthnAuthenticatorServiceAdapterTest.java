@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.authenticator;
+
+import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticatorService;
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.Mockito.*;
+
+public class ReactiveWebAuthnAuthenticatorServiceAdapterTest {
+
+    private final WebAuthnAuthenticatorService authenticatorService = mock(WebAuthnAuthenticatorService.class);
+    private final ReactiveWebAuthnAuthenticatorServiceAdapter target = new ReactiveWebAuthnAuthenticatorServiceAdapter(authenticatorService);
+
+    @Test
+    public void updateCounter_test() {
+        byte[] credentialId = new byte[]{0x01, 0x23};
+
+        Mono<Void> result = target.updateCounter(credentialId, 5);
+        verifyNoInteractions(authenticatorService);
+
+        StepVerifier.create(result).verifyComplete();
+        verify(authenticatorService).updateCounter(credentialId, 5);
+    }
+
+    @Test
+    public void updateCounter_error_is_signaled_test() {
+        byte[] credentialId = new byte[]{0x01, 0x23};
+        doThrow(new CredentialIdNotFoundException("not found")).when(authenticatorService).updateCounter(credentialId, 5);
+
+        StepVerifier.create(target.updateCounter(credentialId, 5))
+                .verifyError(CredentialIdNotFoundException.class);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.challenge;
+
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WebSessionServerChallengeRepositoryTest {
+
+    private final WebSessionServerChallengeRepository target = new WebSessionServerChallengeRepository();
+
+    @Test
+    public void generateChallenge_test() {
+        StepVerifier.create(target.generateChallenge())
+                .assertNext(challenge -> assertThat(challenge.getValue()).hasSize(16))
+                .verifyComplete();
+    }
+
+    @Test
+    public void saveChallenge_and_loadChallenge_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+        Challenge challenge = new DefaultChallenge();
+
+        StepVerifier.create(target.saveChallenge(challenge, exchange).then(target.loadChallenge(exchange)))
+                .expectNext(challenge)
+                .verifyComplete();
+    }
+
+    @Test
+    public void saveChallenge_with_null_deletes_challenge_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+
+        StepVerifier.create(target.saveChallenge(new DefaultChallenge(), exchange)
+                .then(target.saveChallenge(null, exchange))
+                .then(target.loadChallenge(exchange)))
+                .verifyComplete();
+    }
+
+    @Test
+    public void loadChallenge_without_saved_challenge_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+
+        StepVerifier.create(target.loadChallenge(exchange))
+                .verifyComplete();
+    }
+
+    @Test
+    public void loadOrGenerateChallenge_saves_generated_challenge_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+
+        Challenge generated = target.loadOrGenerateChallenge(exchange).block();
+
+        assertThat(generated).isNotNull();
+        assertThat(target.loadOrGenerateChallenge(exchange).block()).isEqualTo(generated);
+    }
+
+    @Test
+    public void setSessionAttributeName_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/"));
+        Challenge challenge = new DefaultChallenge();
+        target.setSessionAttributeName("challenge");
+
+        target.saveChallenge(challenge, exchange).block();
+
+        assertThat(exchange.getSession().block().<Challenge>getAttribute("challenge")).isEqualTo(challenge);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.reactive.config;
+
+import com.webauthn4j.converter.CollectedClientDataConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.PublicKeyCredentialType;
+import com.webauthn4j.data.client.ClientDataType;
+import com.webauthn4j.data.client.CollectedClientData;
+import com.webauthn4j.data.client.Origin;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ChallengeEnvelopeCodec;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerAuthenticatorAssertionResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredential;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialGetOptionsRequest;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialGetOptionsResponse;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnAssertionAuthenticationToken;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.WebSessionServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProviderImpl;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.WebFilterChainProxy;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test for ReactiveFidoServerConfigurer, through the SecurityWebFilterChain it configures
+ */
+public class ReactiveFidoServerConfigurerTest {
+
+    private static final byte[] CREDENTIAL_ID = new byte[]{0x01, 0x23, 0x45};
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final ReactiveWebAuthnUserDetailsService userDetailsService = mock(ReactiveWebAuthnUserDetailsService.class);
+    private final ReactiveOptionsProviderImpl optionsProvider = new ReactiveOptionsProviderImpl(userDetailsService, new WebSessionServerChallengeRepository());
+    private final AtomicReference<WebAuthnAuthenticationRequest> authenticationRequest = new AtomicReference<>();
+    private final ReactiveAuthenticationManager authenticationManager = authentication -> {
+        authenticationRequest.set(((WebAuthnAssertionAuthenticationToken) authentication).getCredentials());
+        return Mono.just(new UsernamePasswordAuthenticationToken("john", null, Collections.emptyList()));
+    };
+
+    @Test
+    public void assertion_test_validates_against_the_challenge_issued_by_the_options_endpoint() {
+        when(userDetailsService.findByUsername(any())).thenReturn(Mono.empty());
+        WebTestClient client = createClient(ReactiveFidoServerConfigurer.fidoServer());
+
+        EntityExchangeResult<ServerPublicKeyCredentialGetOptionsResponse> optionsResult = client.post().uri("/webauthn/assertion/options")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(json(new ServerPublicKeyCredentialGetOptionsRequest("john")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ServerPublicKeyCredentialGetOptionsResponse.class)
+                .returnResult();
+        ResponseCookie session = optionsResult.getResponseCookies().getFirst("SESSION");
+        byte[] challenge = Base64UrlUtil.decode(optionsResult.getResponseBody().getChallenge());
+
+        client.post().uri("/webauthn/assertion/result")
+                .cookie(session.getName(), session.getValue())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(json(assertion(challenge)))
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(authenticationRequest.get().getCredentialId()).isEqualTo(CREDENTIAL_ID);
+        assertThat(authenticationRequest.get().getServerProperty().getChallenge().getValue()).isEqualTo(challenge);
+    }
+
+    @Test
+    public void challengeEnvelopeCodec_test_rejects_codec_without_key() {
+        ReactiveFidoServerConfigurer configurer = ReactiveFidoServerConfigurer.fidoServer();
+
+        assertThatThrownBy(() -> configurer.challengeEnvelopeCodec(new ChallengeEnvelopeCodec())).isInstanceOf(IllegalArgumentException.class);
+        configurer.challengeEnvelopeCodec(new ChallengeEnvelopeCodec(new byte[16]));
+    }
+
+    @Test
+    public void assertion_result_test_with_custom_processing_url() {
+        WebTestClient client = createClient(ReactiveFidoServerConfigurer.fidoServer().assertionResultProcessingUrl("/custom/assertion/result"));
+
+        client.post().uri("/custom/assertion/result")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(json(assertion(new byte[16])))
+                .exchange()
+                .expectStatus().isOk();
+        assertThat(authenticationRequest.get()).isNotNull();
+
+        authenticationRequest.set(null);
+        client.post().uri("/webauthn/assertion/result")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(json(assertion(new byte[16])))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(authenticationRequest.get()).isNull();
+    }
+
+    @Test
+    public void attestation_options_test_rejects_GET_request() {
+        WebTestClient client = createClient(ReactiveFidoServerConfigurer.fidoServer());
+
+        client.get().uri("/webauthn/attestation/options")
+                .exchange()
+                .expectStatus().isForbidden();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    private WebTestClient createClient(ReactiveFidoServerConfigurer configurer) {
+        ServerHttpSecurity http = ServerHttpSecurity.http().csrf().disable();
+        configurer.authenticationManager(authenticationManager)
+                .optionsProvider(optionsProvider)
+                .userDetailsService(userDetailsService)
+                .configure(http);
+        WebFilterChainProxy filterChainProxy = new WebFilterChainProxy(http.build());
+        return WebTestClient.bindToWebHandler(exchange -> {
+            exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+            return exchange.getResponse().setComplete();
+        }).webFilter(filterChainProxy).configureClient().baseUrl("http://localhost").build();
+    }
+
+    private ServerPublicKeyCredential<ServerAuthenticatorAssertionResponse> assertion(byte[] challenge) {
+        CollectedClientData collectedClientData = new CollectedClientData(ClientDataType.GET, new DefaultChallenge(challenge), new Origin("http://localhost"), null);
+        String clientDataJSON = new CollectedClientDataConverter(objectConverter).convertToBase64UrlString(collectedClientData);
+        return new ServerPublicKeyCredential<>(
+                Base64UrlUtil.encodeToString(CREDENTIAL_ID),
+                PublicKeyCredentialType.PUBLIC_KEY,
+                new ServerAuthenticatorAssertionResponse(clientDataJSON, Base64UrlUtil.encodeToString(new byte[]{0x02}), Base64UrlUtil.encodeToString(new byte[]{0x03}), null),
+                null);
+    }
+
+    private String json(Object value) {
+        return objectConverter.getJsonConverter().writeValueAsString(value);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.config;
+
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.ServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.WebSessionServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProviderImpl;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ReactiveWebAuthnLoginConfigurerTest {
+
+    private final ServerChallengeRepository challengeRepository = new WebSessionServerChallengeRepository();
+    private final ReactiveOptionsProviderImpl optionsProvider = new ReactiveOptionsProviderImpl(mock(ReactiveWebAuthnUserDetailsService.class), challengeRepository);
+
+    @Test
+    public void getSharedChallengeRepository_test_shares_the_options_provider_challengeRepository() {
+        ReactiveWebAuthnLoginConfigurer target = ReactiveWebAuthnLoginConfigurer.webAuthnLogin().optionsProvider(optionsProvider);
+
+        assertThat(target.getSharedChallengeRepository()).isSameAs(challengeRepository);
+    }
+
+    @Test
+    public void getSharedChallengeRepository_test_prefers_the_bean() {
+        StaticApplicationContext applicationContext = new StaticApplicationContext();
+        applicationContext.registerSingleton("challengeRepository", WebSessionServerChallengeRepository.class);
+        applicationContext.refresh();
+        ReactiveWebAuthnLoginConfigurer target = ReactiveWebAuthnLoginConfigurer.webAuthnLogin()
+                .applicationContext(applicationContext)
+                .optionsProvider(optionsProvider);
+
+        assertThat(target.getSharedChallengeRepository()).isSameAs(applicationContext.getBean(ServerChallengeRepository.class));
+    }
+
+    @Test
+    public void getSharedChallengeRepository_test_falls_back_to_WebSessionServerChallengeRepository() {
+        ReactiveWebAuthnLoginConfigurer target = ReactiveWebAuthnLoginConfigurer.webAuthnLogin().optionsProvider(mock(ReactiveOptionsProvider.class));
+
+        assertThat(target.getSharedChallengeRepository()).isInstanceOf(WebSessionServerChallengeRepository.class);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.springframework.security.webauthn.options.AssertionOptions;
+import com.webauthn4j.springframework.security.webauthn.options.AttestationOptions;
+import com.webauthn4j.springframework.security.webauthn.options.Options;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authentication.InsufficientAuthenticationException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class OptionsEndpointWebFilterTest {
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final ReactiveOptionsProvider optionsProvider = mock(ReactiveOptionsProvider.class);
+    private final OptionsEndpointWebFilter target = new OptionsEndpointWebFilter(optionsProvider, objectConverter);
+
+    @Test
+    public void getter_setter_test() {
+        AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+        target.setTrustResolver(trustResolver);
+        assertThat(target.getTrustResolver()).isEqualTo(trustResolver);
+    }
+
+    @Test
+    public void filter_test() {
+        AttestationOptions attestationOptions = new AttestationOptions(null, null, null, null, null, Collections.emptyList(), null);
+        AssertionOptions assertionOptions = new AssertionOptions(null, null, null, null, null, null);
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(Mono.just(new Options(attestationOptions, assertionOptions)));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(OptionsEndpointWebFilter.FILTER_URL));
+        AtomicBoolean chainCalled = new AtomicBoolean();
+
+        StepVerifier.create(target.filter(exchange, chain(chainCalled)))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block()).startsWith("{");
+        assertThat(chainCalled).isFalse();
+        verify(optionsProvider).getOptions(eq(exchange), isNull(), isNull());
+    }
+
+    @Test
+    public void filter_with_authenticated_user_test() {
+        AttestationOptions attestationOptions = new AttestationOptions(null, null, null, null, null, Collections.emptyList(), null);
+        AssertionOptions assertionOptions = new AssertionOptions(null, null, null, null, null, null);
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(Mono.just(new Options(attestationOptions, assertionOptions)));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(OptionsEndpointWebFilter.FILTER_URL));
+        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken("john", null, Collections.emptyList());
+
+        StepVerifier.create(target.filter(exchange, chain(new AtomicBoolean()))
+                .subscriberContext(ReactiveSecurityContextHolder.withAuthentication(authentication)))
+                .verifyComplete();
+
+        verify(optionsProvider).getOptions(eq(exchange), eq("john"), isNull());
+    }
+
+    @Test
+    public void filter_with_anonymous_user_test() {
+        AttestationOptions attestationOptions = new AttestationOptions(null, null, null, null, null, Collections.emptyList(), null);
+        AssertionOptions assertionOptions = new AssertionOptions(null, null, null, null, null, null);
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(Mono.just(new Options(attestationOptions, assertionOptions)));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(OptionsEndpointWebFilter.FILTER_URL));
+        AnonymousAuthenticationToken authentication = new AnonymousAuthenticationToken("key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+        StepVerifier.create(target.filter(exchange, chain(new AtomicBoolean()))
+                .subscriberContext(ReactiveSecurityContextHolder.withAuthentication(authentication)))
+                .verifyComplete();
+
+        verify(optionsProvider).getOptions(eq(exchange), isNull(), isNull());
+    }
+
+    @Test
+    public void filter_with_unmatched_request_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/other"));
+        AtomicBoolean chainCalled = new AtomicBoolean();
+
+        StepVerifier.create(target.filter(exchange, chain(chainCalled)))
+                .verifyComplete();
+
+        assertThat(chainCalled).isTrue();
+        verifyNoInteractions(optionsProvider);
+    }
+
+    @Test
+    public void filter_with_InsufficientAuthenticationException_test() {
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(Mono.error(new InsufficientAuthenticationException(null)));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(OptionsEndpointWebFilter.FILTER_URL));
+
+        StepVerifier.create(target.filter(exchange, chain(new AtomicBoolean())))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    @Test
+    public void filter_with_RuntimeException_test() {
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(Mono.error(new IllegalStateException()));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(OptionsEndpointWebFilter.FILTER_URL));
+
+        StepVerifier.create(target.filter(exchange, chain(new AtomicBoolean())))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private WebFilterChain chain(AtomicBoolean chainCalled) {
+        return exchange -> {
+            chainCalled.set(true);
+            return Mono.empty();
+        };
+    }
+}
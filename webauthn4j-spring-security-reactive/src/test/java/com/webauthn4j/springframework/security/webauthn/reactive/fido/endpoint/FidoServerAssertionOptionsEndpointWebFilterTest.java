@@ -0,0 +1,77 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.UserVerificationRequirement;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ChallengeEnvelopeCodec;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialGetOptionsRequest;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialGetOptionsResponse;
+import com.webauthn4j.springframework.security.webauthn.options.AssertionOptions;
+import com.webauthn4j.springframework.security.webauthn.options.AttestationOptions;
+import com.webauthn4j.springframework.security.webauthn.options.Options;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FidoServerAssertionOptionsEndpointWebFilterTest {
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final ReactiveOptionsProvider optionsProvider = mock(ReactiveOptionsProvider.class);
+    private final FidoServerAssertionOptionsEndpointWebFilter target = new FidoServerAssertionOptionsEndpointWebFilter(objectConverter, optionsProvider);
+
+    @Test
+    public void filter_test() {
+        when(optionsProvider.getOptions(any(), eq("john"), any())).thenAnswer(invocation -> {
+            Challenge challenge = invocation.getArgument(2);
+            AttestationOptions attestationOptions = new AttestationOptions(null, null, challenge, Collections.emptyList(), null, Collections.singletonList("credentialId"), null);
+            AssertionOptions assertionOptions = new AssertionOptions(challenge, 60000L, "example.com", Collections.singletonList("credentialId"), null, null);
+            return Mono.just(new Options(attestationOptions, assertionOptions));
+        });
+        ServerPublicKeyCredentialGetOptionsRequest request = new ServerPublicKeyCredentialGetOptionsRequest("john", UserVerificationRequirement.REQUIRED);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post(FidoServerAssertionOptionsEndpointWebFilter.FILTER_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(objectConverter.getJsonConverter().writeValueAsString(request)));
+
+        StepVerifier.create(target.filter(exchange, e -> Mono.empty()))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        ServerPublicKeyCredentialGetOptionsResponse response = objectConverter.getJsonConverter()
+                .readValue(exchange.getResponse().getBodyAsString().block(), ServerPublicKeyCredentialGetOptionsResponse.class);
+        assertThat(response.getRpId()).isEqualTo("example.com");
+        assertThat(response.getTimeout()).isEqualTo(60000L);
+        assertThat(response.getAllowCredentials()).extracting("id").containsExactly("credentialId");
+        assertThat(response.getUserVerification()).isEqualTo(UserVerificationRequirement.REQUIRED);
+        assertThat(new ChallengeEnvelopeCodec().decodeUserVerification(Base64UrlUtil.decode(response.getChallenge()))).isEqualTo(UserVerificationRequirement.REQUIRED);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.converter.CollectedClientDataConverter;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.PublicKeyCredentialType;
+import com.webauthn4j.data.UserVerificationRequirement;
+import com.webauthn4j.data.client.ClientDataType;
+import com.webauthn4j.data.client.CollectedClientData;
+import com.webauthn4j.data.client.Origin;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.server.ServerProperty;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ChallengeEnvelopeCodec;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerAuthenticatorAssertionResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredential;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnAssertionAuthenticationToken;
+import com.webauthn4j.springframework.security.webauthn.reactive.server.ReactiveServerPropertyProvider;
+import com.webauthn4j.springframework.security.webauthn.request.WebAuthnAuthenticationRequest;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.core.AuthenticationException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FidoServerAssertionResultServerAuthenticationConverterTest {
+
+    private static final byte[] CREDENTIAL_ID = new byte[]{0x01, 0x23, 0x45};
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final ReactiveServerPropertyProvider serverPropertyProvider = mock(ReactiveServerPropertyProvider.class);
+    private final FidoServerAssertionResultServerAuthenticationConverter target = new FidoServerAssertionResultServerAuthenticationConverter(objectConverter, serverPropertyProvider);
+
+    @Test
+    public void convert_test() {
+        DefaultChallenge challenge = new DefaultChallenge(new ChallengeEnvelopeCodec().encodeUserVerification(new byte[16], UserVerificationRequirement.REQUIRED));
+        ServerProperty serverProperty = new ServerProperty(new Origin("https://example.com"), "example.com", challenge, null);
+        when(serverPropertyProvider.provide(any())).thenReturn(Mono.just(serverProperty));
+        target.setExpectedAuthenticationExtensionIds(Collections.singletonList("appid"));
+        CollectedClientData collectedClientData = new CollectedClientData(ClientDataType.GET, challenge, new Origin("https://example.com"), null);
+        String clientDataJSON = new CollectedClientDataConverter(objectConverter).convertToBase64UrlString(collectedClientData);
+
+        StepVerifier.create(target.convert(exchange(clientDataJSON)))
+                .assertNext(authentication -> {
+                    assertThat(authentication).isInstanceOf(WebAuthnAssertionAuthenticationToken.class);
+                    WebAuthnAuthenticationRequest request = ((WebAuthnAssertionAuthenticationToken) authentication).getCredentials();
+                    assertThat(request.getCredentialId()).isEqualTo(CREDENTIAL_ID);
+                    assertThat(request.getServerProperty()).isEqualTo(serverProperty);
+                    assertThat(request.isUserVerificationRequired()).isTrue();
+                    assertThat(request.getCollectedClientData()).isEqualTo(collectedClientData);
+                    assertThat(request.getExpectedAuthenticationExtensionIds()).containsExactly("appid");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void convert_with_malformed_clientDataJSON_test() {
+        when(serverPropertyProvider.provide(any())).thenReturn(Mono.empty());
+
+        StepVerifier.create(target.convert(exchange(Base64UrlUtil.encodeToString(new byte[]{0x01}))))
+                .verifyError(AuthenticationException.class);
+    }
+
+    private MockServerWebExchange exchange(String clientDataJSON) {
+        ServerPublicKeyCredential<ServerAuthenticatorAssertionResponse> credential = new ServerPublicKeyCredential<>(
+                Base64UrlUtil.encodeToString(CREDENTIAL_ID),
+                PublicKeyCredentialType.PUBLIC_KEY,
+                new ServerAuthenticatorAssertionResponse(clientDataJSON, Base64UrlUtil.encodeToString(new byte[]{0x02}), Base64UrlUtil.encodeToString(new byte[]{0x03}), null),
+                null);
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/webauthn/assertion/result")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(objectConverter.getJsonConverter().writeValueAsString(credential)));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ChallengeEnvelopeCodec;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialCreationOptionsRequest;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredentialCreationOptionsResponse;
+import com.webauthn4j.springframework.security.webauthn.options.AssertionOptions;
+import com.webauthn4j.springframework.security.webauthn.options.AttestationOptions;
+import com.webauthn4j.springframework.security.webauthn.options.Options;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class FidoServerAttestationOptionsEndpointWebFilterTest {
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final ReactiveOptionsProvider optionsProvider = mock(ReactiveOptionsProvider.class);
+    private final FidoServerAttestationOptionsEndpointWebFilter target = new FidoServerAttestationOptionsEndpointWebFilter(objectConverter, optionsProvider);
+
+    @Test
+    public void filter_test() {
+        when(optionsProvider.getOptions(any(), eq("john"), any())).thenAnswer(invocation -> {
+            Challenge challenge = invocation.getArgument(2);
+            AttestationOptions attestationOptions = new AttestationOptions(null, null, challenge, Collections.emptyList(), null, Collections.singletonList("credentialId"), null);
+            AssertionOptions assertionOptions = new AssertionOptions(challenge, null, null, Collections.singletonList("credentialId"), null, null);
+            return Mono.just(new Options(attestationOptions, assertionOptions));
+        });
+        MockServerWebExchange exchange = MockServerWebExchange.from(post(new ServerPublicKeyCredentialCreationOptionsRequest("john", "John", null, null, null)));
+        AtomicBoolean chainCalled = new AtomicBoolean();
+
+        StepVerifier.create(target.filter(exchange, chain(chainCalled)))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(chainCalled).isFalse();
+        ServerPublicKeyCredentialCreationOptionsResponse response = objectConverter.getJsonConverter()
+                .readValue(exchange.getResponse().getBodyAsString().block(), ServerPublicKeyCredentialCreationOptionsResponse.class);
+        assertThat(response.getUser().getName()).isEqualTo("john");
+        assertThat(response.getUser().getDisplayName()).isEqualTo("John");
+        assertThat(response.getUser().getId()).isNotEmpty();
+        assertThat(response.getExcludeCredentials()).extracting("id").containsExactly("credentialId");
+        assertThat(new ChallengeEnvelopeCodec().decodeUsername(Base64UrlUtil.decode(response.getChallenge()))).isEqualTo("john");
+    }
+
+    @Test
+    public void filter_with_GET_request_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(FidoServerAttestationOptionsEndpointWebFilter.FILTER_URL));
+
+        StepVerifier.create(target.filter(exchange, chain(new AtomicBoolean())))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(optionsProvider);
+    }
+
+    @Test
+    public void filter_with_empty_body_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post(FidoServerAttestationOptionsEndpointWebFilter.FILTER_URL));
+
+        StepVerifier.create(target.filter(exchange, chain(new AtomicBoolean())))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(optionsProvider);
+    }
+
+    @Test
+    public void filter_with_RuntimeException_test() {
+        when(optionsProvider.getOptions(any(), any(), any())).thenReturn(Mono.error(new IllegalStateException()));
+        MockServerWebExchange exchange = MockServerWebExchange.from(post(new ServerPublicKeyCredentialCreationOptionsRequest("john", "John", null, null, null)));
+
+        StepVerifier.create(target.filter(exchange, chain(new AtomicBoolean())))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    public void filter_with_unmatched_request_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/other"));
+        AtomicBoolean chainCalled = new AtomicBoolean();
+
+        StepVerifier.create(target.filter(exchange, chain(chainCalled)))
+                .verifyComplete();
+
+        assertThat(chainCalled).isTrue();
+        verifyNoInteractions(optionsProvider);
+    }
+
+    private MockServerHttpRequest post(Object body) {
+        return MockServerHttpRequest.post(FidoServerAttestationOptionsEndpointWebFilter.FILTER_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(objectConverter.getJsonConverter().writeValueAsString(body));
+    }
+
+    private WebFilterChain chain(AtomicBoolean chainCalled) {
+        return exchange -> {
+            chainCalled.set(true);
+            return Mono.empty();
+        };
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.webauthn4j.springframework.security.webauthn.reactive.fido.endpoint;
+
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.PublicKeyCredentialType;
+import com.webauthn4j.data.attestation.AttestationObject;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.AuthenticatorData;
+import com.webauthn4j.data.attestation.statement.NoneAttestationStatement;
+import com.webauthn4j.data.client.ClientDataType;
+import com.webauthn4j.data.client.CollectedClientData;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ChallengeEnvelopeCodec;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerAuthenticatorAttestationResponse;
+import com.webauthn4j.springframework.security.fido.server.endpoint.ServerPublicKeyCredential;
+import com.webauthn4j.springframework.security.webauthn.WebAuthnRegistrationRequestValidationResponse;
+import com.webauthn4j.springframework.security.webauthn.reactive.ReactiveWebAuthnRegistrationRequestValidator;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class FidoServerAttestationResultEndpointWebFilterTest {
+
+    private static final byte[] CREDENTIAL_ID = new byte[]{0x01, 0x23, 0x45};
+
+    private final ObjectConverter objectConverter = new ObjectConverter();
+    private final ReactiveWebAuthnUserDetailsService userDetailsService = mock(ReactiveWebAuthnUserDetailsService.class);
+    private final ReactiveWebAuthnRegistrationRequestValidator registrationRequestValidator = mock(ReactiveWebAuthnRegistrationRequestValidator.class);
+    private final FidoServerAttestationResultEndpointWebFilter target = new FidoServerAttestationResultEndpointWebFilter(objectConverter, userDetailsService, registrationRequestValidator);
+
+    @Before
+    public void setup() {
+        CollectedClientData collectedClientData = new CollectedClientData(ClientDataType.CREATE,
+                new DefaultChallenge(new ChallengeEnvelopeCodec().encodeUsername(new byte[16], "john")), null, null);
+        AttestedCredentialData attestedCredentialData = new AttestedCredentialData(AAGUID.ZERO, CREDENTIAL_ID, null);
+        AttestationObject attestationObject = new AttestationObject(new AuthenticatorData<>(new byte[32], (byte) 0, 1, attestedCredentialData), new NoneAttestationStatement());
+        when(registrationRequestValidator.validate(any(), any(), any(), any(), any()))
+                .thenReturn(Mono.just(new WebAuthnRegistrationRequestValidationResponse(collectedClientData, attestationObject, null)));
+    }
+
+    @Test
+    public void filter_test() {
+        when(userDetailsService.addAuthenticator(eq("john"), any())).thenReturn(Mono.empty());
+        MockServerWebExchange exchange = exchange();
+
+        StepVerifier.create(target.filter(exchange, e -> Mono.empty()))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(userDetailsService).addAuthenticator(eq("john"), argThat(authenticator -> Arrays.equals(authenticator.getAttestedCredentialData().getCredentialId(), CREDENTIAL_ID)));
+    }
+
+    @Test
+    public void filter_with_unknown_user_test() {
+        when(userDetailsService.addAuthenticator(eq("john"), any())).thenReturn(Mono.error(new UsernameNotFoundException("john")));
+        MockServerWebExchange exchange = exchange();
+
+        StepVerifier.create(target.filter(exchange, e -> Mono.empty()))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verify(userDetailsService).addAuthenticator(eq("john"), any());
+    }
+
+    @Test
+    public void filter_with_usernameNotFoundHandler_test() {
+        when(userDetailsService.addAuthenticator(eq("john"), any()))
+                .thenReturn(Mono.error(new UsernameNotFoundException("john")))
+                .thenReturn(Mono.empty());
+        ReactiveUsernameNotFoundHandler usernameNotFoundHandler = mock(ReactiveUsernameNotFoundHandler.class);
+        when(usernameNotFoundHandler.onUsernameNotFound("john")).thenReturn(Mono.empty());
+        target.setUsernameNotFoundHandler(usernameNotFoundHandler);
+        MockServerWebExchange exchange = exchange();
+
+        StepVerifier.create(target.filter(exchange, e -> Mono.empty()))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        verify(usernameNotFoundHandler).onUsernameNotFound("john");
+        verify(userDetailsService, times(2)).addAuthenticator(eq("john"), any());
+    }
+
+    @Test
+    public void filter_with_validation_failure_test() {
+        when(registrationRequestValidator.validate(any(), any(), any(), any(), any())).thenReturn(Mono.error(new BadCredentialsException("invalid")));
+        MockServerWebExchange exchange = exchange();
+
+        StepVerifier.create(target.filter(exchange, e -> Mono.empty()))
+                .verifyComplete();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        verifyNoInteractions(userDetailsService);
+    }
+
+    private MockServerWebExchange exchange() {
+        ServerPublicKeyCredential<ServerAuthenticatorAttestationResponse> credential = new ServerPublicKeyCredential<>(
+                Base64UrlUtil.encodeToString(CREDENTIAL_ID),
+                PublicKeyCredentialType.PUBLIC_KEY,
+                new ServerAuthenticatorAttestationResponse(Base64UrlUtil.encodeToString(new byte[]{0x01}), Base64UrlUtil.encodeToString(new byte[]{0x02})),
+                null);
+        return MockServerWebExchange.from(MockServerHttpRequest.post(FidoServerAttestationResultEndpointWebFilter.FILTER_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(objectConverter.getJsonConverter().writeValueAsString(credential)));
+    }
+}
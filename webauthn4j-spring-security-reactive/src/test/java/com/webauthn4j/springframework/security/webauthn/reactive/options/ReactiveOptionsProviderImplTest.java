@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.options;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.ServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.userdetails.ReactiveWebAuthnUserDetailsService;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
+import com.webauthn4j.util.Base64UrlUtil;
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ReactiveOptionsProviderImplTest {
+
+    private final ReactiveWebAuthnUserDetailsService userDetailsService = mock(ReactiveWebAuthnUserDetailsService.class);
+    private final ServerChallengeRepository challengeRepository = mock(ServerChallengeRepository.class);
+    private final ReactiveOptionsProviderImpl target = new ReactiveOptionsProviderImpl(userDetailsService, challengeRepository);
+
+    @Test
+    public void getOptions_test() {
+        Challenge challenge = new DefaultChallenge();
+        byte[] credentialId = new byte[]{0x01, 0x23, 0x45};
+        WebAuthnUserDetails userDetails = mock(WebAuthnUserDetails.class);
+        Authenticator authenticator = mock(Authenticator.class, RETURNS_DEEP_STUBS);
+        List<Authenticator> authenticators = Collections.singletonList(authenticator);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("https://example.com/webauthn/options"));
+
+        when(userDetailsService.findByUsername("dummy")).thenReturn(Mono.just(userDetails));
+        doReturn(new byte[]{0x01}).when(userDetails).getUserHandle();
+        doReturn(authenticators).when(userDetails).getAuthenticators();
+        when(authenticator.getAttestedCredentialData().getCredentialId()).thenReturn(credentialId);
+        when(challengeRepository.loadOrGenerateChallenge(exchange)).thenReturn(Mono.just(challenge));
+        target.setRpName("rpName");
+        target.setRpIcon("data://dummy");
+
+        StepVerifier.create(target.getOptions(exchange, "dummy", null))
+                .assertNext(options -> {
+                    assertThat(options.getAttestationOptions().getRelyingParty().getId()).isEqualTo("example.com");
+                    assertThat(options.getAttestationOptions().getRelyingParty().getName()).isEqualTo("rpName");
+                    assertThat(options.getAttestationOptions().getUser().getUserHandle()).isEqualTo(Base64UrlUtil.encodeToString(new byte[]{0x01}));
+                    assertThat(options.getAttestationOptions().getChallenge()).isEqualTo(challenge);
+                    assertThat(options.getAttestationOptions().getCredentials()).containsExactly(Base64UrlUtil.encodeToString(credentialId));
+                    assertThat(options.getAssertionOptions().getRpId()).isEqualTo("example.com");
+                    assertThat(options.getAssertionOptions().getChallenge()).isEqualTo(challenge);
+                    assertThat(options.getAssertionOptions().getCredentials()).containsExactly(Base64UrlUtil.encodeToString(credentialId));
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void getOptions_with_unknown_user_test() {
+        Challenge challenge = new DefaultChallenge();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("https://example.com/webauthn/options"));
+        when(userDetailsService.findByUsername("unknown")).thenReturn(Mono.empty());
+        when(challengeRepository.loadOrGenerateChallenge(exchange)).thenReturn(Mono.just(challenge));
+
+        StepVerifier.create(target.getOptions(exchange, "unknown", null))
+                .assertNext(options -> {
+                    assertThat(options.getAttestationOptions().getUser()).isNull();
+                    assertThat(options.getAttestationOptions().getCredentials()).isEmpty();
+                    assertThat(options.getAssertionOptions().getCredentials()).isEmpty();
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void getOptions_with_anonymous_user_test() {
+        Challenge challenge = new DefaultChallenge();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("https://example.com/webauthn/options"));
+        when(challengeRepository.loadOrGenerateChallenge(exchange)).thenReturn(Mono.just(challenge));
+
+        StepVerifier.create(target.getOptions(exchange, null, null))
+                .assertNext(options -> assertThat(options.getAttestationOptions().getUser()).isNull())
+                .verifyComplete();
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    public void getOptions_with_challenge_test() {
+        Challenge challenge = new DefaultChallenge();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("https://example.com/webauthn/options"));
+        when(challengeRepository.saveChallenge(challenge, exchange)).thenReturn(Mono.empty());
+
+        StepVerifier.create(target.getOptions(exchange, null, challenge))
+                .assertNext(options -> assertThat(options.getAssertionOptions().getChallenge()).isEqualTo(challenge))
+                .verifyComplete();
+        verify(challengeRepository).saveChallenge(challenge, exchange);
+        verify(challengeRepository, never()).loadOrGenerateChallenge(exchange);
+    }
+
+    @Test
+    public void getEffectiveRpId_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("https://example.com/webauthn/options"));
+        assertThat(target.getEffectiveRpId(exchange)).isEqualTo("example.com");
+        target.setRpId("rpid.example.com");
+        assertThat(target.getEffectiveRpId(exchange)).isEqualTo("rpid.example.com");
+    }
+}
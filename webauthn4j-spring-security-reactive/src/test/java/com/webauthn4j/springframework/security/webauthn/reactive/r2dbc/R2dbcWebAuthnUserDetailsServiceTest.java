@@ -0,0 +1,233 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.r2dbc;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.converter.util.ObjectConverter;
+import com.webauthn4j.data.attestation.authenticator.AAGUID;
+import com.webauthn4j.data.attestation.authenticator.AttestedCredentialData;
+import com.webauthn4j.data.attestation.authenticator.EC2COSEKey;
+import com.webauthn4j.data.attestation.statement.COSEAlgorithmIdentifier;
+import com.webauthn4j.data.attestation.statement.NoneAttestationStatement;
+import com.webauthn4j.springframework.security.webauthn.authenticator.WebAuthnAuthenticator;
+import com.webauthn4j.springframework.security.webauthn.exception.CredentialIdNotFoundException;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.StreamUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Test for R2dbcWebAuthnUserDetailsService, against an embedded H2 database
+ */
+public class R2dbcWebAuthnUserDetailsServiceTest {
+
+    private static final byte[] USER_HANDLE = new byte[]{0x01, 0x02, 0x03};
+    private static final byte[] CREDENTIAL_ID = new byte[]{0x11, 0x12, 0x13};
+    private static final byte[] ANOTHER_CREDENTIAL_ID = new byte[]{0x21, 0x22, 0x23};
+
+    private DatabaseClient databaseClient;
+    private R2dbcWebAuthnUserDetailsService target;
+    private EC2COSEKey coseKey;
+
+    @Before
+    public void setup() throws IOException, GeneralSecurityException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("EC");
+        keyPairGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        coseKey = EC2COSEKey.create((ECPublicKey) keyPairGenerator.generateKeyPair().getPublic(), COSEAlgorithmIdentifier.ES256);
+
+        ConnectionFactory connectionFactory = H2ConnectionFactory.inMemory(UUID.randomUUID().toString());
+        databaseClient = DatabaseClient.create(connectionFactory);
+        String schema = StreamUtils.copyToString(
+                new ClassPathResource(R2dbcWebAuthnUserDetailsService.DEFAULT_SCHEMA_LOCATION).getInputStream(), StandardCharsets.UTF_8);
+        Flux.fromArray(schema.split(";"))
+                .map(String::trim)
+                .filter(statement -> !statement.isEmpty())
+                .concatMap(statement -> databaseClient.execute(statement).fetch().rowsUpdated())
+                .blockLast();
+        databaseClient.execute("INSERT INTO webauthn_users VALUES ('john', :userHandle, 'password', false, true, true, true, true)")
+                .bind("userHandle", USER_HANDLE)
+                .fetch().rowsUpdated().block();
+        databaseClient.execute("INSERT INTO webauthn_user_authorities VALUES ('john', 'ROLE_USER')")
+                .fetch().rowsUpdated().block();
+
+        target = new R2dbcWebAuthnUserDetailsService(connectionFactory, new ObjectConverter());
+        target.addAuthenticator("john", createAuthenticator(CREDENTIAL_ID)).block();
+    }
+
+    @Test
+    public void findByUsername_test() {
+        StepVerifier.create(target.findByUsername("john"))
+                .assertNext(user -> {
+                    assertThat(user.getUsername()).isEqualTo("john");
+                    assertThat(user.getUserHandle()).isEqualTo(USER_HANDLE);
+                    assertThat(user.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+                    assertThat(user.isSingleFactorAuthenticationAllowed()).isFalse();
+                    assertThat(user.getAuthenticators()).hasSize(1);
+                    Authenticator authenticator = user.getAuthenticators().iterator().next();
+                    assertThat(authenticator.getAttestedCredentialData().getCredentialId()).isEqualTo(CREDENTIAL_ID);
+                    assertThat(authenticator.getAttestationStatement()).isInstanceOf(NoneAttestationStatement.class);
+                    assertThat(((WebAuthnAuthenticator) authenticator).getName()).isEqualTo("authenticator");
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void findByUsername_with_unknown_username_test() {
+        StepVerifier.create(target.findByUsername("unknown"))
+                .verifyComplete();
+    }
+
+    @Test
+    public void findByCredentialId_test() {
+        target.addAuthenticator("john", createAuthenticator(ANOTHER_CREDENTIAL_ID)).block();
+        databaseClient.execute("INSERT INTO webauthn_user_authorities VALUES ('john', 'ROLE_ADMIN')")
+                .fetch().rowsUpdated().block();
+
+        StepVerifier.create(target.findByCredentialId(CREDENTIAL_ID))
+                .assertNext(user -> {
+                    assertThat(user.getUsername()).isEqualTo("john");
+                    assertThat(user.getUserHandle()).isEqualTo(USER_HANDLE);
+                    assertThat(user.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+                    assertThat(user.getAuthenticators()).extracting(authenticator -> authenticator.getAttestedCredentialData().getCredentialId())
+                            .containsExactlyInAnyOrder(CREDENTIAL_ID, ANOTHER_CREDENTIAL_ID);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void findByCredentialId_with_user_without_authorities_test() {
+        databaseClient.execute("DELETE FROM webauthn_user_authorities WHERE username = 'john'")
+                .fetch().rowsUpdated().block();
+
+        StepVerifier.create(target.findByCredentialId(CREDENTIAL_ID))
+                .assertNext(user -> {
+                    assertThat(user.getUsername()).isEqualTo("john");
+                    assertThat(user.getAuthorities()).isEmpty();
+                    assertThat(user.getAuthenticators()).hasSize(1);
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void findByCredentialId_with_unknown_credentialId_test() {
+        StepVerifier.create(target.findByCredentialId(ANOTHER_CREDENTIAL_ID))
+                .verifyComplete();
+    }
+
+    @Test
+    public void findAuthenticationContextByCredentialId_test() {
+        target.addAuthenticator("john", createAuthenticator(ANOTHER_CREDENTIAL_ID)).block();
+
+        StepVerifier.create(target.findAuthenticationContextByCredentialId(CREDENTIAL_ID))
+                .assertNext(context -> {
+                    WebAuthnUserDetails user = context.getUser();
+                    assertThat(user.getUsername()).isEqualTo("john");
+                    assertThat(user.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+                    assertThat(context.getAuthenticator().getAttestedCredentialData().getCredentialId()).isEqualTo(CREDENTIAL_ID);
+                    assertThat(user.getAuthenticators()).hasSize(1).first().isSameAs(context.getAuthenticator());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void findAuthenticationContextByCredentialId_with_unknown_credentialId_test() {
+        StepVerifier.create(target.findAuthenticationContextByCredentialId(ANOTHER_CREDENTIAL_ID))
+                .verifyComplete();
+    }
+
+    @Test
+    public void findCredentialIdsByUsername_test() {
+        target.addAuthenticator("john", createAuthenticator(ANOTHER_CREDENTIAL_ID)).block();
+
+        StepVerifier.create(target.findCredentialIdsByUsername("john").collectList())
+                .assertNext(credentialIds -> assertThat(credentialIds).containsExactlyInAnyOrder(CREDENTIAL_ID, ANOTHER_CREDENTIAL_ID))
+                .verifyComplete();
+        StepVerifier.create(target.findCredentialIdsByUsername("unknown"))
+                .verifyComplete();
+    }
+
+    @Test
+    public void addAuthenticator_with_unknown_username_test() {
+        StepVerifier.create(target.addAuthenticator("unknown", createAuthenticator(ANOTHER_CREDENTIAL_ID)))
+                .verifyError(UsernameNotFoundException.class);
+    }
+
+    @Test
+    public void removeAuthenticator_test() {
+        StepVerifier.create(target.removeAuthenticator("john", CREDENTIAL_ID))
+                .verifyComplete();
+
+        StepVerifier.create(target.findAuthenticationContextByCredentialId(CREDENTIAL_ID))
+                .verifyComplete();
+    }
+
+    @Test
+    public void removeAuthenticator_with_unknown_credentialId_test() {
+        StepVerifier.create(target.removeAuthenticator("john", ANOTHER_CREDENTIAL_ID))
+                .verifyError(CredentialIdNotFoundException.class);
+    }
+
+    @Test
+    public void removeAuthenticator_of_another_user_test() {
+        StepVerifier.create(target.removeAuthenticator("another", CREDENTIAL_ID))
+                .verifyError(CredentialIdNotFoundException.class);
+
+        StepVerifier.create(target.findAuthenticationContextByCredentialId(CREDENTIAL_ID))
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
+    @Test
+    public void updateCounter_test() {
+        StepVerifier.create(target.updateCounter(CREDENTIAL_ID, 42))
+                .verifyComplete();
+
+        StepVerifier.create(target.findAuthenticationContextByCredentialId(CREDENTIAL_ID))
+                .assertNext(context -> assertThat(context.getAuthenticator().getCounter()).isEqualTo(42))
+                .verifyComplete();
+    }
+
+    @Test
+    public void updateCounter_with_unknown_credentialId_test() {
+        StepVerifier.create(target.updateCounter(ANOTHER_CREDENTIAL_ID, 42))
+                .verifyError(CredentialIdNotFoundException.class);
+    }
+
+    private Authenticator createAuthenticator(byte[] credentialId) {
+        AttestedCredentialData attestedCredentialData = new AttestedCredentialData(AAGUID.ZERO, credentialId, coseKey);
+        return new WebAuthnAuthenticator("authenticator", attestedCredentialData, new NoneAttestationStatement(), 0);
+    }
+}
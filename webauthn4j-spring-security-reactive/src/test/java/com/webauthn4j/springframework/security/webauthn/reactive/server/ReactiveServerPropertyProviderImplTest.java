@@ -0,0 +1,56 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.server;
+
+import com.webauthn4j.data.client.Origin;
+import com.webauthn4j.data.client.challenge.Challenge;
+import com.webauthn4j.data.client.challenge.DefaultChallenge;
+import com.webauthn4j.springframework.security.webauthn.reactive.challenge.ServerChallengeRepository;
+import com.webauthn4j.springframework.security.webauthn.reactive.options.ReactiveOptionsProvider;
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReactiveServerPropertyProviderImplTest {
+
+    private final ServerChallengeRepository challengeRepository = mock(ServerChallengeRepository.class);
+    private final ReactiveOptionsProvider optionsProvider = mock(ReactiveOptionsProvider.class);
+    private final ReactiveServerPropertyProviderImpl target = new ReactiveServerPropertyProviderImpl(optionsProvider, challengeRepository);
+
+    @Test
+    public void provide_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("https://origin.example.com/login"));
+        Challenge mockChallenge = new DefaultChallenge();
+        when(challengeRepository.loadOrGenerateChallenge(exchange)).thenReturn(Mono.just(mockChallenge));
+        when(optionsProvider.getEffectiveRpId(exchange)).thenReturn("rpid.example.com");
+
+        StepVerifier.create(target.provide(exchange))
+                .assertNext(serverProperty -> {
+                    assertThat(serverProperty.getRpId()).isEqualTo("rpid.example.com");
+                    assertThat(serverProperty.getOrigin()).isEqualTo(new Origin("https://origin.example.com"));
+                    assertThat(serverProperty.getChallenge()).isEqualTo(mockChallenge);
+                })
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.userdetails;
+
+import com.webauthn4j.authenticator.Authenticator;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnAuthenticationContext;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetails;
+import com.webauthn4j.springframework.security.webauthn.userdetails.WebAuthnUserDetailsService;
+import org.junit.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+public class ReactiveWebAuthnUserDetailsServiceAdapterTest {
+
+    private final WebAuthnUserDetailsService userDetailsService = mock(WebAuthnUserDetailsService.class);
+    private final ReactiveWebAuthnUserDetailsServiceAdapter target = new ReactiveWebAuthnUserDetailsServiceAdapter(userDetailsService);
+
+    @Test
+    public void findByUsername_test() {
+        WebAuthnUserDetails user = mock(WebAuthnUserDetails.class);
+        when(userDetailsService.findUserByUsername("john")).thenReturn(Optional.of(user));
+
+        StepVerifier.create(target.findByUsername("john"))
+                .expectNext(user)
+                .verifyComplete();
+    }
+
+    @Test
+    public void findByUsername_with_unknown_username_test() {
+        when(userDetailsService.findUserByUsername("unknown")).thenReturn(Optional.empty());
+
+        StepVerifier.create(target.findByUsername("unknown"))
+                .verifyComplete();
+    }
+
+    @Test
+    public void findAuthenticationContextByCredentialId_test() {
+        byte[] credentialId = new byte[]{0x01, 0x23};
+        WebAuthnAuthenticationContext context = new WebAuthnAuthenticationContext(mock(WebAuthnUserDetails.class), mock(Authenticator.class));
+        when(userDetailsService.findAuthenticationContextByCredentialId(credentialId)).thenReturn(Optional.of(context));
+
+        StepVerifier.create(target.findAuthenticationContextByCredentialId(credentialId))
+                .expectNext(context)
+                .verifyComplete();
+    }
+
+    @Test
+    public void findByCredentialId_test() {
+        byte[] credentialId = new byte[]{0x01, 0x23};
+        WebAuthnUserDetails user = mock(WebAuthnUserDetails.class);
+        when(userDetailsService.findUserByCredentialId(credentialId)).thenReturn(Optional.of(user));
+
+        StepVerifier.create(target.findByCredentialId(credentialId))
+                .expectNext(user)
+                .verifyComplete();
+    }
+
+    @Test
+    public void addAuthenticator_test() {
+        Authenticator authenticator = mock(Authenticator.class);
+        when(userDetailsService.tryAddAuthenticator("john", authenticator)).thenReturn(true);
+
+        StepVerifier.create(target.addAuthenticator("john", authenticator))
+                .verifyComplete();
+        verify(userDetailsService).tryAddAuthenticator("john", authenticator);
+    }
+
+    @Test
+    public void addAuthenticator_with_unknown_username_test() {
+        Authenticator authenticator = mock(Authenticator.class);
+        when(userDetailsService.tryAddAuthenticator("unknown", authenticator)).thenReturn(false);
+
+        StepVerifier.create(target.addAuthenticator("unknown", authenticator))
+                .verifyError(UsernameNotFoundException.class);
+    }
+
+    @Test
+    public void removeAuthenticator_test() {
+        byte[] credentialId = new byte[]{0x01, 0x23};
+
+        StepVerifier.create(target.removeAuthenticator("john", credentialId))
+                .verifyComplete();
+        verify(userDetailsService).removeAuthenticator("john", credentialId);
+    }
+
+    @Test
+    public void lookup_is_deferred_until_subscription_test() {
+        target.setScheduler(Schedulers.immediate());
+        when(userDetailsService.findUserByUsername("john")).thenReturn(Optional.empty());
+
+        Mono<WebAuthnUserDetails> user = target.findByUsername("john");
+        verifyNoInteractions(userDetailsService);
+
+        StepVerifier.create(user).verifyComplete();
+        verify(userDetailsService).findUserByUsername("john");
+    }
+
+    @Test
+    public void lookup_error_is_signaled_test() {
+        when(userDetailsService.findUserByUsername("john")).thenThrow(new IllegalStateException("store unavailable"));
+
+        StepVerifier.create(target.findByUsername("john"))
+                .verifyError(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.webauthn4j.springframework.security.webauthn.reactive.util;
+
+import com.webauthn4j.data.client.Origin;
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ServerWebExchangeUtilTest {
+
+    @Test
+    public void getOrigin_test() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("https://example.com:8443/login"));
+        assertThat(ServerWebExchangeUtil.getOrigin(exchange)).isEqualTo(new Origin("https://example.com:8443"));
+    }
+
+    @Test
+    public void getOrigin_with_default_port_test() {
+        MockServerWebExchange httpsExchange = MockServerWebExchange.from(MockServerHttpRequest.get("https://example.com/login"));
+        MockServerWebExchange httpExchange = MockServerWebExchange.from(MockServerHttpRequest.get("http://example.com/login"));
+        assertThat(ServerWebExchangeUtil.getOrigin(httpsExchange)).isEqualTo(new Origin("https://example.com"));
+        assertThat(ServerWebExchangeUtil.getOrigin(httpExchange)).isEqualTo(new Origin("http://example.com"));
+    }
+}